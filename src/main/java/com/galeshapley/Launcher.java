@@ -0,0 +1,80 @@
+package com.galeshapley;
+
+import com.galeshapley.batch.BatchRunner;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.RuntimeOptionsResolver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Plain Java entry point that skips the Spring context.
+ *
+ * Reads {@link RuntimeOptions} from {@code --galeshapley.*} arguments and {@code GALESHAPLEY_*}
+ * environment variables with the same precedence as {@link Main}, then runs one simulation.
+ * Suited to short batch runs where context startup would dominate, and to AppCDS archives
+ * (see the {@code appcds} Maven profile).
+ *
+ * With {@code --batch=<directory or glob>} every matching config is run instead, see
+ * {@link BatchRunner}; {@code --threads=N} and {@code --output=results.csv} tune the batch.
+ * A single run accepts {@code --export=matches.csv.gz} to stream the final matching to a file
+ * and {@code --convergence=rounds.csv} to write the per-round convergence trace.
+ */
+public class Launcher {
+
+    private static final String DEFAULT_BATCH_OUTPUT = "batch-results.csv";
+
+    public static void main(String[] args) {
+        try {
+            RuntimeOptions runtimeOptions = RuntimeOptionsResolver.resolve(args);
+            String batch = RuntimeOptionsResolver.option(args, "--batch");
+
+            if (batch != null) {
+                System.exit(runBatch(batch, args, runtimeOptions));
+            }
+
+            String configFile = RuntimeOptionsResolver.positionalArgument(args, SimulationRunner.DEFAULT_CONFIG_FILE);
+
+            String export = RuntimeOptionsResolver.option(args, "--export");
+            String convergence = RuntimeOptionsResolver.option(args, "--convergence");
+
+            new SimulationRunner(runtimeOptions, export != null ? Paths.get(export) : null,
+                                 convergence != null ? Paths.get(convergence) : null).run(configFile);
+
+        } catch (IOException e) {
+            System.err.println("Error loading configuration: " + e.getMessage());
+            System.exit(1);
+        } catch (Exception e) {
+            System.err.println("Error running algorithm: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static int runBatch(String directoryOrGlob, String[] args, RuntimeOptions runtimeOptions) throws IOException {
+        BatchRunner.Builder builder = BatchRunner.builder().runtimeOptions(runtimeOptions);
+        String threads = RuntimeOptionsResolver.option(args, "--threads");
+        if (threads != null) {
+            builder.threads(Integer.parseInt(threads));
+        }
+        String output = RuntimeOptionsResolver.option(args, "--output");
+        Path results = Paths.get(output != null ? output : DEFAULT_BATCH_OUTPUT);
+
+        List<Path> configs = BatchRunner.findConfigs(directoryOrGlob);
+        System.out.println("Running " + configs.size() + " configurations from: " + directoryOrGlob);
+
+        List<BatchRunner.BatchResult> summaries = builder.build().run(configs, results);
+
+        long failed = summaries.stream().filter(summary -> !summary.isSuccess()).count();
+        for (BatchRunner.BatchResult summary : summaries) {
+            if (!summary.isSuccess()) {
+                System.err.println("  FAILED " + summary.getConfig() + ": " + summary.getError());
+            }
+        }
+        System.out.println("Completed " + (summaries.size() - failed) + "/" + summaries.size()
+            + " configurations, results written to " + results);
+        return failed == 0 ? 0 : 1;
+    }
+}
@@ -1,18 +1,14 @@
 package com.galeshapley;
 
-import com.galeshapley.algorithm.GaleShapleyAlgorithm;
-import com.galeshapley.config.SimulationConfig;
-import com.galeshapley.config.SimulationConfigLoader;
 import com.galeshapley.config.RuntimeOptions;
-import com.galeshapley.observer.ConsoleObserver;
-import com.galeshapley.observer.StatisticsObserver;
+import com.galeshapley.config.RuntimeOptionsResolver;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ConfigurableApplicationContext;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 @SpringBootApplication
 @EnableConfigurationProperties(RuntimeOptions.class)
@@ -23,42 +19,15 @@ public class Main {
         
         try {
             RuntimeOptions runtimeOptions = context.getBean(RuntimeOptions.class);
-            System.out.println("Runtime Options: " + runtimeOptions);
-            
-            String configFile = "src/main/resources/example-config.yaml";
             
             // Check for non-Spring arguments (config file path)
-            for (String arg : args) {
-                if (!arg.startsWith("--")) {
-                    configFile = arg;
-                    break;
-                }
-            }
-            
-            System.out.println("Loading configuration from: " + configFile);
-            System.out.println();
-            
-            SimulationConfigLoader loader = new SimulationConfigLoader();
-            SimulationConfig config = loader.loadFromFile(new File(configFile));
-            
-            GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(
-                config.getProposerPreferences(),
-                config.getProposeePreferences(),
-                config.getEmptySetPreferences()
-            );
-            
-            ConsoleObserver consoleObserver = new ConsoleObserver(runtimeOptions.isDetailedLoggingEnabled());
-            StatisticsObserver statisticsObserver = new StatisticsObserver();
-            
-            algorithm.addObserver(consoleObserver);
-            algorithm.addObserver(statisticsObserver);
+            String configFile = RuntimeOptionsResolver.positionalArgument(args, SimulationRunner.DEFAULT_CONFIG_FILE);
             
-            GaleShapleyAlgorithm.AlgorithmResult result = algorithm.execute(runtimeOptions);
+            String export = RuntimeOptionsResolver.option(args, "--export");
+            String convergence = RuntimeOptionsResolver.option(args, "--convergence");
             
-            if (runtimeOptions.isTrackIterationMetrics()) {
-                System.out.println("\n=== Statistics ===");
-                System.out.println(statisticsObserver.getStatistics());
-            }
+            new SimulationRunner(runtimeOptions, export != null ? Paths.get(export) : null,
+                                 convergence != null ? Paths.get(convergence) : null).run(configFile);
             
         } catch (IOException e) {
             System.err.println("Error loading configuration: " + e.getMessage());
@@ -0,0 +1,189 @@
+package com.galeshapley;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.algorithm.StableMatchingSolvers;
+import com.galeshapley.algorithm.StableRoommatesAlgorithm;
+import com.galeshapley.algorithm.SolverMode;
+import com.galeshapley.analysis.WelfareAnalyzer;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import com.galeshapley.config.YamlConfig;
+import com.galeshapley.export.MatchingExporter;
+import com.galeshapley.metrics.SimulationMetrics;
+import com.galeshapley.model.Roommate;
+import com.galeshapley.model.RoommatesMarket;
+import com.galeshapley.observer.ConsoleObserver;
+import com.galeshapley.observer.ConvergenceRecorder;
+import com.galeshapley.observer.SamplingObserver;
+import com.galeshapley.observer.StatisticsObserver;
+import com.galeshapley.profiling.Phase;
+import com.galeshapley.profiling.PhaseTimer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Loads a YAML configuration, runs the algorithm on it and prints the results.
+ * Shared by the Spring entry point ({@link Main}) and the plain {@link Launcher}.
+ *
+ * With an export file the final matching is streamed there by {@link MatchingExporter}
+ * instead of being listed on the console, and with a convergence file the per-round trace of
+ * the algorithm is written there by {@link ConvergenceRecorder}.
+ *
+ * A configuration with {@code roommates} is solved by {@link StableRoommatesAlgorithm} instead.
+ *
+ * Each stage of a two-sided run is timed by a {@link PhaseTimer}, printed with the statistics.
+ * With sampling enabled the observers see only a {@link SamplingObserver}'s sample of the
+ * proposals, and the statistics are followed by the extrapolated totals.
+ */
+public class SimulationRunner {
+    
+    public static final String DEFAULT_CONFIG_FILE = "src/main/resources/example-config.yaml";
+    
+    private final RuntimeOptions runtimeOptions;
+    private final Path exportFile;
+    private final Path convergenceFile;
+    
+    public SimulationRunner(RuntimeOptions runtimeOptions) {
+        this(runtimeOptions, null);
+    }
+    
+    public SimulationRunner(RuntimeOptions runtimeOptions, Path exportFile) {
+        this(runtimeOptions, exportFile, null);
+    }
+    
+    public SimulationRunner(RuntimeOptions runtimeOptions, Path exportFile, Path convergenceFile) {
+        this.runtimeOptions = runtimeOptions;
+        this.exportFile = exportFile;
+        this.convergenceFile = convergenceFile;
+    }
+    
+    /**
+     * @return the algorithm's result, or null for a stable roommates configuration
+     */
+    public GaleShapleyAlgorithm.AlgorithmResult run(String configFile) throws IOException {
+        System.out.println("Runtime Options: " + runtimeOptions);
+        System.out.println("Loading configuration from: " + configFile);
+        System.out.println();
+        if (runtimeOptions.isPublishMetrics()) {
+            SimulationMetrics.getInstance().registerMBean();
+        }
+        
+        PhaseTimer timer = new PhaseTimer();
+        SimulationConfigLoader loader = new SimulationConfigLoader(timer);
+        YamlConfig yamlConfig = timer.time(Phase.PARSE, () -> YamlConfig.loadFromFile(new File(configFile)));
+        if (yamlConfig.getSimulation().isRoommatesMarket()) {
+            runRoommates(loader.loadRoommates(yamlConfig, runtimeOptions));
+            return null;
+        }
+        SimulationConfig config = loader.load(yamlConfig, runtimeOptions);
+        SolverMode solver = runtimeOptions.getSolver();
+        
+        // Observers, sampling and convergence rows describe Gale-Shapley's proposals, so the
+        // other solvers run on their own
+        StatisticsObserver statisticsObserver = null;
+        SamplingObserver sampler = null;
+        ConvergenceRecorder convergenceRecorder = null;
+        GaleShapleyAlgorithm.AlgorithmResult result;
+        if (solver == SolverMode.GALE_SHAPLEY) {
+            GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket(), runtimeOptions);
+            
+            ConsoleObserver consoleObserver = new ConsoleObserver(runtimeOptions.isDetailedLoggingEnabled());
+            consoleObserver.setPrintFinalMatching(exportFile == null);
+            statisticsObserver = new StatisticsObserver();
+            
+            if (runtimeOptions.getSampleAgents() > 0) {
+                long seed = runtimeOptions.getGlobalSeed() != null ? runtimeOptions.getGlobalSeed() : 0L;
+                sampler = SamplingObserver.forAgents(runtimeOptions.getSampleAgents(), seed,
+                    consoleObserver, statisticsObserver);
+            } else if (runtimeOptions.getSampleEvery() > 1) {
+                sampler = SamplingObserver.everyNth(runtimeOptions.getSampleEvery(), consoleObserver, statisticsObserver);
+            }
+            if (sampler != null) {
+                algorithm.addObserver(sampler);
+            } else {
+                algorithm.addObserver(consoleObserver);
+                algorithm.addObserver(statisticsObserver);
+            }
+            if (convergenceFile != null) {
+                convergenceRecorder = new ConvergenceRecorder();
+                algorithm.setConvergenceRecorder(convergenceRecorder);
+            }
+            
+            result = timer.time(Phase.SOLVE, () -> algorithm.execute(runtimeOptions));
+        } else {
+            if (convergenceFile != null) {
+                System.out.println("Convergence rows are only recorded for Gale-Shapley; ignoring " + convergenceFile);
+            }
+            result = timer.time(Phase.SOLVE, () -> StableMatchingSolvers.solve(config.getMarket(), runtimeOptions));
+        }
+        
+        PhaseTimer.Span report = timer.start(Phase.REPORT);
+        try {
+            if (solver != SolverMode.GALE_SHAPLEY) {
+                System.out.println("\n=== Solver: " + solver + " ===");
+                System.out.println("Objective: " + result.getCost().getAsLong()
+                    + ", solver iterations: " + result.getIterations());
+                if (exportFile == null) {
+                    ConsoleObserver.printMatching(result.getFinalMatching());
+                }
+            }
+            
+            if (exportFile != null) {
+                long records = MatchingExporter.forFile(exportFile)
+                    .export(config.getMarket(), result.getFinalMatching(), exportFile);
+                System.out.println("\nExported " + records + " agent records to: " + exportFile);
+            }
+            
+            if (convergenceRecorder != null) {
+                convergenceRecorder.export(convergenceFile);
+                System.out.println("\nWrote " + convergenceRecorder.size() + " convergence rows (at least "
+                    + convergenceRecorder.getProposalsPerRow() + " proposals each) to: " + convergenceFile);
+            }
+            
+            if (runtimeOptions.isTrackIterationMetrics()) {
+                System.out.println("\n=== Statistics ===");
+                if (statisticsObserver != null) {
+                    System.out.println(statisticsObserver.getStatistics());
+                }
+                if (sampler != null) {
+                    System.out.println(sampler.getEstimates());
+                }
+                System.out.println(WelfareAnalyzer.analyze(config.getMarket(), result.getFinalMatching()));
+            }
+        } finally {
+            report.close();
+        }
+        
+        if (runtimeOptions.isTrackIterationMetrics()) {
+            System.out.println(timer);
+        }
+        return result;
+    }
+    
+    private static StableRoommatesAlgorithm.Result runRoommates(RoommatesMarket market) {
+        StableRoommatesAlgorithm.Result result = new StableRoommatesAlgorithm(market).execute();
+        
+        System.out.println("=== Stable Roommates ===");
+        System.out.println("Roommates: " + market.getAgentCount() + ", proposals: " + result.getProposals()
+            + ", rotations eliminated: " + result.getRotations());
+        if (!result.hasStableMatching()) {
+            System.out.println("No stable matching exists: " + result.getFailureReason().orElse(""));
+            return result;
+        }
+        int matched = 0;
+        for (Roommate[] pair : result.getPairs()) {
+            System.out.println(pair[0].getName() + " <-> " + pair[1].getName());
+            matched += 2;
+        }
+        for (int i = 0; i < market.getAgentCount(); i++) {
+            if (result.getPartner(i) < 0) {
+                System.out.println(market.getAgent(i).getName() + " stays unmatched");
+            }
+        }
+        System.out.println("Matched roommates: " + matched + "/" + market.getAgentCount());
+        return result;
+    }
+}
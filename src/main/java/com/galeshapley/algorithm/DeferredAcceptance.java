@@ -0,0 +1,113 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.CompiledMarket;
+
+import java.util.Arrays;
+
+/**
+ * Deferred acceptance run to completion from either side of a compiled market, without observers.
+ *
+ * Unlike {@link GaleShapleyAlgorithm}, which stops as soon as one side is fully held, every free
+ * agent keeps proposing until it is held or has exhausted the part of its list ahead of ∅, so the
+ * result is always the stable matching that is optimal for the proposing side. A pair is
+ * acceptable only if each agent ranks the other ahead of its own empty set position.
+ */
+final class DeferredAcceptance {
+    
+    static final int UNMATCHED = -1;
+    
+    private DeferredAcceptance() {
+    }
+    
+    /**
+     * @return the proposer-optimal stable matching as each proposer's proposee index, or {@link #UNMATCHED}
+     */
+    static int[] proposerOptimal(CompiledMarket market) {
+        int proposerCount = market.getProposerCount();
+        int[] partner = new int[proposerCount];
+        int[] holder = new int[market.getProposeeCount()];
+        int[] next = new int[proposerCount];
+        Arrays.fill(partner, UNMATCHED);
+        Arrays.fill(holder, UNMATCHED);
+        
+        int[] free = new int[proposerCount];
+        int freeCount = 0;
+        for (int i = proposerCount - 1; i >= 0; i--) {
+            free[freeCount++] = i;
+        }
+        
+        while (freeCount > 0) {
+            int proposer = free[--freeCount];
+            int cutoff = market.getProposerCutoff(proposer);
+            while (next[proposer] < cutoff) {
+                int proposee = market.getProposerPreference(proposer, next[proposer]++);
+                if (!market.isAcceptableToProposee(proposee, proposer)) {
+                    continue;
+                }
+                int current = holder[proposee];
+                if (current == UNMATCHED
+                        || market.getProposeeRank(proposee, proposer) < market.getProposeeRank(proposee, current)) {
+                    holder[proposee] = proposer;
+                    partner[proposer] = proposee;
+                    if (current != UNMATCHED) {
+                        partner[current] = UNMATCHED;
+                        free[freeCount++] = current;
+                    }
+                    break;
+                }
+            }
+        }
+        return partner;
+    }
+    
+    /**
+     * @return the proposee-optimal stable matching as each proposer's proposee index, or {@link #UNMATCHED}
+     */
+    static int[] proposeeOptimal(CompiledMarket market) {
+        int proposeeCount = market.getProposeeCount();
+        int[] holder = new int[market.getProposerCount()];
+        int[] next = new int[proposeeCount];
+        Arrays.fill(holder, UNMATCHED);
+        
+        int[] free = new int[proposeeCount];
+        int freeCount = 0;
+        for (int j = proposeeCount - 1; j >= 0; j--) {
+            free[freeCount++] = j;
+        }
+        
+        while (freeCount > 0) {
+            int proposee = free[--freeCount];
+            int cutoff = market.getProposeeCutoff(proposee);
+            while (next[proposee] < cutoff) {
+                int proposer = market.getProposeePreference(proposee, next[proposee]++);
+                if (!market.isAcceptableToProposer(proposer, proposee)) {
+                    continue;
+                }
+                int current = holder[proposer];
+                if (current == UNMATCHED
+                        || market.getProposerRank(proposer, proposee) < market.getProposerRank(proposer, current)) {
+                    holder[proposer] = proposee;
+                    if (current != UNMATCHED) {
+                        free[freeCount++] = current;
+                    }
+                    break;
+                }
+            }
+        }
+        return holder;
+    }
+    
+    /**
+     * @return each proposee's proposer index, or {@link #UNMATCHED}
+     */
+    static int[] invert(int[] proposerPartners, int proposeeCount) {
+        int[] proposeePartners = new int[proposeeCount];
+        Arrays.fill(proposeePartners, UNMATCHED);
+        for (int proposer = 0; proposer < proposerPartners.length; proposer++) {
+            if (proposerPartners[proposer] != UNMATCHED) {
+                proposeePartners[proposerPartners[proposer]] = proposer;
+            }
+        }
+        return proposeePartners;
+    }
+}
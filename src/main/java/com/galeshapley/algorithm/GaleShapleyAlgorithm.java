@@ -1,19 +1,40 @@
 package com.galeshapley.algorithm;
 
+import com.galeshapley.metrics.SimulationMetrics;
 import com.galeshapley.model.*;
 import com.galeshapley.observer.AlgorithmObserver;
+import com.galeshapley.observer.ConvergenceRecorder;
+import com.galeshapley.observer.SamplingObserver;
 import com.galeshapley.observer.StatisticsObserver;
+import com.galeshapley.profiling.IterationBatchEvent;
 import com.galeshapley.config.RuntimeOptions;
 
 import java.util.*;
 
+/**
+ * Round-based Gale-Shapley deferred acceptance over a {@link CompiledMarket}.
+ *
+ * Each iteration lets every free proposer make one proposal. A proposer whose empty set
+ * position is reached chooses to remain single; a proposee only accepts proposers it ranks
+ * ahead of its own empty set position.
+ *
+ * Every {@link RuntimeOptions#getIterationEventInterval()} iterations are reported to Java
+ * Flight Recorder as one {@link IterationBatchEvent}, and once {@link SimulationMetrics} are
+ * published every iteration's progress is added to them. A {@link ConvergenceRecorder}, when
+ * set, receives the running totals as primitives whenever they complete one of its rows.
+ *
+ * Proposal-level events are only dispatched when some observer wants them: every proposal for
+ * ordinary observers, and the ones a {@link SamplingObserver} picks otherwise.
+ */
 public class GaleShapleyAlgorithm {
-    private final Map<Proposer, PreferenceList<Proposee>> proposerPreferences;
-    private final Map<Proposee, PreferenceList<Proposer>> proposeePreferences;
-    private final Map<Proposer, Integer> nextProposalIndex;
+    private static final int UNMATCHED = -1;
+    private static final int SINGLE = -2;
+
+    private final CompiledMarket market;
     private final List<AlgorithmObserver> observers;
-    private final Map<Proposee, Integer> proposeeEmptySetPreferences;
-    private Matching currentMatching;
+    private SamplingObserver[] samplers = new SamplingObserver[0];
+    private boolean observesEveryProposal;
+    private ConvergenceRecorder convergenceRecorder;
     private int iterationCount;
     private RuntimeOptions runtimeOptions;
 
@@ -22,14 +43,14 @@ public class GaleShapleyAlgorithm {
             Map<Proposee, PreferenceList<Proposer>> proposeePreferences) {
         this(proposerPreferences, proposeePreferences, new HashMap<>());
     }
-    
+
     public GaleShapleyAlgorithm(
             Map<Proposer, PreferenceList<Proposee>> proposerPreferences,
             Map<Proposee, PreferenceList<Proposer>> proposeePreferences,
             Map<Proposer, Integer> emptySetPreferences) {
         this(proposerPreferences, proposeePreferences, emptySetPreferences, new HashMap<>());
     }
-    
+
     public GaleShapleyAlgorithm(
             Map<Proposer, PreferenceList<Proposee>> proposerPreferences,
             Map<Proposee, PreferenceList<Proposer>> proposeePreferences,
@@ -37,285 +58,391 @@ public class GaleShapleyAlgorithm {
             Map<Proposee, Integer> proposeeEmptySetPreferences) {
         this(proposerPreferences, proposeePreferences, emptySetPreferences, proposeeEmptySetPreferences, RuntimeOptions.defaultOptions());
     }
-    
+
     public GaleShapleyAlgorithm(
             Map<Proposer, PreferenceList<Proposee>> proposerPreferences,
             Map<Proposee, PreferenceList<Proposer>> proposeePreferences,
             Map<Proposer, Integer> emptySetPreferences,
             Map<Proposee, Integer> proposeeEmptySetPreferences,
             RuntimeOptions runtimeOptions) {
-        this.proposerPreferences = processEmptySetPreferences(proposerPreferences, emptySetPreferences);
-        this.proposeePreferences = setupEmptySetHandling(proposeePreferences, proposerPreferences.keySet(), proposeeEmptySetPreferences);
-        this.proposeeEmptySetPreferences = new HashMap<>(proposeeEmptySetPreferences);
-        this.nextProposalIndex = new HashMap<>();
+        this(CompiledMarket.fromPreferenceLists(proposerPreferences, proposeePreferences,
+                emptySetPreferences, proposeeEmptySetPreferences), runtimeOptions);
+    }
+
+    public GaleShapleyAlgorithm(CompiledMarket market) {
+        this(market, RuntimeOptions.defaultOptions());
+    }
+
+    public GaleShapleyAlgorithm(CompiledMarket market, RuntimeOptions runtimeOptions) {
+        this.market = Objects.requireNonNull(market, "Market cannot be null");
         this.observers = new ArrayList<>();
         this.iterationCount = 0;
         this.runtimeOptions = runtimeOptions;
     }
-    
-    private Map<Proposer, PreferenceList<Proposee>> processEmptySetPreferences(
-            Map<Proposer, PreferenceList<Proposee>> originalPreferences,
-            Map<Proposer, Integer> emptySetPositions) {
-        
-        Map<Proposer, PreferenceList<Proposee>> processedPreferences = new HashMap<>();
-        
-        for (Map.Entry<Proposer, PreferenceList<Proposee>> entry : originalPreferences.entrySet()) {
-            Proposer proposer = entry.getKey();
-            PreferenceList<Proposee> originalList = entry.getValue();
-            
-            List<Proposee> newPreferences = new ArrayList<>();
-            Integer emptySetPosition = emptySetPositions.get(proposer);
-            
-            if (emptySetPosition != null) {
-                // Insert EmptySet at the specified position
-                for (int i = 0; i < originalList.size(); i++) {
-                    if (i == emptySetPosition) {
-                        newPreferences.add(EmptySet.getInstance());
-                    }
-                    newPreferences.add(originalList.getPreferredAt(i));
-                }
-                // If empty set position is at the end
-                if (emptySetPosition >= originalList.size()) {
-                    newPreferences.add(EmptySet.getInstance());
-                }
-            } else {
-                // No empty set preference, keep original list
-                newPreferences.addAll(originalList.getPreferences());
-            }
-            
-            processedPreferences.put(proposer, new PreferenceList<>(proposer, newPreferences));
-        }
-        
-        return processedPreferences;
-    }
-    
-    private Map<Proposee, PreferenceList<Proposer>> setupEmptySetHandling(
-            Map<Proposee, PreferenceList<Proposer>> originalPreferences,
-            Set<Proposer> allProposers,
-            Map<Proposee, Integer> proposeeEmptySetPreferences) {
-        
-        Map<Proposee, PreferenceList<Proposer>> processedPreferences = new HashMap<>();
-        
-        // Process each proposee's preferences
-        for (Map.Entry<Proposee, PreferenceList<Proposer>> entry : originalPreferences.entrySet()) {
-            Proposee proposee = entry.getKey();
-            PreferenceList<Proposer> originalList = entry.getValue();
-            
-            List<Proposer> newPreferences = new ArrayList<>();
-            Integer emptySetPosition = proposeeEmptySetPreferences.get(proposee);
-            
-            if (emptySetPosition != null) {
-                // Insert EmptySet at the specified position for proposee preferences
-                // This represents the proposee's willingness to remain single at this preference level
-                for (int i = 0; i < originalList.size(); i++) {
-                    if (i == emptySetPosition) {
-                        // EmptySet is conceptually added, but we handle it specially in the algorithm logic
-                        // We don't actually add it to the preference list here
-                    }
-                    newPreferences.add(originalList.getPreferredAt(i));
-                }
-            } else {
-                // No empty set preference, keep original list but implicitly add empty set at the end
-                newPreferences.addAll(originalList.getPreferences());
-            }
-            
-            processedPreferences.put(proposee, new PreferenceList<>(proposee, newPreferences));
-        }
-        
-        // EmptySet always accepts any proposal (ranks everyone equally at position 0)
-        // This ensures anyone who proposes to EmptySet will be "matched" with being single
-        List<Proposer> emptySetPreferences = new ArrayList<>(allProposers);
-        processedPreferences.put(EmptySet.getInstance(), 
-            new PreferenceList<>(EmptySet.getInstance(), emptySetPreferences));
-        
-        return processedPreferences;
+
+    public CompiledMarket getMarket() {
+        return market;
     }
 
     public void addObserver(AlgorithmObserver observer) {
         observers.add(observer);
+        updateSamplers();
     }
 
     public void removeObserver(AlgorithmObserver observer) {
         observers.remove(observer);
+        updateSamplers();
+    }
+
+    private void updateSamplers() {
+        samplers = observers.stream()
+            .filter(SamplingObserver.class::isInstance)
+            .map(SamplingObserver.class::cast)
+            .toArray(SamplingObserver[]::new);
+        observesEveryProposal = samplers.length < observers.size();
+    }
+
+    /**
+     * Record how the matched count, free proposers, proposals and displacements evolve over the rounds.
+     */
+    public void setConvergenceRecorder(ConvergenceRecorder convergenceRecorder) {
+        this.convergenceRecorder = convergenceRecorder;
     }
 
     public AlgorithmResult execute() {
         return execute(this.runtimeOptions);
     }
-    
+
     public AlgorithmResult execute(RuntimeOptions options) {
         this.runtimeOptions = options;
-        initialize();
+        this.iterationCount = 0;
+
+        Run run = new Run();
+        for (SamplingObserver sampler : samplers) {
+            sampler.prepare(market);
+        }
         notifyStart();
 
-        while (!currentMatching.isComplete() && hasMoreProposals() && iterationCount < runtimeOptions.getMaxIterations()) {
-            iterationCount++;
-            performIteration();
+        int interval = runtimeOptions.getIterationEventInterval();
+        long recordProposals = convergenceRecorder != null ? convergenceRecorder.getNextProposals() : Long.MAX_VALUE;
+        IterationBatchEvent batch = null;
+        SimulationMetrics metrics = SimulationMetrics.getInstance();
+        try (SimulationMetrics.Run progress = metrics.isPublished()
+                ? metrics.startRun(market.getProposerCount(), market.getProposeeCount()) : null) {
+            while (run.unmatchedProposers > 0 && run.unmatchedProposees > 0 && run.hasMoreProposals()
+                    && iterationCount < runtimeOptions.getMaxIterations()) {
+                iterationCount++;
+                if (batch == null) {
+                    batch = new IterationBatchEvent();
+                    batch.begin();
+                    batch.firstIteration = iterationCount;
+                }
+                notifyIterationStart(iterationCount);
+                int proposals = run.queueSize;
+                run.performIteration();
+                int matched = market.getProposeeCount() - run.unmatchedProposees;
+                batch.proposals += proposals;
+                if (progress != null) {
+                    progress.onIteration(iterationCount, proposals, run.queueSize, matched);
+                }
+                if (run.proposals >= recordProposals) {
+                    convergenceRecorder.record(iterationCount, matched, run.queueSize, run.proposals, run.displacements);
+                    recordProposals = convergenceRecorder.getNextProposals();
+                }
+                notifyIterationEnd(iterationCount);
+                if (iterationCount - batch.firstIteration + 1 == interval) {
+                    commit(batch, run);
+                    batch = null;
+                }
+            }
+        }
+        if (batch != null) {
+            commit(batch, run);
+        }
+        if (convergenceRecorder != null) {
+            convergenceRecorder.complete(iterationCount, market.getProposeeCount() - run.unmatchedProposees, run.queueSize,
+                                         run.proposals, run.displacements);
         }
 
-        notifyComplete();
-        return new AlgorithmResult(currentMatching, iterationCount);
+        Matching finalMatching = run.toMatching();
+        notifyComplete(finalMatching);
+        return new AlgorithmResult(finalMatching, iterationCount);
     }
 
-    private void initialize() {
-        currentMatching = new Matching();
-        
-        for (Proposer proposer : proposerPreferences.keySet()) {
-            currentMatching.addProposer(proposer);
-            nextProposalIndex.put(proposer, 0);
-        }
-        
-        for (Proposee proposee : proposeePreferences.keySet()) {
-            // Don't add EmptySet to the regular proposees collection
-            if (!proposee.isEmptySet()) {
-                currentMatching.addProposee(proposee);
-            }
+    private void commit(IterationBatchEvent batch, Run run) {
+        if (batch.shouldCommit()) {
+            batch.iterations = iterationCount - batch.firstIteration + 1;
+            batch.unmatchedProposers = run.unmatchedProposers;
+            batch.commit();
         }
     }
 
-    private boolean hasMoreProposals() {
-        for (Proposer proposer : currentMatching.getUnmatchedProposers()) {
-            PreferenceList<Proposee> prefs = proposerPreferences.get(proposer);
-            int nextIndex = nextProposalIndex.get(proposer);
-            
-            // Check if proposer has more preferences
-            if (nextIndex < prefs.size()) {
-                return true;
+    /**
+     * Mutable state of a single execution. Proposers waiting to propose are kept in a
+     * queue of indices; proposers who ran out of acceptable proposees drop out of it.
+     */
+    private final class Run {
+        private final int[] nextProposal;
+        private final int[] proposerMatch;
+        private final int[] proposeeMatch;
+        private int[] queue;
+        private int queueSize;
+        private int[] nextQueue;
+        private int nextQueueSize;
+        private int unmatchedProposers;
+        private int unmatchedProposees;
+        private long proposals;
+        private long displacements;
+
+        private Run() {
+            int proposerCount = market.getProposerCount();
+            int proposeeCount = market.getProposeeCount();
+
+            nextProposal = new int[proposerCount];
+            proposerMatch = new int[proposerCount];
+            proposeeMatch = new int[proposeeCount];
+            Arrays.fill(proposerMatch, UNMATCHED);
+            Arrays.fill(proposeeMatch, UNMATCHED);
+
+            queue = new int[proposerCount];
+            nextQueue = new int[proposerCount];
+            for (int proposer = 0; proposer < proposerCount; proposer++) {
+                if (hasProposalsLeft(proposer)) {
+                    queue[queueSize++] = proposer;
+                }
             }
+            unmatchedProposers = proposerCount;
+            unmatchedProposees = proposeeCount;
         }
-        return false;
-    }
 
-    private void performIteration() {
-        notifyIterationStart(iterationCount);
-        
-        Set<Proposer> unmatchedProposers = new HashSet<>(currentMatching.getUnmatchedProposers());
-        
-        for (Proposer proposer : unmatchedProposers) {
-            PreferenceList<Proposee> prefs = proposerPreferences.get(proposer);
-            int proposalIndex = nextProposalIndex.get(proposer);
-            
-            if (proposalIndex < prefs.size()) {
-                Proposee proposee = prefs.getPreferredAt(proposalIndex);
-                makeProposal(proposer, proposee);
-                nextProposalIndex.put(proposer, proposalIndex + 1);
+        private boolean hasMoreProposals() {
+            return queueSize > 0;
+        }
+
+        private boolean hasProposalsLeft(int proposer) {
+            int cutoff = market.getProposerCutoff(proposer);
+            boolean canChooseSingle = market.getProposerEmptySetPosition(proposer) != CompiledMarket.NO_EMPTY_SET;
+            return nextProposal[proposer] < (canChooseSingle ? cutoff + 1 : cutoff);
+        }
+
+        private void performIteration() {
+            nextQueueSize = 0;
+            proposals += queueSize;
+
+            for (int i = 0; i < queueSize; i++) {
+                int proposer = queue[i];
+                int position = nextProposal[proposer]++;
+
+                if (position < market.getProposerCutoff(proposer)) {
+                    makeProposal(proposer, market.getProposerPreference(proposer, position));
+                } else {
+                    chooseSingle(proposer);
+                }
+
+                if (proposerMatch[proposer] == UNMATCHED) {
+                    requeue(proposer);
+                }
             }
+
+            int[] swap = queue;
+            queue = nextQueue;
+            nextQueue = swap;
+            queueSize = nextQueueSize;
         }
-        
-        notifyIterationEnd(iterationCount);
-    }
 
-    private void makeProposal(Proposer proposer, Proposee proposee) {
-        // Track all proposal attempts, including those to empty sets
-        notifyProposalAttempt(proposer, proposee);
-        
-        // Special handling for EmptySet - always accepts (represents choosing to be single)
-        if (proposee.isEmptySet()) {
-            currentMatching.match(proposer, proposee);
-            // Don't notify proposals or acceptances for empty set as they're not "real"
-            return;
+        private void requeue(int proposer) {
+            if (hasProposalsLeft(proposer)) {
+                nextQueue[nextQueueSize++] = proposer;
+            }
         }
-        
-        // Check if the proposee prefers to remain single over this proposer
-        Integer emptySetPosition = proposeeEmptySetPreferences.get(proposee);
-        PreferenceList<Proposer> proposeePrefs = proposeePreferences.get(proposee);
-        
-        if (emptySetPosition != null) {
-            // Find proposer's position in proposee's preference list
-            // If proposer is not in list or their position is worse than empty set position, reject
-            if (!proposeePrefs.contains(proposer)) {
-                // Don't count this as a real proposal since it will be immediately rejected
-                notifyRejection(proposer, proposee);
-                return;
+
+        private void chooseSingle(int proposer) {
+            // Track all proposal attempts, including those to empty sets
+            if (observeProposal(proposer)) {
+                notifyProposalAttempt(market.getProposer(proposer), EmptySet.getInstance());
             }
-            
-            int proposerPosition = proposeePrefs.getRank(proposer);
-            
-            // If proposer's position is worse than empty set position, reject immediately
-            if (proposerPosition >= emptySetPosition) {
-                // Don't count this as a real proposal since it will be immediately rejected
-                notifyRejection(proposer, proposee);
+            // Choosing to be single is final and is not reported as a real proposal
+            proposerMatch[proposer] = SINGLE;
+            unmatchedProposers--;
+        }
+
+        private void makeProposal(int proposer, int proposee) {
+            // Decided before any agent is looked up, so unobserved proposals stay cheap
+            boolean observed = observeProposal(proposer);
+            Proposer proposerAgent = observed ? market.getProposer(proposer) : null;
+            Proposee proposeeAgent = observed ? market.getProposee(proposee) : null;
+
+            if (observed) {
+                notifyProposalAttempt(proposerAgent, proposeeAgent);
+            }
+
+            // Proposers the proposee ranks below being single (or not at all) are rejected outright
+            if (!market.isAcceptableToProposee(proposee, proposer)) {
+                if (observed) {
+                    notifyRejection(proposerAgent, proposeeAgent);
+                }
                 return;
             }
+
+            if (observed) {
+                notifyProposal(proposerAgent, proposeeAgent);
+            }
+
+            int currentProposer = proposeeMatch[proposee];
+
+            if (currentProposer == UNMATCHED) {
+                proposeeMatch[proposee] = proposer;
+                proposerMatch[proposer] = proposee;
+                unmatchedProposers--;
+                unmatchedProposees--;
+                if (observed) {
+                    notifyAcceptance(proposerAgent, proposeeAgent);
+                }
+            } else if (market.getProposeeRank(proposee, proposer) < market.getProposeeRank(proposee, currentProposer)) {
+                proposeeMatch[proposee] = proposer;
+                proposerMatch[proposer] = proposee;
+                proposerMatch[currentProposer] = UNMATCHED;
+                displacements++;
+                requeue(currentProposer);
+                if (observeDisplacement(currentProposer) || observed) {
+                    notifyBrokenEngagement(market.getProposer(currentProposer), market.getProposee(proposee),
+                        market.getProposer(proposer));
+                }
+                if (observed) {
+                    notifyAcceptance(proposerAgent, proposeeAgent);
+                }
+            } else if (observed) {
+                notifyRejection(proposerAgent, proposeeAgent);
+            }
         }
-        
-        // Only notify proposal if it won't be immediately rejected due to empty set preference
-        notifyProposal(proposer, proposee);
-        
-        Optional<Proposer> currentMatch = currentMatching.getMatch(proposee);
-        
-        if (!currentMatch.isPresent()) {
-            currentMatching.match(proposer, proposee);
-            notifyAcceptance(proposer, proposee);
-        } else {
-            Proposer currentProposer = currentMatch.get();
-            
-            if (proposeePrefs.prefers(proposer, currentProposer)) {
-                currentMatching.unmatch(currentProposer, proposee);
-                currentMatching.match(proposer, proposee);
-                notifyBrokenEngagement(currentProposer, proposee, proposer);
-                notifyAcceptance(proposer, proposee);
-            } else {
-                notifyRejection(proposer, proposee);
+
+        private Matching toMatching() {
+            Matching matching = new Matching();
+
+            for (int proposer = 0; proposer < proposerMatch.length; proposer++) {
+                matching.addProposer(market.getProposer(proposer));
             }
+            for (int proposee = 0; proposee < proposeeMatch.length; proposee++) {
+                matching.addProposee(market.getProposee(proposee));
+            }
+
+            for (int proposer = 0; proposer < proposerMatch.length; proposer++) {
+                if (proposerMatch[proposer] == SINGLE) {
+                    matching.match(market.getProposer(proposer), EmptySet.getInstance());
+                } else if (proposerMatch[proposer] != UNMATCHED) {
+                    matching.match(market.getProposer(proposer), market.getProposee(proposerMatch[proposer]));
+                }
+            }
+            return matching;
         }
     }
 
     private void notifyStart() {
-        // Filter out EmptySet instances when counting proposees
-        Set<Proposee> realProposees = proposeePreferences.keySet().stream()
-            .filter(p -> !(p instanceof EmptySet))
-            .collect(java.util.stream.Collectors.toSet());
-            
-        observers.forEach(observer -> observer.onAlgorithmStart(
-            new HashSet<>(proposerPreferences.keySet()),
-            realProposees
-        ));
+        if (observers.isEmpty()) {
+            return;
+        }
+
+        Set<Proposer> proposers = new HashSet<>();
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            proposers.add(market.getProposer(i));
+        }
+        Set<Proposee> proposees = new HashSet<>();
+        for (int i = 0; i < market.getProposeeCount(); i++) {
+            proposees.add(market.getProposee(i));
+        }
+
+        for (AlgorithmObserver observer : observers) {
+            observer.onAlgorithmStart(proposers, proposees);
+        }
+    }
+
+    /**
+     * Whether anyone observes this proposal: any observer that is not sampling, or a sampler
+     * that picks it.
+     */
+    private boolean observeProposal(int proposer) {
+        boolean observed = observesEveryProposal;
+        for (SamplingObserver sampler : samplers) {
+            observed |= sampler.sampleProposal(proposer);
+        }
+        return observed;
+    }
+
+    private boolean observeDisplacement(int proposer) {
+        boolean observed = false;
+        for (SamplingObserver sampler : samplers) {
+            observed |= sampler.sampleDisplacement(proposer);
+        }
+        return observed;
     }
 
     private void notifyIterationStart(int iteration) {
-        observers.forEach(observer -> observer.onIterationStart(iteration));
+        for (AlgorithmObserver observer : observers) {
+            observer.onIterationStart(iteration);
+        }
     }
 
     private void notifyProposal(Proposer proposer, Proposee proposee) {
-        observers.forEach(observer -> observer.onProposal(proposer, proposee));
+        for (AlgorithmObserver observer : observers) {
+            observer.onProposal(proposer, proposee);
+        }
     }
-    
+
     private void notifyProposalAttempt(Proposer proposer, Proposee proposee) {
-        observers.forEach(observer -> {
+        for (AlgorithmObserver observer : observers) {
             if (observer instanceof StatisticsObserver) {
                 ((StatisticsObserver) observer).onProposalAttempt(proposer, proposee);
+            } else if (observer instanceof SamplingObserver) {
+                ((SamplingObserver) observer).onProposalAttempt(proposer, proposee);
             }
-        });
+        }
     }
 
     private void notifyAcceptance(Proposer proposer, Proposee proposee) {
-        observers.forEach(observer -> observer.onAcceptance(proposer, proposee));
+        for (AlgorithmObserver observer : observers) {
+            observer.onAcceptance(proposer, proposee);
+        }
     }
 
     private void notifyRejection(Proposer proposer, Proposee proposee) {
-        observers.forEach(observer -> observer.onRejection(proposer, proposee));
+        for (AlgorithmObserver observer : observers) {
+            observer.onRejection(proposer, proposee);
+        }
     }
-    
+
     private void notifyBrokenEngagement(Proposer brokenUpWith, Proposee proposee, Proposer newProposer) {
-        observers.forEach(observer -> observer.onBrokenEngagement(brokenUpWith, proposee, newProposer));
+        for (AlgorithmObserver observer : observers) {
+            observer.onBrokenEngagement(brokenUpWith, proposee, newProposer);
+        }
     }
 
     private void notifyIterationEnd(int iteration) {
-        observers.forEach(observer -> observer.onIterationEnd(iteration, new Matching()));
+        for (AlgorithmObserver observer : observers) {
+            observer.onIterationEnd(iteration, new Matching());
+        }
     }
 
-    private void notifyComplete() {
-        observers.forEach(observer -> observer.onAlgorithmComplete(currentMatching, iterationCount));
+    private void notifyComplete(Matching finalMatching) {
+        for (AlgorithmObserver observer : observers) {
+            observer.onAlgorithmComplete(finalMatching, iterationCount);
+        }
     }
 
     public static class AlgorithmResult {
         private final Matching finalMatching;
         private final int iterations;
+        private final OptionalLong cost;
 
         public AlgorithmResult(Matching finalMatching, int iterations) {
             this.finalMatching = finalMatching;
             this.iterations = iterations;
+            this.cost = OptionalLong.empty();
+        }
+
+        public AlgorithmResult(Matching finalMatching, int iterations, long cost) {
+            this.finalMatching = finalMatching;
+            this.iterations = iterations;
+            this.cost = OptionalLong.of(cost);
         }
 
         public Matching getFinalMatching() {
@@ -326,10 +453,21 @@ public class GaleShapleyAlgorithm {
             return iterations;
         }
 
+        /**
+         * @return the objective value when the matching came from an {@link OptimalStableMatchingSolver}
+         */
+        public OptionalLong getCost() {
+            return cost;
+        }
+
         @Override
         public String toString() {
-            return String.format("AlgorithmResult[iterations=%d, matching=%s]", 
+            if (cost.isPresent()) {
+                return String.format("AlgorithmResult[iterations=%d, cost=%d, matching=%s]",
+                    iterations, cost.getAsLong(), finalMatching);
+            }
+            return String.format("AlgorithmResult[iterations=%d, matching=%s]",
                 iterations, finalMatching);
         }
     }
-}
\ No newline at end of file
+}
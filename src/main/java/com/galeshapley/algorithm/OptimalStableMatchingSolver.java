@@ -0,0 +1,435 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.CompiledMarket;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds the egalitarian or the minimum-regret stable matching from the rotation poset of a
+ * {@link StableMatchingLattice}, without enumerating the lattice.
+ *
+ * Costs use the same 0-based ranks as the welfare analysis: the egalitarian cost is the sum of
+ * both partners' ranks over all matched pairs, the regret is the worst rank any matched agent
+ * received. The returned {@link GaleShapleyAlgorithm.AlgorithmResult} carries that cost, and
+ * its iteration count is the number of rotations eliminated from the proposer-optimal matching.
+ * Ties in the market are broken by list order.
+ */
+public class OptimalStableMatchingSolver {
+    
+    private final CompiledMarket market;
+    private final SolverMode mode;
+    
+    public OptimalStableMatchingSolver(CompiledMarket market, SolverMode mode) {
+        this.market = Objects.requireNonNull(market, "Market cannot be null");
+        this.mode = Objects.requireNonNull(mode, "Solver mode cannot be null");
+        if (mode == SolverMode.GALE_SHAPLEY) {
+            throw new IllegalArgumentException("Use GaleShapleyAlgorithm for the proposer-optimal matching");
+        }
+        if (mode != SolverMode.EGALITARIAN && mode != SolverMode.MINIMUM_REGRET) {
+            throw new IllegalArgumentException("Use WeaklyStableMatchingSolver for " + mode);
+        }
+    }
+    
+    public SolverMode getMode() {
+        return mode;
+    }
+    
+    public GaleShapleyAlgorithm.AlgorithmResult execute() {
+        return execute(StableMatchingLattice.build(market));
+    }
+    
+    /**
+     * Solve on an already built lattice of this solver's market.
+     */
+    public GaleShapleyAlgorithm.AlgorithmResult execute(StableMatchingLattice lattice) {
+        if (lattice.getMarket() != market) {
+            throw new IllegalArgumentException("Lattice was built for a different market");
+        }
+        BitSet eliminated = mode == SolverMode.EGALITARIAN ? egalitarian(lattice) : minimumRegret(lattice);
+        int[] partners = lattice.partnersFor(eliminated);
+        long cost = mode == SolverMode.EGALITARIAN ? egalitarianCost(partners) : regret(partners);
+        return new GaleShapleyAlgorithm.AlgorithmResult(
+            StableMatchingLattice.toMatching(market, partners), eliminated.cardinality(), cost);
+    }
+    
+    /**
+     * Change in egalitarian cost when the rotation is eliminated: its proposers move down their
+     * lists while the proposees they move to gain a better partner.
+     */
+    long weight(Rotation rotation) {
+        long weight = 0;
+        int size = rotation.size();
+        for (int k = 0; k < size; k++) {
+            int proposer = rotation.getProposer(k);
+            int next = rotation.getNextProposee(k);
+            weight += market.getProposerRank(proposer, next) - market.getProposerRank(proposer, rotation.getProposee(k));
+            weight += market.getProposeeRank(next, proposer)
+                - market.getProposeeRank(next, rotation.getProposer((k + 1) % size));
+        }
+        return weight;
+    }
+    
+    /**
+     * Minimum-weight closed set of rotations, found as a maximum-profit closure: rotations that
+     * lower the cost hang off the source, rotations that raise it feed the sink, and each rotation
+     * points at its predecessors with unbounded capacity. The source side of a minimum cut is the
+     * set to eliminate.
+     */
+    private BitSet egalitarian(StableMatchingLattice lattice) {
+        List<Rotation> rotations = lattice.getRotations();
+        int count = rotations.size();
+        int source = count;
+        int sink = count + 1;
+        
+        int edges = 0;
+        for (Rotation rotation : rotations) {
+            edges += 1 + rotation.getPredecessorCount();
+        }
+        FlowNetwork network = new FlowNetwork(count + 2, edges);
+        for (Rotation rotation : rotations) {
+            long profit = -weight(rotation);
+            if (profit > 0) {
+                network.addEdge(source, rotation.getIndex(), profit);
+            } else if (profit < 0) {
+                network.addEdge(rotation.getIndex(), sink, -profit);
+            }
+            for (int k = 0; k < rotation.getPredecessorCount(); k++) {
+                network.addEdge(rotation.getIndex(), rotation.getPredecessor(k), FlowNetwork.UNBOUNDED);
+            }
+        }
+        network.maxFlow(source, sink);
+        
+        BitSet eliminated = network.reachableFrom(source);
+        eliminated.clear(source);
+        return eliminated;
+    }
+    
+    /**
+     * Gusfield's descent: while the worst-off agents are all proposees, the rotation that next
+     * improves one of them has to be eliminated, along with everything it depends on. Proposer
+     * ranks only grow along the way, so the descent stops once a proposer is among the worst off,
+     * a worst-off proposee is already at her best stable partner, or the forced rotations would
+     * move a proposer down to the current regret.
+     */
+    private BitSet minimumRegret(StableMatchingLattice lattice) {
+        List<Rotation> rotations = lattice.getRotations();
+        int[] partners = lattice.getProposerOptimalPartners();
+        int proposeeCount = market.getProposeeCount();
+        
+        RankBuckets proposerRanks = new RankBuckets(partners.length, maxPreferenceCount(true));
+        RankBuckets proposeeRanks = new RankBuckets(proposeeCount, maxPreferenceCount(false));
+        for (int i = 0; i < partners.length; i++) {
+            if (partners[i] != DeferredAcceptance.UNMATCHED) {
+                proposerRanks.set(i, market.getProposerRank(i, partners[i]));
+                proposeeRanks.set(partners[i], market.getProposeeRank(partners[i], i));
+            }
+        }
+        
+        // Rotations that improve each proposee, in elimination order
+        int[][] improving = new int[proposeeCount][];
+        int[] improvingCount = new int[proposeeCount];
+        for (Rotation rotation : rotations) {
+            for (int k = 0; k < rotation.size(); k++) {
+                improvingCount[rotation.getNextProposee(k)]++;
+            }
+        }
+        for (int j = 0; j < proposeeCount; j++) {
+            improving[j] = new int[improvingCount[j]];
+            improvingCount[j] = 0;
+        }
+        for (Rotation rotation : rotations) {
+            for (int k = 0; k < rotation.size(); k++) {
+                int proposee = rotation.getNextProposee(k);
+                improving[proposee][improvingCount[proposee]++] = rotation.getIndex();
+            }
+        }
+        int[] nextImproving = new int[proposeeCount];
+        
+        BitSet eliminated = new BitSet(rotations.size());
+        BitSet forced = new BitSet(rotations.size());
+        int[] stack = new int[Math.max(1, rotations.size())];
+        int[] order = new int[Math.max(1, rotations.size())];
+        while (proposeeRanks.max() > proposerRanks.max()) {
+            int proposee = proposeeRanks.anyAt(proposeeRanks.max());
+            while (nextImproving[proposee] < improving[proposee].length
+                    && eliminated.get(improving[proposee][nextImproving[proposee]])) {
+                nextImproving[proposee]++;
+            }
+            if (nextImproving[proposee] == improving[proposee].length) {
+                break;
+            }
+            
+            // The rotation and its outstanding predecessors, deepest first
+            int forcedCount = 0;
+            int size = 0;
+            stack[size++] = improving[proposee][nextImproving[proposee]];
+            while (size > 0) {
+                Rotation rotation = rotations.get(stack[size - 1]);
+                if (eliminated.get(rotation.getIndex()) || forced.get(rotation.getIndex())) {
+                    size--;
+                    continue;
+                }
+                boolean ready = true;
+                for (int k = 0; k < rotation.getPredecessorCount(); k++) {
+                    int predecessor = rotation.getPredecessor(k);
+                    if (!eliminated.get(predecessor) && !forced.get(predecessor)) {
+                        stack[size++] = predecessor;
+                        ready = false;
+                        break;
+                    }
+                }
+                if (ready) {
+                    size--;
+                    forced.set(rotation.getIndex());
+                    order[forcedCount++] = rotation.getIndex();
+                }
+            }
+            
+            // Every matching with a smaller regret contains these rotations, so if they push a
+            // proposer to the current regret, nothing better exists
+            int regret = proposeeRanks.max();
+            boolean improves = true;
+            for (int f = 0; f < forcedCount && improves; f++) {
+                Rotation rotation = rotations.get(order[f]);
+                for (int k = 0; k < rotation.size(); k++) {
+                    if (market.getProposerRank(rotation.getProposer(k), rotation.getNextProposee(k)) >= regret) {
+                        improves = false;
+                        break;
+                    }
+                }
+            }
+            if (!improves) {
+                break;
+            }
+            for (int f = 0; f < forcedCount; f++) {
+                Rotation rotation = rotations.get(order[f]);
+                forced.clear(rotation.getIndex());
+                eliminated.set(rotation.getIndex());
+                for (int k = 0; k < rotation.size(); k++) {
+                    int proposer = rotation.getProposer(k);
+                    int next = rotation.getNextProposee(k);
+                    proposerRanks.set(proposer, market.getProposerRank(proposer, next));
+                    proposeeRanks.set(next, market.getProposeeRank(next, proposer));
+                }
+            }
+        }
+        return eliminated;
+    }
+    
+    private int maxPreferenceCount(boolean proposers) {
+        int max = 0;
+        int count = proposers ? market.getProposerCount() : market.getProposeeCount();
+        for (int agent = 0; agent < count; agent++) {
+            max = Math.max(max, proposers ? market.getProposerPreferenceCount(agent)
+                                          : market.getProposeePreferenceCount(agent));
+        }
+        return max;
+    }
+    
+    private long egalitarianCost(int[] partners) {
+        long cost = 0;
+        for (int i = 0; i < partners.length; i++) {
+            if (partners[i] != DeferredAcceptance.UNMATCHED) {
+                cost += market.getProposerRank(i, partners[i]) + market.getProposeeRank(partners[i], i);
+            }
+        }
+        return cost;
+    }
+    
+    private long regret(int[] partners) {
+        int regret = -1;
+        for (int i = 0; i < partners.length; i++) {
+            if (partners[i] != DeferredAcceptance.UNMATCHED) {
+                regret = Math.max(regret, market.getProposerRank(i, partners[i]));
+                regret = Math.max(regret, market.getProposeeRank(partners[i], i));
+            }
+        }
+        return regret;
+    }
+    
+    /**
+     * Agents bucketed by the rank of their current partner, with O(1) moves between buckets.
+     * The maximum is found by scanning from a hint that callers keep close to the answer.
+     */
+    private static final class RankBuckets {
+        private final int[] head;
+        private final int[] next;
+        private final int[] previous;
+        private final int[] rank;
+        private int max = -1;
+        
+        RankBuckets(int agents, int ranks) {
+            this.head = new int[Math.max(1, ranks)];
+            this.next = new int[agents];
+            this.previous = new int[agents];
+            this.rank = new int[agents];
+            Arrays.fill(head, -1);
+            Arrays.fill(rank, -1);
+        }
+        
+        void set(int agent, int newRank) {
+            if (rank[agent] >= 0) {
+                if (previous[agent] >= 0) {
+                    next[previous[agent]] = next[agent];
+                } else {
+                    head[rank[agent]] = next[agent];
+                }
+                if (next[agent] >= 0) {
+                    previous[next[agent]] = previous[agent];
+                }
+            }
+            rank[agent] = newRank;
+            previous[agent] = -1;
+            next[agent] = head[newRank];
+            if (head[newRank] >= 0) {
+                previous[head[newRank]] = agent;
+            }
+            head[newRank] = agent;
+            max = Math.max(max, newRank);
+        }
+        
+        int max() {
+            while (max >= 0 && head[max] < 0) {
+                max--;
+            }
+            return max;
+        }
+        
+        int anyAt(int bucket) {
+            return head[bucket];
+        }
+    }
+    
+    /**
+     * Dinic's maximum flow with an iterative blocking-flow search, so long rotation chains do
+     * not deepen the call stack.
+     */
+    private static final class FlowNetwork {
+        static final long UNBOUNDED = Long.MAX_VALUE / 4;
+        
+        private final int[] head;
+        private final int[] level;
+        private final int[] current;
+        private int[] target;
+        private int[] nextEdge;
+        private long[] capacity;
+        private int edgeCount;
+        
+        FlowNetwork(int nodes, int expectedEdges) {
+            this.head = new int[nodes];
+            this.level = new int[nodes];
+            this.current = new int[nodes];
+            Arrays.fill(head, -1);
+            int size = Math.max(2, 2 * expectedEdges);
+            this.target = new int[size];
+            this.nextEdge = new int[size];
+            this.capacity = new long[size];
+        }
+        
+        void addEdge(int from, int to, long cap) {
+            if (edgeCount + 2 > target.length) {
+                int size = target.length * 2;
+                target = Arrays.copyOf(target, size);
+                nextEdge = Arrays.copyOf(nextEdge, size);
+                capacity = Arrays.copyOf(capacity, size);
+            }
+            link(from, to, cap);
+            link(to, from, 0);
+        }
+        
+        private void link(int from, int to, long cap) {
+            target[edgeCount] = to;
+            capacity[edgeCount] = cap;
+            nextEdge[edgeCount] = head[from];
+            head[from] = edgeCount++;
+        }
+        
+        long maxFlow(int source, int sink) {
+            long flow = 0;
+            int[] path = new int[head.length];
+            while (buildLevels(source, sink)) {
+                System.arraycopy(head, 0, current, 0, head.length);
+                long pushed;
+                while ((pushed = augment(source, sink, path)) > 0) {
+                    flow += pushed;
+                }
+            }
+            return flow;
+        }
+        
+        private boolean buildLevels(int source, int sink) {
+            Arrays.fill(level, -1);
+            int[] queue = new int[head.length];
+            int first = 0;
+            int last = 0;
+            level[source] = 0;
+            queue[last++] = source;
+            while (first < last) {
+                int node = queue[first++];
+                for (int e = head[node]; e >= 0; e = nextEdge[e]) {
+                    if (capacity[e] > 0 && level[target[e]] < 0) {
+                        level[target[e]] = level[node] + 1;
+                        queue[last++] = target[e];
+                    }
+                }
+            }
+            return level[sink] >= 0;
+        }
+        
+        private long augment(int source, int sink, int[] path) {
+            int depth = 0;
+            int node = source;
+            while (true) {
+                if (node == sink) {
+                    long pushed = UNBOUNDED;
+                    for (int k = 0; k < depth; k++) {
+                        pushed = Math.min(pushed, capacity[path[k]]);
+                    }
+                    for (int k = 0; k < depth; k++) {
+                        capacity[path[k]] -= pushed;
+                        capacity[path[k] ^ 1] += pushed;
+                    }
+                    return pushed;
+                }
+                int e = current[node];
+                while (e >= 0 && (capacity[e] <= 0 || level[target[e]] != level[node] + 1)) {
+                    e = nextEdge[e];
+                }
+                current[node] = e;
+                if (e >= 0) {
+                    path[depth++] = e;
+                    node = target[e];
+                } else {
+                    if (depth == 0) {
+                        return 0;
+                    }
+                    level[node] = -1;
+                    int back = path[--depth];
+                    node = target[back ^ 1];
+                    current[node] = nextEdge[current[node]];
+                }
+            }
+        }
+        
+        BitSet reachableFrom(int source) {
+            BitSet reached = new BitSet(head.length);
+            int[] stack = new int[head.length];
+            int size = 0;
+            reached.set(source);
+            stack[size++] = source;
+            while (size > 0) {
+                int node = stack[--size];
+                for (int e = head[node]; e >= 0; e = nextEdge[e]) {
+                    if (capacity[e] > 0 && !reached.get(target[e])) {
+                        reached.set(target[e]);
+                        stack[size++] = target[e];
+                    }
+                }
+            }
+            return reached;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.galeshapley.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * A rotation of a stable marriage instance: a cyclic list of matched pairs
+ * (m<sub>0</sub>, w<sub>0</sub>), ..., (m<sub>r-1</sub>, w<sub>r-1</sub>), exposed in some stable
+ * matching, whose elimination moves every m<sub>k</sub> down to w<sub>k+1</sub> and so gives
+ * every w<sub>k+1</sub> a partner she prefers.
+ *
+ * Agents are market indices. Rotations are numbered in the order they can be eliminated starting
+ * from the proposer-optimal matching, so every predecessor has a smaller index.
+ */
+public final class Rotation {
+    
+    private final int index;
+    private final int[] proposers;
+    private final int[] proposees;
+    private final int[] predecessors;
+    
+    Rotation(int index, int[] proposers, int[] proposees, int[] predecessors) {
+        this.index = index;
+        this.proposers = proposers;
+        this.proposees = proposees;
+        this.predecessors = predecessors;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public int size() {
+        return proposers.length;
+    }
+    
+    public int getProposer(int k) {
+        return proposers[k];
+    }
+    
+    /**
+     * @return the partner of the k-th proposer before the rotation is eliminated
+     */
+    public int getProposee(int k) {
+        return proposees[k];
+    }
+    
+    /**
+     * @return the partner of the k-th proposer after the rotation is eliminated
+     */
+    public int getNextProposee(int k) {
+        return proposees[(k + 1) % proposees.length];
+    }
+    
+    /**
+     * Rotations that must be eliminated before this one. Together with their own predecessors
+     * they form the rotation poset; the list is not transitively reduced.
+     */
+    public int[] getPredecessors() {
+        return predecessors.clone();
+    }
+    
+    int getPredecessorCount() {
+        return predecessors.length;
+    }
+    
+    int getPredecessor(int k) {
+        return predecessors[k];
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Rotation[").append(index).append(':');
+        for (int k = 0; k < proposers.length; k++) {
+            sb.append(" (").append(proposers[k]).append(',').append(proposees[k]).append(')');
+        }
+        return sb.append(", after ").append(Arrays.toString(predecessors)).append(']').toString();
+    }
+}
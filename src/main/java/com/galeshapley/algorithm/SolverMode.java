@@ -0,0 +1,17 @@
+package com.galeshapley.algorithm;
+
+/**
+ * Which stable matching a run reports.
+ */
+public enum SolverMode {
+    /** The matching produced by {@link GaleShapleyAlgorithm}, optimal for proposers. */
+    GALE_SHAPLEY,
+    /** The stable matching with the smallest sum of both partners' ranks. */
+    EGALITARIAN,
+    /** The stable matching whose worst-off matched agent is as well off as possible. */
+    MINIMUM_REGRET,
+    /** A large weakly stable matching for markets with ties, by Király's 3/2-approximation. */
+    MAX_CARDINALITY,
+    /** The largest weakly stable matching over several random tie-breaks, tried in parallel. */
+    TIE_BREAKING
+}
@@ -0,0 +1,435 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.model.EmptySet;
+import com.galeshapley.model.Matching;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The lattice of all stable matchings of a market, represented by its rotation poset.
+ *
+ * Built from the proposer-optimal and proposee-optimal stable matchings: rotations are found by
+ * breaking marriages along the shortlists between the two, in O(n²) overall, and ordered with
+ * the Irving-Leather labelling rules. Every stable matching corresponds to exactly one closed
+ * set of rotations, and {@link #stableMatchings()} walks those sets depth first, so only the
+ * current matching is held no matter how many there are.
+ *
+ * Truncated lists are supported: a pair is acceptable only if both agents rank each other ahead
+ * of their empty set positions. Every stable matching then matches the same agents, and a
+ * proposer left unmatched who has an empty set position is reported as single.
+ */
+public final class StableMatchingLattice {
+    
+    private static final int UNMATCHED = DeferredAcceptance.UNMATCHED;
+    
+    private final CompiledMarket market;
+    private final int[] proposerOptimal;
+    private final int[] proposeeOptimal;
+    private final List<Rotation> rotations;
+    private final int[][] successors;
+    
+    private StableMatchingLattice(CompiledMarket market, int[] proposerOptimal, int[] proposeeOptimal,
+                                  List<Rotation> rotations) {
+        this.market = market;
+        this.proposerOptimal = proposerOptimal;
+        this.proposeeOptimal = proposeeOptimal;
+        this.rotations = Collections.unmodifiableList(rotations);
+        this.successors = successorsOf(rotations);
+    }
+    
+    public static StableMatchingLattice build(CompiledMarket market) {
+        int[] proposerOptimal = DeferredAcceptance.proposerOptimal(market);
+        int[] proposeeOptimal = DeferredAcceptance.proposeeOptimal(market);
+        List<Rotation> rotations = new RotationFinder(market, proposerOptimal, proposeeOptimal).find();
+        return new StableMatchingLattice(market, proposerOptimal, proposeeOptimal, rotations);
+    }
+    
+    public CompiledMarket getMarket() {
+        return market;
+    }
+    
+    /**
+     * @return all rotations, in an order in which they can be eliminated
+     */
+    public List<Rotation> getRotations() {
+        return rotations;
+    }
+    
+    public Matching getProposerOptimalMatching() {
+        return toMatching(market, proposerOptimal);
+    }
+    
+    public Matching getProposeeOptimalMatching() {
+        return toMatching(market, proposeeOptimal);
+    }
+    
+    /**
+     * The stable matching reached by eliminating exactly the given rotations from the
+     * proposer-optimal matching.
+     *
+     * @throws IllegalArgumentException if a rotation is included without all of its predecessors
+     */
+    public Matching matchingFor(BitSet eliminated) {
+        return toMatching(market, partnersFor(eliminated));
+    }
+    
+    int[] partnersFor(BitSet eliminated) {
+        int[] partners = proposerOptimal.clone();
+        for (int r = eliminated.nextSetBit(0); r >= 0; r = eliminated.nextSetBit(r + 1)) {
+            if (r >= rotations.size()) {
+                throw new IllegalArgumentException("Unknown rotation " + r);
+            }
+            Rotation rotation = rotations.get(r);
+            for (int k = 0; k < rotation.getPredecessorCount(); k++) {
+                if (!eliminated.get(rotation.getPredecessor(k))) {
+                    throw new IllegalArgumentException("Rotation " + r + " requires rotation " +
+                        rotation.getPredecessor(k) + " to be eliminated first");
+                }
+            }
+            for (int k = 0; k < rotation.size(); k++) {
+                partners[rotation.getProposer(k)] = rotation.getNextProposee(k);
+            }
+        }
+        return partners;
+    }
+    
+    int[] getProposerOptimalPartners() {
+        return proposerOptimal.clone();
+    }
+    
+    /**
+     * Every stable matching, starting with the proposer-optimal one. The stream is lazy and
+     * sequential; each element is built on demand from a single working matching.
+     */
+    public Stream<Matching> stableMatchings() {
+        Iterator<Matching> iterator = new IdealIterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+    
+    static Matching toMatching(CompiledMarket market, int[] proposerPartners) {
+        Matching matching = new Matching();
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            matching.addProposer(market.getProposer(i));
+        }
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            matching.addProposee(market.getProposee(j));
+        }
+        for (int i = 0; i < proposerPartners.length; i++) {
+            if (proposerPartners[i] != UNMATCHED) {
+                matching.match(market.getProposer(i), market.getProposee(proposerPartners[i]));
+            } else if (market.getProposerEmptySetPosition(i) != CompiledMarket.NO_EMPTY_SET) {
+                matching.match(market.getProposer(i), EmptySet.getInstance());
+            }
+        }
+        return matching;
+    }
+    
+    private static int[][] successorsOf(List<Rotation> rotations) {
+        int[] counts = new int[rotations.size()];
+        for (Rotation rotation : rotations) {
+            for (int k = 0; k < rotation.getPredecessorCount(); k++) {
+                counts[rotation.getPredecessor(k)]++;
+            }
+        }
+        int[][] successors = new int[rotations.size()][];
+        for (int r = 0; r < successors.length; r++) {
+            successors[r] = new int[counts[r]];
+            counts[r] = 0;
+        }
+        for (Rotation rotation : rotations) {
+            for (int k = 0; k < rotation.getPredecessorCount(); k++) {
+                int predecessor = rotation.getPredecessor(k);
+                successors[predecessor][counts[predecessor]++] = rotation.getIndex();
+            }
+        }
+        return successors;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("StableMatchingLattice[proposers=%d, proposees=%d, rotations=%d]",
+            market.getProposerCount(), market.getProposeeCount(), rotations.size());
+    }
+    
+    /**
+     * Depth-first walk over closed rotation sets. Rotations are decided in index order, which is
+     * a linear extension of the poset, trying "not eliminated" before "eliminated"; a rotation may
+     * only be eliminated once all of its predecessors are, so every leaf is a stable matching.
+     */
+    private final class IdealIterator implements Iterator<Matching> {
+        private final int[] partners = proposerOptimal.clone();
+        private final boolean[] eliminated = new boolean[rotations.size()];
+        private final int[] pendingPredecessors = new int[rotations.size()];
+        private boolean started;
+        private boolean ready;
+        private boolean exhausted;
+        
+        IdealIterator() {
+            for (Rotation rotation : rotations) {
+                pendingPredecessors[rotation.getIndex()] = rotation.getPredecessorCount();
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (!ready && !exhausted) {
+                advance();
+            }
+            return !exhausted;
+        }
+        
+        @Override
+        public Matching next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+            return toMatching(market, partners);
+        }
+        
+        private void advance() {
+            if (!started) {
+                started = true;
+                ready = true;
+                return;
+            }
+            for (int r = eliminated.length - 1; r >= 0; r--) {
+                if (eliminated[r]) {
+                    eliminate(r, false);
+                } else if (pendingPredecessors[r] == 0) {
+                    eliminate(r, true);
+                    ready = true;
+                    return;
+                }
+            }
+            exhausted = true;
+        }
+        
+        private void eliminate(int r, boolean forward) {
+            Rotation rotation = rotations.get(r);
+            for (int k = 0; k < rotation.size(); k++) {
+                partners[rotation.getProposer(k)] = forward ? rotation.getNextProposee(k) : rotation.getProposee(k);
+            }
+            for (int successor : successors[r]) {
+                pendingPredecessors[successor] += forward ? -1 : 1;
+            }
+            eliminated[r] = forward;
+        }
+    }
+    
+    /**
+     * Finds every rotation by walking from the proposer-optimal towards the proposee-optimal
+     * matching, then derives predecessor lists from the pairs each rotation skips.
+     */
+    private static final class RotationFinder {
+        private final CompiledMarket market;
+        
+        private final int[] partner;
+        private final int[] position;
+        private final int[] lastPosition;
+        private final int[] searchPosition;
+        private final int[] proposeePartner;
+        private final int[] proposeeBest;
+        private final int[] proposeeWorst;
+        
+        private final List<int[]> rotationProposers = new ArrayList<>();
+        private final List<int[]> rotationProposees = new ArrayList<>();
+        
+        // Per proposee, the rotations that improved her partner and the rank she reached with each
+        private final int[][] historyRotations;
+        private final int[][] historyRanks;
+        private final int[] historySizes;
+        
+        RotationFinder(CompiledMarket market, int[] proposerOptimal, int[] proposeeOptimal) {
+            this.market = market;
+            
+            int proposerCount = market.getProposerCount();
+            int proposeeCount = market.getProposeeCount();
+            this.partner = proposerOptimal.clone();
+            this.position = new int[proposerCount];
+            this.lastPosition = new int[proposerCount];
+            this.searchPosition = new int[proposerCount];
+            for (int i = 0; i < proposerCount; i++) {
+                if ((proposerOptimal[i] == UNMATCHED) != (proposeeOptimal[i] == UNMATCHED)) {
+                    throw new IllegalStateException("Stable matchings disagree on whether proposer " +
+                        market.getProposer(i).getName() + " is matched");
+                }
+                position[i] = proposerOptimal[i] == UNMATCHED ? UNMATCHED : market.getProposerRank(i, proposerOptimal[i]);
+                lastPosition[i] = proposeeOptimal[i] == UNMATCHED ? UNMATCHED : market.getProposerRank(i, proposeeOptimal[i]);
+                searchPosition[i] = position[i] + 1;
+            }
+            
+            this.proposeePartner = DeferredAcceptance.invert(proposerOptimal, proposeeCount);
+            this.proposeeBest = DeferredAcceptance.invert(proposeeOptimal, proposeeCount);
+            this.proposeeWorst = proposeePartner.clone();
+            this.historyRotations = new int[proposeeCount][];
+            this.historyRanks = new int[proposeeCount][];
+            this.historySizes = new int[proposeeCount];
+        }
+        
+        List<Rotation> find() {
+            int proposerCount = market.getProposerCount();
+            int[] stack = new int[proposerCount];
+            int[] stackIndex = new int[proposerCount];
+            Arrays.fill(stackIndex, -1);
+            int size = 0;
+            
+            for (int start = 0; start < proposerCount; start++) {
+                while (position[start] != lastPosition[start]) {
+                    if (size == 0) {
+                        stackIndex[start] = 0;
+                        stack[size++] = start;
+                    }
+                    while (true) {
+                        int top = stack[size - 1];
+                        int nextProposer = proposeePartner[successor(top)];
+                        int from = stackIndex[nextProposer];
+                        if (from < 0) {
+                            stackIndex[nextProposer] = size;
+                            stack[size++] = nextProposer;
+                            continue;
+                        }
+                        int[] members = Arrays.copyOfRange(stack, from, size);
+                        for (int member : members) {
+                            stackIndex[member] = -1;
+                        }
+                        size = from;
+                        eliminate(members);
+                        break;
+                    }
+                }
+            }
+            return order();
+        }
+        
+        /**
+         * First proposee after the proposer's current partner, within the shortlist, who prefers
+         * the proposer to her current partner. The search position only ever moves forward.
+         */
+        private int successor(int proposer) {
+            while (searchPosition[proposer] <= lastPosition[proposer]) {
+                int proposee = market.getProposerPreference(proposer, searchPosition[proposer]);
+                int rank = market.getProposeeRank(proposee, proposer);
+                if (proposeeBest[proposee] != UNMATCHED && rank != CompiledMarket.NOT_RANKED
+                        && rank < market.getProposeeRank(proposee, proposeePartner[proposee])
+                        && rank >= market.getProposeeRank(proposee, proposeeBest[proposee])) {
+                    return proposee;
+                }
+                searchPosition[proposer]++;
+            }
+            throw new IllegalStateException("Proposer " + market.getProposer(proposer).getName() +
+                " has no successor although it has not reached its proposee-optimal partner");
+        }
+        
+        private void eliminate(int[] members) {
+            int index = rotationProposers.size();
+            int[] proposees = new int[members.length];
+            for (int k = 0; k < members.length; k++) {
+                proposees[k] = partner[members[k]];
+            }
+            for (int k = 0; k < members.length; k++) {
+                int proposer = members[k];
+                int proposee = proposees[(k + 1) % members.length];
+                partner[proposer] = proposee;
+                position[proposer] = searchPosition[proposer];
+                searchPosition[proposer] = position[proposer] + 1;
+                proposeePartner[proposee] = proposer;
+                record(proposee, index, market.getProposeeRank(proposee, proposer));
+            }
+            rotationProposers.add(members);
+            rotationProposees.add(proposees);
+        }
+        
+        private void record(int proposee, int rotation, int rank) {
+            int size = historySizes[proposee];
+            if (historyRotations[proposee] == null) {
+                historyRotations[proposee] = new int[4];
+                historyRanks[proposee] = new int[4];
+            } else if (size == historyRotations[proposee].length) {
+                historyRotations[proposee] = Arrays.copyOf(historyRotations[proposee], size * 2);
+                historyRanks[proposee] = Arrays.copyOf(historyRanks[proposee], size * 2);
+            }
+            historyRotations[proposee][size] = rotation;
+            historyRanks[proposee][size] = rank;
+            historySizes[proposee] = size + 1;
+        }
+        
+        /**
+         * A rotation follows the previous rotation that moved any of its proposers, and every
+         * rotation that took a proposee one of its proposers skips past out of that proposer's reach.
+         */
+        private List<Rotation> order() {
+            int count = rotationProposers.size();
+            int[] lastRotationOf = new int[market.getProposerCount()];
+            Arrays.fill(lastRotationOf, -1);
+            int[] addedFor = new int[count];
+            Arrays.fill(addedFor, -1);
+            int[] buffer = new int[Math.max(1, count)];
+            
+            List<Rotation> rotations = new ArrayList<>(count);
+            for (int r = 0; r < count; r++) {
+                int[] proposers = rotationProposers.get(r);
+                int[] proposees = rotationProposees.get(r);
+                int predecessorCount = 0;
+                
+                for (int k = 0; k < proposers.length; k++) {
+                    int proposer = proposers[k];
+                    int previous = lastRotationOf[proposer];
+                    if (previous >= 0 && addedFor[previous] != r) {
+                        addedFor[previous] = r;
+                        buffer[predecessorCount++] = previous;
+                    }
+                    lastRotationOf[proposer] = r;
+                    
+                    int from = market.getProposerRank(proposer, proposees[k]);
+                    int to = market.getProposerRank(proposer, proposees[(k + 1) % proposers.length]);
+                    for (int p = from + 1; p < to; p++) {
+                        int skipped = eliminatingRotation(market.getProposerPreference(proposer, p), proposer);
+                        if (skipped >= 0 && skipped != r && addedFor[skipped] != r) {
+                            addedFor[skipped] = r;
+                            buffer[predecessorCount++] = skipped;
+                        }
+                    }
+                }
+                
+                int[] predecessors = Arrays.copyOf(buffer, predecessorCount);
+                Arrays.sort(predecessors);
+                rotations.add(new Rotation(r, proposers, proposees, predecessors));
+            }
+            return rotations;
+        }
+        
+        /**
+         * @return the rotation that moved the proposee from a partner she ranks below the proposer
+         *         to one she ranks above, or -1 if the pair is outside the shortlists
+         */
+        private int eliminatingRotation(int proposee, int proposer) {
+            if (proposeeBest[proposee] == UNMATCHED) {
+                return -1;
+            }
+            int rank = market.getProposeeRank(proposee, proposer);
+            if (rank == CompiledMarket.NOT_RANKED
+                    || rank < market.getProposeeRank(proposee, proposeeBest[proposee])
+                    || rank > market.getProposeeRank(proposee, proposeeWorst[proposee])) {
+                return -1;
+            }
+            // Her ranks strictly improve along the history; find the first one better than the proposer
+            int[] ranks = historyRanks[proposee];
+            int low = 0;
+            int high = historySizes[proposee];
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ranks[mid] < rank) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low < historySizes[proposee] ? historyRotations[proposee][low] : -1;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.model.CompiledMarket;
+
+/**
+ * Runs the solver selected by {@link RuntimeOptions#getSolver()} in place of Gale-Shapley.
+ * Callers pick the solver before doing any work, so a run never pays for both.
+ */
+public final class StableMatchingSolvers {
+    
+    private StableMatchingSolvers() {
+    }
+    
+    /**
+     * @return the selected solver's result; not for {@link SolverMode#GALE_SHAPLEY}, which
+     *         runs {@link GaleShapleyAlgorithm} directly
+     */
+    public static GaleShapleyAlgorithm.AlgorithmResult solve(CompiledMarket market, RuntimeOptions options) {
+        switch (options.getSolver()) {
+            case EGALITARIAN:
+            case MINIMUM_REGRET:
+                return new OptimalStableMatchingSolver(market, options.getSolver()).execute();
+            case MAX_CARDINALITY:
+            case TIE_BREAKING:
+                WeaklyStableMatchingSolver solver = new WeaklyStableMatchingSolver(market, options.getSolver())
+                    .setTieBreakTrials(options.getTieBreakTrials());
+                if (options.getGlobalSeed() != null) {
+                    solver.setSeed(options.getGlobalSeed());
+                }
+                return solver.execute();
+            default:
+                throw new IllegalArgumentException("Solver " + options.getSolver() + " has no separate solver");
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.Roommate;
+import com.galeshapley.model.RoommatesMarket;
+
+import java.util.*;
+
+/**
+ * Irving's algorithm for the stable roommates problem with incomplete lists.
+ *
+ * Every agent's reduced preference list is kept as a doubly linked list over the positions of
+ * its row in the {@link RoommatesMarket}, so removing a pair from both lists is O(1) and the
+ * whole run, including the rotation search of phase 2, stays O(n²) in the number of agents.
+ * <ul>
+ *   <li>Phase 1: agents propose down their lists; an agent receiving a proposal drops everyone
+ *       it likes less than the proposer. Agents left with an empty list are unmatched in every
+ *       stable matching.</li>
+ *   <li>Phase 2: while some list has more than one entry, find a rotation and eliminate it. If
+ *       this empties a list, no stable matching exists.</li>
+ * </ul>
+ */
+public class StableRoommatesAlgorithm {
+    
+    private static final int NONE = -1;
+    private static final int REMOVED = -2;
+    
+    private final RoommatesMarket market;
+    private final int[][] next;
+    private final int[][] prev;
+    private final int[] first;
+    private final int[] last;
+    private final int[] size;
+    
+    public StableRoommatesAlgorithm(RoommatesMarket market) {
+        this.market = Objects.requireNonNull(market, "Market cannot be null");
+        int n = market.getAgentCount();
+        this.next = new int[n][];
+        this.prev = new int[n][];
+        this.first = new int[n];
+        this.last = new int[n];
+        this.size = new int[n];
+    }
+    
+    public Result execute() {
+        int n = market.getAgentCount();
+        linkMutuallyAcceptable();
+        long proposals = phaseOne();
+        
+        // Phase 2: the sequence p_0, p_1, ... is kept across rotations, so each agent is pushed
+        // a bounded number of times per removal and the search is amortised O(n²)
+        int[] sequence = new int[n + 1];
+        int[] position = new int[n];
+        Arrays.fill(position, NONE);
+        int depth = 0;
+        int scan = 0;
+        int rotations = 0;
+        while (true) {
+            while (depth > 0 && size[sequence[depth - 1]] < 2) {
+                position[sequence[--depth]] = NONE;
+            }
+            if (depth == 0) {
+                while (scan < n && size[scan] < 2) {
+                    scan++;
+                }
+                if (scan == n) {
+                    break;
+                }
+                sequence[depth] = scan;
+                position[scan] = depth++;
+            }
+            
+            int agent = sequence[depth - 1];
+            int nextAgent = lastOf(secondOf(agent));
+            if (size[nextAgent] < 2) {
+                return Result.unsolvable(market, proposals, rotations, String.format(
+                    "Roommate %s has no one left to fall back on", market.getAgent(nextAgent).getId()));
+            }
+            if (position[nextAgent] == NONE) {
+                sequence[depth] = nextAgent;
+                position[nextAgent] = depth++;
+                continue;
+            }
+            
+            // p_start .. p_{depth-1} is a rotation; read it fully before changing any list
+            int start = position[nextAgent];
+            int length = depth - start;
+            int[] proposers = Arrays.copyOfRange(sequence, start, depth);
+            int[] seconds = new int[length];
+            for (int k = 0; k < length; k++) {
+                seconds[k] = secondOf(proposers[k]);
+            }
+            rotations++;
+            for (int k = 0; k < length; k++) {
+                if (!isListed(seconds[k], proposers[k])) {
+                    // An earlier step of this elimination already parted the pair
+                    return Result.unsolvable(market, proposals, rotations, String.format(
+                        "Roommate %s ran out of acceptable partners", market.getAgent(proposers[k]).getId()));
+                }
+                truncateAfter(seconds[k], proposers[k]);
+            }
+            for (int k = start; k < depth; k++) {
+                position[sequence[k]] = NONE;
+            }
+            depth = start;
+            for (int k = 0; k < length; k++) {
+                if (size[proposers[k]] == 0 || size[seconds[k]] == 0) {
+                    int emptied = size[proposers[k]] == 0 ? proposers[k] : seconds[k];
+                    return Result.unsolvable(market, proposals, rotations, String.format(
+                        "Roommate %s ran out of acceptable partners", market.getAgent(emptied).getId()));
+                }
+            }
+        }
+        
+        int[] partners = new int[n];
+        for (int agent = 0; agent < n; agent++) {
+            partners[agent] = size[agent] == 1 ? market.getPreference(agent, first[agent]) : NONE;
+        }
+        return new Result(market, partners, proposals, rotations, null);
+    }
+    
+    /**
+     * Links each agent's row, skipping anyone who does not list the agent back.
+     */
+    private void linkMutuallyAcceptable() {
+        for (int agent = 0; agent < market.getAgentCount(); agent++) {
+            int length = market.getPreferenceCount(agent);
+            next[agent] = new int[length];
+            prev[agent] = new int[length];
+            first[agent] = NONE;
+            last[agent] = NONE;
+            size[agent] = 0;
+            for (int pos = 0; pos < length; pos++) {
+                if (!market.isAcceptable(agent, market.getPreference(agent, pos))) {
+                    next[agent][pos] = REMOVED;
+                    prev[agent][pos] = REMOVED;
+                    continue;
+                }
+                prev[agent][pos] = last[agent];
+                next[agent][pos] = NONE;
+                if (last[agent] == NONE) {
+                    first[agent] = pos;
+                } else {
+                    next[agent][last[agent]] = pos;
+                }
+                last[agent] = pos;
+                size[agent]++;
+            }
+        }
+    }
+    
+    private long phaseOne() {
+        int n = market.getAgentCount();
+        int[] holder = new int[n];
+        Arrays.fill(holder, NONE);
+        int[] free = new int[n];
+        int freeCount = 0;
+        for (int agent = n - 1; agent >= 0; agent--) {
+            free[freeCount++] = agent;
+        }
+        
+        long proposals = 0;
+        while (freeCount > 0) {
+            int proposer = free[--freeCount];
+            if (size[proposer] == 0) {
+                continue;
+            }
+            int receiver = market.getPreference(proposer, first[proposer]);
+            proposals++;
+            int displaced = holder[receiver];
+            holder[receiver] = proposer;
+            // The receiver's list only holds agents at least as good as its current holder, so
+            // the proposer is still on it and the displaced holder is cut off here
+            truncateAfter(receiver, proposer);
+            if (displaced != NONE && displaced != proposer) {
+                free[freeCount++] = displaced;
+            }
+        }
+        return proposals;
+    }
+    
+    private boolean isListed(int owner, int other) {
+        return next[owner][market.getRank(owner, other)] != REMOVED;
+    }
+    
+    private int secondOf(int agent) {
+        return market.getPreference(agent, next[agent][first[agent]]);
+    }
+    
+    private int lastOf(int agent) {
+        return market.getPreference(agent, last[agent]);
+    }
+    
+    /**
+     * Removes every agent the owner likes less than {@code keep}, together with the mirror entry.
+     */
+    private void truncateAfter(int owner, int keep) {
+        int pos = next[owner][market.getRank(owner, keep)];
+        while (pos != NONE) {
+            int following = next[owner][pos];
+            removePair(owner, market.getPreference(owner, pos));
+            pos = following;
+        }
+    }
+    
+    private void removePair(int a, int b) {
+        unlink(a, market.getRank(a, b));
+        unlink(b, market.getRank(b, a));
+    }
+    
+    private void unlink(int agent, int pos) {
+        int before = prev[agent][pos];
+        int after = next[agent][pos];
+        if (before == NONE) {
+            first[agent] = after;
+        } else {
+            next[agent][before] = after;
+        }
+        if (after == NONE) {
+            last[agent] = before;
+        } else {
+            prev[agent][after] = before;
+        }
+        next[agent][pos] = REMOVED;
+        prev[agent][pos] = REMOVED;
+        size[agent]--;
+    }
+    
+    /**
+     * The stable matching found, or the reason none exists.
+     */
+    public static class Result {
+        private final RoommatesMarket market;
+        private final int[] partners;
+        private final long proposals;
+        private final int rotations;
+        private final String failure;
+        
+        private Result(RoommatesMarket market, int[] partners, long proposals, int rotations, String failure) {
+            this.market = market;
+            this.partners = partners;
+            this.proposals = proposals;
+            this.rotations = rotations;
+            this.failure = failure;
+        }
+        
+        private static Result unsolvable(RoommatesMarket market, long proposals, int rotations, String reason) {
+            return new Result(market, null, proposals, rotations, reason);
+        }
+        
+        public boolean hasStableMatching() {
+            return partners != null;
+        }
+        
+        /**
+         * @return why no stable matching exists, or empty if one was found
+         */
+        public Optional<String> getFailureReason() {
+            return Optional.ofNullable(failure);
+        }
+        
+        /**
+         * @return index of the agent's partner, or -1 if it is unmatched
+         * @throws IllegalStateException if no stable matching exists
+         */
+        public int getPartner(int agent) {
+            requireMatching();
+            return partners[agent];
+        }
+        
+        public Optional<Roommate> getPartner(Roommate agent) {
+            requireMatching();
+            int index = market.indexOf(agent);
+            if (index < 0) {
+                throw new IllegalArgumentException("Roommate " + agent.getId() + " is not part of this market");
+            }
+            return partners[index] == NONE ? Optional.empty() : Optional.of(market.getAgent(partners[index]));
+        }
+        
+        /**
+         * @return each matched pair once, ordered by the index of its first agent
+         */
+        public List<Roommate[]> getPairs() {
+            requireMatching();
+            List<Roommate[]> pairs = new ArrayList<>();
+            for (int agent = 0; agent < partners.length; agent++) {
+                if (partners[agent] > agent) {
+                    pairs.add(new Roommate[] {market.getAgent(agent), market.getAgent(partners[agent])});
+                }
+            }
+            return pairs;
+        }
+        
+        public long getProposals() {
+            return proposals;
+        }
+        
+        public int getRotations() {
+            return rotations;
+        }
+        
+        private void requireMatching() {
+            if (partners == null) {
+                throw new IllegalStateException("No stable matching exists: " + failure);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return hasStableMatching()
+                ? String.format("StableRoommatesResult[pairs=%d, proposals=%d, rotations=%d]",
+                                getPairs().size(), proposals, rotations)
+                : String.format("StableRoommatesResult[unsolvable, proposals=%d, rotations=%d, reason=%s]",
+                                proposals, rotations, failure);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.CompiledMarket;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Large weakly stable matchings for markets with ties and incomplete lists (SMTI).
+ *
+ * A matching is weakly stable when no pair strictly prefers each other to their partners.
+ * Finding the largest one is NP-hard, so two heuristics are offered:
+ * <ul>
+ *   <li>{@link SolverMode#MAX_CARDINALITY}: Király's linear-time algorithm. Proposers that have
+ *       been rejected by their whole list are promoted and go through it once more, and a
+ *       proposee breaks a tie in favour of a promoted proposer. With ties only in proposees'
+ *       lists the result has at least 2/3 as many pairs as the largest weakly stable matching;
+ *       ties in proposers' lists are broken by list order.</li>
+ *   <li>{@link SolverMode#TIE_BREAKING}: breaks every tie at random, runs deferred acceptance on
+ *       the strict market, and keeps the largest matching over several independent tie-breaks
+ *       run in parallel.</li>
+ * </ul>
+ * The result's cost is the number of matched pairs.
+ */
+public class WeaklyStableMatchingSolver {
+    
+    private final CompiledMarket market;
+    private final SolverMode mode;
+    private int tieBreakTrials = 16;
+    private long seed = System.nanoTime();
+    
+    public WeaklyStableMatchingSolver(CompiledMarket market, SolverMode mode) {
+        this.market = Objects.requireNonNull(market, "Market cannot be null");
+        this.mode = Objects.requireNonNull(mode, "Solver mode cannot be null");
+        if (mode != SolverMode.MAX_CARDINALITY && mode != SolverMode.TIE_BREAKING) {
+            throw new IllegalArgumentException("Solver mode " + mode + " does not look for a maximum weakly stable matching");
+        }
+    }
+    
+    /**
+     * Number of random tie-breaks tried in {@link SolverMode#TIE_BREAKING} mode.
+     */
+    public WeaklyStableMatchingSolver setTieBreakTrials(int tieBreakTrials) {
+        if (tieBreakTrials <= 0) {
+            throw new IllegalArgumentException("Tie-break trials must be positive");
+        }
+        this.tieBreakTrials = tieBreakTrials;
+        return this;
+    }
+    
+    /**
+     * Seed for the random tie-breaks; each trial derives its own stream from it, so the result
+     * does not depend on how trials are scheduled across cores.
+     */
+    public WeaklyStableMatchingSolver setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+    
+    public GaleShapleyAlgorithm.AlgorithmResult execute() {
+        if (mode == SolverMode.MAX_CARDINALITY) {
+            int[] proposals = new int[1];
+            int[] partners = promotionDeferredAcceptance(proposals);
+            return new GaleShapleyAlgorithm.AlgorithmResult(
+                StableMatchingLattice.toMatching(market, partners), proposals[0], matchedPairs(partners));
+        }
+        
+        SplittableRandom root = new SplittableRandom(seed);
+        long[] trialSeeds = new long[tieBreakTrials];
+        for (int trial = 0; trial < tieBreakTrials; trial++) {
+            trialSeeds[trial] = root.nextLong();
+        }
+        // Keep the largest matching, and the earliest trial among equals so runs are repeatable
+        int[] best = IntStream.range(0, tieBreakTrials).parallel()
+            .mapToObj(trial -> randomTieBreak(trialSeeds[trial]))
+            .reduce((a, b) -> matchedPairs(b) > matchedPairs(a) ? b : a)
+            .orElseThrow(IllegalStateException::new);
+        return new GaleShapleyAlgorithm.AlgorithmResult(
+            StableMatchingLattice.toMatching(market, best), tieBreakTrials, matchedPairs(best));
+    }
+    
+    /**
+     * Király's deferred acceptance with promotion, as each proposer's proposee index or
+     * {@link DeferredAcceptance#UNMATCHED}.
+     */
+    int[] promotionDeferredAcceptance(int[] proposalCount) {
+        int proposerCount = market.getProposerCount();
+        int[] partner = new int[proposerCount];
+        int[] holder = new int[market.getProposeeCount()];
+        int[] holderLevel = new int[market.getProposeeCount()];
+        int[] next = new int[proposerCount];
+        boolean[] promoted = new boolean[proposerCount];
+        Arrays.fill(partner, DeferredAcceptance.UNMATCHED);
+        Arrays.fill(holder, DeferredAcceptance.UNMATCHED);
+        
+        int[] free = new int[proposerCount];
+        int freeCount = 0;
+        for (int i = proposerCount - 1; i >= 0; i--) {
+            free[freeCount++] = i;
+        }
+        
+        long proposals = 0;
+        while (freeCount > 0) {
+            int proposer = free[--freeCount];
+            int cutoff = market.getProposerCutoff(proposer);
+            while (true) {
+                if (next[proposer] == cutoff) {
+                    if (promoted[proposer] || cutoff == 0) {
+                        break;
+                    }
+                    promoted[proposer] = true;
+                    next[proposer] = 0;
+                }
+                int proposee = market.getProposerPreference(proposer, next[proposer]++);
+                if (!market.isAcceptableToProposee(proposee, proposer)) {
+                    continue;
+                }
+                proposals++;
+                int level = market.getProposeeTieLevel(proposee, market.getProposeeRank(proposee, proposer));
+                int current = holder[proposee];
+                if (current == DeferredAcceptance.UNMATCHED || level < holderLevel[proposee]
+                        || (level == holderLevel[proposee] && promoted[proposer] && !promoted[current])) {
+                    holder[proposee] = proposer;
+                    holderLevel[proposee] = level;
+                    partner[proposer] = proposee;
+                    if (current != DeferredAcceptance.UNMATCHED) {
+                        partner[current] = DeferredAcceptance.UNMATCHED;
+                        free[freeCount++] = current;
+                    }
+                    break;
+                }
+            }
+        }
+        proposalCount[0] = (int) Math.min(Integer.MAX_VALUE, proposals);
+        return partner;
+    }
+    
+    /**
+     * Deferred acceptance after breaking every tie at random: proposers go through each tied
+     * group in a shuffled order, and proposees rank tied proposers by a hash of the trial seed.
+     */
+    int[] randomTieBreak(long trialSeed) {
+        int proposerCount = market.getProposerCount();
+        int[] partner = new int[proposerCount];
+        int[] holder = new int[market.getProposeeCount()];
+        int[] holderLevel = new int[market.getProposeeCount()];
+        long[] holderKey = new long[market.getProposeeCount()];
+        int[] next = new int[proposerCount];
+        Arrays.fill(partner, DeferredAcceptance.UNMATCHED);
+        Arrays.fill(holder, DeferredAcceptance.UNMATCHED);
+        
+        // Only rows with ties need a private, shuffled copy
+        int[][] rows = new int[proposerCount][];
+        SplittableRandom random = new SplittableRandom(trialSeed);
+        for (int i = 0; i < proposerCount; i++) {
+            rows[i] = shuffledTies(i, random);
+        }
+        
+        int[] free = new int[proposerCount];
+        int freeCount = 0;
+        for (int i = proposerCount - 1; i >= 0; i--) {
+            free[freeCount++] = i;
+        }
+        
+        while (freeCount > 0) {
+            int proposer = free[--freeCount];
+            int cutoff = market.getProposerCutoff(proposer);
+            while (next[proposer] < cutoff) {
+                int position = next[proposer]++;
+                int proposee = rows[proposer] != null ? rows[proposer][position]
+                                                      : market.getProposerPreference(proposer, position);
+                if (!market.isAcceptableToProposee(proposee, proposer)) {
+                    continue;
+                }
+                int level = market.getProposeeTieLevel(proposee, market.getProposeeRank(proposee, proposer));
+                long key = mix(trialSeed, proposee, proposer);
+                int current = holder[proposee];
+                if (current == DeferredAcceptance.UNMATCHED || level < holderLevel[proposee]
+                        || (level == holderLevel[proposee] && key < holderKey[proposee])) {
+                    holder[proposee] = proposer;
+                    holderLevel[proposee] = level;
+                    holderKey[proposee] = key;
+                    partner[proposer] = proposee;
+                    if (current != DeferredAcceptance.UNMATCHED) {
+                        partner[current] = DeferredAcceptance.UNMATCHED;
+                        free[freeCount++] = current;
+                    }
+                    break;
+                }
+            }
+        }
+        return partner;
+    }
+    
+    private int[] shuffledTies(int proposer, SplittableRandom random) {
+        int length = market.getProposerPreferenceCount(proposer);
+        if (length == 0 || market.getProposerTieLevel(proposer, length - 1) == length - 1) {
+            return null;
+        }
+        int[] row = new int[length];
+        for (int position = 0; position < length; position++) {
+            row[position] = market.getProposerPreference(proposer, position);
+        }
+        int start = 0;
+        while (start < length) {
+            int end = start + 1;
+            while (end < length && market.getProposerTieLevel(proposer, end) == market.getProposerTieLevel(proposer, start)) {
+                end++;
+            }
+            for (int k = end - 1; k > start; k--) {
+                int swap = start + random.nextInt(k - start + 1);
+                int tmp = row[k];
+                row[k] = row[swap];
+                row[swap] = tmp;
+            }
+            start = end;
+        }
+        return row;
+    }
+    
+    private static long mix(long seed, int proposee, int proposer) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) proposee << 32) ^ proposer);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static int matchedPairs(int[] partners) {
+        int pairs = 0;
+        for (int partner : partners) {
+            if (partner != DeferredAcceptance.UNMATCHED) {
+                pairs++;
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,287 @@
+package com.galeshapley.analysis;
+
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.model.Matching;
+import com.galeshapley.model.Proposee;
+import com.galeshapley.model.Proposer;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Rank-based welfare of a final matching: how far down its own list each matched agent had to go.
+ *
+ * Ranks are the 0-based positions in the compiled preference rows, so a first choice counts as 0.
+ * Everything is gathered in one pass over the proposers, looking up both partners' ranks in the
+ * market's rank tables and counting them into primitive histograms. Large markets are split across
+ * the common fork-join pool.
+ */
+public final class WelfareAnalyzer {
+    
+    static final int PARALLEL_THRESHOLD = 2048;
+    private static final int MAX_PRINTED_BINS = 20;
+    
+    private WelfareAnalyzer() {
+    }
+    
+    public static Welfare analyze(CompiledMarket market, Matching matching) {
+        int proposerBins = maxPreferenceCount(market.getProposerCount(), market::getProposerPreferenceCount);
+        int proposeeBins = maxPreferenceCount(market.getProposeeCount(), market::getProposeePreferenceCount);
+        
+        IntStream proposers = IntStream.range(0, market.getProposerCount());
+        if (market.getProposerCount() >= PARALLEL_THRESHOLD) {
+            proposers = proposers.parallel();
+        }
+        Tally tally = proposers.collect(
+            () -> new Tally(proposerBins, proposeeBins),
+            (partial, proposer) -> partial.add(market, matching, proposer),
+            Tally::merge);
+        
+        int unmatchedProposees = market.getProposeeCount() - tally.proposees.count;
+        return new Welfare(new RankDistribution(tally.proposers), new RankDistribution(tally.proposees),
+            tally.single, tally.unmatched, unmatchedProposees);
+    }
+    
+    private static int maxPreferenceCount(int agents, IntUnaryOperator preferenceCount) {
+        int max = 0;
+        for (int agent = 0; agent < agents; agent++) {
+            max = Math.max(max, preferenceCount.applyAsInt(agent));
+        }
+        return max;
+    }
+    
+    /**
+     * Per-thread accumulator; histograms are merged element-wise.
+     */
+    private static final class Tally {
+        final SideTally proposers;
+        final SideTally proposees;
+        int single;
+        int unmatched;
+        
+        Tally(int proposerBins, int proposeeBins) {
+            this.proposers = new SideTally(proposerBins);
+            this.proposees = new SideTally(proposeeBins);
+        }
+        
+        void add(CompiledMarket market, Matching matching, int proposer) {
+            Proposer agent = market.getProposer(proposer);
+            Optional<Proposee> match = matching.getMatch(agent);
+            if (!match.isPresent()) {
+                unmatched++;
+                return;
+            }
+            if (match.get().isEmptySet()) {
+                single++;
+                return;
+            }
+            
+            int proposee = market.indexOf(match.get());
+            if (proposee < 0) {
+                throw new IllegalArgumentException("Proposer " + agent.getName() +
+                    " is matched to " + match.get().getName() + ", who is not part of the market");
+            }
+            int proposerRank = market.getProposerRank(proposer, proposee);
+            int proposeeRank = market.getProposeeRank(proposee, proposer);
+            if (proposerRank == CompiledMarket.NOT_RANKED || proposeeRank == CompiledMarket.NOT_RANKED) {
+                throw new IllegalArgumentException("Proposer " + agent.getName() + " and " +
+                    match.get().getName() + " are matched but do not both rank each other");
+            }
+            proposers.add(proposerRank);
+            proposees.add(proposeeRank);
+        }
+        
+        void merge(Tally other) {
+            proposers.merge(other.proposers);
+            proposees.merge(other.proposees);
+            single += other.single;
+            unmatched += other.unmatched;
+        }
+    }
+    
+    private static final class SideTally {
+        final int[] histogram;
+        int count;
+        long rankSum;
+        int maxRank = -1;
+        
+        SideTally(int bins) {
+            this.histogram = new int[bins];
+        }
+        
+        void add(int rank) {
+            histogram[rank]++;
+            count++;
+            rankSum += rank;
+            if (rank > maxRank) {
+                maxRank = rank;
+            }
+        }
+        
+        void merge(SideTally other) {
+            for (int rank = 0; rank <= other.maxRank; rank++) {
+                histogram[rank] += other.histogram[rank];
+            }
+            count += other.count;
+            rankSum += other.rankSum;
+            maxRank = Math.max(maxRank, other.maxRank);
+        }
+    }
+    
+    /**
+     * Distribution of the ranks one side gave its partners, over matched agents only.
+     */
+    public static class RankDistribution {
+        private final int[] histogram;
+        private final int count;
+        private final long rankSum;
+        
+        private RankDistribution(SideTally tally) {
+            this.histogram = Arrays.copyOf(tally.histogram, tally.maxRank + 1);
+            this.count = tally.count;
+            this.rankSum = tally.rankSum;
+        }
+        
+        /**
+         * @return the number of matched agents on this side
+         */
+        public int getCount() {
+            return count;
+        }
+        
+        /**
+         * @return how many agents were matched to their choice at {@code rank}
+         */
+        public int getCount(int rank) {
+            return rank >= 0 && rank < histogram.length ? histogram[rank] : 0;
+        }
+        
+        /**
+         * @return a copy of the histogram, indexed by rank up to {@link #getRegret()}
+         */
+        public int[] getHistogram() {
+            return histogram.clone();
+        }
+        
+        public long getRankSum() {
+            return rankSum;
+        }
+        
+        public double getMeanRank() {
+            return count == 0 ? 0.0 : (double) rankSum / count;
+        }
+        
+        /**
+         * @return the worst rank any matched agent received, or -1 if nobody is matched
+         */
+        public int getRegret() {
+            return histogram.length - 1;
+        }
+        
+        /**
+         * @return the lower median rank, or -1 if nobody is matched
+         */
+        public int getMedianRank() {
+            return count == 0 ? -1 : rankAt((count - 1) / 2);
+        }
+        
+        private int rankAt(int position) {
+            int seen = 0;
+            for (int rank = 0; rank < histogram.length; rank++) {
+                seen += histogram[rank];
+                if (seen > position) {
+                    return rank;
+                }
+            }
+            return histogram.length - 1;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "matched=%d, meanRank=%.3f, medianRank=%d, regret=%d, histogram=%s",
+                count, getMeanRank(), getMedianRank(), getRegret(),
+                histogram.length <= MAX_PRINTED_BINS ? Arrays.toString(histogram) : "[" + histogram.length + " ranks]");
+        }
+    }
+    
+    /**
+     * Welfare of both sides of a final matching.
+     */
+    public static class Welfare {
+        private final RankDistribution proposers;
+        private final RankDistribution proposees;
+        private final int singleProposers;
+        private final int unmatchedProposers;
+        private final int unmatchedProposees;
+        
+        private Welfare(RankDistribution proposers, RankDistribution proposees, int singleProposers,
+                        int unmatchedProposers, int unmatchedProposees) {
+            this.proposers = proposers;
+            this.proposees = proposees;
+            this.singleProposers = singleProposers;
+            this.unmatchedProposers = unmatchedProposers;
+            this.unmatchedProposees = unmatchedProposees;
+        }
+        
+        public RankDistribution getProposers() {
+            return proposers;
+        }
+        
+        public RankDistribution getProposees() {
+            return proposees;
+        }
+        
+        public int getMatchedPairs() {
+            return proposers.getCount();
+        }
+        
+        public int getSingleProposers() {
+            return singleProposers;
+        }
+        
+        public int getUnmatchedProposers() {
+            return unmatchedProposers;
+        }
+        
+        public int getUnmatchedProposees() {
+            return unmatchedProposees;
+        }
+        
+        /**
+         * @return the sum of both partners' ranks over all matched pairs
+         */
+        public long getEgalitarianCost() {
+            return proposers.getRankSum() + proposees.getRankSum();
+        }
+        
+        /**
+         * @return how much better off one side is than the other, as a difference of rank sums
+         */
+        public long getSexEqualityCost() {
+            return Math.abs(proposers.getRankSum() - proposees.getRankSum());
+        }
+        
+        /**
+         * @return the worst rank received by any matched agent on either side, or -1 if nobody is matched
+         */
+        public int getRegret() {
+            return Math.max(proposers.getRegret(), proposees.getRegret());
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "Welfare (0-based ranks):\n" +
+                "  • Matched Pairs: %d, Single Proposers: %d, Unmatched Proposers: %d, Unmatched Proposees: %d\n" +
+                "  • Egalitarian Cost: %d, Sex-Equality Cost: %d, Regret: %d\n" +
+                "  • Proposers: %s\n" +
+                "  • Proposees: %s\n",
+                getMatchedPairs(), singleProposers, unmatchedProposers, unmatchedProposees,
+                getEgalitarianCost(), getSexEqualityCost(), getRegret(),
+                proposers, proposees);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.galeshapley.batch;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.algorithm.StableMatchingSolvers;
+import com.galeshapley.algorithm.SolverMode;
+import com.galeshapley.analysis.WelfareAnalyzer;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import com.galeshapley.metrics.SimulationMetrics;
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.observer.StatisticsObserver;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs many simulation configs in one JVM.
+ *
+ * Configs are loaded and solved concurrently on a fixed pool; every job shares the loader's
+ * YAML mapper. One CSV row per config is written to the results file in path order as soon as
+ * that config and all before it have finished. A config that fails to load or solve produces
+ * an error row and does not affect the others, even when it dies with an {@link Error} such as
+ * running out of memory. While a batch runs, {@link SimulationMetrics}
+ * are published over JMX with the configs still waiting as the {@code batch} queue.
+ */
+public class BatchRunner {
+    
+    static final String[] COLUMNS = {
+        "config", "status", "proposers", "proposees", "matched", "single", "unmatchedProposers",
+        "unmatchedProposees", "iterations", "totalProposals", "totalRejections", "proposerMeanRank",
+        "proposeeMeanRank", "egalitarianCost", "regret", "loadMillis", "solveMillis", "error"
+    };
+    
+    private final RuntimeOptions runtimeOptions;
+    private final int threads;
+    
+    private BatchRunner(Builder builder) {
+        this.runtimeOptions = builder.runtimeOptions;
+        this.threads = builder.threads;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Expand a directory (every .yaml/.yml file below it) or a glob pattern such as
+     * {@code src/test/resources/*-config.yaml} into a sorted list of config files.
+     */
+    public static List<Path> findConfigs(String directoryOrGlob) throws IOException {
+        Path direct = Paths.get(directoryOrGlob);
+        if (Files.isDirectory(direct)) {
+            return walk(direct, path -> {
+                String name = path.getFileName().toString();
+                return name.endsWith(".yaml") || name.endsWith(".yml");
+            });
+        }
+        if (Files.isRegularFile(direct)) {
+            return Collections.singletonList(direct);
+        }
+        
+        // Walk from the deepest directory without glob characters and match the full pattern
+        String normalized = directoryOrGlob.replace('\\', '/');
+        int firstGlob = indexOfGlobCharacter(normalized);
+        if (firstGlob < 0) {
+            throw new NoSuchFileException(directoryOrGlob);
+        }
+        int lastSeparator = normalized.lastIndexOf('/', firstGlob);
+        Path base = lastSeparator < 0 ? Paths.get(".") : Paths.get(normalized.substring(0, lastSeparator + 1));
+        String pattern = lastSeparator < 0 ? "./" + normalized : normalized;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        
+        return walk(base, matcher::matches);
+    }
+    
+    private static List<Path> walk(Path base, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(base)) {
+            return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+        }
+    }
+    
+    private static int indexOfGlobCharacter(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Run every config and write the summary to {@code results}.
+     *
+     * @return the summaries in config order
+     */
+    public List<BatchResult> run(List<Path> configs, Path results) throws IOException {
+        Path parent = results.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(results, StandardCharsets.UTF_8)) {
+            return run(configs, writer);
+        }
+    }
+    
+    public List<BatchResult> run(List<Path> configs, Writer results) throws IOException {
+        int poolSize = Math.min(threads, Math.max(1, configs.size()));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>());
+        SimulationMetrics metrics = SimulationMetrics.getInstance();
+        metrics.registerMBean();
+        SimulationMetrics.QueueRegistration queue = metrics.registerQueue("batch", () -> pool.getQueue().size());
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>(configs.size());
+            for (Path config : configs) {
+                futures.add(pool.submit(() -> runOne(config)));
+            }
+            
+            results.write(String.join(",", COLUMNS));
+            results.write('\n');
+            
+            List<BatchResult> summaries = new ArrayList<>(configs.size());
+            for (int i = 0; i < futures.size(); i++) {
+                BatchResult summary = await(futures.get(i), configs.get(i));
+                summaries.add(summary);
+                results.write(summary.toCsvRow());
+                results.write('\n');
+                results.flush();
+            }
+            return summaries;
+        } finally {
+            queue.close();
+            pool.shutdownNow();
+        }
+    }
+    
+    static BatchResult await(Future<BatchResult> future, Path configFile) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for batch results", e);
+        } catch (ExecutionException e) {
+            // runOne turns exceptions into error rows; an Error (out of memory, stack overflow) gets here
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return BatchResult.failure(configFile, cause.getClass().getSimpleName() + ": " + describe(cause), 0);
+        }
+    }
+    
+    private static String describe(Throwable failure) {
+        return failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+    }
+    
+    private BatchResult runOne(Path configFile) {
+        long loadStart = System.nanoTime();
+        long loadNanos = 0;
+        try {
+            SimulationConfig config = new SimulationConfigLoader().loadFromFile(configFile.toFile(), runtimeOptions);
+            CompiledMarket market = config.getMarket();
+            loadNanos = System.nanoTime() - loadStart;
+            
+            long solveStart = System.nanoTime();
+            GaleShapleyAlgorithm.AlgorithmResult result;
+            StatisticsObserver.Statistics statistics = null;
+            if (runtimeOptions.getSolver() == SolverMode.GALE_SHAPLEY) {
+                GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(market, runtimeOptions);
+                StatisticsObserver statisticsObserver = new StatisticsObserver();
+                algorithm.addObserver(statisticsObserver);
+                result = algorithm.execute(runtimeOptions);
+                statistics = statisticsObserver.getStatistics();
+            } else {
+                result = StableMatchingSolvers.solve(market, runtimeOptions);
+            }
+            long solveNanos = System.nanoTime() - solveStart;
+            
+            return BatchResult.success(configFile, market, result, statistics, loadNanos, solveNanos);
+        } catch (Exception e) {
+            if (loadNanos == 0) {
+                loadNanos = System.nanoTime() - loadStart;
+            }
+            return BatchResult.failure(configFile, describe(e), loadNanos);
+        }
+    }
+    
+    /**
+     * Summary of one config in a batch.
+     */
+    public static class BatchResult {
+        private final Path config;
+        private final boolean success;
+        private final int proposers;
+        private final int proposees;
+        private final int matched;
+        private final int single;
+        private final int unmatchedProposers;
+        private final int unmatchedProposees;
+        private final int iterations;
+        private final int totalProposals;
+        private final int totalRejections;
+        private final WelfareAnalyzer.Welfare welfare;
+        private final long loadNanos;
+        private final long solveNanos;
+        private final String error;
+        
+        private BatchResult(Path config, boolean success, int proposers, int proposees, int matched, int single,
+                            int unmatchedProposers, int unmatchedProposees, int iterations, int totalProposals,
+                            int totalRejections, WelfareAnalyzer.Welfare welfare, long loadNanos, long solveNanos,
+                            String error) {
+            this.config = config;
+            this.success = success;
+            this.proposers = proposers;
+            this.proposees = proposees;
+            this.matched = matched;
+            this.single = single;
+            this.unmatchedProposers = unmatchedProposers;
+            this.unmatchedProposees = unmatchedProposees;
+            this.iterations = iterations;
+            this.totalProposals = totalProposals;
+            this.totalRejections = totalRejections;
+            this.welfare = welfare;
+            this.loadNanos = loadNanos;
+            this.solveNanos = solveNanos;
+            this.error = error;
+        }
+        
+        /**
+         * @param statistics Gale-Shapley's proposal counts, or {@code null} when another solver
+         *                   ran; the proposal columns are then left empty
+         */
+        static BatchResult success(Path config, CompiledMarket market, GaleShapleyAlgorithm.AlgorithmResult result,
+                                   StatisticsObserver.Statistics statistics, long loadNanos, long solveNanos) {
+            WelfareAnalyzer.Welfare welfare = WelfareAnalyzer.analyze(market, result.getFinalMatching());
+            return new BatchResult(config, true, market.getProposerCount(), market.getProposeeCount(),
+                welfare.getMatchedPairs(), welfare.getSingleProposers(), welfare.getUnmatchedProposers(),
+                welfare.getUnmatchedProposees(), result.getIterations(),
+                statistics != null ? statistics.getTotalProposals() : -1,
+                statistics != null ? statistics.getTotalRejections() : -1, welfare, loadNanos, solveNanos, null);
+        }
+        
+        static BatchResult failure(Path config, String error, long loadNanos) {
+            return new BatchResult(config, false, 0, 0, 0, 0, 0, 0, 0, 0, 0, null, loadNanos, 0, error);
+        }
+        
+        public Path getConfig() {
+            return config;
+        }
+        
+        public boolean isSuccess() {
+            return success;
+        }
+        
+        public int getMatched() {
+            return matched;
+        }
+        
+        public int getSingle() {
+            return single;
+        }
+        
+        public int getIterations() {
+            return iterations;
+        }
+        
+        /**
+         * @return rank statistics of the final matching, or {@code null} for a failed config
+         */
+        public WelfareAnalyzer.Welfare getWelfare() {
+            return welfare;
+        }
+        
+        public String getError() {
+            return error;
+        }
+        
+        String toCsvRow() {
+            if (!success) {
+                return String.join(",", csv(config.toString()), "error", "", "", "", "", "", "", "", "", "",
+                    "", "", "", "", millis(loadNanos), "", csv(error));
+            }
+            return String.join(",", csv(config.toString()), "ok",
+                String.valueOf(proposers), String.valueOf(proposees), String.valueOf(matched),
+                String.valueOf(single), String.valueOf(unmatchedProposers), String.valueOf(unmatchedProposees),
+                String.valueOf(iterations), count(totalProposals), count(totalRejections),
+                String.format(Locale.ROOT, "%.3f", welfare.getProposers().getMeanRank()),
+                String.format(Locale.ROOT, "%.3f", welfare.getProposees().getMeanRank()),
+                String.valueOf(welfare.getEgalitarianCost()), String.valueOf(welfare.getRegret()),
+                millis(loadNanos), millis(solveNanos), "");
+        }
+        
+        private static String count(int value) {
+            return value < 0 ? "" : String.valueOf(value);
+        }
+        
+        private static String millis(long nanos) {
+            return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+        }
+        
+        private static String csv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        
+        @Override
+        public String toString() {
+            return success
+                ? String.format("BatchResult[%s: ok, matched=%d, single=%d, iterations=%d]", config, matched, single, iterations)
+                : String.format("BatchResult[%s: error, %s]", config, error);
+        }
+    }
+    
+    public static class Builder {
+        private RuntimeOptions runtimeOptions = RuntimeOptions.defaultOptions();
+        private int threads = Runtime.getRuntime().availableProcessors();
+        
+        public Builder runtimeOptions(RuntimeOptions runtimeOptions) {
+            this.runtimeOptions = Objects.requireNonNull(runtimeOptions, "Runtime options cannot be null");
+            return this;
+        }
+        
+        public Builder threads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Threads must be positive");
+            }
+            this.threads = threads;
+            return this;
+        }
+        
+        public BatchRunner build() {
+            return new BatchRunner(this);
+        }
+    }
+}
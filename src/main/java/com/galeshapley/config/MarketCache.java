@@ -0,0 +1,195 @@
+package com.galeshapley.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.galeshapley.config.distribution.DistributionConfig;
+import com.galeshapley.config.distribution.LatentDistributionConfig;
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.model.MarketFile;
+import com.galeshapley.model.Proposee;
+import com.galeshapley.model.Proposer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed disk cache of generated markets.
+ *
+ * A market whose agents and preferences are all generated from a global seed is fully
+ * determined by its generator settings and that seed, so it is stored under the SHA-256 of a
+ * canonical JSON form of both, as a {@link MarketFile}. Later runs with the same settings map
+ * the file instead of generating. Entries are written to a temporary file and moved into place,
+ * so jobs sharing a cache directory never see half-written markets, and the least recently used
+ * entries are deleted once the directory grows past its size limit.
+ */
+public final class MarketCache {
+    
+    private static final String SUFFIX = ".market";
+    private static final int KEY_VERSION = 1;
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+        .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .build();
+    
+    private final Path directory;
+    private final long maxBytes;
+    
+    public MarketCache(Path directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Market cache size must be positive");
+        }
+        this.directory = Objects.requireNonNull(directory, "Cache directory cannot be null");
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Key of the market a configuration generates, or empty if it cannot be cached: both sides
+     * must be generated in bulk and the run must have a global seed.
+     */
+    public static Optional<String> keyOf(YamlConfig.SimulationData simData, Long globalSeed) {
+        if (simData.getProposerConfig() == null || simData.getProposeeConfig() == null || globalSeed == null) {
+            return Optional.empty();
+        }
+        ObjectNode settings = CANONICAL.createObjectNode();
+        settings.put("version", KEY_VERSION);
+        settings.put("globalSeed", globalSeed);
+        settings.set("proposerConfig", CANONICAL.valueToTree(simData.getProposerConfig()));
+        settings.set("proposeeConfig", CANONICAL.valueToTree(simData.getProposeeConfig()));
+        settings.set("proposerOverrides", CANONICAL.valueToTree(simData.getProposerOverrides()));
+        settings.set("proposeeOverrides", CANONICAL.valueToTree(simData.getProposeeOverrides()));
+        
+        MessageDigest digest = sha256();
+        try {
+            digest.update(CANONICAL.writeValueAsBytes(settings));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize generator settings", e);
+        }
+        // Feature files are part of the input, so their contents count, not just their names
+        for (DistributionConfig distribution : simData.getDistributions()) {
+            if (distribution instanceof LatentDistributionConfig
+                    && ((LatentDistributionConfig) distribution).getFeatureFile() != null) {
+                String file = ((LatentDistributionConfig) distribution).getFeatureFile();
+                try {
+                    digest.update(file.getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(Paths.get(file)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read feature file " + Paths.get(file).getFileName(), e);
+                }
+            }
+        }
+        return Optional.of(hex(digest.digest()));
+    }
+    
+    /**
+     * Map the cached market with the given key for these agents, or return empty on a miss.
+     * A hit counts as a use for eviction; an unreadable entry is dropped and treated as a miss.
+     */
+    public Optional<CompiledMarket> load(String key, Collection<Proposer> proposers, Collection<Proposee> proposees) {
+        Path file = entry(key);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            CompiledMarket market = MarketFile.map(file, proposers, proposees);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(market);
+        } catch (NoSuchFileException e) {
+            return Optional.empty(); // Evicted by another job in the meantime
+        } catch (IOException e) {
+            deleteQuietly(file);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Store a market under the given key, then evict the least recently used entries beyond
+     * the size limit. The entry just stored is kept even if it alone exceeds the limit.
+     */
+    public void store(String key, CompiledMarket market) {
+        Path file = entry(key);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, key + "-", ".tmp");
+            try {
+                MarketFile.write(market, temporary);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                deleteQuietly(temporary);
+            }
+            evict(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store market in cache " + directory, e);
+        }
+    }
+    
+    private void evict(Path keep) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                .collect(Collectors.toList());
+        }
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        long total = 0;
+        for (Path entry : entries) {
+            try {
+                lastUsed.put(entry, Files.getLastModifiedTime(entry));
+                sizes.put(entry, Files.size(entry));
+                total += sizes.get(entry);
+            } catch (NoSuchFileException e) {
+                // Already evicted by another job
+            }
+        }
+        List<Path> oldestFirst = new ArrayList<>(lastUsed.keySet());
+        oldestFirst.sort(Comparator.comparing(lastUsed::get));
+        for (Path entry : oldestFirst) {
+            if (total <= maxBytes) {
+                return;
+            }
+            if (!entry.equals(keep)) {
+                deleteQuietly(entry);
+                total -= sizes.get(entry);
+            }
+        }
+    }
+    
+    private Path entry(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+    
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left for a later eviction pass
+        }
+    }
+}
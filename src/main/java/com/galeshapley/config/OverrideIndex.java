@@ -0,0 +1,180 @@
+package com.galeshapley.config;
+
+import java.util.*;
+
+/**
+ * Interval index over bulk agent overrides.
+ *
+ * Overrides are compiled once into sorted, non-overlapping segments so that the generator
+ * for an agent index can be found by binary search instead of scanning every override.
+ * Overrides keep first-match-wins semantics: where several overrides cover the same index,
+ * the one listed first claims it. An override may name an index, a range, or both.
+ */
+final class OverrideIndex {
+    
+    private final int agentCount;
+    private final YamlConfig.GeneratorConfig defaultGenerator;
+    private final int[] starts;
+    private final int[] ends;
+    private final YamlConfig.GeneratorConfig[] generators;
+    
+    private OverrideIndex(int agentCount, YamlConfig.GeneratorConfig defaultGenerator,
+                          int[] starts, int[] ends, YamlConfig.GeneratorConfig[] generators) {
+        this.agentCount = agentCount;
+        this.defaultGenerator = defaultGenerator;
+        this.starts = starts;
+        this.ends = ends;
+        this.generators = generators;
+    }
+    
+    /**
+     * Compile overrides for agents {@code 0..agentCount-1}. Indices outside that range are ignored.
+     */
+    static OverrideIndex compile(List<YamlConfig.AgentOverride> overrides,
+                                 YamlConfig.GeneratorConfig defaultGenerator, int agentCount) {
+        // Merged coverage of everything claimed so far (start -> end), used to find the gaps
+        // a later override can still claim. Keeping it merged makes each insertion amortized O(log k).
+        TreeMap<Integer, Integer> claimed = new TreeMap<>();
+        TreeMap<Integer, Segment> segments = new TreeMap<>();
+        
+        if (overrides != null) {
+            for (YamlConfig.AgentOverride override : overrides) {
+                if (override.getIndex() != null) {
+                    claim(claimed, segments, override.getIndex(), override.getIndex(), override.getGenerator(), agentCount);
+                }
+                if (override.getRange() != null) {
+                    claim(claimed, segments, override.getRange().getStart(), override.getRange().getEnd(),
+                          override.getGenerator(), agentCount);
+                }
+            }
+        }
+        
+        // Coalesce touching segments that share a generator so they are generated as one batch
+        List<Segment> merged = new ArrayList<>(segments.size());
+        for (Segment segment : segments.values()) {
+            Segment last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last.generator == segment.generator && last.end + 1 == segment.start) {
+                merged.set(merged.size() - 1, new Segment(last.start, segment.end, last.generator));
+            } else {
+                merged.add(segment);
+            }
+        }
+        
+        int[] starts = new int[merged.size()];
+        int[] ends = new int[merged.size()];
+        YamlConfig.GeneratorConfig[] generators = new YamlConfig.GeneratorConfig[merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            starts[i] = merged.get(i).start;
+            ends[i] = merged.get(i).end;
+            generators[i] = merged.get(i).generator;
+        }
+        return new OverrideIndex(agentCount, defaultGenerator, starts, ends, generators);
+    }
+    
+    private static void claim(TreeMap<Integer, Integer> claimed, TreeMap<Integer, Segment> segments,
+                              int start, int end, YamlConfig.GeneratorConfig generator, int agentCount) {
+        start = Math.max(start, 0);
+        end = Math.min(end, agentCount - 1);
+        if (start > end) {
+            return;
+        }
+        
+        int mergedStart = start;
+        int mergedEnd = end;
+        int cursor = start;
+        
+        Map.Entry<Integer, Integer> before = claimed.floorEntry(start);
+        if (before != null && before.getValue() >= start - 1) {
+            mergedStart = before.getKey();
+            mergedEnd = Math.max(mergedEnd, before.getValue());
+            cursor = Math.max(cursor, before.getValue() + 1);
+            claimed.remove(before.getKey());
+        }
+        
+        Iterator<Map.Entry<Integer, Integer>> it = claimed.subMap(start, true, end + 1, true).entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Integer> covered = it.next();
+            if (covered.getKey() > cursor) {
+                segments.put(cursor, new Segment(cursor, covered.getKey() - 1, generator));
+            }
+            cursor = Math.max(cursor, covered.getValue() + 1);
+            mergedEnd = Math.max(mergedEnd, covered.getValue());
+            it.remove();
+        }
+        
+        if (cursor <= end) {
+            segments.put(cursor, new Segment(cursor, end, generator));
+        }
+        claimed.put(mergedStart, mergedEnd);
+    }
+    
+    /**
+     * Generator for the agent at the given bulk index, in O(log k) for k segments.
+     */
+    YamlConfig.GeneratorConfig generatorFor(int agentIndex) {
+        int segment = Arrays.binarySearch(starts, agentIndex);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        if (segment >= 0 && agentIndex <= ends[segment]) {
+            return generators[segment];
+        }
+        return defaultGenerator;
+    }
+    
+    /**
+     * Consecutive runs of agents sharing a generator, covering every agent index in order.
+     * Gaps between overrides are filled with the default generator.
+     */
+    List<Segment> segments() {
+        List<Segment> runs = new ArrayList<>(starts.length * 2 + 1);
+        int next = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] > next) {
+                runs.add(new Segment(next, starts[i] - 1, defaultGenerator));
+            }
+            runs.add(new Segment(starts[i], ends[i], generators[i]));
+            next = ends[i] + 1;
+        }
+        if (next < agentCount) {
+            runs.add(new Segment(next, agentCount - 1, defaultGenerator));
+        }
+        return runs;
+    }
+    
+    int getSegmentCount() {
+        return starts.length;
+    }
+    
+    /**
+     * Inclusive range of agent indices that share one generator.
+     */
+    static final class Segment {
+        private final int start;
+        private final int end;
+        private final YamlConfig.GeneratorConfig generator;
+        
+        Segment(int start, int end, YamlConfig.GeneratorConfig generator) {
+            this.start = start;
+            this.end = end;
+            this.generator = generator;
+        }
+        
+        int getStart() {
+            return start;
+        }
+        
+        int getEnd() {
+            return end;
+        }
+        
+        YamlConfig.GeneratorConfig getGenerator() {
+            return generator;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Segment[%d-%d]", start, end);
+        }
+    }
+}
@@ -9,10 +9,12 @@ import java.util.List;
 /**
  * Configuration for agent preferences that can be either explicit or generated.
  * Supports both explicit preference lists and generation using various distributions.
+ * Explicit lists may group tied agents in nested lists, e.g. {@code [w1, [w3, w5], w2]}.
  */
 public class PreferenceConfig {
     
     private final List<String> explicit;
+    private final int[] tieLevels;
     private final GeneratorConfig generator;
     
     @JsonCreator
@@ -28,9 +30,16 @@ public class PreferenceConfig {
         }
         
         this.explicit = explicit;
+        this.tieLevels = null;
         this.generator = generator;
     }
     
+    private PreferenceConfig(List<String> explicit, int[] tieLevels) {
+        this.explicit = explicit;
+        this.tieLevels = tieLevels;
+        this.generator = null;
+    }
+    
     public boolean isExplicit() {
         return explicit != null;
     }
@@ -39,6 +48,13 @@ public class PreferenceConfig {
         return explicit;
     }
     
+    /**
+     * @return the tie level of each explicit entry, or {@code null} if the list has no ties
+     */
+    public int[] getTieLevels() {
+        return tieLevels;
+    }
+    
     public GeneratorConfig getGenerator() {
         return generator;
     }
@@ -67,7 +83,21 @@ public class PreferenceConfig {
      * Create explicit preference config from list.
      */
     public static PreferenceConfig explicit(List<String> preferences) {
-        return new PreferenceConfig(preferences, null);
+        return explicit(preferences, null);
+    }
+    
+    /**
+     * Create explicit preference config whose entries carry tie levels; entries with the same
+     * level are tied.
+     */
+    public static PreferenceConfig explicit(List<String> preferences, int[] tieLevels) {
+        if (preferences == null) {
+            throw new IllegalArgumentException("Must specify either explicit preferences or generator config");
+        }
+        if (tieLevels != null && tieLevels.length != preferences.size()) {
+            throw new IllegalArgumentException("Expected one tie level per preference");
+        }
+        return new PreferenceConfig(preferences, tieLevels);
     }
     
     /**
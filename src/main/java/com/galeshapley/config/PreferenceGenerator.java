@@ -3,9 +3,15 @@ package com.galeshapley.config;
 import com.galeshapley.config.distribution.DistributionConfig;
 import com.galeshapley.config.distribution.UniformDistributionConfig;
 import com.galeshapley.config.distribution.CorrelatedDistributionConfig;
+import com.galeshapley.config.distribution.LatentDistributionConfig;
+import com.galeshapley.config.distribution.MallowsDistributionConfig;
+import com.galeshapley.config.distribution.PlackettLuceDistributionConfig;
 import com.galeshapley.generation.PreferenceGenerationStrategy;
 import com.galeshapley.generation.UniformGenerationStrategy;
 import com.galeshapley.generation.CorrelatedGenerationStrategy;
+import com.galeshapley.generation.LatentGenerationStrategy;
+import com.galeshapley.generation.MallowsGenerationStrategy;
+import com.galeshapley.generation.PlackettLuceGenerationStrategy;
 import com.galeshapley.model.Agent;
 
 import java.util.*;
@@ -25,6 +31,10 @@ public class PreferenceGenerator {
         this.strategy = createStrategy(config);
     }
     
+    public PreferenceGenerator(DistributionConfig config) {
+        this(config, new Random());
+    }
+    
     public PreferenceGenerator(DistributionConfig config, long seed) {
         this(config, new Random(seed));
     }
@@ -34,6 +44,12 @@ public class PreferenceGenerator {
             return new UniformGenerationStrategy();
         } else if (config instanceof CorrelatedDistributionConfig) {
             return new CorrelatedGenerationStrategy((CorrelatedDistributionConfig) config);
+        } else if (config instanceof MallowsDistributionConfig) {
+            return new MallowsGenerationStrategy((MallowsDistributionConfig) config);
+        } else if (config instanceof LatentDistributionConfig) {
+            return new LatentGenerationStrategy((LatentDistributionConfig) config);
+        } else if (config instanceof PlackettLuceDistributionConfig) {
+            return new PlackettLuceGenerationStrategy((PlackettLuceDistributionConfig) config);
         } else {
             throw new IllegalArgumentException("Unknown distribution type: " + config.getType());
         }
@@ -57,6 +73,23 @@ public class PreferenceGenerator {
         return strategy.generatePreferences(candidateIds, random, withEmptySet);
     }
     
+    /**
+     * Generate preferences drawing from the given random source instead of this generator's own.
+     * The empty set decision is drawn first, exactly as when generating one agent at a time, so
+     * a single generator can serve a whole batch of agents that each have their own seed.
+     */
+    public List<String> generatePreferencesFromIds(Collection<String> candidateIds, Random agentRandom) {
+        return generatePreferencesFromIds(null, candidateIds, agentRandom);
+    }
+    
+    /**
+     * Generate preferences for the agent with the given ID, drawing from its own random source.
+     */
+    public List<String> generatePreferencesFromIds(String ownerId, Collection<String> candidateIds, Random agentRandom) {
+        boolean withEmptySet = agentRandom.nextDouble() < config.getEmptySetProbability();
+        return strategy.generatePreferences(ownerId, candidateIds, agentRandom, withEmptySet);
+    }
+    
     /**
      * Generate preferences for multiple agents.
      */
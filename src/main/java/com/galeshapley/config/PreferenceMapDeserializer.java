@@ -4,52 +4,145 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Custom deserializer that handles both old format (direct lists) and new format (PreferenceConfig objects).
  * This provides backward compatibility while supporting the new nested preference structure.
+ *
+ * The preference map is read token by token straight from the parser, so no intermediate
+ * JSON tree is built. Agent IDs are interned through a pool shared by every preference map in
+ * the same document, which means an n x n explicit market holds n ID strings instead of n².
+ * A nested array inside a list is a group of tied agents.
  */
 public class PreferenceMapDeserializer extends JsonDeserializer<Map<String, PreferenceConfig>> {
-    
+
+    private static final String ID_POOL_ATTRIBUTE = PreferenceMapDeserializer.class.getName() + ".idPool";
+
     @Override
-    public Map<String, PreferenceConfig> deserialize(JsonParser parser, DeserializationContext context) 
+    public Map<String, PreferenceConfig> deserialize(JsonParser parser, DeserializationContext context)
             throws IOException {
-        
-        Map<String, PreferenceConfig> result = new HashMap<>();
-        ObjectMapper mapper = (ObjectMapper) parser.getCodec();
-        JsonNode node = mapper.readTree(parser);
-        
-        var fields = node.fields();
-        while (fields.hasNext()) {
-            var entry = fields.next();
-            String agentId = entry.getKey();
-            JsonNode valueNode = entry.getValue();
-            
+
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Preferences must be a mapping from agent ID to preferences");
+        }
+
+        Map<String, String> idPool = idPool(context);
+        Map<String, PreferenceConfig> result = new LinkedHashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String agentId = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+
             PreferenceConfig preferenceConfig;
-            
-            if (valueNode.isArray()) {
+
+            if (valueToken == JsonToken.START_ARRAY) {
                 // Old format: direct array of preferences
-                List<String> preferences = mapper.convertValue(valueNode, 
-                    mapper.getTypeFactory().constructCollectionType(List.class, String.class));
-                preferenceConfig = PreferenceConfig.explicit(preferences);
-            } else if (valueNode.isObject()) {
+                preferenceConfig = readPreferenceArray(parser, agentId, idPool);
+            } else if (valueToken == JsonToken.START_OBJECT) {
                 // New format: PreferenceConfig object
-                preferenceConfig = mapper.convertValue(valueNode, PreferenceConfig.class);
+                preferenceConfig = readPreferenceObject(parser, context, agentId, idPool);
             } else {
                 throw new IllegalArgumentException(
                     "Preference value for agent " + agentId + " must be either an array or an object");
             }
-            
+
             result.put(agentId, preferenceConfig);
         }
-        
+
         return result;
     }
-}
\ No newline at end of file
+
+    private PreferenceConfig readPreferenceObject(JsonParser parser, DeserializationContext context,
+                                                  String agentId, Map<String, String> idPool) throws IOException {
+        PreferenceConfig explicit = null;
+        PreferenceConfig.GeneratorConfig generator = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if ("explicit".equals(fieldName)) {
+                if (valueToken == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                if (valueToken != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException(
+                        "Explicit preferences for agent " + agentId + " must be an array");
+                }
+                explicit = readPreferenceArray(parser, agentId, idPool);
+            } else if ("generator".equals(fieldName)) {
+                generator = context.readValue(parser, PreferenceConfig.GeneratorConfig.class);
+            } else {
+                throw new IllegalArgumentException(
+                    "Unknown preference field '" + fieldName + "' for agent " + agentId);
+            }
+        }
+
+        if (explicit != null && generator != null) {
+            throw new IllegalArgumentException("Cannot specify both explicit preferences and generator config");
+        }
+        return explicit != null ? explicit : new PreferenceConfig(null, generator);
+    }
+
+    private PreferenceConfig readPreferenceArray(JsonParser parser, String agentId, Map<String, String> idPool)
+            throws IOException {
+        List<String> preferences = new ArrayList<>();
+        List<Integer> levels = new ArrayList<>();
+        boolean ties = false;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            int level = levels.isEmpty() ? 0 : levels.get(levels.size() - 1) + 1;
+            if (token == JsonToken.START_ARRAY) {
+                int start = preferences.size();
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    preferences.add(readId(parser, token, agentId, idPool));
+                    levels.add(level);
+                }
+                if (preferences.size() == start) {
+                    throw new IllegalArgumentException("Tie groups for agent " + agentId + " cannot be empty");
+                }
+                if (preferences.size() - start > 1) {
+                    if (preferences.subList(start, preferences.size()).contains("∅")) {
+                        throw new IllegalArgumentException("The empty set cannot be tied with agents for agent " + agentId);
+                    }
+                    ties = true;
+                }
+            } else {
+                preferences.add(readId(parser, token, agentId, idPool));
+                levels.add(level);
+            }
+        }
+
+        return PreferenceConfig.explicit(preferences,
+            ties ? levels.stream().mapToInt(Integer::intValue).toArray() : null);
+    }
+
+    private static String readId(JsonParser parser, JsonToken token, String agentId, Map<String, String> idPool)
+            throws IOException {
+        if (!token.isScalarValue() || token == JsonToken.VALUE_NULL) {
+            throw new IllegalArgumentException(
+                "Preference entries for agent " + agentId + " must be agent IDs or lists of tied agent IDs");
+        }
+        String id = parser.getText();
+        String pooled = idPool.putIfAbsent(id, id);
+        return pooled != null ? pooled : id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> idPool(DeserializationContext context) {
+        Map<String, String> idPool = (Map<String, String>) context.getAttribute(ID_POOL_ATTRIBUTE);
+        if (idPool == null) {
+            idPool = new HashMap<>();
+            context.setAttribute(ID_POOL_ATTRIBUTE, idPool);
+        }
+        return idPool;
+    }
+}
@@ -1,5 +1,6 @@
 package com.galeshapley.config;
 
+import com.galeshapley.algorithm.SolverMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
@@ -18,6 +19,15 @@ public class RuntimeOptions {
     private boolean enableDetailedLogging = false;
     private boolean trackIterationMetrics = true;
     private Long globalSeed = null;
+    private SolverMode solver = SolverMode.GALE_SHAPLEY;
+    private int tieBreakTrials = 16;
+    private String scratchDir = null;
+    private String marketCacheDir = null;
+    private long marketCacheSizeMb = 4096;
+    private int iterationEventInterval = 100;
+    private boolean publishMetrics = false;
+    private int sampleEvery = 1;
+    private int sampleAgents = 0;
     
     public RuntimeOptions() {
     }
@@ -27,6 +37,15 @@ public class RuntimeOptions {
         this.enableDetailedLogging = builder.enableDetailedLogging;
         this.trackIterationMetrics = builder.trackIterationMetrics;
         this.globalSeed = builder.globalSeed;
+        this.solver = builder.solver;
+        this.tieBreakTrials = builder.tieBreakTrials;
+        this.scratchDir = builder.scratchDir;
+        this.marketCacheDir = builder.marketCacheDir;
+        this.marketCacheSizeMb = builder.marketCacheSizeMb;
+        this.iterationEventInterval = builder.iterationEventInterval;
+        this.publishMetrics = builder.publishMetrics;
+        this.sampleEvery = builder.sampleEvery;
+        this.sampleAgents = builder.sampleAgents;
     }
     
     public int getMaxIterations() {
@@ -64,6 +83,125 @@ public class RuntimeOptions {
         this.globalSeed = globalSeed;
     }
     
+    /**
+     * Which stable matching a run reports; anything but {@link SolverMode#GALE_SHAPLEY} replaces
+     * the Gale-Shapley result with the optimum over the whole stable matching lattice.
+     */
+    public SolverMode getSolver() {
+        return solver;
+    }
+    
+    public void setSolver(SolverMode solver) {
+        if (solver == null) {
+            throw new IllegalArgumentException("Solver cannot be null");
+        }
+        this.solver = solver;
+    }
+    
+    /**
+     * Number of random tie-breaks the {@link SolverMode#TIE_BREAKING} solver tries.
+     */
+    public int getTieBreakTrials() {
+        return tieBreakTrials;
+    }
+    
+    public void setTieBreakTrials(int tieBreakTrials) {
+        if (tieBreakTrials <= 0) {
+            throw new IllegalArgumentException("Tie-break trials must be positive");
+        }
+        this.tieBreakTrials = tieBreakTrials;
+    }
+    
+    /**
+     * Directory for memory-mapped preference and rank tables, or null to keep them on the heap.
+     */
+    public String getScratchDir() {
+        return scratchDir;
+    }
+    
+    public void setScratchDir(String scratchDir) {
+        this.scratchDir = scratchDir == null || scratchDir.isEmpty() ? null : scratchDir;
+    }
+    
+    /**
+     * Directory of the generated-market cache, or null to always generate.
+     */
+    public String getMarketCacheDir() {
+        return marketCacheDir;
+    }
+    
+    public void setMarketCacheDir(String marketCacheDir) {
+        this.marketCacheDir = marketCacheDir == null || marketCacheDir.isEmpty() ? null : marketCacheDir;
+    }
+    
+    /**
+     * Size in megabytes the market cache may grow to before its least recently used entries go.
+     */
+    public long getMarketCacheSizeMb() {
+        return marketCacheSizeMb;
+    }
+    
+    public void setMarketCacheSizeMb(long marketCacheSizeMb) {
+        if (marketCacheSizeMb <= 0) {
+            throw new IllegalArgumentException("Market cache size must be positive");
+        }
+        this.marketCacheSizeMb = marketCacheSizeMb;
+    }
+    
+    /**
+     * Number of Gale-Shapley iterations covered by each Flight Recorder iteration batch event.
+     */
+    public int getIterationEventInterval() {
+        return iterationEventInterval;
+    }
+    
+    public void setIterationEventInterval(int iterationEventInterval) {
+        if (iterationEventInterval <= 0) {
+            throw new IllegalArgumentException("Iteration event interval must be positive");
+        }
+        this.iterationEventInterval = iterationEventInterval;
+    }
+    
+    /**
+     * Whether a single CLI run publishes its progress over JMX; batch runs and the server always do.
+     */
+    public boolean isPublishMetrics() {
+        return publishMetrics;
+    }
+    
+    public void setPublishMetrics(boolean publishMetrics) {
+        this.publishMetrics = publishMetrics;
+    }
+    
+    /**
+     * Statistics observe only every N-th proposal attempt when above 1, and extrapolate the totals.
+     */
+    public int getSampleEvery() {
+        return sampleEvery;
+    }
+    
+    public void setSampleEvery(int sampleEvery) {
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("Sample interval must be positive");
+        }
+        this.sampleEvery = sampleEvery;
+    }
+    
+    /**
+     * Statistics follow only this many proposers when positive, and extrapolate the totals;
+     * takes precedence over {@link #getSampleEvery()}.
+     */
+    public int getSampleAgents() {
+        return sampleAgents;
+    }
+    
+    public void setSampleAgents(int sampleAgents) {
+        if (sampleAgents < 0 || sampleAgents == 1) {
+            throw new IllegalArgumentException("Sampled agents must be 0 or at least 2");
+        }
+        this.sampleAgents = sampleAgents;
+    }
+    
     public static Builder builder() {
         return new Builder();
     }
@@ -77,6 +215,15 @@ public class RuntimeOptions {
         private boolean enableDetailedLogging = false;
         private boolean trackIterationMetrics = true;
         private Long globalSeed = null;
+        private SolverMode solver = SolverMode.GALE_SHAPLEY;
+        private int tieBreakTrials = 16;
+        private String scratchDir = null;
+        private String marketCacheDir = null;
+        private long marketCacheSizeMb = 4096;
+        private int iterationEventInterval = 100;
+        private boolean publishMetrics = false;
+    private int sampleEvery = 1;
+    private int sampleAgents = 0;
         
         public Builder maxIterations(int maxIterations) {
             if (maxIterations <= 0) {
@@ -101,6 +248,69 @@ public class RuntimeOptions {
             return this;
         }
         
+        public Builder solver(SolverMode solver) {
+            if (solver == null) {
+                throw new IllegalArgumentException("Solver cannot be null");
+            }
+            this.solver = solver;
+            return this;
+        }
+        
+        public Builder tieBreakTrials(int tieBreakTrials) {
+            if (tieBreakTrials <= 0) {
+                throw new IllegalArgumentException("Tie-break trials must be positive");
+            }
+            this.tieBreakTrials = tieBreakTrials;
+            return this;
+        }
+        
+        public Builder scratchDir(String scratchDir) {
+            this.scratchDir = scratchDir == null || scratchDir.isEmpty() ? null : scratchDir;
+            return this;
+        }
+        
+        public Builder marketCacheDir(String marketCacheDir) {
+            this.marketCacheDir = marketCacheDir == null || marketCacheDir.isEmpty() ? null : marketCacheDir;
+            return this;
+        }
+        
+        public Builder marketCacheSizeMb(long marketCacheSizeMb) {
+            if (marketCacheSizeMb <= 0) {
+                throw new IllegalArgumentException("Market cache size must be positive");
+            }
+            this.marketCacheSizeMb = marketCacheSizeMb;
+            return this;
+        }
+        
+        public Builder iterationEventInterval(int iterationEventInterval) {
+            if (iterationEventInterval <= 0) {
+                throw new IllegalArgumentException("Iteration event interval must be positive");
+            }
+            this.iterationEventInterval = iterationEventInterval;
+            return this;
+        }
+        
+        public Builder publishMetrics(boolean publishMetrics) {
+            this.publishMetrics = publishMetrics;
+            return this;
+        }
+        
+        public Builder sampleEvery(int sampleEvery) {
+            if (sampleEvery <= 0) {
+                throw new IllegalArgumentException("Sample interval must be positive");
+            }
+            this.sampleEvery = sampleEvery;
+            return this;
+        }
+        
+        public Builder sampleAgents(int sampleAgents) {
+            if (sampleAgents < 0 || sampleAgents == 1) {
+                throw new IllegalArgumentException("Sampled agents must be 0 or at least 2");
+            }
+            this.sampleAgents = sampleAgents;
+            return this;
+        }
+        
         public RuntimeOptions build() {
             return new RuntimeOptions(this);
         }
@@ -108,7 +318,8 @@ public class RuntimeOptions {
     
     @Override
     public String toString() {
-        return String.format("RuntimeOptions{maxIterations=%d, detailedLogging=%s, trackIterations=%s, globalSeed=%s}",
-            maxIterations, enableDetailedLogging, trackIterationMetrics, globalSeed);
+        return String.format("RuntimeOptions{maxIterations=%d, detailedLogging=%s, trackIterations=%s, globalSeed=%s, solver=%s, tieBreakTrials=%d, scratchDir=%s, marketCacheDir=%s, marketCacheSizeMb=%d, iterationEventInterval=%d, publishMetrics=%s, sampleEvery=%d, sampleAgents=%d}",
+            maxIterations, enableDetailedLogging, trackIterationMetrics, globalSeed, solver, tieBreakTrials, scratchDir,
+            marketCacheDir, marketCacheSizeMb, iterationEventInterval, publishMetrics, sampleEvery, sampleAgents);
     }
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+package com.galeshapley.config;
+
+import com.galeshapley.algorithm.SolverMode;
+
+import java.util.*;
+
+/**
+ * Resolves {@link RuntimeOptions} without a Spring context.
+ *
+ * Follows the same rules Spring Boot applies to the {@code galeshapley} prefix: built-in
+ * defaults (mirroring application.yml), then {@code GALESHAPLEY_*} environment variables,
+ * then {@code --galeshapley.<property>=<value>} command line arguments. Property names are
+ * matched relaxed (case-insensitive, dashes and underscores ignored), unknown properties are
+ * ignored, and an empty value clears the global seed, scratch directory or market cache.
+ */
+public final class RuntimeOptionsResolver {
+    
+    private static final String ARGUMENT_PREFIX = "--galeshapley.";
+    private static final String ENVIRONMENT_PREFIX = "GALESHAPLEY_";
+    
+    private static final String MAX_ITERATIONS = "maxiterations";
+    private static final String ENABLE_DETAILED_LOGGING = "enabledetailedlogging";
+    private static final String TRACK_ITERATION_METRICS = "trackiterationmetrics";
+    private static final String GLOBAL_SEED = "globalseed";
+    private static final String SOLVER = "solver";
+    private static final String TIE_BREAK_TRIALS = "tiebreaktrials";
+    private static final String SCRATCH_DIR = "scratchdir";
+    private static final String MARKET_CACHE_DIR = "marketcachedir";
+    private static final String MARKET_CACHE_SIZE_MB = "marketcachesizemb";
+    private static final String ITERATION_EVENT_INTERVAL = "iterationeventinterval";
+    private static final String PUBLISH_METRICS = "publishmetrics";
+    private static final String SAMPLE_EVERY = "sampleevery";
+    private static final String SAMPLE_AGENTS = "sampleagents";
+    
+    private RuntimeOptionsResolver() {
+    }
+    
+    /**
+     * Resolve options from the process environment and the given arguments.
+     */
+    public static RuntimeOptions resolve(String[] args) {
+        return resolve(args, System.getenv());
+    }
+    
+    public static RuntimeOptions resolve(String[] args, Map<String, String> environment) {
+        Map<String, String> properties = new HashMap<>();
+        
+        for (Map.Entry<String, String> entry : environment.entrySet()) {
+            String key = entry.getKey();
+            if (key.regionMatches(true, 0, ENVIRONMENT_PREFIX, 0, ENVIRONMENT_PREFIX.length())) {
+                properties.put(canonicalName(key.substring(ENVIRONMENT_PREFIX.length())), entry.getValue());
+            }
+        }
+        
+        for (String arg : args) {
+            if (!arg.regionMatches(true, 0, ARGUMENT_PREFIX, 0, ARGUMENT_PREFIX.length())) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                // A bare flag means true, as with Spring's command line property source
+                properties.put(canonicalName(arg.substring(ARGUMENT_PREFIX.length())), "true");
+            } else {
+                properties.put(canonicalName(arg.substring(ARGUMENT_PREFIX.length(), separator)),
+                               arg.substring(separator + 1));
+            }
+        }
+        
+        return build(properties);
+    }
+    
+    /**
+     * Build options from property names without the {@code galeshapley.} prefix, e.g.
+     * {@code maxIterations -> 100}. Unset properties keep their defaults.
+     */
+    public static RuntimeOptions fromProperties(Map<String, String> properties) {
+        Map<String, String> canonical = new HashMap<>();
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            canonical.put(canonicalName(entry.getKey()), entry.getValue());
+        }
+        return build(canonical);
+    }
+    
+    private static RuntimeOptions build(Map<String, String> properties) {
+        RuntimeOptions.Builder builder = RuntimeOptions.builder();
+        
+        String value = properties.get(MAX_ITERATIONS);
+        if (value != null) {
+            builder.maxIterations(parseInt("maxIterations", value));
+        }
+        value = properties.get(ENABLE_DETAILED_LOGGING);
+        if (value != null) {
+            builder.enableDetailedLogging(parseBoolean("enableDetailedLogging", value));
+        }
+        value = properties.get(TRACK_ITERATION_METRICS);
+        if (value != null) {
+            builder.trackIterationMetrics(parseBoolean("trackIterationMetrics", value));
+        }
+        value = properties.get(GLOBAL_SEED);
+        if (value != null) {
+            builder.globalSeed(parseSeed(value));
+        }
+        value = properties.get(SOLVER);
+        if (value != null) {
+            builder.solver(parseSolver(value));
+        }
+        value = properties.get(TIE_BREAK_TRIALS);
+        if (value != null) {
+            builder.tieBreakTrials(parseInt("tieBreakTrials", value));
+        }
+        value = properties.get(SCRATCH_DIR);
+        if (value != null) {
+            builder.scratchDir(value.trim());
+        }
+        value = properties.get(MARKET_CACHE_DIR);
+        if (value != null) {
+            builder.marketCacheDir(value.trim());
+        }
+        value = properties.get(MARKET_CACHE_SIZE_MB);
+        if (value != null) {
+            builder.marketCacheSizeMb(parseLong("marketCacheSizeMb", value));
+        }
+        value = properties.get(ITERATION_EVENT_INTERVAL);
+        if (value != null) {
+            builder.iterationEventInterval(parseInt("iterationEventInterval", value));
+        }
+        value = properties.get(PUBLISH_METRICS);
+        if (value != null) {
+            builder.publishMetrics(parseBoolean("publishMetrics", value));
+        }
+        value = properties.get(SAMPLE_EVERY);
+        if (value != null) {
+            builder.sampleEvery(parseInt("sampleEvery", value));
+        }
+        value = properties.get(SAMPLE_AGENTS);
+        if (value != null) {
+            builder.sampleAgents(parseInt("sampleAgents", value));
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * The first argument that is not an option, or the given default when there is none.
+     */
+    public static String positionalArgument(String[] args, String defaultValue) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                return arg;
+            }
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * @return the value of {@code --name=value}, or {@code null} if the option is absent
+     */
+    public static String option(String[] args, String name) {
+        String prefix = name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+    
+    private static String canonicalName(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '-' && c != '_') {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static int parseInt(String property, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw invalidValue(property, value);
+        }
+    }
+    
+    private static long parseLong(String property, String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw invalidValue(property, value);
+        }
+    }
+    
+    private static boolean parseBoolean(String property, String value) {
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "on":
+            case "yes":
+            case "1":
+                return true;
+            case "false":
+            case "off":
+            case "no":
+            case "0":
+                return false;
+            default:
+                throw invalidValue(property, value);
+        }
+    }
+    
+    private static Long parseSeed(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("null") || trimmed.equals("~")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException e) {
+            throw invalidValue("globalSeed", value);
+        }
+    }
+    
+    private static SolverMode parseSolver(String value) {
+        String canonical = canonicalName(value.trim());
+        for (SolverMode mode : SolverMode.values()) {
+            if (canonicalName(mode.name()).equals(canonical)) {
+                return mode;
+            }
+        }
+        throw invalidValue("solver", value);
+    }
+    
+    private static IllegalArgumentException invalidValue(String property, String value) {
+        return new IllegalArgumentException("Invalid value '" + value + "' for galeshapley." + property);
+    }
+}
@@ -1,27 +1,78 @@
 package com.galeshapley.config;
 
 import com.galeshapley.model.*;
+import com.galeshapley.profiling.Phase;
+import com.galeshapley.profiling.PhaseTimer;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SimulationConfig {
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 2048;
+    
     private final Set<Proposer> proposers;
     private final Set<Proposee> proposees;
-    private final Map<Proposer, PreferenceList<Proposee>> proposerPreferences;
-    private final Map<Proposee, PreferenceList<Proposer>> proposeePreferences;
     private final Map<Proposer, Integer> emptySetPreferences;
     private final Map<Proposee, Integer> proposeeEmptySetPreferences;
+    private final CompiledMarket market;
+    private volatile Map<Proposer, PreferenceList<Proposee>> proposerPreferences;
+    private volatile Map<Proposee, PreferenceList<Proposer>> proposeePreferences;
     
     private SimulationConfig(Builder builder) {
-        this.proposers = Collections.unmodifiableSet(new HashSet<>(builder.proposers));
-        this.proposees = Collections.unmodifiableSet(new HashSet<>(builder.proposees));
-        this.proposerPreferences = Collections.unmodifiableMap(new HashMap<>(builder.proposerPreferences));
-        this.proposeePreferences = Collections.unmodifiableMap(new HashMap<>(builder.proposeePreferences));
+        this.proposers = Collections.unmodifiableSet(new LinkedHashSet<>(builder.proposers));
+        this.proposees = Collections.unmodifiableSet(new LinkedHashSet<>(builder.proposees));
         this.emptySetPreferences = Collections.unmodifiableMap(new HashMap<>(builder.emptySetPreferences));
         this.proposeeEmptySetPreferences = Collections.unmodifiableMap(new HashMap<>(builder.proposeeEmptySetPreferences));
-        validate();
+        this.market = compile(builder);
+    }
+    
+    private SimulationConfig(CompiledMarket market) {
+        Set<Proposer> proposerSet = new LinkedHashSet<>();
+        Map<Proposer, Integer> emptySet = new HashMap<>();
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            proposerSet.add(market.getProposer(i));
+            if (market.getProposerEmptySetPosition(i) != CompiledMarket.NO_EMPTY_SET) {
+                emptySet.put(market.getProposer(i), market.getProposerEmptySetPosition(i));
+            }
+        }
+        Set<Proposee> proposeeSet = new LinkedHashSet<>();
+        Map<Proposee, Integer> proposeeEmptySet = new HashMap<>();
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            proposeeSet.add(market.getProposee(j));
+            if (market.getProposeeEmptySetPosition(j) != CompiledMarket.NO_EMPTY_SET) {
+                proposeeEmptySet.put(market.getProposee(j), market.getProposeeEmptySetPosition(j));
+            }
+        }
+        this.proposers = Collections.unmodifiableSet(proposerSet);
+        this.proposees = Collections.unmodifiableSet(proposeeSet);
+        this.emptySetPreferences = Collections.unmodifiableMap(emptySet);
+        this.proposeeEmptySetPreferences = Collections.unmodifiableMap(proposeeEmptySet);
+        this.market = market;
+    }
+    
+    /**
+     * Wrap a market that was compiled directly, e.g. by writing generated rows straight into
+     * off-heap tables. The market is trusted as it is and not validated again.
+     */
+    public static SimulationConfig of(CompiledMarket market) {
+        return new SimulationConfig(Objects.requireNonNull(market, "Market cannot be null"));
     }
     
-    private void validate() {
+    /**
+     * Validate the configuration and compile it into a {@link CompiledMarket} in the same pass.
+     */
+    private CompiledMarket compile(Builder builder) {
+        CompiledMarket.Builder marketBuilder = builder.timer.time(Phase.VALIDATE, () -> validate(builder));
+        return builder.timer.time(Phase.PREPROCESS, marketBuilder::build);
+    }
+    
+    /**
+     * Check every list and hand the resolved rows, tie levels and empty set positions to a
+     * market builder.
+     */
+    private CompiledMarket.Builder validate(Builder builder) {
         if (proposers.isEmpty()) {
             throw new IllegalStateException("Configuration must have at least one proposer");
         }
@@ -29,29 +80,135 @@ public class SimulationConfig {
             throw new IllegalStateException("Configuration must have at least one proposee");
         }
         
-        for (Proposer proposer : proposers) {
-            if (!proposerPreferences.containsKey(proposer)) {
-                throw new IllegalStateException("Proposer " + proposer.getName() + " has no preferences");
+        CompiledMarket.Builder marketBuilder = CompiledMarket.builder(proposers, proposees);
+        if (builder.scratchDirectory != null) {
+            marketBuilder.storeOffHeap(builder.scratchDirectory);
+        }
+        Proposer[] proposerArray = proposers.toArray(new Proposer[0]);
+        Proposee[] proposeeArray = proposees.toArray(new Proposee[0]);
+        int[][] proposerRows = new int[proposerArray.length][];
+        int[][] proposeeRows = new int[proposeeArray.length][];
+        
+        List<SimulationConfigValidationException.Problem> problems = new ArrayList<>();
+        problems.addAll(compilePreferences("Proposer", "proposees", proposerArray,
+            builder.proposerPreferences, emptySetPreferences, marketBuilder::indexOf, proposeeArray.length, proposerRows));
+        problems.addAll(compilePreferences("Proposee", "proposers", proposeeArray,
+            builder.proposeePreferences, proposeeEmptySetPreferences, marketBuilder::indexOf, proposerArray.length, proposeeRows));
+        
+        if (!problems.isEmpty()) {
+            throw new SimulationConfigValidationException(problems);
+        }
+        
+        for (int i = 0; i < proposerArray.length; i++) {
+            marketBuilder.setProposerPreferences(i, proposerRows[i]);
+            int[] tieLevels = builder.proposerTieLevels.get(proposerArray[i]);
+            if (tieLevels != null) {
+                marketBuilder.setProposerTieLevels(i, tieLevels);
             }
-            PreferenceList<Proposee> prefs = proposerPreferences.get(proposer);
-            // Skip validation for proposers with empty set preferences (they don't need all proposees)
-            if (!emptySetPreferences.containsKey(proposer) && !prefs.getPreferences().containsAll(proposees)) {
-                throw new IllegalStateException("Proposer " + proposer.getName() + 
-                    " does not have preferences for all proposees");
+            Integer emptySetPosition = emptySetPreferences.get(proposerArray[i]);
+            if (emptySetPosition != null) {
+                marketBuilder.setProposerEmptySetPosition(i, emptySetPosition);
             }
         }
-        
-        for (Proposee proposee : proposees) {
-            if (!proposeePreferences.containsKey(proposee)) {
-                throw new IllegalStateException("Proposee " + proposee.getName() + " has no preferences");
+        for (int i = 0; i < proposeeArray.length; i++) {
+            marketBuilder.setProposeePreferences(i, proposeeRows[i]);
+            int[] tieLevels = builder.proposeeTieLevels.get(proposeeArray[i]);
+            if (tieLevels != null) {
+                marketBuilder.setProposeeTieLevels(i, tieLevels);
             }
-            PreferenceList<Proposer> prefs = proposeePreferences.get(proposee);
-            // Skip validation for proposees with empty set preferences (they don't need all proposers)
-            if (!proposeeEmptySetPreferences.containsKey(proposee) && !prefs.getPreferences().containsAll(proposers)) {
-                throw new IllegalStateException("Proposee " + proposee.getName() + 
-                    " does not have preferences for all proposers");
+            Integer emptySetPosition = proposeeEmptySetPreferences.get(proposeeArray[i]);
+            if (emptySetPosition != null) {
+                marketBuilder.setProposeeEmptySetPosition(i, emptySetPosition);
             }
         }
+        return marketBuilder;
+    }
+    
+    /**
+     * Check every agent's list against the opposite side in O(total preference length):
+     * each entry is resolved to a dense candidate index and marked in a bitset, which
+     * catches unknown IDs and duplicates, and the bitset cardinality gives completeness.
+     * The resolved indices are written straight into {@code rows}. Large markets are
+     * processed in parallel across agents.
+     */
+    private static <A extends Agent, C extends Agent> List<SimulationConfigValidationException.Problem> compilePreferences(
+            String agentType,
+            String candidateType,
+            A[] agents,
+            Map<A, List<C>> preferences,
+            Map<A, Integer> emptySetPositions,
+            ToIntFunction<C> candidateIndex,
+            int candidateCount,
+            int[][] rows) {
+        
+        IntStream indices = IntStream.range(0, agents.length);
+        if (agents.length >= PARALLEL_VALIDATION_THRESHOLD) {
+            indices = indices.parallel();
+        }
+        
+        return indices
+            .mapToObj(i -> compileAgent(agentType, candidateType, agents[i], preferences.get(agents[i]),
+                emptySetPositions.containsKey(agents[i]), candidateIndex, candidateCount, rows, i))
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    }
+    
+    private static <A extends Agent, C extends Agent> List<SimulationConfigValidationException.Problem> compileAgent(
+            String agentType,
+            String candidateType,
+            A agent,
+            List<C> prefs,
+            boolean truncated,
+            ToIntFunction<C> candidateIndex,
+            int candidateCount,
+            int[][] rows,
+            int row) {
+        
+        if (prefs == null) {
+            return Collections.singletonList(problem(agentType, agent,
+                SimulationConfigValidationException.Kind.MISSING_PREFERENCES, "has no preferences"));
+        }
+        
+        List<SimulationConfigValidationException.Problem> problems = new ArrayList<>(0);
+        BitSet seen = new BitSet(candidateCount);
+        List<String> unknown = new ArrayList<>(0);
+        List<String> duplicates = new ArrayList<>(0);
+        int[] resolved = new int[prefs.size()];
+        int size = 0;
+        
+        for (C candidate : prefs) {
+            int index = candidateIndex.applyAsInt(candidate);
+            if (index < 0) {
+                unknown.add(candidate.getId());
+            } else if (seen.get(index)) {
+                duplicates.add(candidate.getId());
+            } else {
+                seen.set(index);
+                resolved[size++] = index;
+            }
+        }
+        rows[row] = resolved;
+        
+        if (!unknown.isEmpty()) {
+            problems.add(problem(agentType, agent, SimulationConfigValidationException.Kind.UNKNOWN_AGENT,
+                "ranks " + candidateType + " not in configuration: " + unknown));
+        }
+        if (!duplicates.isEmpty()) {
+            problems.add(problem(agentType, agent, SimulationConfigValidationException.Kind.DUPLICATE_ENTRY,
+                "ranks " + candidateType + " more than once: " + duplicates));
+        }
+        // Agents with empty set preferences don't need to rank everyone
+        int missing = candidateCount - seen.cardinality();
+        if (!truncated && missing > 0) {
+            problems.add(problem(agentType, agent, SimulationConfigValidationException.Kind.INCOMPLETE_PREFERENCES,
+                "does not have preferences for all " + candidateType + " (missing " + missing + ")"));
+        }
+        return problems;
+    }
+    
+    private static SimulationConfigValidationException.Problem problem(
+            String agentType, Agent agent, SimulationConfigValidationException.Kind kind, String detail) {
+        return new SimulationConfigValidationException.Problem(agentType, agent.getId(), agent.getName(), kind, detail);
     }
     
     public Set<Proposer> getProposers() {
@@ -62,12 +219,91 @@ public class SimulationConfig {
         return proposees;
     }
     
+    /**
+     * The compiled, index-based form of this configuration that the solver runs on.
+     */
+    public CompiledMarket getMarket() {
+        return market;
+    }
+    
+    /**
+     * Agent-keyed preference lists, materialized from the compiled market on first use. The
+     * lists are index-backed and share one candidate array, so materializing a large market
+     * costs a few bytes per entry.
+     */
     public Map<Proposer, PreferenceList<Proposee>> getProposerPreferences() {
-        return proposerPreferences;
+        Map<Proposer, PreferenceList<Proposee>> preferences = proposerPreferences;
+        if (preferences == null) {
+            synchronized (this) {
+                preferences = proposerPreferences;
+                if (preferences == null) {
+                    Map<Proposer, PreferenceList<Proposee>> materialized = new LinkedHashMap<>();
+                    Proposee[] candidates = new Proposee[market.getProposeeCount()];
+                    Arrays.setAll(candidates, market::getProposee);
+                    for (int i = 0; i < market.getProposerCount(); i++) {
+                        int[] row = new int[market.getProposerPreferenceCount(i)];
+                        for (int position = 0; position < row.length; position++) {
+                            row[position] = market.getProposerPreference(i, position);
+                        }
+                        materialized.put(market.getProposer(i), PreferenceList.indexed(
+                            market.getProposer(i), candidates, market::indexOf, row, proposerTieLevels(i)));
+                    }
+                    preferences = Collections.unmodifiableMap(materialized);
+                    proposerPreferences = preferences;
+                }
+            }
+        }
+        return preferences;
     }
     
+    /**
+     * Agent-keyed preference lists, materialized from the compiled market on first use.
+     */
     public Map<Proposee, PreferenceList<Proposer>> getProposeePreferences() {
-        return proposeePreferences;
+        Map<Proposee, PreferenceList<Proposer>> preferences = proposeePreferences;
+        if (preferences == null) {
+            synchronized (this) {
+                preferences = proposeePreferences;
+                if (preferences == null) {
+                    Map<Proposee, PreferenceList<Proposer>> materialized = new LinkedHashMap<>();
+                    Proposer[] candidates = new Proposer[market.getProposerCount()];
+                    Arrays.setAll(candidates, market::getProposer);
+                    for (int i = 0; i < market.getProposeeCount(); i++) {
+                        int[] row = new int[market.getProposeePreferenceCount(i)];
+                        for (int position = 0; position < row.length; position++) {
+                            row[position] = market.getProposeePreference(i, position);
+                        }
+                        materialized.put(market.getProposee(i), PreferenceList.indexed(
+                            market.getProposee(i), candidates, market::indexOf, row, proposeeTieLevels(i)));
+                    }
+                    preferences = Collections.unmodifiableMap(materialized);
+                    proposeePreferences = preferences;
+                }
+            }
+        }
+        return preferences;
+    }
+    
+    private int[] proposerTieLevels(int proposer) {
+        if (!market.hasTies()) {
+            return null;
+        }
+        int[] levels = new int[market.getProposerPreferenceCount(proposer)];
+        for (int position = 0; position < levels.length; position++) {
+            levels[position] = market.getProposerTieLevel(proposer, position);
+        }
+        return levels;
+    }
+    
+    private int[] proposeeTieLevels(int proposee) {
+        if (!market.hasTies()) {
+            return null;
+        }
+        int[] levels = new int[market.getProposeePreferenceCount(proposee)];
+        for (int position = 0; position < levels.length; position++) {
+            levels[position] = market.getProposeeTieLevel(proposee, position);
+        }
+        return levels;
     }
     
     public Map<Proposer, Integer> getEmptySetPreferences() {
@@ -83,12 +319,16 @@ public class SimulationConfig {
     }
     
     public static class Builder {
-        private final Set<Proposer> proposers = new HashSet<>();
-        private final Set<Proposee> proposees = new HashSet<>();
-        private final Map<Proposer, PreferenceList<Proposee>> proposerPreferences = new HashMap<>();
-        private final Map<Proposee, PreferenceList<Proposer>> proposeePreferences = new HashMap<>();
+        private final Set<Proposer> proposers = new LinkedHashSet<>();
+        private final Set<Proposee> proposees = new LinkedHashSet<>();
+        private final Map<Proposer, List<Proposee>> proposerPreferences = new HashMap<>();
+        private final Map<Proposee, List<Proposer>> proposeePreferences = new HashMap<>();
         private final Map<Proposer, Integer> emptySetPreferences = new HashMap<>();
         private final Map<Proposee, Integer> proposeeEmptySetPreferences = new HashMap<>();
+        private final Map<Proposer, int[]> proposerTieLevels = new HashMap<>();
+        private final Map<Proposee, int[]> proposeeTieLevels = new HashMap<>();
+        private Path scratchDirectory;
+        private PhaseTimer timer = new PhaseTimer();
         
         public Builder addProposer(Proposer proposer) {
             proposers.add(proposer);
@@ -114,7 +354,7 @@ public class SimulationConfig {
             if (!proposers.contains(proposer)) {
                 throw new IllegalArgumentException("Proposer " + proposer + " not in configuration");
             }
-            proposerPreferences.put(proposer, new PreferenceList<>(proposer, preferences));
+            proposerPreferences.put(proposer, new ArrayList<>(Objects.requireNonNull(preferences, "Preferences cannot be null")));
             return this;
         }
         
@@ -122,7 +362,26 @@ public class SimulationConfig {
             if (!proposees.contains(proposee)) {
                 throw new IllegalArgumentException("Proposee " + proposee + " not in configuration");
             }
-            proposeePreferences.put(proposee, new PreferenceList<>(proposee, preferences));
+            proposeePreferences.put(proposee, new ArrayList<>(Objects.requireNonNull(preferences, "Preferences cannot be null")));
+            return this;
+        }
+        
+        /**
+         * Mark ties in the proposer's list: one level per entry, equal levels are tied.
+         */
+        public Builder setProposerTieLevels(Proposer proposer, int[] tieLevels) {
+            if (!proposers.contains(proposer)) {
+                throw new IllegalArgumentException("Proposer " + proposer + " not in configuration");
+            }
+            proposerTieLevels.put(proposer, Objects.requireNonNull(tieLevels, "Tie levels cannot be null").clone());
+            return this;
+        }
+        
+        public Builder setProposeeTieLevels(Proposee proposee, int[] tieLevels) {
+            if (!proposees.contains(proposee)) {
+                throw new IllegalArgumentException("Proposee " + proposee + " not in configuration");
+            }
+            proposeeTieLevels.put(proposee, Objects.requireNonNull(tieLevels, "Tie levels cannot be null").clone());
             return this;
         }
         
@@ -142,8 +401,24 @@ public class SimulationConfig {
             return this;
         }
         
+        /**
+         * Compile into a market whose tables live in memory-mapped files under the directory.
+         */
+        public Builder storeOffHeap(Path scratchDirectory) {
+            this.scratchDirectory = Objects.requireNonNull(scratchDirectory, "Scratch directory cannot be null");
+            return this;
+        }
+        
+        /**
+         * Record validation and market compilation in the given timer.
+         */
+        public Builder timePhases(PhaseTimer timer) {
+            this.timer = Objects.requireNonNull(timer, "Phase timer cannot be null");
+            return this;
+        }
+        
         public SimulationConfig build() {
             return new SimulationConfig(this);
         }
     }
-}
\ No newline at end of file
+}
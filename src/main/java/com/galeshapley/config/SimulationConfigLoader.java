@@ -1,68 +1,213 @@
 package com.galeshapley.config;
 
+import com.galeshapley.config.distribution.DistributionConfig;
+import com.galeshapley.metrics.SimulationMetrics;
 import com.galeshapley.model.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.galeshapley.profiling.Phase;
+import com.galeshapley.profiling.PhaseTimer;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class SimulationConfigLoader {
     
-    private final ObjectMapper yamlMapper;
+    /** Agents generated in parallel before their preferences are handed on in order. */
+    private static final int GENERATION_BLOCK = 256;
+    
+    private final PhaseTimer timer;
     
     public SimulationConfigLoader() {
-        this.yamlMapper = new ObjectMapper(new YAMLFactory());
+        this(new PhaseTimer());
+    }
+    
+    /**
+     * A loader recording parsing, generation, validation and compilation in the given timer.
+     */
+    public SimulationConfigLoader(PhaseTimer timer) {
+        this.timer = Objects.requireNonNull(timer, "Phase timer cannot be null");
+    }
+    
+    public PhaseTimer getPhaseTimer() {
+        return timer;
     }
     
     public SimulationConfig loadFromFile(String filePath) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromFile(filePath);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromFile(filePath));
         return buildSimulationConfig(yamlConfig, null);
     }
     
     public SimulationConfig loadFromFile(String filePath, RuntimeOptions runtimeOptions) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromFile(filePath);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromFile(filePath));
         return buildSimulationConfig(yamlConfig, runtimeOptions);
     }
     
     public SimulationConfig loadFromFile(File file) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromFile(file);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromFile(file));
         return buildSimulationConfig(yamlConfig, null);
     }
     
     public SimulationConfig loadFromFile(File file, RuntimeOptions runtimeOptions) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromFile(file);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromFile(file));
         return buildSimulationConfig(yamlConfig, runtimeOptions);
     }
     
     public SimulationConfig loadFromStream(InputStream stream) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromStream(stream);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromStream(stream));
         return buildSimulationConfig(yamlConfig, null);
     }
     
     public SimulationConfig loadFromStream(InputStream stream, RuntimeOptions runtimeOptions) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromStream(stream);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromStream(stream));
         return buildSimulationConfig(yamlConfig, runtimeOptions);
     }
     
     public SimulationConfig loadFromString(String yamlContent) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromString(yamlContent);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromString(yamlContent));
         return buildSimulationConfig(yamlConfig, null);
     }
     
     public SimulationConfig loadFromString(String yamlContent, RuntimeOptions runtimeOptions) throws IOException {
-        YamlConfig yamlConfig = YamlConfig.loadFromString(yamlContent);
+        YamlConfig yamlConfig = parse(() -> YamlConfig.loadFromString(yamlContent));
+        return buildSimulationConfig(yamlConfig, runtimeOptions);
+    }
+    
+    /**
+     * Build a simulation from an already parsed configuration, e.g. one received as JSON.
+     */
+    public SimulationConfig load(YamlConfig yamlConfig, RuntimeOptions runtimeOptions) {
         return buildSimulationConfig(yamlConfig, runtimeOptions);
     }
     
+    /**
+     * Build a one-sided market from a configuration listing {@code roommates} (or generating
+     * them with {@code roommateConfig}) and their {@code roommatePreferences}. Everything after
+     * the empty set symbol in a list is unacceptable; ties are not supported.
+     */
+    public RoommatesMarket loadRoommates(YamlConfig yamlConfig, RuntimeOptions runtimeOptions) {
+        YamlConfig.SimulationData simData = yamlConfig.getSimulation();
+        if (!simData.isRoommatesMarket()) {
+            throw new IllegalArgumentException("Configuration does not define any roommates");
+        }
+        
+        Map<String, Roommate> roommateMap = new LinkedHashMap<>();
+        if (simData.getRoommateConfig() != null) {
+            int count = simData.getRoommateConfig().getCount();
+            for (int i = 0; i < count; i++) {
+                String id = "r" + i;
+                roommateMap.put(id, new Roommate(id, "Roommate" + i));
+            }
+        } else {
+            for (YamlConfig.AgentData agentData : simData.getRoommates()) {
+                if (roommateMap.put(agentData.getId(), new Roommate(agentData.getId(), agentData.getName())) != null) {
+                    throw new IllegalArgumentException("Duplicate roommate ID: " + agentData.getId());
+                }
+            }
+        }
+        
+        Random seedGenerator = null;
+        if (runtimeOptions != null && runtimeOptions.getGlobalSeed() != null) {
+            seedGenerator = new Random(runtimeOptions.getGlobalSeed());
+        }
+        
+        RoommatesMarket.Builder builder = RoommatesMarket.builder(roommateMap.values());
+        if (simData.getRoommateConfig() != null) {
+            YamlConfig.GeneratorConfig generatorConfig = simData.getRoommateConfig().getGenerator();
+            if (generatorConfig == null) {
+                throw new IllegalArgumentException("roommateConfig needs a generator");
+            }
+            DistributionConfig distribution = generatorConfig.getDistribution();
+            PreferenceGenerator generator = new PreferenceGenerator(distribution);
+            List<String> candidateIds = new ArrayList<>(roommateMap.keySet());
+            // Every roommate ranks the whole set and then drops itself, so one candidate list
+            // serves all of them
+            for (Roommate roommate : roommateMap.values()) {
+                List<String> rawPreferences =
+                    generator.generatePreferencesFromIds(roommate.getId(), candidateIds,
+                        agentRandom(distribution, seedGenerator));
+                setRoommatePreferences(builder, roommate, rawPreferences, roommateMap);
+            }
+        } else if (simData.getRoommatePreferences() != null) {
+            for (Map.Entry<String, PreferenceConfig> entry : simData.getRoommatePreferences().entrySet()) {
+                Roommate roommate = roommateMap.get(entry.getKey());
+                if (roommate == null) {
+                    throw new IllegalArgumentException("Unknown roommate ID in preferences: " + entry.getKey());
+                }
+                PreferenceConfig prefConfig = entry.getValue();
+                if (tieLevels(prefConfig) != null) {
+                    throw new IllegalArgumentException("Roommate " + roommate.getId() + " has tied preferences, "
+                        + "which stable roommates does not support");
+                }
+                List<String> candidates = new ArrayList<>(roommateMap.keySet());
+                candidates.remove(roommate.getId());
+                List<String> rawPreferences = resolvePreferences(roommate.getId(), prefConfig, candidates, seedGenerator);
+                if (prefConfig.isExplicit() && rawPreferences.contains(roommate.getId())) {
+                    throw new IllegalArgumentException("Roommate " + roommate.getId() + " cannot rank itself");
+                }
+                setRoommatePreferences(builder, roommate, rawPreferences, roommateMap);
+            }
+        }
+        return builder.build();
+    }
+    
+    public RoommatesMarket loadRoommatesFromFile(File file, RuntimeOptions runtimeOptions) throws IOException {
+        return loadRoommates(parse(() -> YamlConfig.loadFromFile(file)), runtimeOptions);
+    }
+    
+    public RoommatesMarket loadRoommatesFromString(String yamlContent, RuntimeOptions runtimeOptions) throws IOException {
+        return loadRoommates(parse(() -> YamlConfig.loadFromString(yamlContent)), runtimeOptions);
+    }
+    
+    /**
+     * Keep a roommate's acceptable prefix: stop at the empty set and skip the roommate itself.
+     */
+    private static void setRoommatePreferences(RoommatesMarket.Builder builder, Roommate roommate,
+                                               List<String> rawPreferences, Map<String, Roommate> roommateMap) {
+        int[] row = new int[rawPreferences.size()];
+        int length = 0;
+        for (String id : rawPreferences) {
+            if (id.equals("∅")) {
+                break;
+            }
+            if (id.equals(roommate.getId())) {
+                continue;
+            }
+            Roommate other = roommateMap.get(id);
+            if (other == null) {
+                throw new IllegalArgumentException("Unknown roommate ID in preferences: " + id);
+            }
+            row[length++] = builder.indexOf(other);
+        }
+        builder.setPreferences(builder.indexOf(roommate), Arrays.copyOf(row, length));
+    }
+    
+    private YamlConfig parse(YamlSource source) throws IOException {
+        return timer.time(Phase.PARSE, source::read);
+    }
+    
     private SimulationConfig buildSimulationConfig(YamlConfig yamlConfig, RuntimeOptions runtimeOptions) {
+        return timer.time(Phase.GENERATE, () -> generate(yamlConfig, runtimeOptions));
+    }
+    
+    private SimulationConfig generate(YamlConfig yamlConfig, RuntimeOptions runtimeOptions) {
         YamlConfig.SimulationData simData = yamlConfig.getSimulation();
+        if (simData.isRoommatesMarket()) {
+            throw new IllegalArgumentException(
+                "Configuration describes a stable roommates market; load it with loadRoommates");
+        }
+        
+        // Interned agents get ordinals matching their market indices, so lookups skip hashing
+        AgentRegistry registry = new AgentRegistry();
         
         // Create proposers
-        Map<String, Proposer> proposerMap = new HashMap<>();
+        Map<String, Proposer> proposerMap = new LinkedHashMap<>();
         
         // Check if we're using bulk generation or explicit agents
         if (simData.getProposerConfig() != null) {
@@ -71,19 +216,17 @@ public class SimulationConfigLoader {
             for (int i = 0; i < proposerCount; i++) {
                 String id = "p" + i;
                 String name = "Proposer" + i;
-                Proposer proposer = new Proposer(id, name);
-                proposerMap.put(id, proposer);
+                proposerMap.put(id, registry.proposer(id, name));
             }
         } else if (simData.getProposers() != null) {
             // Explicit agents mode
             for (YamlConfig.AgentData agentData : simData.getProposers()) {
-                Proposer proposer = new Proposer(agentData.getId(), agentData.getName());
-                proposerMap.put(agentData.getId(), proposer);
+                proposerMap.put(agentData.getId(), registry.proposer(agentData.getId(), agentData.getName()));
             }
         }
         
         // Create proposees
-        Map<String, Proposee> proposeeMap = new HashMap<>();
+        Map<String, Proposee> proposeeMap = new LinkedHashMap<>();
         
         // Check if we're using bulk generation or explicit agents
         if (simData.getProposeeConfig() != null) {
@@ -92,19 +235,17 @@ public class SimulationConfigLoader {
             for (int i = 0; i < proposeeCount; i++) {
                 String id = "e" + i;
                 String name = "Proposee" + i;
-                Proposee proposee = new Proposee(id, name);
-                proposeeMap.put(id, proposee);
+                proposeeMap.put(id, registry.proposee(id, name));
             }
         } else if (simData.getProposees() != null) {
             // Explicit agents mode
             for (YamlConfig.AgentData agentData : simData.getProposees()) {
-                Proposee proposee = new Proposee(agentData.getId(), agentData.getName());
-                proposeeMap.put(agentData.getId(), proposee);
+                proposeeMap.put(agentData.getId(), registry.proposee(agentData.getId(), agentData.getName()));
             }
         }
         
         // Build configuration
-        SimulationConfig.Builder builder = SimulationConfig.builder();
+        SimulationConfig.Builder builder = SimulationConfig.builder().timePhases(timer);
         
         // Add all agents
         proposerMap.values().forEach(builder::addProposer);
@@ -116,56 +257,43 @@ public class SimulationConfigLoader {
             seedGenerator = new Random(runtimeOptions.getGlobalSeed());
         }
         
+        // A fully generated, seeded market may already be cached from an earlier run
+        MarketCache cache = null;
+        String cacheKey = null;
+        if (runtimeOptions != null && runtimeOptions.getMarketCacheDir() != null) {
+            Optional<String> key = MarketCache.keyOf(simData, runtimeOptions.getGlobalSeed());
+            if (key.isPresent()) {
+                cache = new MarketCache(Paths.get(runtimeOptions.getMarketCacheDir()),
+                                        runtimeOptions.getMarketCacheSizeMb() * 1024 * 1024);
+                cacheKey = key.get();
+                Optional<CompiledMarket> cached = cache.load(cacheKey, proposerMap.values(), proposeeMap.values());
+                if (cached.isPresent()) {
+                    return SimulationConfig.of(cached.get());
+                }
+            }
+        }
+        
+        if (runtimeOptions != null && runtimeOptions.getScratchDir() != null) {
+            Path scratchDirectory = Paths.get(runtimeOptions.getScratchDir());
+            if (simData.getProposerConfig() != null && simData.getProposeeConfig() != null) {
+                return remember(cache, cacheKey,
+                    generateOffHeap(simData, proposerMap, proposeeMap, seedGenerator, scratchDirectory));
+            }
+            builder.storeOffHeap(scratchDirectory);
+        }
+        
         // Set proposer preferences
         if (simData.getProposerConfig() != null) {
-            // Bulk generation mode - generate preferences for each proposer
-            YamlConfig.GeneratorConfig defaultGen = simData.getProposerConfig().getGenerator();
-            
-            for (Map.Entry<String, Proposer> entry : proposerMap.entrySet()) {
-                String proposerId = entry.getKey();
-                Proposer proposer = entry.getValue();
-                int proposerIndex = Integer.parseInt(proposerId.substring(1)); // Remove 'p' prefix
-                
-                // Check for overrides
-                YamlConfig.GeneratorConfig genConfig = defaultGen;
-                if (simData.getProposerOverrides() != null) {
-                    for (YamlConfig.AgentOverride override : simData.getProposerOverrides()) {
-                        if (override.getIndex() != null && override.getIndex() == proposerIndex) {
-                            genConfig = override.getGenerator();
-                            break;
-                        } else if (override.getRange() != null) {
-                            if (proposerIndex >= override.getRange().getStart() && 
-                                proposerIndex <= override.getRange().getEnd()) {
-                                genConfig = override.getGenerator();
-                                break;
-                            }
-                        }
+            // Bulk generation mode - generate preferences for each run of proposers sharing a generator
+            generateBulkPreferences(new ArrayList<>(proposerMap.values()),
+                simData.getProposerConfig().getGenerator(), simData.getProposerOverrides(),
+                proposeeMap, "proposee", seedGenerator, (proposer, resolved) -> {
+                    builder.setProposerPreferences(proposer, resolved.agents);
+                    
+                    if (resolved.emptySetPosition != -1) {
+                        builder.setEmptySetPreference(proposer, resolved.emptySetPosition);
                     }
-                }
-                
-                // Generate preferences using the appropriate config
-                PreferenceConfig prefConfig = PreferenceConfig.withDistribution(genConfig.getDistribution());
-                List<String> rawPreferences = resolvePreferences(prefConfig, proposeeMap.keySet(), seedGenerator);
-                
-                // Process preferences as before
-                int emptySetPosition = rawPreferences.indexOf("∅");
-                List<Proposee> preferenceList = rawPreferences.stream()
-                    .filter(id -> !id.equals("∅"))
-                    .map(id -> {
-                        Proposee proposee = proposeeMap.get(id);
-                        if (proposee == null) {
-                            throw new IllegalArgumentException("Unknown proposee ID in preferences: " + id);
-                        }
-                        return proposee;
-                    })
-                    .collect(Collectors.toList());
-                
-                builder.setProposerPreferences(proposer, preferenceList);
-                
-                if (emptySetPosition != -1) {
-                    builder.setEmptySetPreference(proposer, emptySetPosition);
-                }
-            }
+                });
         } else if (simData.getProposerPreferences() != null) {
             // Explicit preferences mode (existing code)
             for (Map.Entry<String, PreferenceConfig> entry : simData.getProposerPreferences().entrySet()) {
@@ -175,81 +303,35 @@ public class SimulationConfigLoader {
                 }
                 
                 PreferenceConfig prefConfig = entry.getValue();
-                List<String> rawPreferences = resolvePreferences(prefConfig, proposeeMap.keySet(), seedGenerator);
-                
-                // Find position of empty set (if any) in original preference list
-                int emptySetPosition = rawPreferences.indexOf("∅");
-                
-                List<Proposee> preferenceList = rawPreferences.stream()
-                    .filter(id -> !id.equals("∅"))  // Filter out empty set symbol
-                    .map(id -> {
-                        Proposee proposee = proposeeMap.get(id);
-                        if (proposee == null) {
-                            throw new IllegalArgumentException("Unknown proposee ID in preferences: " + id);
-                        }
-                        return proposee;
-                    })
-                    .collect(Collectors.toList());
+                List<String> rawPreferences =
+                    resolvePreferences(proposer.getId(), prefConfig, proposeeMap.keySet(), seedGenerator);
                 
-                builder.setProposerPreferences(proposer, preferenceList);
+                ResolvedPreferences<Proposee> resolved =
+                    resolveAgents(rawPreferences, tieLevels(prefConfig), proposeeMap, "proposee");
+                builder.setProposerPreferences(proposer, resolved.agents);
+                if (resolved.tieLevels != null) {
+                    builder.setProposerTieLevels(proposer, resolved.tieLevels);
+                }
                 
                 // If empty set was found, set the preference cutoff
-                if (emptySetPosition != -1) {
-                    builder.setEmptySetPreference(proposer, emptySetPosition);
+                if (resolved.emptySetPosition != -1) {
+                    builder.setEmptySetPreference(proposer, resolved.emptySetPosition);
                 }
             }
         }
         
         // Set proposee preferences
         if (simData.getProposeeConfig() != null) {
-            // Bulk generation mode - generate preferences for each proposee
-            YamlConfig.GeneratorConfig defaultGen = simData.getProposeeConfig().getGenerator();
-            
-            for (Map.Entry<String, Proposee> entry : proposeeMap.entrySet()) {
-                String proposeeId = entry.getKey();
-                Proposee proposee = entry.getValue();
-                int proposeeIndex = Integer.parseInt(proposeeId.substring(1)); // Remove 'e' prefix
-                
-                // Check for overrides
-                YamlConfig.GeneratorConfig genConfig = defaultGen;
-                if (simData.getProposeeOverrides() != null) {
-                    for (YamlConfig.AgentOverride override : simData.getProposeeOverrides()) {
-                        if (override.getIndex() != null && override.getIndex() == proposeeIndex) {
-                            genConfig = override.getGenerator();
-                            break;
-                        } else if (override.getRange() != null) {
-                            if (proposeeIndex >= override.getRange().getStart() && 
-                                proposeeIndex <= override.getRange().getEnd()) {
-                                genConfig = override.getGenerator();
-                                break;
-                            }
-                        }
+            // Bulk generation mode - generate preferences for each run of proposees sharing a generator
+            generateBulkPreferences(new ArrayList<>(proposeeMap.values()),
+                simData.getProposeeConfig().getGenerator(), simData.getProposeeOverrides(),
+                proposerMap, "proposer", seedGenerator, (proposee, resolved) -> {
+                    builder.setProposeePreferences(proposee, resolved.agents);
+                    
+                    if (resolved.emptySetPosition != -1) {
+                        builder.setProposeeEmptySetPreference(proposee, resolved.emptySetPosition);
                     }
-                }
-                
-                // Generate preferences using the appropriate config
-                PreferenceConfig prefConfig = PreferenceConfig.withDistribution(genConfig.getDistribution());
-                List<String> rawPreferences = resolvePreferences(prefConfig, proposerMap.keySet(), seedGenerator);
-                
-                // Process preferences as before
-                int emptySetPosition = rawPreferences.indexOf("∅");
-                List<Proposer> preferenceList = rawPreferences.stream()
-                    .filter(id -> !id.equals("∅"))
-                    .map(id -> {
-                        Proposer proposer = proposerMap.get(id);
-                        if (proposer == null) {
-                            throw new IllegalArgumentException("Unknown proposer ID in preferences: " + id);
-                        }
-                        return proposer;
-                    })
-                    .collect(Collectors.toList());
-                
-                builder.setProposeePreferences(proposee, preferenceList);
-                
-                if (emptySetPosition != -1) {
-                    builder.setProposeeEmptySetPreference(proposee, emptySetPosition);
-                }
-            }
+                });
         } else if (simData.getProposeePreferences() != null) {
             // Explicit preferences mode (existing code)
             for (Map.Entry<String, PreferenceConfig> entry : simData.getProposeePreferences().entrySet()) {
@@ -259,59 +341,203 @@ public class SimulationConfigLoader {
                 }
                 
                 PreferenceConfig prefConfig = entry.getValue();
-                List<String> rawPreferences = resolvePreferences(prefConfig, proposerMap.keySet(), seedGenerator);
+                List<String> rawPreferences =
+                    resolvePreferences(proposee.getId(), prefConfig, proposerMap.keySet(), seedGenerator);
                 
-                // Find position of empty set (if any) in original preference list
-                int emptySetPosition = rawPreferences.indexOf("∅");
-                
-                List<Proposer> preferenceList = rawPreferences.stream()
-                    .filter(id -> !id.equals("∅"))  // Filter out empty set symbol
-                    .map(id -> {
-                        Proposer proposer = proposerMap.get(id);
-                        if (proposer == null) {
-                            throw new IllegalArgumentException("Unknown proposer ID in preferences: " + id);
-                        }
-                        return proposer;
-                    })
-                    .collect(Collectors.toList());
-                
-                builder.setProposeePreferences(proposee, preferenceList);
+                ResolvedPreferences<Proposer> resolved =
+                    resolveAgents(rawPreferences, tieLevels(prefConfig), proposerMap, "proposer");
+                builder.setProposeePreferences(proposee, resolved.agents);
+                if (resolved.tieLevels != null) {
+                    builder.setProposeeTieLevels(proposee, resolved.tieLevels);
+                }
                 
                 // If empty set was found, set the proposee empty set preference
-                if (emptySetPosition != -1) {
-                    builder.setProposeeEmptySetPreference(proposee, emptySetPosition);
+                if (resolved.emptySetPosition != -1) {
+                    builder.setProposeeEmptySetPreference(proposee, resolved.emptySetPosition);
                 }
             }
         }
         
-        return builder.build();
+        return remember(cache, cacheKey, builder.build());
+    }
+    
+    private static SimulationConfig remember(MarketCache cache, String cacheKey, SimulationConfig config) {
+        if (cache != null) {
+            cache.store(cacheKey, config.getMarket());
+        }
+        return config;
+    }
+    
+    /**
+     * Generate both sides straight into an off-heap market: each row lives only as long as it
+     * takes to write it to the mapped table, so nothing of size n² is ever held on the heap.
+     * Agents draw from their random sources in the same order as on the heap path, so a seeded
+     * configuration produces the same market either way.
+     */
+    private static SimulationConfig generateOffHeap(YamlConfig.SimulationData simData,
+                                                    Map<String, Proposer> proposerMap,
+                                                    Map<String, Proposee> proposeeMap,
+                                                    Random seedGenerator, Path scratchDirectory) {
+        CompiledMarket.Builder marketBuilder = CompiledMarket.builder(proposerMap.values(), proposeeMap.values())
+            .storeOffHeap(scratchDirectory);
+        
+        generateBulkPreferences(new ArrayList<>(proposerMap.values()),
+            simData.getProposerConfig().getGenerator(), simData.getProposerOverrides(),
+            proposeeMap, "proposee", seedGenerator, (proposer, resolved) -> {
+                int i = marketBuilder.indexOf(proposer);
+                marketBuilder.setProposerPreferences(i, indices(resolved.agents, marketBuilder::indexOf));
+                if (resolved.emptySetPosition != -1) {
+                    marketBuilder.setProposerEmptySetPosition(i, resolved.emptySetPosition);
+                }
+            });
+        generateBulkPreferences(new ArrayList<>(proposeeMap.values()),
+            simData.getProposeeConfig().getGenerator(), simData.getProposeeOverrides(),
+            proposerMap, "proposer", seedGenerator, (proposee, resolved) -> {
+                int j = marketBuilder.indexOf(proposee);
+                marketBuilder.setProposeePreferences(j, indices(resolved.agents, marketBuilder::indexOf));
+                if (resolved.emptySetPosition != -1) {
+                    marketBuilder.setProposeeEmptySetPosition(j, resolved.emptySetPosition);
+                }
+            });
+        return SimulationConfig.of(marketBuilder.build());
+    }
+    
+    private static <T extends Agent> int[] indices(List<T> agents, ToIntFunction<T> indexOf) {
+        int[] row = new int[agents.size()];
+        for (int position = 0; position < row.length; position++) {
+            row[position] = indexOf.applyAsInt(agents.get(position));
+        }
+        return row;
+    }
+    
+    /**
+     * Generate preferences for bulk agents, where the agent at list position i has bulk index i.
+     * Overrides are compiled into an interval index and each run of agents sharing a generator
+     * is produced by one PreferenceGenerator over one candidate list. Every agent still draws
+     * from its own random source, seeded in index order, so seeded results are unchanged.
+     * Agents are generated in parallel a block at a time and handed to the sink in order;
+     * each finished block is reported to {@link SimulationMetrics}.
+     */
+    private static <A extends Agent, C extends Agent> void generateBulkPreferences(
+            List<A> agents, YamlConfig.GeneratorConfig defaultGen, List<YamlConfig.AgentOverride> overrides,
+            Map<String, C> candidateMap, String candidateKind, Random seedGenerator,
+            BiConsumer<A, ResolvedPreferences<C>> sink) {
+        
+        OverrideIndex overrideIndex = OverrideIndex.compile(overrides, defaultGen, agents.size());
+        List<String> candidateIds = new ArrayList<>(candidateMap.keySet());
+        
+        try (SimulationMetrics.Generation progress = SimulationMetrics.getInstance().startGeneration(agents.size())) {
+            for (OverrideIndex.Segment segment : overrideIndex.segments()) {
+                DistributionConfig distribution = segment.getGenerator().getDistribution();
+                PreferenceGenerator generator = new PreferenceGenerator(distribution);
+                
+                for (int blockStart = segment.getStart(); blockStart <= segment.getEnd(); blockStart += GENERATION_BLOCK) {
+                    int blockSize = Math.min(GENERATION_BLOCK, segment.getEnd() - blockStart + 1);
+                    String[] ownerIds = new String[blockSize];
+                    Random[] randoms = new Random[blockSize];
+                    for (int offset = 0; offset < blockSize; offset++) {
+                        ownerIds[offset] = agents.get(blockStart + offset).getId();
+                        randoms[offset] = agentRandom(distribution, seedGenerator);
+                    }
+                    List<ResolvedPreferences<C>> block = IntStream.range(0, blockSize).parallel()
+                        .mapToObj(offset -> resolveAgents(
+                            generator.generatePreferencesFromIds(ownerIds[offset], candidateIds, randoms[offset]),
+                            null, candidateMap, candidateKind))
+                        .collect(Collectors.toList());
+                    for (int offset = 0; offset < blockSize; offset++) {
+                        sink.accept(agents.get(blockStart + offset), block.get(offset));
+                    }
+                    progress.onGenerated(blockSize);
+                }
+            }
+        }
     }
     
     /**
      * Resolve preferences from either explicit list or generator configuration.
      */
-    private List<String> resolvePreferences(PreferenceConfig config, Set<String> candidateIds, Random seedGenerator) {
+    private List<String> resolvePreferences(String ownerId, PreferenceConfig config, Collection<String> candidateIds,
+                                            Random seedGenerator) {
         if (config.isExplicit()) {
             return config.getExplicit();
         } else {
-            PreferenceConfig.GeneratorConfig genConfig = config.getGenerator();
-            com.galeshapley.config.distribution.DistributionConfig distribution = genConfig.getDistribution();
-            
-            Random random;
-            if (seedGenerator != null) {
-                // Use global seed to generate individual seed for this agent
-                random = new Random(seedGenerator.nextLong());
-            } else if (distribution.getSeed() != null) {
-                // Fall back to individual seed if no global seed
-                random = new Random(distribution.getSeed());
-            } else {
-                random = new Random();
+            DistributionConfig distribution = config.getGenerator().getDistribution();
+            PreferenceGenerator generator = new PreferenceGenerator(distribution);
+            return generator.generatePreferencesFromIds(ownerId, candidateIds, agentRandom(distribution, seedGenerator));
+        }
+    }
+    
+    private static int[] tieLevels(PreferenceConfig config) {
+        return config.isExplicit() ? config.getTieLevels() : null;
+    }
+    
+    /**
+     * Random source for one agent: derived from the global seed when present, otherwise
+     * from the distribution's own seed, otherwise unseeded.
+     */
+    private static Random agentRandom(DistributionConfig distribution, Random seedGenerator) {
+        if (seedGenerator != null) {
+            // Use global seed to generate individual seed for this agent
+            return new Random(seedGenerator.nextLong());
+        } else if (distribution.getSeed() != null) {
+            // Fall back to individual seed if no global seed
+            return new Random(distribution.getSeed());
+        } else {
+            return new Random();
+        }
+    }
+    
+    /**
+     * Map raw preference IDs to agents in a single pass, recording where the empty set
+     * symbol appeared (if at all) instead of copying the list to filter it out. Tie levels,
+     * when given, are carried over for the remaining agents and renumbered without gaps.
+     */
+    private static <T extends Agent> ResolvedPreferences<T> resolveAgents(
+            List<String> rawPreferences, int[] rawTieLevels, Map<String, T> agentMap, String agentKind) {
+        
+        List<T> agents = new ArrayList<>(rawPreferences.size());
+        int[] tieLevels = rawTieLevels != null ? new int[rawPreferences.size()] : null;
+        int emptySetPosition = -1;
+        int level = -1;
+        
+        for (int position = 0; position < rawPreferences.size(); position++) {
+            String id = rawPreferences.get(position);
+            if (id.equals("∅")) {
+                if (emptySetPosition == -1) {
+                    emptySetPosition = agents.size();
+                }
+                continue;
+            }
+            T agent = agentMap.get(id);
+            if (agent == null) {
+                throw new IllegalArgumentException("Unknown " + agentKind + " ID in preferences: " + id);
+            }
+            if (tieLevels != null) {
+                boolean tied = !agents.isEmpty() && rawTieLevels[position] == rawTieLevels[position - 1];
+                tieLevels[agents.size()] = tied ? level : ++level;
             }
-            
-            PreferenceGenerator generator = new PreferenceGenerator(distribution, random);
-            
-            boolean includeEmptySet = random.nextDouble() < distribution.getEmptySetProbability();
-            return generator.generatePreferencesFromIds(candidateIds, includeEmptySet);
+            agents.add(agent);
+        }
+        
+        if (tieLevels != null && tieLevels.length != agents.size()) {
+            tieLevels = Arrays.copyOf(tieLevels, agents.size());
+        }
+        return new ResolvedPreferences<>(agents, tieLevels, emptySetPosition);
+    }
+    
+    private interface YamlSource {
+        YamlConfig read() throws IOException;
+    }
+    
+    private static final class ResolvedPreferences<T extends Agent> {
+        private final List<T> agents;
+        private final int[] tieLevels;
+        private final int emptySetPosition;
+        
+        private ResolvedPreferences(List<T> agents, int[] tieLevels, int emptySetPosition) {
+            this.agents = agents;
+            this.tieLevels = tieLevels;
+            this.emptySetPosition = emptySetPosition;
         }
     }
 }
\ No newline at end of file
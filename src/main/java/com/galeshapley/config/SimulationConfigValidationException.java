@@ -0,0 +1,92 @@
+package com.galeshapley.config;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Thrown when a {@link SimulationConfig} fails validation.
+ * Carries every problem found in the configuration rather than only the first one,
+ * so a broken market can be fixed in a single pass.
+ */
+public class SimulationConfigValidationException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Problem> problems;
+
+    public SimulationConfigValidationException(List<Problem> problems) {
+        super(buildMessage(problems));
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    public List<Problem> getProblems() {
+        return problems;
+    }
+
+    private static String buildMessage(List<Problem> problems) {
+        if (problems.size() == 1) {
+            return problems.get(0).toString();
+        }
+        StringBuilder sb = new StringBuilder("Invalid simulation configuration (")
+            .append(problems.size()).append(" problems):");
+        for (Problem problem : problems) {
+            sb.append("\n  - ").append(problem);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Kinds of problems a preference list can have.
+     */
+    public enum Kind {
+        MISSING_PREFERENCES,
+        INCOMPLETE_PREFERENCES,
+        DUPLICATE_ENTRY,
+        UNKNOWN_AGENT
+    }
+
+    /**
+     * A single validation problem attached to the agent whose preferences caused it.
+     */
+    public static class Problem {
+        private final String agentType;
+        private final String agentId;
+        private final String agentName;
+        private final Kind kind;
+        private final String detail;
+
+        public Problem(String agentType, String agentId, String agentName, Kind kind, String detail) {
+            this.agentType = Objects.requireNonNull(agentType, "Agent type cannot be null");
+            this.agentId = Objects.requireNonNull(agentId, "Agent ID cannot be null");
+            this.agentName = Objects.requireNonNull(agentName, "Agent name cannot be null");
+            this.kind = Objects.requireNonNull(kind, "Problem kind cannot be null");
+            this.detail = Objects.requireNonNull(detail, "Problem detail cannot be null");
+        }
+
+        public String getAgentType() {
+            return agentType;
+        }
+
+        public String getAgentId() {
+            return agentId;
+        }
+
+        public String getAgentName() {
+            return agentName;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        @Override
+        public String toString() {
+            return agentType + " " + agentName + " " + detail;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.galeshapley.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
@@ -8,11 +9,15 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 public class YamlConfig {
     
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+    
     @JsonProperty("simulation")
     private SimulationData simulation;
     
@@ -51,6 +56,16 @@ public class YamlConfig {
         @JsonProperty("proposeeOverrides")
         private List<AgentOverride> proposeeOverrides;
         
+        @JsonProperty("roommates")
+        private List<AgentData> roommates;
+        
+        @JsonProperty("roommateConfig")
+        private GlobalAgentConfig roommateConfig;
+        
+        @JsonProperty("roommatePreferences")
+        @JsonDeserialize(using = PreferenceMapDeserializer.class)
+        private Map<String, PreferenceConfig> roommatePreferences;
+        
         public List<AgentData> getProposers() {
             return proposers;
         }
@@ -114,6 +129,64 @@ public class YamlConfig {
         public void setProposeeOverrides(List<AgentOverride> proposeeOverrides) {
             this.proposeeOverrides = proposeeOverrides;
         }
+        
+        public List<AgentData> getRoommates() {
+            return roommates;
+        }
+        
+        public void setRoommates(List<AgentData> roommates) {
+            this.roommates = roommates;
+        }
+        
+        public GlobalAgentConfig getRoommateConfig() {
+            return roommateConfig;
+        }
+        
+        public void setRoommateConfig(GlobalAgentConfig roommateConfig) {
+            this.roommateConfig = roommateConfig;
+        }
+        
+        public Map<String, PreferenceConfig> getRoommatePreferences() {
+            return roommatePreferences;
+        }
+        
+        public void setRoommatePreferences(Map<String, PreferenceConfig> roommatePreferences) {
+            this.roommatePreferences = roommatePreferences;
+        }
+        
+        /**
+         * Whether this describes a one-sided market with a single set of roommates.
+         */
+        @JsonIgnore
+        public boolean isRoommatesMarket() {
+            return roommates != null || roommateConfig != null;
+        }
+        
+        /**
+         * Every generator distribution in the configuration, including those of agent overrides.
+         */
+        @JsonIgnore
+        public List<com.galeshapley.config.distribution.DistributionConfig> getDistributions() {
+            List<com.galeshapley.config.distribution.DistributionConfig> distributions = new ArrayList<>();
+            for (GlobalAgentConfig config : Arrays.asList(proposerConfig, proposeeConfig, roommateConfig)) {
+                if (config != null) {
+                    addDistribution(distributions, config.getGenerator());
+                }
+            }
+            for (List<AgentOverride> overrides : Arrays.asList(proposerOverrides, proposeeOverrides)) {
+                if (overrides != null) {
+                    overrides.forEach(override -> addDistribution(distributions, override.getGenerator()));
+                }
+            }
+            return distributions;
+        }
+        
+        private static void addDistribution(List<com.galeshapley.config.distribution.DistributionConfig> distributions,
+                                            GeneratorConfig generator) {
+            if (generator != null && generator.getDistribution() != null) {
+                distributions.add(generator.getDistribution());
+            }
+        }
     }
     
     public static class AgentData {
@@ -241,23 +314,27 @@ public class YamlConfig {
         }
     }
     
+    /**
+     * Returns the shared YAML mapper. ObjectMapper is thread-safe once configured, and building
+     * one (with its factory and deserializer caches) costs far more than reading a small config.
+     */
+    public static ObjectMapper yamlMapper() {
+        return YAML_MAPPER;
+    }
+    
     public static YamlConfig loadFromFile(String filePath) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        return mapper.readValue(new File(filePath), YamlConfig.class);
+        return YAML_MAPPER.readValue(new File(filePath), YamlConfig.class);
     }
     
     public static YamlConfig loadFromFile(File file) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        return mapper.readValue(file, YamlConfig.class);
+        return YAML_MAPPER.readValue(file, YamlConfig.class);
     }
     
     public static YamlConfig loadFromStream(InputStream stream) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        return mapper.readValue(stream, YamlConfig.class);
+        return YAML_MAPPER.readValue(stream, YamlConfig.class);
     }
     
     public static YamlConfig loadFromString(String yamlContent) throws IOException {
-        ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
-        return mapper.readValue(yamlContent, YamlConfig.class);
+        return YAML_MAPPER.readValue(yamlContent, YamlConfig.class);
     }
-}
\ No newline at end of file
+}
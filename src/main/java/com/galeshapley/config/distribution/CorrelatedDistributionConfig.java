@@ -103,6 +103,20 @@ public class CorrelatedDistributionConfig extends DistributionConfig {
             return false;
         }
         
+        /**
+         * Weight of a candidate under a list of rules: the highest weight among the rules that
+         * apply to it, and at least 1.
+         */
+        public static double weightOf(String agentId, List<PopularityBias> biases) {
+            double maxWeight = 1.0;
+            for (PopularityBias bias : biases) {
+                if (bias.appliesTo(agentId)) {
+                    maxWeight = Math.max(maxWeight, bias.getWeight());
+                }
+            }
+            return maxWeight;
+        }
+        
         public void validate() {
             if (agent != null && agentRange != null) {
                 throw new IllegalArgumentException("PopularityBias cannot specify both 'agent' and 'agentRange'");
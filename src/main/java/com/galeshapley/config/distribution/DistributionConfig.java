@@ -15,7 +15,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 )
 @JsonSubTypes({
     @JsonSubTypes.Type(value = UniformDistributionConfig.class, name = "uniform"),
-    @JsonSubTypes.Type(value = CorrelatedDistributionConfig.class, name = "correlated")
+    @JsonSubTypes.Type(value = CorrelatedDistributionConfig.class, name = "correlated"),
+    @JsonSubTypes.Type(value = MallowsDistributionConfig.class, name = "mallows"),
+    @JsonSubTypes.Type(value = LatentDistributionConfig.class, name = "latent"),
+    @JsonSubTypes.Type(value = PlackettLuceDistributionConfig.class, name = "plackett-luce")
 })
 public abstract class DistributionConfig {
     
@@ -0,0 +1,148 @@
+package com.galeshapley.config.distribution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Configuration for preferences derived from latent attributes. Every agent has a feature
+ * vector, and an agent ranks candidates by the weighted sum of their features, minus their
+ * Euclidean distance from the agent, plus Gaussian noise.
+ */
+public class LatentDistributionConfig extends DistributionConfig {
+    
+    @JsonProperty("dimensions")
+    private Integer dimensions = 2;
+    
+    @JsonProperty("weights")
+    private List<Double> weights;
+    
+    @JsonProperty("distanceWeight")
+    private Double distanceWeight = 1.0;
+    
+    @JsonProperty("noise")
+    private Double noise = 0.1;
+    
+    @JsonProperty("featureSeed")
+    private Long featureSeed;
+    
+    @JsonProperty("featureFile")
+    private String featureFile;
+    
+    @JsonProperty("topK")
+    private Integer topK;
+    
+    @Override
+    public String getType() {
+        return "latent";
+    }
+    
+    public Integer getDimensions() {
+        return dimensions;
+    }
+    
+    public void setDimensions(Integer dimensions) {
+        this.dimensions = dimensions;
+    }
+    
+    /**
+     * Weight of each feature in a candidate's quality; every feature counts once by default.
+     */
+    public List<Double> getWeights() {
+        return weights;
+    }
+    
+    public void setWeights(List<Double> weights) {
+        this.weights = weights;
+    }
+    
+    public Double getDistanceWeight() {
+        return distanceWeight;
+    }
+    
+    public void setDistanceWeight(Double distanceWeight) {
+        this.distanceWeight = distanceWeight;
+    }
+    
+    /**
+     * Standard deviation of the noise each agent adds to each candidate's score.
+     */
+    public Double getNoise() {
+        return noise;
+    }
+    
+    public void setNoise(Double noise) {
+        this.noise = noise;
+    }
+    
+    /**
+     * Seed the feature vectors are derived from, so every agent sees the same ones. Defaults
+     * to the distribution's seed, or 0 when that is not set either.
+     */
+    public Long getFeatureSeed() {
+        return featureSeed;
+    }
+    
+    public void setFeatureSeed(Long featureSeed) {
+        this.featureSeed = featureSeed;
+    }
+    
+    /**
+     * CSV file of {@code id,feature1,...,featureN} lines to read feature vectors from instead
+     * of generating them.
+     */
+    public String getFeatureFile() {
+        return featureFile;
+    }
+    
+    public void setFeatureFile(String featureFile) {
+        this.featureFile = featureFile;
+    }
+    
+    /**
+     * When set, only the {@code topK} best candidates are ranked, followed by the empty set.
+     */
+    public Integer getTopK() {
+        return topK;
+    }
+    
+    public void setTopK(Integer topK) {
+        this.topK = topK;
+    }
+    
+    @Override
+    public void validate() {
+        super.validate();
+        
+        if (dimensions == null || dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive");
+        }
+        if (weights != null && weights.size() != dimensions) {
+            throw new IllegalArgumentException("weights must have one entry per dimension");
+        }
+        if (distanceWeight == null || distanceWeight < 0) {
+            throw new IllegalArgumentException("distanceWeight cannot be negative");
+        }
+        if (noise == null || noise < 0) {
+            throw new IllegalArgumentException("noise cannot be negative");
+        }
+        if (topK != null && topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "LatentDistributionConfig{" +
+                "dimensions=" + dimensions +
+                ", weights=" + weights +
+                ", distanceWeight=" + distanceWeight +
+                ", noise=" + noise +
+                ", featureSeed=" + featureSeed +
+                ", featureFile='" + featureFile + '\'' +
+                ", topK=" + topK +
+                ", emptySetProbability=" + emptySetProbability +
+                ", seed=" + seed +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+package com.galeshapley.config.distribution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Configuration for the Mallows model: lists scatter around a shared reference ranking, and a
+ * list at Kendall tau distance d from it has probability proportional to phi^d. A phi of 0
+ * always gives the reference ranking and a phi of 1 gives uniformly random lists.
+ */
+public class MallowsDistributionConfig extends DistributionConfig {
+    
+    @JsonProperty("phi")
+    private Double phi = 0.5;
+    
+    @JsonProperty("reference")
+    private List<String> reference;
+    
+    @JsonProperty("topK")
+    private Integer topK;
+    
+    @Override
+    public String getType() {
+        return "mallows";
+    }
+    
+    public Double getPhi() {
+        return phi;
+    }
+    
+    public void setPhi(Double phi) {
+        this.phi = phi;
+    }
+    
+    /**
+     * Reference ranking of candidate IDs; candidates it leaves out follow in their given order.
+     * Without one the candidates' given order is the reference.
+     */
+    public List<String> getReference() {
+        return reference;
+    }
+    
+    public void setReference(List<String> reference) {
+        this.reference = reference;
+    }
+    
+    /**
+     * When set, only the first {@code topK} entries of each list are produced, followed by the
+     * empty set, so agents never consider candidates beyond them.
+     */
+    public Integer getTopK() {
+        return topK;
+    }
+    
+    public void setTopK(Integer topK) {
+        this.topK = topK;
+    }
+    
+    @Override
+    public void validate() {
+        super.validate();
+        
+        if (phi == null || phi < 0 || phi > 1) {
+            throw new IllegalArgumentException("phi must be between 0 and 1");
+        }
+        if (topK != null && topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "MallowsDistributionConfig{" +
+                "phi=" + phi +
+                ", reference=" + reference +
+                ", topK=" + topK +
+                ", emptySetProbability=" + emptySetProbability +
+                ", seed=" + seed +
+                '}';
+    }
+}
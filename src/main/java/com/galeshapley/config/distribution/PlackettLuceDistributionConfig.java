@@ -0,0 +1,69 @@
+package com.galeshapley.config.distribution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.galeshapley.config.distribution.CorrelatedDistributionConfig.PopularityBias;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration for the Plackett-Luce model: every candidate has a weight, and each position
+ * of a list goes to one of the candidates not yet placed with probability proportional to its
+ * weight. Weights come from the same popularity bias rules as the correlated distribution.
+ */
+public class PlackettLuceDistributionConfig extends DistributionConfig {
+    
+    @JsonProperty("popularityBias")
+    private List<PopularityBias> popularityBias = new ArrayList<>();
+    
+    @JsonProperty("topK")
+    private Integer topK;
+    
+    @Override
+    public String getType() {
+        return "plackett-luce";
+    }
+    
+    public List<PopularityBias> getPopularityBias() {
+        return popularityBias;
+    }
+    
+    public void setPopularityBias(List<PopularityBias> popularityBias) {
+        this.popularityBias = popularityBias;
+    }
+    
+    /**
+     * When set, only the first {@code topK} positions are drawn, followed by the empty set.
+     */
+    public Integer getTopK() {
+        return topK;
+    }
+    
+    public void setTopK(Integer topK) {
+        this.topK = topK;
+    }
+    
+    @Override
+    public void validate() {
+        super.validate();
+        
+        if (topK != null && topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+        if (popularityBias != null) {
+            for (PopularityBias bias : popularityBias) {
+                bias.validate();
+            }
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "PlackettLuceDistributionConfig{" +
+                "popularityBias=" + popularityBias +
+                ", topK=" + topK +
+                ", emptySetProbability=" + emptySetProbability +
+                ", seed=" + seed +
+                '}';
+    }
+}
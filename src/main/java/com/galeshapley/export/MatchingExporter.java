@@ -0,0 +1,331 @@
+package com.galeshapley.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.model.Matching;
+import com.galeshapley.model.Proposee;
+import com.galeshapley.model.Proposer;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a final matching to a file, one record per agent, without building the result in memory.
+ *
+ * Every proposer is written first in market order, then every proposee. Each record holds the
+ * agent's side, id, status ({@code matched}, {@code single} or {@code unmatched}), partner id and
+ * the 0-based rank the agent gave its partner (for a single proposer, the rank of the empty set).
+ *
+ * <ul>
+ *   <li>{@link ResultFormat#CSV}: header {@code side,agent,status,partner,rank}, empty fields when absent.</li>
+ *   <li>{@link ResultFormat#JSONL}: one object per line with the same fields, {@code null} when absent.</li>
+ *   <li>{@link ResultFormat#BINARY}: big-endian; int magic {@link #BINARY_MAGIC}, int version,
+ *       int proposer count, int proposee count, then per agent a modified UTF-8 id, a status byte
+ *       ({@link Status#getCode()}), the partner's int index on the other side and the int rank,
+ *       both -1 when absent.</li>
+ * </ul>
+ */
+public class MatchingExporter {
+    
+    public static final int BINARY_MAGIC = 0x47534D52; // "GSMR"
+    public static final int BINARY_VERSION = 1;
+    public static final int NONE = -1;
+    
+    static final String[] CSV_COLUMNS = {"side", "agent", "status", "partner", "rank"};
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final ResultFormat format;
+    private final boolean gzip;
+    private final int bufferSize;
+    
+    private MatchingExporter(Builder builder) {
+        this.format = builder.format;
+        this.gzip = builder.gzip;
+        this.bufferSize = builder.bufferSize;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Exporter whose format and compression follow the file name, e.g. {@code matches.jsonl.gz}.
+     */
+    public static MatchingExporter forFile(Path file) {
+        return builder()
+            .format(ResultFormat.fromFileName(file))
+            .gzip(ResultFormat.isGzipFileName(file))
+            .build();
+    }
+    
+    public ResultFormat getFormat() {
+        return format;
+    }
+    
+    public boolean isGzip() {
+        return gzip;
+    }
+    
+    /**
+     * Write the matching to {@code target}, replacing any existing file.
+     *
+     * @return the number of agent records written
+     */
+    public long export(CompiledMarket market, Matching matching, Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = Channels.newOutputStream(channel)) {
+            return export(market, matching, out);
+        }
+    }
+    
+    /**
+     * Write the matching to {@code out}. The stream is flushed (and the gzip trailer written) but
+     * not closed.
+     *
+     * @return the number of agent records written
+     */
+    public long export(CompiledMarket market, Matching matching, OutputStream out) throws IOException {
+        OutputStream sink = new NonClosingOutputStream(out);
+        if (gzip) {
+            sink = new GZIPOutputStream(sink, bufferSize);
+        }
+        try (OutputStream buffered = new BufferedOutputStream(sink, bufferSize)) {
+            switch (format) {
+                case CSV:
+                    return writeCsv(market, matching, buffered);
+                case JSONL:
+                    return writeJsonLines(market, matching, buffered);
+                case BINARY:
+                    return writeBinary(market, matching, buffered);
+                default:
+                    throw new IllegalStateException("Unsupported result format: " + format);
+            }
+        }
+    }
+    
+    private long writeCsv(CompiledMarket market, Matching matching, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write('\n');
+        long records = forEachRecord(market, matching, record -> {
+            writer.write(record.proposerSide ? "proposer" : "proposee");
+            writer.write(',');
+            writer.write(csv(record.agent));
+            writer.write(',');
+            writer.write(record.status.getLabel());
+            writer.write(',');
+            if (record.partner != null) {
+                writer.write(csv(record.partner));
+            }
+            writer.write(',');
+            if (record.rank != NONE) {
+                writer.write(Integer.toString(record.rank));
+            }
+            writer.write('\n');
+        });
+        writer.flush();
+        return records;
+    }
+    
+    private long writeJsonLines(CompiledMarket market, Matching matching, OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+            json.setRootValueSeparator(null);
+            return forEachRecord(market, matching, record -> {
+                json.writeStartObject();
+                json.writeStringField("side", record.proposerSide ? "proposer" : "proposee");
+                json.writeStringField("agent", record.agent);
+                json.writeStringField("status", record.status.getLabel());
+                json.writeStringField("partner", record.partner);
+                json.writeFieldName("rank");
+                if (record.rank == NONE) {
+                    json.writeNull();
+                } else {
+                    json.writeNumber(record.rank);
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+            });
+        }
+    }
+    
+    private long writeBinary(CompiledMarket market, Matching matching, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(BINARY_MAGIC);
+        data.writeInt(BINARY_VERSION);
+        data.writeInt(market.getProposerCount());
+        data.writeInt(market.getProposeeCount());
+        long records = forEachRecord(market, matching, record -> {
+            data.writeUTF(record.agent);
+            data.writeByte(record.status.getCode());
+            data.writeInt(record.partnerIndex);
+            data.writeInt(record.rank);
+        });
+        data.flush();
+        return records;
+    }
+    
+    /**
+     * Visit every agent with a single reused record. Ranks are found by scanning the agent's own
+     * preference row so no rank table has to be allocated.
+     */
+    private static long forEachRecord(CompiledMarket market, Matching matching, RecordSink sink) throws IOException {
+        Record record = new Record();
+        
+        record.proposerSide = true;
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            Proposer proposer = market.getProposer(i);
+            record.agent = proposer.getId();
+            Optional<Proposee> match = matching.getMatch(proposer);
+            if (!match.isPresent()) {
+                record.set(Status.UNMATCHED, null, NONE, NONE);
+            } else if (match.get().isEmptySet()) {
+                int emptySetPosition = market.getProposerEmptySetPosition(i);
+                record.set(Status.SINGLE, null, NONE, emptySetPosition == CompiledMarket.NO_EMPTY_SET ? NONE : emptySetPosition);
+            } else {
+                int proposee = market.indexOf(match.get());
+                record.set(Status.MATCHED, match.get().getId(), proposee, proposerRank(market, i, proposee));
+            }
+            sink.accept(record);
+        }
+        
+        record.proposerSide = false;
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            Proposee proposee = market.getProposee(j);
+            record.agent = proposee.getId();
+            Optional<Proposer> match = matching.getMatch(proposee);
+            if (match.isPresent()) {
+                int proposer = market.indexOf(match.get());
+                record.set(Status.MATCHED, match.get().getId(), proposer, market.getProposeeRank(j, proposer));
+            } else {
+                record.set(Status.UNMATCHED, null, NONE, NONE);
+            }
+            sink.accept(record);
+        }
+        
+        return (long) market.getProposerCount() + market.getProposeeCount();
+    }
+    
+    private static int proposerRank(CompiledMarket market, int proposer, int proposee) {
+        int count = market.getProposerPreferenceCount(proposer);
+        for (int position = 0; position < count; position++) {
+            if (market.getProposerPreference(proposer, position) == proposee) {
+                return position;
+            }
+        }
+        return NONE;
+    }
+    
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    /**
+     * Outcome of an agent in the exported matching.
+     */
+    public enum Status {
+        MATCHED(0),
+        SINGLE(1),
+        UNMATCHED(2);
+        
+        private final int code;
+        
+        Status(int code) {
+            this.code = code;
+        }
+        
+        public int getCode() {
+            return code;
+        }
+        
+        public String getLabel() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+    
+    private static final class Record {
+        boolean proposerSide;
+        String agent;
+        Status status;
+        String partner;
+        int partnerIndex;
+        int rank;
+        
+        void set(Status status, String partner, int partnerIndex, int rank) {
+            this.status = status;
+            this.partner = partner;
+            this.partnerIndex = partnerIndex;
+            this.rank = rank;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface RecordSink {
+        void accept(Record record) throws IOException;
+    }
+    
+    /**
+     * Lets the format writers close their wrappers, which flushes them, without closing the caller's stream.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+    
+    public static class Builder {
+        private ResultFormat format = ResultFormat.CSV;
+        private boolean gzip = false;
+        private int bufferSize = 64 * 1024;
+        
+        public Builder format(ResultFormat format) {
+            this.format = Objects.requireNonNull(format, "Result format cannot be null");
+            return this;
+        }
+        
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+        
+        public Builder bufferSize(int bufferSize) {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("Buffer size must be positive");
+            }
+            this.bufferSize = bufferSize;
+            return this;
+        }
+        
+        public MatchingExporter build() {
+            return new MatchingExporter(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.galeshapley.export;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * File formats written by {@link MatchingExporter}.
+ */
+public enum ResultFormat {
+    CSV(".csv"),
+    JSONL(".jsonl"),
+    BINARY(".bin");
+    
+    static final String GZIP_EXTENSION = ".gz";
+    
+    private final String extension;
+    
+    ResultFormat(String extension) {
+        this.extension = extension;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    /**
+     * Infer the format from a file name such as {@code results.csv} or {@code results.jsonl.gz}.
+     */
+    public static ResultFormat fromFileName(Path file) {
+        String name = stripGzipExtension(file.getFileName().toString().toLowerCase(Locale.ROOT));
+        if (name.endsWith(".ndjson")) {
+            return JSONL;
+        }
+        for (ResultFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Cannot infer result format from file name: " + file.getFileName() +
+            " (expected .csv, .jsonl or .bin, optionally followed by .gz)");
+    }
+    
+    public static ResultFormat fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown result format: " + name + " (expected csv, jsonl or binary)");
+        }
+    }
+    
+    public static boolean isGzipFileName(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+    }
+    
+    private static String stripGzipExtension(String name) {
+        return name.endsWith(GZIP_EXTENSION) ? name.substring(0, name.length() - GZIP_EXTENSION.length()) : name;
+    }
+}
@@ -80,15 +80,7 @@ public class CorrelatedGenerationStrategy implements PreferenceGenerationStrateg
      * If multiple rules apply, the highest weight is used.
      */
     private double getWeightForCandidate(String candidateId) {
-        double maxWeight = 1.0; // Default weight
-        
-        for (PopularityBias bias : popularityBiases) {
-            if (bias.appliesTo(candidateId)) {
-                maxWeight = Math.max(maxWeight, bias.getWeight());
-            }
-        }
-        
-        return maxWeight;
+        return PopularityBias.weightOf(candidateId, popularityBiases);
     }
     
     @Override
@@ -0,0 +1,199 @@
+package com.galeshapley.generation;
+
+import com.galeshapley.config.distribution.LatentDistributionConfig;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Ranks candidates by score = quality + noise - distanceWeight * distance, where quality is the
+ * weighted sum of a candidate's features and distance is Euclidean, from the ranking agent.
+ *
+ * Candidate features are laid out in one flat array per candidate list and reused for every
+ * agent ranking that list. The best candidates are picked by {@link TopScores}, so ranking only
+ * the top k of n candidates costs O(n log k).
+ */
+public class LatentGenerationStrategy implements PreferenceGenerationStrategy {
+    
+    private final int dimensions;
+    private final double[] weights;
+    private final double distanceWeight;
+    private final double noise;
+    private final long featureSeed;
+    private final Map<String, double[]> featureTable;
+    private final Integer topK;
+    
+    private volatile CandidateFeatures cached;
+    
+    public LatentGenerationStrategy(LatentDistributionConfig config) {
+        config.validate();
+        this.dimensions = config.getDimensions();
+        this.weights = new double[dimensions];
+        for (int k = 0; k < dimensions; k++) {
+            weights[k] = config.getWeights() == null ? 1.0 : config.getWeights().get(k);
+        }
+        this.distanceWeight = config.getDistanceWeight();
+        this.noise = config.getNoise();
+        this.featureSeed = config.getFeatureSeed() != null ? config.getFeatureSeed()
+                         : config.getSeed() != null ? config.getSeed() : 0L;
+        this.featureTable = config.getFeatureFile() == null ? null : readFeatures(config.getFeatureFile());
+        this.topK = config.getTopK();
+    }
+    
+    @Override
+    public List<String> generatePreferences(Collection<String> candidateIds, Random random, boolean includeEmptySet) {
+        return generatePreferences(null, candidateIds, random, includeEmptySet);
+    }
+    
+    /**
+     * Without an owner only quality and noise count towards the score.
+     */
+    @Override
+    public List<String> generatePreferences(String ownerId, Collection<String> candidateIds, Random random,
+                                            boolean includeEmptySet) {
+        CandidateFeatures candidates = candidateFeatures(candidateIds);
+        int n = candidates.ids.length;
+        int k = topK == null ? n : Math.min(topK, n);
+        double[] owner = ownerId == null || distanceWeight == 0 ? null : features(ownerId, new double[dimensions], 0);
+        double[] features = candidates.features;
+        
+        double[] scores = new double[n];
+        for (int c = 0, offset = 0; c < n; c++, offset += dimensions) {
+            double score = candidates.quality[c] + noise * random.nextGaussian();
+            if (owner != null) {
+                double squared = 0;
+                for (int f = 0; f < dimensions; f++) {
+                    double delta = owner[f] - features[offset + f];
+                    squared += delta * delta;
+                }
+                score -= distanceWeight * Math.sqrt(squared);
+            }
+            scores[c] = score;
+        }
+        
+        List<String> preferences = new ArrayList<>(k + 1);
+        for (int candidate : TopScores.best(scores, k)) {
+            preferences.add(candidates.ids[candidate]);
+        }
+        if (includeEmptySet) {
+            preferences.add(getEmptySetPosition(preferences.size(), random), "∅");
+        } else if (k < n) {
+            preferences.add("∅");
+        }
+        return preferences;
+    }
+    
+    @Override
+    public int getEmptySetPosition(int listSize, Random random) {
+        return random.nextInt(listSize + 1);
+    }
+    
+    private CandidateFeatures candidateFeatures(Collection<String> candidateIds) {
+        CandidateFeatures current = cached;
+        if (current != null && current.source == candidateIds) {
+            return current;
+        }
+        String[] ids = candidateIds.toArray(new String[0]);
+        double[] features = new double[ids.length * dimensions];
+        double[] quality = new double[ids.length];
+        for (int c = 0; c < ids.length; c++) {
+            features(ids[c], features, c * dimensions);
+            for (int f = 0; f < dimensions; f++) {
+                quality[c] += weights[f] * features[c * dimensions + f];
+            }
+        }
+        current = new CandidateFeatures(candidateIds, ids, features, quality);
+        cached = current;
+        return current;
+    }
+    
+    /**
+     * Copies an agent's feature vector into {@code into} at {@code offset}; generated vectors are
+     * uniform in the unit cube and depend only on the feature seed and the agent's ID.
+     */
+    private double[] features(String id, double[] into, int offset) {
+        if (featureTable != null) {
+            double[] vector = featureTable.get(id);
+            if (vector == null) {
+                throw new IllegalArgumentException("No feature vector for agent " + id);
+            }
+            System.arraycopy(vector, 0, into, offset, dimensions);
+        } else {
+            SplittableRandom random = new SplittableRandom(featureSeed ^ idHash(id));
+            for (int f = 0; f < dimensions; f++) {
+                into[offset + f] = random.nextDouble();
+            }
+        }
+        return into;
+    }
+    
+    /**
+     * 64-bit FNV-1a over the whole ID, so IDs that share a {@code hashCode()} (such as "Aa" and
+     * "BB") still get their own features.
+     */
+    private static long idHash(String id) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash = (hash ^ id.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+    
+    /**
+     * Errors name the file, line and column but never quote the file's contents, since the
+     * message may be sent back to whoever supplied the configuration.
+     */
+    private Map<String, double[]> readFeatures(String file) {
+        Path path = Paths.get(file);
+        Path name = path.getFileName();
+        Map<String, double[]> table = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                if (fields.length != dimensions + 1) {
+                    throw new IllegalArgumentException("Feature file " + name + " line " + lineNumber + " has "
+                        + fields.length + " columns, expected an ID and " + dimensions + " features");
+                }
+                double[] vector = new double[dimensions];
+                for (int f = 0; f < dimensions; f++) {
+                    try {
+                        vector[f] = Double.parseDouble(fields[f + 1].trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Feature file " + name + " line " + lineNumber
+                            + " column " + (f + 2) + " is not a number");
+                    }
+                }
+                table.put(fields[0].trim(), vector);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read feature file " + name, e);
+        }
+        return table;
+    }
+    
+    private static final class CandidateFeatures {
+        final Collection<String> source;
+        final String[] ids;
+        final double[] features;
+        final double[] quality;
+        
+        CandidateFeatures(Collection<String> source, String[] ids, double[] features, double[] quality) {
+            this.source = source;
+            this.ids = ids;
+            this.features = features;
+            this.quality = quality;
+        }
+    }
+}
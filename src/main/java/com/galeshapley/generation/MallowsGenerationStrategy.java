@@ -0,0 +1,135 @@
+package com.galeshapley.generation;
+
+import com.galeshapley.config.distribution.MallowsDistributionConfig;
+
+import java.util.*;
+
+/**
+ * Samples Mallows-distributed preferences with the repeated insertion model.
+ *
+ * The i-th candidate of the reference ranking is inserted at distance d from the end of the
+ * first i - 1 with probability proportional to phi^d. Instead of inserting into a list, which
+ * costs O(n²), the insertion points are replayed backwards: the last candidate inserted keeps
+ * its slot, and each earlier one takes the matching free slot among those left, found in
+ * O(log n) with a Fenwick tree. In top-k mode only the first k slots are tracked.
+ */
+public class MallowsGenerationStrategy implements PreferenceGenerationStrategy {
+    
+    private final double phi;
+    private final List<String> reference;
+    private final Integer topK;
+    
+    public MallowsGenerationStrategy(MallowsDistributionConfig config) {
+        config.validate();
+        this.phi = config.getPhi();
+        this.reference = config.getReference();
+        this.topK = config.getTopK();
+    }
+    
+    @Override
+    public List<String> generatePreferences(Collection<String> candidateIds, Random random, boolean includeEmptySet) {
+        String[] order = referenceOrder(candidateIds);
+        int n = order.length;
+        int k = topK == null ? n : Math.min(topK, n);
+        
+        String[] slots = new String[k];
+        FreeSlots free = new FreeSlots(k);
+        double logPhi = Math.log(phi);
+        for (int i = n; i >= 1; i--) {
+            // Insertion point of the i-th reference candidate among the first i, 1-based
+            int position = i - distanceFromEnd(i, random, logPhi);
+            if (position <= free.remaining()) {
+                slots[free.take(position)] = order[i - 1];
+            }
+        }
+        
+        List<String> preferences = new ArrayList<>(k + 1);
+        Collections.addAll(preferences, slots);
+        if (includeEmptySet) {
+            preferences.add(getEmptySetPosition(preferences.size(), random), "∅");
+        } else if (k < n) {
+            preferences.add("∅");
+        }
+        return preferences;
+    }
+    
+    @Override
+    public int getEmptySetPosition(int listSize, Random random) {
+        return random.nextInt(listSize + 1);
+    }
+    
+    /**
+     * Draws d in [0, i) with probability proportional to phi^d by inverting its distribution.
+     */
+    private int distanceFromEnd(int i, Random random, double logPhi) {
+        double u = random.nextDouble();
+        if (phi >= 1.0) {
+            return (int) (u * i);
+        }
+        if (phi <= 0.0) {
+            return 0;
+        }
+        double tail = Math.exp(i * logPhi);
+        int d = (int) (Math.log1p(-u * (1 - tail)) / logPhi);
+        return Math.min(d, i - 1);
+    }
+    
+    private String[] referenceOrder(Collection<String> candidateIds) {
+        if (reference == null) {
+            return candidateIds.toArray(new String[0]);
+        }
+        Set<String> remaining = new LinkedHashSet<>(candidateIds);
+        String[] order = new String[remaining.size()];
+        int size = 0;
+        for (String id : reference) {
+            if (remaining.remove(id)) {
+                order[size++] = id;
+            }
+        }
+        for (String id : remaining) {
+            order[size++] = id;
+        }
+        return order;
+    }
+    
+    /**
+     * Fenwick tree over slots 1..size holding 1 for each free slot.
+     */
+    private static final class FreeSlots {
+        private final int[] tree;
+        private final int highBit;
+        private int remaining;
+        
+        FreeSlots(int size) {
+            this.tree = new int[size + 1];
+            for (int slot = 1; slot <= size; slot++) {
+                tree[slot] = slot & -slot;
+            }
+            this.highBit = size == 0 ? 0 : Integer.highestOneBit(size);
+            this.remaining = size;
+        }
+        
+        int remaining() {
+            return remaining;
+        }
+        
+        /**
+         * Occupies the {@code rank}-th free slot and returns its 0-based index.
+         */
+        int take(int rank) {
+            int slot = 0;
+            for (int step = highBit; step > 0; step >>= 1) {
+                int next = slot + step;
+                if (next < tree.length && tree[next] < rank) {
+                    slot = next;
+                    rank -= tree[next];
+                }
+            }
+            for (int i = slot + 1; i < tree.length; i += i & -i) {
+                tree[i]--;
+            }
+            remaining--;
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.galeshapley.generation;
+
+import com.galeshapley.config.distribution.CorrelatedDistributionConfig.PopularityBias;
+import com.galeshapley.config.distribution.PlackettLuceDistributionConfig;
+
+import java.util.*;
+
+/**
+ * Samples Plackett-Luce preferences with Gumbel keys: adding independent Gumbel noise to every
+ * candidate's log-weight and ranking by the result draws the whole list at once, in one pass
+ * over the candidates plus {@link TopScores}, instead of one weighted draw per position.
+ */
+public class PlackettLuceGenerationStrategy implements PreferenceGenerationStrategy {
+    
+    private final List<PopularityBias> popularityBiases;
+    private final Integer topK;
+    
+    private volatile CandidateWeights cached;
+    
+    public PlackettLuceGenerationStrategy(PlackettLuceDistributionConfig config) {
+        config.validate();
+        this.popularityBiases = config.getPopularityBias() != null ? config.getPopularityBias() : new ArrayList<>();
+        this.topK = config.getTopK();
+    }
+    
+    @Override
+    public List<String> generatePreferences(Collection<String> candidateIds, Random random, boolean includeEmptySet) {
+        CandidateWeights candidates = candidateWeights(candidateIds);
+        int n = candidates.ids.length;
+        int k = topK == null ? n : Math.min(topK, n);
+        
+        double[] keys = new double[n];
+        for (int c = 0; c < n; c++) {
+            // Gumbel noise -log(-log(u)) needs u strictly inside (0, 1): u = 1 would give an infinite key
+            double u = ((random.nextLong() >>> 11) + 0.5) * 0x1.0p-53;
+            keys[c] = candidates.logWeights[c] - Math.log(-Math.log(u));
+        }
+        
+        List<String> preferences = new ArrayList<>(k + 1);
+        for (int candidate : TopScores.best(keys, k)) {
+            preferences.add(candidates.ids[candidate]);
+        }
+        if (includeEmptySet) {
+            preferences.add(getEmptySetPosition(preferences.size(), random), "∅");
+        } else if (k < n) {
+            preferences.add("∅");
+        }
+        return preferences;
+    }
+    
+    @Override
+    public int getEmptySetPosition(int listSize, Random random) {
+        return random.nextInt(listSize + 1);
+    }
+    
+    /**
+     * Log-weights of a candidate list, worked out once and reused while the same list is passed in.
+     */
+    private CandidateWeights candidateWeights(Collection<String> candidateIds) {
+        CandidateWeights current = cached;
+        if (current != null && current.source == candidateIds) {
+            return current;
+        }
+        String[] ids = candidateIds.toArray(new String[0]);
+        double[] logWeights = new double[ids.length];
+        for (int c = 0; c < ids.length; c++) {
+            logWeights[c] = Math.log(PopularityBias.weightOf(ids[c], popularityBiases));
+        }
+        current = new CandidateWeights(candidateIds, ids, logWeights);
+        cached = current;
+        return current;
+    }
+    
+    private static final class CandidateWeights {
+        final Collection<String> source;
+        final String[] ids;
+        final double[] logWeights;
+        
+        CandidateWeights(Collection<String> source, String[] ids, double[] logWeights) {
+            this.source = source;
+            this.ids = ids;
+            this.logWeights = logWeights;
+        }
+    }
+}
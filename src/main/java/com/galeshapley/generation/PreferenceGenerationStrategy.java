@@ -20,6 +20,21 @@ public interface PreferenceGenerationStrategy {
      */
     List<String> generatePreferences(Collection<String> candidateIds, Random random, boolean includeEmptySet);
     
+    /**
+     * Generate a preference ordering for a known agent, for distributions where the agent's
+     * own attributes shape its preferences. Others ignore the owner.
+     * 
+     * @param ownerId ID of the agent whose preferences these are, or null if unknown
+     * @param candidateIds IDs of candidates to rank
+     * @param random Random number generator for reproducibility
+     * @param includeEmptySet Whether to include the empty set symbol in preferences
+     * @return Ordered list of candidate IDs representing the preference ordering
+     */
+    default List<String> generatePreferences(String ownerId, Collection<String> candidateIds, Random random,
+                                             boolean includeEmptySet) {
+        return generatePreferences(candidateIds, random, includeEmptySet);
+    }
+    
     /**
      * Get the position where the empty set should be placed.
      * 
@@ -0,0 +1,84 @@
+package com.galeshapley.generation;
+
+/**
+ * Picks the highest of a row of scores with a bounded min-heap: O(n log k) for the best k of n,
+ * and a heap sort when all n are wanted. Equal scores keep the earlier index first, so the
+ * result depends only on the scores.
+ */
+final class TopScores {
+    
+    private TopScores() {
+    }
+    
+    /**
+     * Indices of the {@code k} highest scores, best first.
+     */
+    static int[] best(double[] scores, int k) {
+        double[] heapScores = new double[k];
+        int[] heap = new int[k];
+        int size = 0;
+        for (int index = 0; index < scores.length; index++) {
+            double score = scores[index];
+            if (size < k) {
+                heapScores[size] = score;
+                heap[size] = index;
+                siftUp(heapScores, heap, size++);
+            } else if (k > 0 && score > heapScores[0]) {
+                heapScores[0] = score;
+                heap[0] = index;
+                siftDown(heapScores, heap, 0, size);
+            }
+        }
+        
+        // Popping the worst remaining entry fills the result from the back
+        int[] best = new int[k];
+        while (size > 0) {
+            best[--size] = heap[0];
+            heapScores[0] = heapScores[size];
+            heap[0] = heap[size];
+            siftDown(heapScores, heap, 0, size);
+        }
+        return best;
+    }
+    
+    private static boolean worse(double[] scores, int[] heap, int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && heap[a] > heap[b]);
+    }
+    
+    private static void siftUp(double[] scores, int[] heap, int node) {
+        while (node > 0) {
+            int parent = (node - 1) >>> 1;
+            if (!worse(scores, heap, node, parent)) {
+                return;
+            }
+            swap(scores, heap, node, parent);
+            node = parent;
+        }
+    }
+    
+    private static void siftDown(double[] scores, int[] heap, int node, int size) {
+        while (true) {
+            int child = 2 * node + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && worse(scores, heap, child + 1, child)) {
+                child++;
+            }
+            if (!worse(scores, heap, child, node)) {
+                return;
+            }
+            swap(scores, heap, node, child);
+            node = child;
+        }
+    }
+    
+    private static void swap(double[] scores, int[] heap, int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int index = heap[a];
+        heap[a] = heap[b];
+        heap[b] = index;
+    }
+}
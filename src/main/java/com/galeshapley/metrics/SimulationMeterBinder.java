@@ -0,0 +1,58 @@
+package com.galeshapley.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Objects;
+
+/**
+ * Exposes {@link SimulationMetrics} through a Micrometer registry under {@code galeshapley.*}.
+ *
+ * Micrometer is an optional dependency: this class is only loaded by applications that put
+ * micrometer-core on the classpath and bind it themselves.
+ */
+public class SimulationMeterBinder implements MeterBinder {
+    
+    private final SimulationMetrics metrics;
+    
+    public SimulationMeterBinder() {
+        this(SimulationMetrics.getInstance());
+    }
+    
+    public SimulationMeterBinder(SimulationMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "Metrics cannot be null");
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        metrics.markPublished();
+        FunctionCounter.builder("galeshapley.proposals", metrics, m -> m.getProposals())
+            .description("Proposals made, including choosing to stay single")
+            .register(registry);
+        FunctionCounter.builder("galeshapley.iterations", metrics, m -> m.getIterations())
+            .description("Gale-Shapley iterations completed")
+            .register(registry);
+        FunctionCounter.builder("galeshapley.runs.completed", metrics, m -> m.getCompletedRuns())
+            .register(registry);
+        Gauge.builder("galeshapley.proposals.rate", metrics, SimulationMetrics::getProposalsPerSecond)
+            .baseUnit("proposals/s")
+            .register(registry);
+        Gauge.builder("galeshapley.iteration.current", metrics, SimulationMetrics::getCurrentIteration)
+            .register(registry);
+        Gauge.builder("galeshapley.proposers.free", metrics, SimulationMetrics::getFreeProposers)
+            .register(registry);
+        Gauge.builder("galeshapley.proposers.matched", metrics, SimulationMetrics::getMatchedProposers)
+            .register(registry);
+        Gauge.builder("galeshapley.runs.active", metrics, SimulationMetrics::getActiveRuns)
+            .register(registry);
+        Gauge.builder("galeshapley.generation.progress", metrics, SimulationMetrics::getGenerationProgress)
+            .register(registry);
+        Gauge.builder("galeshapley.heap.per.agent", metrics, SimulationMetrics::getHeapUsedPerAgent)
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("galeshapley.queue.depth", metrics, SimulationMetrics::getQueueDepth)
+            .register(registry);
+    }
+}
@@ -0,0 +1,302 @@
+package com.galeshapley.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * JVM-wide counters for telling a stuck run from a slow one, published over JMX as
+ * {@value #OBJECT_NAME} once {@link #registerMBean()} is called.
+ *
+ * Runs and generations report through {@link Run} and {@link Generation} handles, which add
+ * to {@link LongAdder}s once per iteration or generation block; gauges such as free proposers
+ * sum over every run in progress. Rates, ratios and heap usage are sampled only when read.
+ * Solvers only track runs once the metrics are {@link #isPublished() published}.
+ */
+public final class SimulationMetrics implements SimulationMetricsMXBean {
+    
+    public static final String OBJECT_NAME = "com.galeshapley:type=SimulationMetrics";
+    
+    private static final SimulationMetrics INSTANCE = new SimulationMetrics();
+    private static final long RATE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final LongAdder proposals = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder freeProposers = new LongAdder();
+    private final LongAdder matchedProposers = new LongAdder();
+    private final LongAdder activeRuns = new LongAdder();
+    private final LongAdder completedRuns = new LongAdder();
+    private final LongAdder agentsInRuns = new LongAdder();
+    private final LongAdder agentsGenerated = new LongAdder();
+    private final LongAdder agentsToGenerate = new LongAdder();
+    private final Set<Run> runs = ConcurrentHashMap.newKeySet();
+    private final Set<Queue> queues = ConcurrentHashMap.newKeySet();
+    private volatile boolean published;
+    
+    private long sampledAt = System.nanoTime();
+    private long sampledProposals;
+    private double proposalsPerSecond;
+    private boolean registered;
+    
+    SimulationMetrics() {
+    }
+    
+    public static SimulationMetrics getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Publish these metrics on the platform MBean server; later calls do nothing.
+     */
+    public synchronized void registerMBean() {
+        if (registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Another copy of this class, e.g. from a second class loader, got there first
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+        registered = true;
+        published = true;
+    }
+    
+    /**
+     * Whether anything reads these metrics: the MBean is registered or a Micrometer registry
+     * is bound to them.
+     */
+    public boolean isPublished() {
+        return published;
+    }
+    
+    void markPublished() {
+        published = true;
+    }
+    
+    /**
+     * Start tracking a Gale-Shapley run over the given market size.
+     */
+    public Run startRun(int proposerCount, int proposeeCount) {
+        return new Run(proposerCount, proposeeCount);
+    }
+    
+    /**
+     * Start tracking the generation of preferences for the given number of agents.
+     */
+    public Generation startGeneration(int agentCount) {
+        return new Generation(agentCount);
+    }
+    
+    /**
+     * Report the depth of a job queue until the returned handle is closed. Queues sharing a
+     * name are added together.
+     */
+    public QueueRegistration registerQueue(String name, IntSupplier depth) {
+        Queue queue = new Queue(Objects.requireNonNull(name, "Queue name cannot be null"),
+                                Objects.requireNonNull(depth, "Queue depth cannot be null"));
+        queues.add(queue);
+        return () -> queues.remove(queue);
+    }
+    
+    @Override
+    public long getProposals() {
+        return proposals.sum();
+    }
+    
+    @Override
+    public synchronized double getProposalsPerSecond() {
+        long now = System.nanoTime();
+        if (now - sampledAt >= RATE_INTERVAL_NANOS) {
+            long total = proposals.sum();
+            proposalsPerSecond = (total - sampledProposals) * 1e9 / (now - sampledAt);
+            sampledProposals = total;
+            sampledAt = now;
+        }
+        return proposalsPerSecond;
+    }
+    
+    @Override
+    public long getIterations() {
+        return iterations.sum();
+    }
+    
+    @Override
+    public int getCurrentIteration() {
+        int current = 0;
+        for (Run run : runs) {
+            current = Math.max(current, run.iteration);
+        }
+        return current;
+    }
+    
+    @Override
+    public long getFreeProposers() {
+        return freeProposers.sum();
+    }
+    
+    @Override
+    public long getMatchedProposers() {
+        return matchedProposers.sum();
+    }
+    
+    @Override
+    public long getActiveRuns() {
+        return activeRuns.sum();
+    }
+    
+    @Override
+    public long getCompletedRuns() {
+        return completedRuns.sum();
+    }
+    
+    @Override
+    public long getAgentsGenerated() {
+        return agentsGenerated.sum();
+    }
+    
+    @Override
+    public long getAgentsToGenerate() {
+        return agentsToGenerate.sum();
+    }
+    
+    @Override
+    public double getGenerationProgress() {
+        long total = agentsToGenerate.sum();
+        return total == 0 ? 1.0 : Math.min(1.0, (double) agentsGenerated.sum() / total);
+    }
+    
+    @Override
+    public long getHeapUsedPerAgent() {
+        long agents = agentsInRuns.sum() + agentsToGenerate.sum();
+        if (agents <= 0) {
+            return 0;
+        }
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        return memory.getHeapMemoryUsage().getUsed() / agents;
+    }
+    
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Queue queue : queues) {
+            depth += queue.depth.getAsInt();
+        }
+        return depth;
+    }
+    
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        for (Queue queue : queues) {
+            depths.merge(queue.name, queue.depth.getAsInt(), Integer::sum);
+        }
+        return depths;
+    }
+    
+    /**
+     * Progress of one Gale-Shapley run. Not thread-safe; the run's own thread reports to it.
+     */
+    public final class Run implements AutoCloseable {
+        private final int agents;
+        private long free;
+        private long matched;
+        private volatile int iteration;
+        private boolean closed;
+        
+        private Run(int proposerCount, int proposeeCount) {
+            this.agents = proposerCount + proposeeCount;
+            this.free = proposerCount;
+            runs.add(this);
+            activeRuns.increment();
+            agentsInRuns.add(agents);
+            freeProposers.add(free);
+        }
+        
+        /**
+         * Record a finished iteration with the proposals it made and the proposers left free
+         * and matched after it.
+         */
+        public void onIteration(int iteration, int proposalsMade, int freeAfter, int matchedAfter) {
+            this.iteration = iteration;
+            iterations.increment();
+            proposals.add(proposalsMade);
+            freeProposers.add(freeAfter - free);
+            matchedProposers.add(matchedAfter - matched);
+            free = freeAfter;
+            matched = matchedAfter;
+        }
+        
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            runs.remove(this);
+            freeProposers.add(-free);
+            matchedProposers.add(-matched);
+            agentsInRuns.add(-agents);
+            activeRuns.decrement();
+            completedRuns.increment();
+        }
+    }
+    
+    /**
+     * Progress of generating one side's preferences.
+     */
+    public final class Generation implements AutoCloseable {
+        private final int agents;
+        private final LongAdder done = new LongAdder();
+        private boolean closed;
+        
+        private Generation(int agents) {
+            this.agents = agents;
+            agentsToGenerate.add(agents);
+        }
+        
+        public void onGenerated(int count) {
+            done.add(count);
+            agentsGenerated.add(count);
+        }
+        
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            agentsGenerated.add(-done.sum());
+            agentsToGenerate.add(-agents);
+        }
+    }
+    
+    private static final class Queue {
+        private final String name;
+        private final IntSupplier depth;
+        
+        private Queue(String name, IntSupplier depth) {
+            this.name = name;
+            this.depth = depth;
+        }
+    }
+    
+    /**
+     * Handle that stops reporting a queue when closed.
+     */
+    public interface QueueRegistration extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.galeshapley.metrics;
+
+import java.util.Map;
+
+/**
+ * Live progress of the simulations running in this JVM, as seen over JMX.
+ */
+public interface SimulationMetricsMXBean {
+    
+    /** Proposals made by every run since the JVM started, including choosing to stay single. */
+    long getProposals();
+    
+    /** Proposal rate over the last sampling interval of about a second. */
+    double getProposalsPerSecond();
+    
+    /** Gale-Shapley iterations completed by every run. */
+    long getIterations();
+    
+    /** Furthest iteration reached by the runs in progress, or 0 when none is running. */
+    int getCurrentIteration();
+    
+    /** Proposers of the runs in progress that will propose again. */
+    long getFreeProposers();
+    
+    /** Proposers of the runs in progress that currently hold a partner. */
+    long getMatchedProposers();
+    
+    long getActiveRuns();
+    
+    long getCompletedRuns();
+    
+    /** Agents whose preferences have been generated by the generations in progress. */
+    long getAgentsGenerated();
+    
+    /** Agents the generations in progress will produce in total. */
+    long getAgentsToGenerate();
+    
+    /** Fraction of the in-progress generation work done, or 1 when nothing is being generated. */
+    double getGenerationProgress();
+    
+    /** Heap in use divided by the agents being generated or solved, or 0 when there are none. */
+    long getHeapUsedPerAgent();
+    
+    /** Jobs waiting in every registered queue. */
+    int getQueueDepth();
+    
+    Map<String, Integer> getQueueDepths();
+}
@@ -2,19 +2,36 @@ package com.galeshapley.model;
 
 import java.util.Objects;
 
+/**
+ * A participant identified by its ID. Agents are used as map keys throughout, so the hash is
+ * worked out once on construction. Agents created by an {@link AgentRegistry} also carry a
+ * dense ordinal, which lets index-based structures find them without hashing at all.
+ */
 public abstract class Agent {
+    /** Ordinal of an agent that was not created by an {@link AgentRegistry}. */
+    public static final int NO_ORDINAL = -1;
+    
     private final String id;
     private final String name;
     protected final boolean isEmptySet;
+    private final int hash;
+    private final int ordinal;
 
     protected Agent(String id, String name) {
         this(id, name, false);
     }
     
     protected Agent(String id, String name, boolean isEmptySet) {
+        this(id, name, isEmptySet, NO_ORDINAL);
+    }
+    
+    Agent(String id, String name, boolean isEmptySet, int ordinal) {
         this.id = Objects.requireNonNull(id, "Agent ID cannot be null");
         this.name = Objects.requireNonNull(name, "Agent name cannot be null");
         this.isEmptySet = isEmptySet;
+        // Same value as Objects.hash(id), so hash-ordered collections iterate as before
+        this.hash = 31 + id.hashCode();
+        this.ordinal = ordinal;
     }
 
     public String getId() {
@@ -28,18 +45,25 @@ public abstract class Agent {
     public boolean isEmptySet() {
         return isEmptySet;
     }
+    
+    /**
+     * @return the ordinal given by the registry that created this agent, or {@link #NO_ORDINAL}
+     */
+    public int getOrdinal() {
+        return ordinal;
+    }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Agent agent = (Agent) o;
-        return Objects.equals(id, agent.id);
+        return hash == agent.hash && id.equals(agent.id);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return hash;
     }
 
     @Override
@@ -0,0 +1,86 @@
+package com.galeshapley.model;
+
+import java.util.*;
+
+/**
+ * Interns the proposers and proposees of one market: each ID maps to a single instance, and
+ * each instance gets a dense ordinal on its side in the order it was first registered. A
+ * {@link CompiledMarket} built from the registered agents in that order finds each agent's
+ * index from its ordinal instead of a hash lookup.
+ *
+ * Interning is an optimization only; registered agents stay equal to any other agent of the
+ * same class and ID. Not thread-safe.
+ */
+public final class AgentRegistry {
+    
+    private final Map<String, Proposer> proposersById = new HashMap<>();
+    private final Map<String, Proposee> proposeesById = new HashMap<>();
+    private final List<Proposer> proposers = new ArrayList<>();
+    private final List<Proposee> proposees = new ArrayList<>();
+    
+    /**
+     * The proposer with the given ID, created with the next ordinal if it is new. The name
+     * given when an ID is first registered is kept.
+     */
+    public Proposer proposer(String id, String name) {
+        Proposer proposer = proposersById.get(id);
+        if (proposer == null) {
+            proposer = new Proposer(id, name, proposers.size());
+            proposersById.put(id, proposer);
+            proposers.add(proposer);
+        }
+        return proposer;
+    }
+    
+    /**
+     * The proposee with the given ID, created with the next ordinal if it is new. The name
+     * given when an ID is first registered is kept.
+     */
+    public Proposee proposee(String id, String name) {
+        Proposee proposee = proposeesById.get(id);
+        if (proposee == null) {
+            proposee = new Proposee(id, name, proposees.size());
+            proposeesById.put(id, proposee);
+            proposees.add(proposee);
+        }
+        return proposee;
+    }
+    
+    public Optional<Proposer> findProposer(String id) {
+        return Optional.ofNullable(proposersById.get(id));
+    }
+    
+    public Optional<Proposee> findProposee(String id) {
+        return Optional.ofNullable(proposeesById.get(id));
+    }
+    
+    public Proposer getProposer(int ordinal) {
+        return proposers.get(ordinal);
+    }
+    
+    public Proposee getProposee(int ordinal) {
+        return proposees.get(ordinal);
+    }
+    
+    public int getProposerCount() {
+        return proposers.size();
+    }
+    
+    public int getProposeeCount() {
+        return proposees.size();
+    }
+    
+    /**
+     * @return the registered proposers in ordinal order
+     */
+    public List<Proposer> getProposers() {
+        return Collections.unmodifiableList(proposers);
+    }
+    
+    /**
+     * @return the registered proposees in ordinal order
+     */
+    public List<Proposee> getProposees() {
+        return Collections.unmodifiableList(proposees);
+    }
+}
@@ -0,0 +1,28 @@
+package com.galeshapley.model;
+
+/**
+ * Heap rows, one {@code int[]} per agent.
+ */
+final class ArrayMarketTable implements MarketTable {
+    
+    private final int[][] rows;
+    
+    ArrayMarketTable(int[][] rows) {
+        this.rows = rows;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rows.length;
+    }
+    
+    @Override
+    public int getLength(int row) {
+        return rows[row].length;
+    }
+    
+    @Override
+    public int get(int row, int position) {
+        return rows[row][position];
+    }
+}
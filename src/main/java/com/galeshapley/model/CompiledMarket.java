@@ -0,0 +1,588 @@
+package com.galeshapley.model;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Immutable, index-based representation of a two-sided market.
+ *
+ * Agents are numbered densely per side and every preference list is an {@code int[]} of
+ * indices into the opposite side. Empty set (∅) preferences are not stored as list elements;
+ * each agent instead carries the position at which ∅ would appear, or {@link #NO_EMPTY_SET}.
+ * The config layer builds this once and the solver reads it directly, so no map of
+ * {@link PreferenceList}s has to be copied on the way to execution.
+ *
+ * Lists may contain ties. Ranks stay list positions, so every algorithm that compares ranks
+ * breaks ties deterministically by list order; tie-aware solvers read the tie level of each
+ * position instead. Rows without ties store no levels.
+ *
+ * Preference and rank tables are read through {@link MarketTable}. By default they are heap
+ * arrays; a market built with {@link Builder#storeOffHeap} keeps them in memory-mapped scratch
+ * files instead and inverts each agent's ranks only when they are first read, so markets far
+ * larger than the heap only fault in the pages the algorithm touches. {@link MarketFile} maps
+ * both kinds of table straight from a file written earlier.
+ */
+public final class CompiledMarket {
+    public static final int NOT_RANKED = -1;
+    public static final int NO_EMPTY_SET = -1;
+    
+    private final Proposer[] proposers;
+    private final Proposee[] proposees;
+    private final Map<Proposer, Integer> proposerIndex;
+    private final Map<Proposee, Integer> proposeeIndex;
+    private final MarketTable proposerPreferences;
+    private final MarketTable proposeePreferences;
+    private final int[] proposerEmptySetPositions;
+    private final int[] proposeeEmptySetPositions;
+    private final int[][] proposerTieLevels;
+    private final int[][] proposeeTieLevels;
+    private final boolean ties;
+    private final boolean offHeap;
+    private final Path scratchDirectory;
+    private final MarketTable proposeeRanks;
+    private volatile MarketTable proposerRanks;
+    
+    private CompiledMarket(Builder builder) {
+        this.proposers = builder.proposers;
+        this.proposees = builder.proposees;
+        this.proposerIndex = builder.proposerIndex;
+        this.proposeeIndex = builder.proposeeIndex;
+        this.proposerPreferences = builder.proposerRows;
+        this.proposeePreferences = builder.proposeeRows;
+        this.proposerEmptySetPositions = builder.proposerEmptySetPositions;
+        this.proposeeEmptySetPositions = builder.proposeeEmptySetPositions;
+        this.proposerTieLevels = builder.proposerTieLevels;
+        this.proposeeTieLevels = builder.proposeeTieLevels;
+        this.ties = builder.ties;
+        this.offHeap = builder.offHeap;
+        this.scratchDirectory = builder.scratchDirectory;
+        this.proposeeRanks = builder.proposeeRanks != null ? builder.proposeeRanks
+                                                           : ranks(proposeePreferences, proposers.length);
+        this.proposerRanks = builder.proposerRanks;
+    }
+    
+    public int getProposerCount() {
+        return proposers.length;
+    }
+    
+    public int getProposeeCount() {
+        return proposees.length;
+    }
+    
+    public Proposer getProposer(int index) {
+        return proposers[index];
+    }
+    
+    public Proposee getProposee(int index) {
+        return proposees[index];
+    }
+    
+    /**
+     * @return the dense index of the proposer, or -1 if it is not part of this market
+     */
+    public int indexOf(Proposer proposer) {
+        return indexOf(proposers, proposerIndex, proposer);
+    }
+    
+    /**
+     * @return the dense index of the proposee, or -1 if it is not part of this market
+     */
+    public int indexOf(Proposee proposee) {
+        return indexOf(proposees, proposeeIndex, proposee);
+    }
+    
+    public int getProposerPreferenceCount(int proposer) {
+        return proposerPreferences.getLength(proposer);
+    }
+    
+    /**
+     * @return index of the proposee at the given position of the proposer's list
+     */
+    public int getProposerPreference(int proposer, int position) {
+        return proposerPreferences.get(proposer, position);
+    }
+    
+    public int getProposeePreferenceCount(int proposee) {
+        return proposeePreferences.getLength(proposee);
+    }
+    
+    /**
+     * @return index of the proposer at the given position of the proposee's list
+     */
+    public int getProposeePreference(int proposee, int position) {
+        return proposeePreferences.get(proposee, position);
+    }
+    
+    public int getProposerEmptySetPosition(int proposer) {
+        return proposerEmptySetPositions[proposer];
+    }
+    
+    public int getProposeeEmptySetPosition(int proposee) {
+        return proposeeEmptySetPositions[proposee];
+    }
+    
+    /**
+     * @return true if the tables live in memory-mapped files rather than on the heap
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    /**
+     * @return true if any list contains a tie
+     */
+    public boolean hasTies() {
+        return ties;
+    }
+    
+    /**
+     * @return the tie level of the given position of the proposer's list; equal levels are tied
+     */
+    public int getProposerTieLevel(int proposer, int position) {
+        int[] levels = proposerTieLevels[proposer];
+        return levels == null ? position : levels[position];
+    }
+    
+    /**
+     * @return the tie level of the given position of the proposee's list; equal levels are tied
+     */
+    public int getProposeeTieLevel(int proposee, int position) {
+        int[] levels = proposeeTieLevels[proposee];
+        return levels == null ? position : levels[position];
+    }
+    
+    /**
+     * Number of proposees the proposer will propose to before preferring to stay single.
+     */
+    public int getProposerCutoff(int proposer) {
+        int length = proposerPreferences.getLength(proposer);
+        int emptySetPosition = proposerEmptySetPositions[proposer];
+        return emptySetPosition == NO_EMPTY_SET ? length : Math.min(emptySetPosition, length);
+    }
+    
+    /**
+     * Number of proposers at the head of the proposee's list it would accept.
+     */
+    public int getProposeeCutoff(int proposee) {
+        int length = proposeePreferences.getLength(proposee);
+        int emptySetPosition = proposeeEmptySetPositions[proposee];
+        return emptySetPosition == NO_EMPTY_SET ? length : Math.min(emptySetPosition, length);
+    }
+    
+    /**
+     * @return the proposer's rank in the proposee's list, or {@link #NOT_RANKED}
+     */
+    public int getProposeeRank(int proposee, int proposer) {
+        return proposeeRanks.get(proposee, proposer);
+    }
+    
+    /**
+     * @return the proposee's rank in the proposer's list, or {@link #NOT_RANKED}
+     */
+    public int getProposerRank(int proposer, int proposee) {
+        MarketTable ranks = proposerRanks;
+        if (ranks == null) {
+            synchronized (this) {
+                ranks = proposerRanks;
+                if (ranks == null) {
+                    ranks = ranks(proposerPreferences, proposees.length);
+                    proposerRanks = ranks;
+                }
+            }
+        }
+        return ranks.get(proposer, proposee);
+    }
+    
+    /**
+     * A proposee accepts a proposer only if it ranks them ahead of its empty set position.
+     */
+    public boolean isAcceptableToProposee(int proposee, int proposer) {
+        int rank = proposeeRanks.get(proposee, proposer);
+        if (rank == NOT_RANKED) {
+            return false;
+        }
+        int emptySetPosition = proposeeEmptySetPositions[proposee];
+        return emptySetPosition == NO_EMPTY_SET || rank < emptySetPosition;
+    }
+    
+    /**
+     * A proposer only ever proposes to proposees ranked ahead of its empty set position.
+     */
+    public boolean isAcceptableToProposer(int proposer, int proposee) {
+        int rank = getProposerRank(proposer, proposee);
+        return rank != NOT_RANKED && rank < getProposerCutoff(proposer);
+    }
+    
+    private MarketTable ranks(MarketTable preferences, int candidateCount) {
+        if (scratchDirectory != null) {
+            return new LazyRankTable(preferences,
+                MappedMarketTable.create(scratchDirectory, preferences.getRowCount(), candidateCount));
+        }
+        int[][] ranks = new int[preferences.getRowCount()][];
+        for (int agent = 0; agent < ranks.length; agent++) {
+            int[] rankRow = new int[candidateCount];
+            Arrays.fill(rankRow, NOT_RANKED);
+            for (int position = 0; position < preferences.getLength(agent); position++) {
+                int candidate = preferences.get(agent, position);
+                if (rankRow[candidate] == NOT_RANKED) {
+                    rankRow[candidate] = position;
+                }
+            }
+            ranks[agent] = rankRow;
+        }
+        return new ArrayMarketTable(ranks);
+    }
+    
+    /**
+     * Registered agents whose ordinal matches their position are found without hashing; any
+     * other agent, such as an equal copy, falls back to the index map.
+     */
+    private static <T extends Agent> int indexOf(T[] agents, Map<T, Integer> index, T agent) {
+        int ordinal = agent.getOrdinal();
+        if (ordinal >= 0 && ordinal < agents.length && agents[ordinal] == agent) {
+            return ordinal;
+        }
+        Integer position = index.get(agent);
+        return position != null ? position : -1;
+    }
+    
+    public static Builder builder(Collection<Proposer> proposers, Collection<Proposee> proposees) {
+        return new Builder(proposers.toArray(new Proposer[0]), proposees.toArray(new Proposee[0]));
+    }
+    
+    /**
+     * Compile a market from agent-keyed preference lists. EmptySet entries found inside a
+     * proposer's list are treated as that proposer's empty set position.
+     */
+    public static CompiledMarket fromPreferenceLists(
+            Map<Proposer, PreferenceList<Proposee>> proposerPreferences,
+            Map<Proposee, PreferenceList<Proposer>> proposeePreferences,
+            Map<Proposer, Integer> emptySetPreferences,
+            Map<Proposee, Integer> proposeeEmptySetPreferences) {
+        
+        List<Proposee> proposees = new ArrayList<>(proposeePreferences.size());
+        for (Proposee proposee : proposeePreferences.keySet()) {
+            if (!proposee.isEmptySet()) {
+                proposees.add(proposee);
+            }
+        }
+        
+        Builder builder = builder(proposerPreferences.keySet(), proposees);
+        
+        for (Map.Entry<Proposer, PreferenceList<Proposee>> entry : proposerPreferences.entrySet()) {
+            int proposer = builder.indexOf(entry.getKey());
+            List<Proposee> list = entry.getValue().getPreferences();
+            Integer emptySetPosition = emptySetPreferences.get(entry.getKey());
+            
+            int[] row = new int[list.size()];
+            int size = 0;
+            for (Proposee proposee : list) {
+                if (proposee.isEmptySet()) {
+                    if (emptySetPosition == null) {
+                        emptySetPosition = size;
+                    }
+                    continue;
+                }
+                int index = builder.indexOf(proposee);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Proposer " + entry.getKey().getName() +
+                        " ranks unknown proposee " + proposee.getName());
+                }
+                row[size++] = index;
+            }
+            
+            builder.setProposerPreferences(proposer, size == row.length ? row : Arrays.copyOf(row, size));
+            if (entry.getValue().hasTies()) {
+                builder.setProposerTieLevels(proposer, tieLevels(entry.getValue()));
+            }
+            if (emptySetPosition != null) {
+                builder.setProposerEmptySetPosition(proposer, emptySetPosition);
+            }
+        }
+        
+        for (Map.Entry<Proposee, PreferenceList<Proposer>> entry : proposeePreferences.entrySet()) {
+            int proposee = builder.indexOf(entry.getKey());
+            if (proposee < 0) {
+                continue; // EmptySet accepts everyone and needs no list
+            }
+            List<Proposer> list = entry.getValue().getPreferences();
+            
+            int[] row = new int[list.size()];
+            for (int position = 0; position < row.length; position++) {
+                int index = builder.indexOf(list.get(position));
+                if (index < 0) {
+                    throw new IllegalArgumentException("Proposee " + entry.getKey().getName() +
+                        " ranks unknown proposer " + list.get(position).getName());
+                }
+                row[position] = index;
+            }
+            
+            builder.setProposeePreferences(proposee, row);
+            if (entry.getValue().hasTies()) {
+                builder.setProposeeTieLevels(proposee, tieLevels(entry.getValue()));
+            }
+            Integer emptySetPosition = proposeeEmptySetPreferences.get(entry.getKey());
+            if (emptySetPosition != null) {
+                builder.setProposeeEmptySetPosition(proposee, emptySetPosition);
+            }
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * Tie levels of a list with its EmptySet entries left out, renumbered without gaps.
+     */
+    private static int[] tieLevels(PreferenceList<?> list) {
+        int[] levels = new int[list.size()];
+        int size = 0;
+        int previous = -1;
+        int level = -1;
+        for (int position = 0; position < list.size(); position++) {
+            if (list.getPreferredAt(position).isEmptySet()) {
+                continue;
+            }
+            if (list.getTieLevel(position) != previous) {
+                previous = list.getTieLevel(position);
+                level++;
+            }
+            levels[size++] = level;
+        }
+        return size == levels.length ? levels : Arrays.copyOf(levels, size);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("CompiledMarket[proposers=%d, proposees=%d]", proposers.length, proposees.length);
+    }
+    
+    /**
+     * Collects index-based preference rows. Rows handed to the builder are owned by the
+     * resulting market and must not be modified afterwards, unless the market is stored off
+     * heap, in which case they are copied into the scratch file straight away.
+     */
+    public static class Builder {
+        private static final int[] EMPTY_ROW = new int[0];
+        
+        private final Proposer[] proposers;
+        private final Proposee[] proposees;
+        private final Map<Proposer, Integer> proposerIndex;
+        private final Map<Proposee, Integer> proposeeIndex;
+        private final int[][] proposerPreferences;
+        private final int[][] proposeePreferences;
+        private final int[] proposerEmptySetPositions;
+        private final int[] proposeeEmptySetPositions;
+        private final int[][] proposerTieLevels;
+        private final int[][] proposeeTieLevels;
+        private boolean ties;
+        private boolean built;
+        private boolean offHeap;
+        private Path scratchDirectory;
+        private MappedMarketTable proposerTable;
+        private MappedMarketTable proposeeTable;
+        private MarketTable proposerRows;
+        private MarketTable proposeeRows;
+        private MarketTable proposerRanks;
+        private MarketTable proposeeRanks;
+        
+        private Builder(Proposer[] proposers, Proposee[] proposees) {
+            this.proposers = proposers;
+            this.proposees = proposees;
+            this.proposerIndex = indexAgents(proposers);
+            this.proposeeIndex = indexAgents(proposees);
+            this.proposerPreferences = new int[proposers.length][];
+            this.proposeePreferences = new int[proposees.length][];
+            this.proposerEmptySetPositions = new int[proposers.length];
+            this.proposeeEmptySetPositions = new int[proposees.length];
+            this.proposerTieLevels = new int[proposers.length][];
+            this.proposeeTieLevels = new int[proposees.length][];
+            Arrays.fill(proposerEmptySetPositions, NO_EMPTY_SET);
+            Arrays.fill(proposeeEmptySetPositions, NO_EMPTY_SET);
+        }
+        
+        public int indexOf(Proposer proposer) {
+            return CompiledMarket.indexOf(proposers, proposerIndex, proposer);
+        }
+        
+        public int indexOf(Proposee proposee) {
+            return CompiledMarket.indexOf(proposees, proposeeIndex, proposee);
+        }
+        
+        /**
+         * Keep the preference and rank tables in memory-mapped scratch files under the given
+         * directory. Must be called before any preferences are set.
+         */
+        public Builder storeOffHeap(Path directory) {
+            checkNotBuilt();
+            Objects.requireNonNull(directory, "Scratch directory cannot be null");
+            checkNoPreferences();
+            scratchDirectory = directory;
+            offHeap = true;
+            proposerTable = MappedMarketTable.create(directory, proposers.length, proposees.length);
+            proposeeTable = MappedMarketTable.create(directory, proposees.length, proposers.length);
+            return this;
+        }
+        
+        /**
+         * Use preference and rank tables that are already complete, as mapped by {@link MarketFile};
+         * only empty set positions may be set afterwards.
+         */
+        Builder useMappedTables(MarketTable proposerRows, MarketTable proposeeRows,
+                                MarketTable proposerRanks, MarketTable proposeeRanks) {
+            checkNotBuilt();
+            checkNoPreferences();
+            offHeap = true;
+            this.proposerRows = proposerRows;
+            this.proposeeRows = proposeeRows;
+            this.proposerRanks = proposerRanks;
+            this.proposeeRanks = proposeeRanks;
+            return this;
+        }
+        
+        public Builder setProposerPreferences(int proposer, int[] preferences) {
+            checkNotBuilt();
+            checkNotMapped();
+            checkRow(preferences, proposees.length);
+            if (proposerTable != null) {
+                proposerTable.setRow(proposer, preferences);
+            } else {
+                proposerPreferences[proposer] = preferences;
+            }
+            return this;
+        }
+        
+        public Builder setProposeePreferences(int proposee, int[] preferences) {
+            checkNotBuilt();
+            checkNotMapped();
+            checkRow(preferences, proposers.length);
+            if (proposeeTable != null) {
+                proposeeTable.setRow(proposee, preferences);
+            } else {
+                proposeePreferences[proposee] = preferences;
+            }
+            return this;
+        }
+        
+        /**
+         * Tie levels for the proposer's list, one per position, as described by
+         * {@link PreferenceList#checkTieLevels}. The array is owned by the market afterwards.
+         */
+        public Builder setProposerTieLevels(int proposer, int[] tieLevels) {
+            checkNotBuilt();
+            proposerTieLevels[proposer] = Objects.requireNonNull(tieLevels, "Tie levels cannot be null");
+            return this;
+        }
+        
+        public Builder setProposeeTieLevels(int proposee, int[] tieLevels) {
+            checkNotBuilt();
+            proposeeTieLevels[proposee] = Objects.requireNonNull(tieLevels, "Tie levels cannot be null");
+            return this;
+        }
+        
+        public Builder setProposerEmptySetPosition(int proposer, int position) {
+            checkNotBuilt();
+            proposerEmptySetPositions[proposer] = checkPosition(position);
+            return this;
+        }
+        
+        public Builder setProposeeEmptySetPosition(int proposee, int position) {
+            checkNotBuilt();
+            proposeeEmptySetPositions[proposee] = checkPosition(position);
+            return this;
+        }
+        
+        public CompiledMarket build() {
+            checkNotBuilt();
+            built = true;
+            if (proposerRows == null) {
+                proposerRows = proposerTable != null ? proposerTable : new ArrayMarketTable(fillMissing(proposerPreferences));
+                proposeeRows = proposeeTable != null ? proposeeTable : new ArrayMarketTable(fillMissing(proposeePreferences));
+            }
+            checkTieLevels(proposerTieLevels, proposerRows);
+            checkTieLevels(proposeeTieLevels, proposeeRows);
+            return new CompiledMarket(this);
+        }
+        
+        private void checkNotBuilt() {
+            if (built) {
+                throw new IllegalStateException("CompiledMarket has already been built");
+            }
+        }
+        
+        private void checkNoPreferences() {
+            for (int i = 0; i < proposers.length; i++) {
+                if (proposerPreferences[i] != null) {
+                    throw new IllegalStateException("Choose the table storage before setting preferences");
+                }
+            }
+            for (int j = 0; j < proposees.length; j++) {
+                if (proposeePreferences[j] != null) {
+                    throw new IllegalStateException("Choose the table storage before setting preferences");
+                }
+            }
+        }
+        
+        private void checkNotMapped() {
+            if (proposerRows != null) {
+                throw new IllegalStateException("Preferences of a mapped market cannot be changed");
+            }
+        }
+        
+        private static int[] checkRow(int[] row, int candidateCount) {
+            Objects.requireNonNull(row, "Preferences cannot be null");
+            for (int candidate : row) {
+                if (candidate < 0 || candidate >= candidateCount) {
+                    throw new IndexOutOfBoundsException("Candidate index " + candidate + " is out of bounds");
+                }
+            }
+            return row;
+        }
+        
+        private static int checkPosition(int position) {
+            if (position < 0) {
+                throw new IllegalArgumentException("Empty set position must not be negative");
+            }
+            return position;
+        }
+        
+        /**
+         * Validate tie levels against their rows and drop those that describe a strict order.
+         */
+        private void checkTieLevels(int[][] tieLevels, MarketTable rows) {
+            for (int i = 0; i < tieLevels.length; i++) {
+                int[] levels = tieLevels[i];
+                if (levels == null) {
+                    continue;
+                }
+                PreferenceList.checkTieLevels(levels, rows.getLength(i));
+                if (levels.length == 0 || levels[levels.length - 1] == levels.length - 1) {
+                    tieLevels[i] = null;
+                } else {
+                    ties = true;
+                }
+            }
+        }
+        
+        private static int[][] fillMissing(int[][] rows) {
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] == null) {
+                    rows[i] = EMPTY_ROW;
+                }
+            }
+            return rows;
+        }
+        
+        private static <T extends Agent> Map<T, Integer> indexAgents(T[] agents) {
+            Map<T, Integer> index = new HashMap<>(agents.length * 4 / 3 + 1);
+            for (int i = 0; i < agents.length; i++) {
+                if (agents[i].isEmptySet()) {
+                    throw new IllegalArgumentException("EmptySet cannot be a market participant");
+                }
+                if (index.put(agents[i], i) != null) {
+                    throw new IllegalArgumentException("Duplicate agent " + agents[i].getId());
+                }
+            }
+            return index;
+        }
+    }
+}
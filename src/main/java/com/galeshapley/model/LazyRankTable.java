@@ -0,0 +1,52 @@
+package com.galeshapley.model;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Inverse of a preference table, kept in a {@link MappedMarketTable} and filled one row at a
+ * time the first time that row is read, so agents that are never asked about stay unmapped.
+ * Entries are stored as rank + 1, which lets the file's zero pages mean "not ranked".
+ *
+ * Two threads may fill the same row at once; both write the same values, and the row is only
+ * marked ready after its entries are written.
+ */
+final class LazyRankTable implements MarketTable {
+    
+    private final MarketTable preferences;
+    private final MappedMarketTable ranks;
+    private final AtomicIntegerArray ready;
+    
+    LazyRankTable(MarketTable preferences, MappedMarketTable ranks) {
+        this.preferences = preferences;
+        this.ranks = ranks;
+        this.ready = new AtomicIntegerArray(preferences.getRowCount());
+    }
+    
+    @Override
+    public int getRowCount() {
+        return ranks.getRowCount();
+    }
+    
+    @Override
+    public int getLength(int row) {
+        return ranks.getWidth();
+    }
+    
+    @Override
+    public int get(int row, int candidate) {
+        if (ready.get(row) == 0) {
+            fill(row);
+        }
+        return ranks.get(row, candidate) - 1;
+    }
+    
+    private void fill(int row) {
+        for (int position = 0; position < preferences.getLength(row); position++) {
+            int candidate = preferences.get(row, position);
+            if (ranks.get(row, candidate) == 0) {
+                ranks.set(row, candidate, position + 1);
+            }
+        }
+        ready.set(row, 1);
+    }
+}
@@ -0,0 +1,121 @@
+package com.galeshapley.model;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Fixed-width rows of ints in a memory-mapped scratch file, for tables larger than the heap.
+ *
+ * The file is sparse and mapped in chunks of 2^28 ints, so only the pages holding entries that
+ * are written or read are ever faulted in, and the kernel can write dirty pages back to disk
+ * under memory pressure. Unwritten entries read as 0. Row lengths are kept on the heap.
+ *
+ * The file is deleted as soon as it is mapped; its space is released once the mappings are
+ * garbage collected. Writes to distinct entries may come from different threads.
+ */
+public final class MappedMarketTable implements MarketTable {
+    
+    private static final int CHUNK_SHIFT = 28;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    
+    private final int width;
+    private final int[] lengths;
+    private final IntBuffer[] chunks;
+    
+    private MappedMarketTable(int width, int[] lengths, IntBuffer[] chunks) {
+        this.width = width;
+        this.lengths = lengths;
+        this.chunks = chunks;
+    }
+    
+    /**
+     * Map a table of {@code rows} rows holding up to {@code width} entries each in a new
+     * scratch file under {@code directory}.
+     */
+    public static MappedMarketTable create(Path directory, int rows, int width) {
+        if (rows < 0 || width < 0) {
+            throw new IllegalArgumentException("Table dimensions must not be negative");
+        }
+        long entries = (long) rows * width;
+        IntBuffer[] chunks = new IntBuffer[(int) ((entries + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        try {
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "market-", ".tbl");
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                raf.setLength(entries * Integer.BYTES);
+                FileChannel channel = raf.getChannel();
+                for (int chunk = 0; chunk < chunks.length; chunk++) {
+                    long first = (long) chunk << CHUNK_SHIFT;
+                    long count = Math.min(entries - first, 1L << CHUNK_SHIFT);
+                    chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, first * Integer.BYTES, count * Integer.BYTES)
+                        .order(ByteOrder.nativeOrder())
+                        .asIntBuffer();
+                }
+            } finally {
+                try {
+                    Files.delete(file);
+                } catch (IOException e) {
+                    // Some platforms refuse to delete a mapped file
+                    file.toFile().deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map a scratch table in " + directory, e);
+        }
+        return new MappedMarketTable(width, new int[rows], chunks);
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return lengths.length;
+    }
+    
+    @Override
+    public int getLength(int row) {
+        return lengths[row];
+    }
+    
+    @Override
+    public int get(int row, int position) {
+        long entry = (long) row * width + position;
+        return chunks[(int) (entry >>> CHUNK_SHIFT)].get((int) (entry & CHUNK_MASK));
+    }
+    
+    public void set(int row, int position, int value) {
+        long entry = (long) row * width + position;
+        chunks[(int) (entry >>> CHUNK_SHIFT)].put((int) (entry & CHUNK_MASK), value);
+    }
+    
+    /**
+     * Write a whole row and record its length.
+     */
+    public void setRow(int row, int[] values) {
+        if (values.length > width) {
+            throw new IllegalArgumentException("Row of " + values.length + " entries does not fit in width " + width);
+        }
+        for (int position = 0; position < values.length; position++) {
+            set(row, position, values[position]);
+        }
+        lengths[row] = values.length;
+    }
+    
+    /**
+     * Record the length of a row whose entries were written with {@link #set}.
+     */
+    public void setLength(int row, int length) {
+        if (length < 0 || length > width) {
+            throw new IllegalArgumentException("Row length " + length + " does not fit in width " + width);
+        }
+        lengths[row] = length;
+    }
+}
@@ -0,0 +1,173 @@
+package com.galeshapley.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Compact binary form of a {@link CompiledMarket}'s preference and rank tables, which can be
+ * memory-mapped back without recomputing either.
+ *
+ * All values are little-endian. After a header of magic number, format version and the two
+ * side sizes come the empty set positions of both sides and the row offsets of both preference
+ * tables, which are read onto the heap; then the packed preference rows and the two dense rank
+ * tables, which stay mapped. Agents themselves are not stored: whoever maps a file supplies
+ * them in the order they had when it was written. Markets with ties are not supported.
+ */
+public final class MarketFile {
+    
+    private static final int MAGIC = 0x434D5347;
+    private static final int VERSION = 1;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private MarketFile() {
+    }
+    
+    public static void write(CompiledMarket market, Path file) throws IOException {
+        if (market.hasTies()) {
+            throw new IllegalArgumentException("Markets with ties cannot be written to a market file");
+        }
+        int proposerCount = market.getProposerCount();
+        int proposeeCount = market.getProposeeCount();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ORDER);
+            putInt(channel, buffer, MAGIC);
+            putInt(channel, buffer, VERSION);
+            putInt(channel, buffer, proposerCount);
+            putInt(channel, buffer, proposeeCount);
+            for (int i = 0; i < proposerCount; i++) {
+                putInt(channel, buffer, market.getProposerEmptySetPosition(i));
+            }
+            for (int j = 0; j < proposeeCount; j++) {
+                putInt(channel, buffer, market.getProposeeEmptySetPosition(j));
+            }
+            long offset = 0;
+            putLong(channel, buffer, offset);
+            for (int i = 0; i < proposerCount; i++) {
+                offset += market.getProposerPreferenceCount(i);
+                putLong(channel, buffer, offset);
+            }
+            offset = 0;
+            putLong(channel, buffer, offset);
+            for (int j = 0; j < proposeeCount; j++) {
+                offset += market.getProposeePreferenceCount(j);
+                putLong(channel, buffer, offset);
+            }
+            
+            for (int i = 0; i < proposerCount; i++) {
+                for (int position = 0; position < market.getProposerPreferenceCount(i); position++) {
+                    putInt(channel, buffer, market.getProposerPreference(i, position));
+                }
+            }
+            for (int j = 0; j < proposeeCount; j++) {
+                for (int position = 0; position < market.getProposeePreferenceCount(j); position++) {
+                    putInt(channel, buffer, market.getProposeePreference(j, position));
+                }
+            }
+            for (int i = 0; i < proposerCount; i++) {
+                for (int j = 0; j < proposeeCount; j++) {
+                    putInt(channel, buffer, market.getProposerRank(i, j));
+                }
+            }
+            for (int j = 0; j < proposeeCount; j++) {
+                for (int i = 0; i < proposerCount; i++) {
+                    putInt(channel, buffer, market.getProposeeRank(j, i));
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+    
+    /**
+     * Map a market file written by {@link #write} for the given agents, in the same order.
+     *
+     * @throws IOException if the file cannot be read or does not hold a market of this shape
+     */
+    public static CompiledMarket map(Path file, Collection<Proposer> proposers, Collection<Proposee> proposees)
+            throws IOException {
+        int proposerCount = proposers.size();
+        int proposeeCount = proposees.size();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long headerBytes = 4L * Integer.BYTES + (long) (proposerCount + proposeeCount) * Integer.BYTES
+                + (long) (proposerCount + proposeeCount + 2) * Long.BYTES;
+            if (channel.size() < headerBytes) {
+                throw new IOException(file + " is not a market file for this market");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, headerBytes).order(ORDER);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != proposerCount || header.getInt() != proposeeCount) {
+                throw new IOException(file + " is not a market file for this market");
+            }
+            int[] proposerEmptySets = new int[proposerCount];
+            int[] proposeeEmptySets = new int[proposeeCount];
+            IntBuffer ints = header.asIntBuffer();
+            ints.get(proposerEmptySets).get(proposeeEmptySets);
+            header.position(header.position() + (proposerCount + proposeeCount) * Integer.BYTES);
+            long[] proposerOffsets = new long[proposerCount + 1];
+            long[] proposeeOffsets = new long[proposeeCount + 1];
+            LongBuffer longs = header.asLongBuffer();
+            longs.get(proposerOffsets).get(proposeeOffsets);
+            
+            long position = headerBytes;
+            long preferenceBytes = (proposerOffsets[proposerCount] + proposeeOffsets[proposeeCount]) * Integer.BYTES;
+            long rankBytes = 2L * proposerCount * proposeeCount * Integer.BYTES;
+            if (channel.size() != position + preferenceBytes + rankBytes) {
+                throw new IOException(file + " is truncated");
+            }
+            MarketTable proposerRows = PackedMarketTable.map(channel, position, proposerOffsets, ORDER);
+            position += proposerOffsets[proposerCount] * Integer.BYTES;
+            MarketTable proposeeRows = PackedMarketTable.map(channel, position, proposeeOffsets, ORDER);
+            position += proposeeOffsets[proposeeCount] * Integer.BYTES;
+            MarketTable proposerRanks = PackedMarketTable.map(channel, position,
+                PackedMarketTable.fixedWidth(proposerCount, proposeeCount), ORDER);
+            position += (long) proposerCount * proposeeCount * Integer.BYTES;
+            MarketTable proposeeRanks = PackedMarketTable.map(channel, position,
+                PackedMarketTable.fixedWidth(proposeeCount, proposerCount), ORDER);
+            
+            CompiledMarket.Builder builder = CompiledMarket.builder(proposers, proposees)
+                .useMappedTables(proposerRows, proposeeRows, proposerRanks, proposeeRanks);
+            for (int i = 0; i < proposerCount; i++) {
+                if (proposerEmptySets[i] != CompiledMarket.NO_EMPTY_SET) {
+                    builder.setProposerEmptySetPosition(i, proposerEmptySets[i]);
+                }
+            }
+            for (int j = 0; j < proposeeCount; j++) {
+                if (proposeeEmptySets[j] != CompiledMarket.NO_EMPTY_SET) {
+                    builder.setProposeeEmptySetPosition(j, proposeeEmptySets[j]);
+                }
+            }
+            return builder.build();
+        }
+    }
+    
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            drain(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+    
+    private static void putLong(FileChannel channel, ByteBuffer buffer, long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            drain(channel, buffer);
+        }
+        buffer.putLong(value);
+    }
+    
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
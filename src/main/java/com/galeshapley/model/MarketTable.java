@@ -0,0 +1,15 @@
+package com.galeshapley.model;
+
+/**
+ * Read access to one side's preference or rank rows, wherever they are stored.
+ * {@link CompiledMarket} reads its tables only through this interface, so rows can live on the
+ * heap or in a memory-mapped scratch file ({@link MappedMarketTable}).
+ */
+public interface MarketTable {
+    
+    int getRowCount();
+    
+    int getLength(int row);
+    
+    int get(int row, int position);
+}
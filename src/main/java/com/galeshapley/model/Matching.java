@@ -23,35 +23,49 @@ public class Matching {
         unmatchedProposees.add(proposee);
     }
 
+    /**
+     * Matches the proposer with the proposee, releasing any previous partners. Matching with
+     * the {@link EmptySet} means choosing to be single; any number of proposers may do so.
+     */
     public void match(Proposer proposer, Proposee proposee) {
         Proposee previousProposeeMatch = proposerToProposee.get(proposer);
-        if (previousProposeeMatch != null) {
+        if (previousProposeeMatch != null && !previousProposeeMatch.isEmptySet()) {
             proposeeToProposer.remove(previousProposeeMatch);
             unmatchedProposees.add(previousProposeeMatch);
         }
 
+        proposerToProposee.put(proposer, proposee);
+        unmatchedProposers.remove(proposer);
+
+        if (proposee.isEmptySet()) {
+            return;
+        }
+
         Proposer previousProposerMatch = proposeeToProposer.get(proposee);
-        if (previousProposerMatch != null) {
+        if (previousProposerMatch != null && !previousProposerMatch.equals(proposer)) {
             proposerToProposee.remove(previousProposerMatch);
             unmatchedProposers.add(previousProposerMatch);
         }
 
-        proposerToProposee.put(proposer, proposee);
         proposeeToProposer.put(proposee, proposer);
-        unmatchedProposers.remove(proposer);
         unmatchedProposees.remove(proposee);
     }
 
     public void unmatch(Proposer proposer, Proposee proposee) {
         if (isMatched(proposer, proposee)) {
             proposerToProposee.remove(proposer);
-            proposeeToProposer.remove(proposee);
             unmatchedProposers.add(proposer);
-            unmatchedProposees.add(proposee);
+            if (!proposee.isEmptySet()) {
+                proposeeToProposer.remove(proposee);
+                unmatchedProposees.add(proposee);
+            }
         }
     }
 
     public boolean isMatched(Proposer proposer, Proposee proposee) {
+        if (proposee.isEmptySet()) {
+            return proposee.equals(proposerToProposee.get(proposer));
+        }
         return proposee.equals(proposerToProposee.get(proposer)) &&
                proposer.equals(proposeeToProposer.get(proposee));
     }
@@ -0,0 +1,71 @@
+package com.galeshapley.model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only rows of ints packed back to back in a region of a mapped file, located by row
+ * offsets kept on the heap. Like {@link MappedMarketTable} the region is mapped in chunks of
+ * 2^28 ints, so rows may be of any length and the file of any size.
+ */
+final class PackedMarketTable implements MarketTable {
+    
+    private static final int CHUNK_SHIFT = 28;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    
+    private final long[] offsets;
+    private final IntBuffer[] chunks;
+    
+    private PackedMarketTable(long[] offsets, IntBuffer[] chunks) {
+        this.offsets = offsets;
+        this.chunks = chunks;
+    }
+    
+    /**
+     * Map the rows described by {@code offsets}, in ints from {@code position}, where row i
+     * spans entries offsets[i] to offsets[i + 1].
+     */
+    static PackedMarketTable map(FileChannel channel, long position, long[] offsets, ByteOrder order)
+            throws IOException {
+        long entries = offsets[offsets.length - 1];
+        IntBuffer[] chunks = new IntBuffer[(int) ((entries + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            long first = (long) chunk << CHUNK_SHIFT;
+            long count = Math.min(entries - first, 1L << CHUNK_SHIFT);
+            chunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, position + first * Integer.BYTES,
+                                        count * Integer.BYTES)
+                .order(order)
+                .asIntBuffer();
+        }
+        return new PackedMarketTable(offsets, chunks);
+    }
+    
+    /**
+     * Offsets of {@code rows} rows of {@code width} entries each.
+     */
+    static long[] fixedWidth(int rows, int width) {
+        long[] offsets = new long[rows + 1];
+        for (int row = 1; row <= rows; row++) {
+            offsets[row] = (long) row * width;
+        }
+        return offsets;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return offsets.length - 1;
+    }
+    
+    @Override
+    public int getLength(int row) {
+        return (int) (offsets[row + 1] - offsets[row]);
+    }
+    
+    @Override
+    public int get(int row, int position) {
+        long entry = offsets[row] + position;
+        return chunks[(int) (entry >>> CHUNK_SHIFT)].get((int) (entry & CHUNK_MASK));
+    }
+}
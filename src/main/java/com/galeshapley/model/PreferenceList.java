@@ -1,36 +1,98 @@
 package com.galeshapley.model;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 
+/**
+ * An agent's ranking of the other side. Consecutive entries may be tied: each entry then has a
+ * tie level, the number of strictly better groups ahead of it, and {@link #getRank} returns that
+ * level. Without ties the level is simply the position.
+ *
+ * Lists built from agents keep them in a list with a rank map. Lists built with
+ * {@link #indexed} instead store indices into a shared candidate array, as {@code char}s when
+ * they fit in 16 bits and as {@code int}s otherwise, with an inverse rank array of the same
+ * width; that is 4 or 8 bytes per candidate instead of 60-80 bytes per entry.
+ */
 public class PreferenceList<T extends Agent> {
     private final Agent owner;
-    private final List<T> preferences;
-    private final Map<T, Integer> rankMap;
+    private final Storage<T> storage;
+    private final List<T> view;
+    private final int[] tieLevels;
 
     public PreferenceList(Agent owner, List<T> preferences) {
+        this(owner, preferences, null);
+    }
+
+    /**
+     * @param tieLevels each entry's tie level, starting at 0 and growing by at most one per
+     *                  entry, or {@code null} for a strict order
+     */
+    public PreferenceList(Agent owner, List<T> preferences, int[] tieLevels) {
+        this(owner, new ListStorage<>(Objects.requireNonNull(preferences, "Preferences cannot be null")), tieLevels);
+    }
+
+    private PreferenceList(Agent owner, Storage<T> storage, int[] tieLevels) {
         this.owner = Objects.requireNonNull(owner, "Owner cannot be null");
-        this.preferences = new ArrayList<>(Objects.requireNonNull(preferences, "Preferences cannot be null"));
-        this.rankMap = new HashMap<>();
-        
-        for (int i = 0; i < preferences.size(); i++) {
-            rankMap.put(preferences.get(i), i);
+        this.storage = storage;
+        this.tieLevels = tieLevels == null ? null : checkTieLevels(tieLevels.clone(), storage.size());
+        this.view = new StorageView<>(storage);
+    }
+
+    /**
+     * A compact list over a candidate array shared by many lists.
+     *
+     * @param candidates every agent that may be ranked; not copied, so it must not change
+     * @param indexOf    maps an agent to its index in {@code candidates}, or -1 if it is not there
+     * @param row        candidate indices from most to least preferred
+     * @param tieLevels  each entry's tie level, or {@code null} for a strict order
+     */
+    public static <T extends Agent> PreferenceList<T> indexed(Agent owner, T[] candidates,
+                                                               ToIntFunction<? super T> indexOf,
+                                                               int[] row, int[] tieLevels) {
+        Objects.requireNonNull(candidates, "Candidates cannot be null");
+        Objects.requireNonNull(indexOf, "Index lookup cannot be null");
+        Objects.requireNonNull(row, "Preferences cannot be null");
+        Storage<T> storage = candidates.length < NarrowStorage.ABSENT
+            ? new NarrowStorage<>(candidates, indexOf, row)
+            : new WideStorage<>(candidates, indexOf, row);
+        return new PreferenceList<>(owner, storage, tieLevels);
+    }
+
+    /**
+     * Check that tie levels start at 0 and never skip a level or go back.
+     */
+    public static int[] checkTieLevels(int[] tieLevels, int size) {
+        if (tieLevels.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " tie levels but got " + tieLevels.length);
+        }
+        for (int i = 0; i < tieLevels.length; i++) {
+            int previous = i == 0 ? 0 : tieLevels[i - 1];
+            int step = tieLevels[i] - previous;
+            if (step < 0 || step > 1 || (i == 0 && tieLevels[0] != 0)) {
+                throw new IllegalArgumentException("Tie levels must start at 0 and increase by at most 1, got "
+                    + Arrays.toString(tieLevels));
+            }
         }
+        return tieLevels;
     }
 
     public Agent getOwner() {
         return owner;
     }
 
+    /**
+     * @return a read-only view of the list, shared between calls
+     */
     public List<T> getPreferences() {
-        return Collections.unmodifiableList(preferences);
+        return view;
     }
 
     public int getRank(T agent) {
-        Integer rank = rankMap.get(agent);
-        if (rank == null) {
+        int position = storage.positionOf(agent);
+        if (position < 0) {
             throw new IllegalArgumentException("Agent " + agent + " is not in preference list");
         }
-        return rank;
+        return tieLevels == null ? position : tieLevels[position];
     }
 
     public boolean prefers(T agent1, T agent2) {
@@ -38,23 +100,210 @@ public class PreferenceList<T extends Agent> {
     }
 
     public T getPreferredAt(int index) {
-        if (index < 0 || index >= preferences.size()) {
+        if (index < 0 || index >= storage.size()) {
             throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
         }
-        return preferences.get(index);
+        return storage.get(index);
     }
 
     public int size() {
-        return preferences.size();
+        return storage.size();
     }
 
     public boolean contains(T agent) {
-        return rankMap.containsKey(agent);
+        return storage.positionOf(agent) >= 0;
+    }
+
+    public boolean hasTies() {
+        return tieLevels != null && tieLevels.length > 0 && tieLevels[tieLevels.length - 1] < tieLevels.length - 1;
+    }
+
+    /**
+     * @return the tie level of the entry at the given position
+     */
+    public int getTieLevel(int index) {
+        if (index < 0 || index >= storage.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+        }
+        return tieLevels == null ? index : tieLevels[index];
+    }
+
+    /**
+     * @return true if the owner is indifferent between the two agents
+     */
+    public boolean isTied(T agent1, T agent2) {
+        return getRank(agent1) == getRank(agent2);
     }
 
     @Override
     public String toString() {
         return String.format("PreferenceList[owner=%s, preferences=%s]", 
-            owner.getName(), preferences);
+            owner.getName(), view);
+    }
+
+    /**
+     * Where the entries live: {@link #positionOf} returns an entry's position, or -1.
+     */
+    private interface Storage<T> {
+        int size();
+
+        T get(int position);
+
+        int positionOf(T agent);
+    }
+
+    private static final class ListStorage<T> implements Storage<T> {
+        private final List<T> preferences;
+        private final Map<T, Integer> positions;
+
+        private ListStorage(List<T> preferences) {
+            this.preferences = new ArrayList<>(preferences);
+            this.positions = new HashMap<>();
+            for (int i = 0; i < preferences.size(); i++) {
+                positions.put(preferences.get(i), i);
+            }
+        }
+
+        @Override
+        public int size() {
+            return preferences.size();
+        }
+
+        @Override
+        public T get(int position) {
+            return preferences.get(position);
+        }
+
+        @Override
+        public int positionOf(T agent) {
+            Integer position = positions.get(agent);
+            return position != null ? position : -1;
+        }
+    }
+
+    private abstract static class IndexedStorage<T extends Agent> implements Storage<T> {
+        private final T[] candidates;
+        private final ToIntFunction<? super T> indexOf;
+
+        IndexedStorage(T[] candidates, ToIntFunction<? super T> indexOf) {
+            this.candidates = candidates;
+            this.indexOf = indexOf;
+        }
+
+        abstract int indexAt(int position);
+
+        abstract int positionOfIndex(int index);
+
+        @Override
+        public T get(int position) {
+            return candidates[indexAt(position)];
+        }
+
+        @Override
+        public int positionOf(T agent) {
+            int index = agent == null ? -1 : indexOf.applyAsInt(agent);
+            return index < 0 || index >= candidates.length ? -1 : positionOfIndex(index);
+        }
+
+        void checkIndex(int index, boolean seen) {
+            if (index < 0 || index >= candidates.length) {
+                throw new IndexOutOfBoundsException("Candidate index " + index + " is out of bounds");
+            }
+            if (seen) {
+                throw new IllegalArgumentException("Candidate " + candidates[index].getId() + " is ranked more than once");
+            }
+        }
+    }
+
+    /**
+     * Indices and inverse ranks as unsigned 16-bit values, for fewer than 65536 candidates.
+     */
+    private static final class NarrowStorage<T extends Agent> extends IndexedStorage<T> {
+        static final char ABSENT = Character.MAX_VALUE;
+
+        private final char[] row;
+        private final char[] positions;
+
+        NarrowStorage(T[] candidates, ToIntFunction<? super T> indexOf, int[] row) {
+            super(candidates, indexOf);
+            this.row = new char[row.length];
+            this.positions = new char[candidates.length];
+            Arrays.fill(positions, ABSENT);
+            for (int position = 0; position < row.length; position++) {
+                int index = row[position];
+                checkIndex(index, index >= 0 && index < positions.length && positions[index] != ABSENT);
+                this.row[position] = (char) index;
+                positions[index] = (char) position;
+            }
+        }
+
+        @Override
+        public int size() {
+            return row.length;
+        }
+
+        @Override
+        int indexAt(int position) {
+            return row[position];
+        }
+
+        @Override
+        int positionOfIndex(int index) {
+            char position = positions[index];
+            return position == ABSENT ? -1 : position;
+        }
+    }
+
+    private static final class WideStorage<T extends Agent> extends IndexedStorage<T> {
+        private final int[] row;
+        private final int[] positions;
+
+        WideStorage(T[] candidates, ToIntFunction<? super T> indexOf, int[] row) {
+            super(candidates, indexOf);
+            this.row = row.clone();
+            this.positions = new int[candidates.length];
+            Arrays.fill(positions, -1);
+            for (int position = 0; position < row.length; position++) {
+                int index = row[position];
+                checkIndex(index, index >= 0 && index < positions.length && positions[index] >= 0);
+                positions[index] = position;
+            }
+        }
+
+        @Override
+        public int size() {
+            return row.length;
+        }
+
+        @Override
+        int indexAt(int position) {
+            return row[position];
+        }
+
+        @Override
+        int positionOfIndex(int index) {
+            return positions[index];
+        }
+    }
+
+    private static final class StorageView<T> extends AbstractList<T> implements RandomAccess {
+        private final Storage<T> storage;
+
+        private StorageView(Storage<T> storage) {
+            this.storage = storage;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= storage.size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+            }
+            return storage.get(index);
+        }
+
+        @Override
+        public int size() {
+            return storage.size();
+        }
     }
 }
\ No newline at end of file
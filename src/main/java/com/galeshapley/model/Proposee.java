@@ -10,6 +10,10 @@ public class Proposee extends Agent {
         super(id, name, isEmptySet);
     }
     
+    Proposee(String id, String name, int ordinal) {
+        super(id, name, false, ordinal);
+    }
+    
     public static Proposee create(String id, String name) {
         return new Proposee(id, name);
     }
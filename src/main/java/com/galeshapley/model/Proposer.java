@@ -6,6 +6,10 @@ public class Proposer extends Agent {
         super(id, name);
     }
     
+    Proposer(String id, String name, int ordinal) {
+        super(id, name, false, ordinal);
+    }
+    
     public static Proposer create(String id, String name) {
         return new Proposer(id, name);
     }
@@ -0,0 +1,11 @@
+package com.galeshapley.model;
+
+/**
+ * An agent in a one-sided market, where anyone can be paired with anyone else.
+ */
+public class Roommate extends Agent {
+    
+    public Roommate(String id, String name) {
+        super(id, name);
+    }
+}
@@ -0,0 +1,146 @@
+package com.galeshapley.model;
+
+import java.util.*;
+
+/**
+ * Immutable, index-based representation of a one-sided (stable roommates) market.
+ *
+ * Every preference list is an {@code int[]} of indices into the same agent set and holds only
+ * the agents its owner finds acceptable; anything after an empty set position has already been
+ * cut off when the market is built. A pair is acceptable only if each lists the other.
+ */
+public final class RoommatesMarket {
+    public static final int NOT_RANKED = -1;
+    
+    private final Roommate[] agents;
+    private final Map<Roommate, Integer> index;
+    private final int[][] preferences;
+    private final int[][] ranks;
+    
+    private RoommatesMarket(Builder builder) {
+        this.agents = builder.agents;
+        this.index = builder.index;
+        this.preferences = builder.preferences;
+        this.ranks = new int[agents.length][];
+        for (int agent = 0; agent < agents.length; agent++) {
+            int[] rankRow = new int[agents.length];
+            Arrays.fill(rankRow, NOT_RANKED);
+            for (int position = 0; position < preferences[agent].length; position++) {
+                rankRow[preferences[agent][position]] = position;
+            }
+            ranks[agent] = rankRow;
+        }
+    }
+    
+    public int getAgentCount() {
+        return agents.length;
+    }
+    
+    public Roommate getAgent(int index) {
+        return agents[index];
+    }
+    
+    /**
+     * @return the dense index of the agent, or -1 if it is not part of this market
+     */
+    public int indexOf(Roommate agent) {
+        Integer i = index.get(agent);
+        return i != null ? i : -1;
+    }
+    
+    public int getPreferenceCount(int agent) {
+        return preferences[agent].length;
+    }
+    
+    /**
+     * @return index of the agent at the given position of the owner's list
+     */
+    public int getPreference(int agent, int position) {
+        return preferences[agent][position];
+    }
+    
+    /**
+     * @return the position of {@code other} in the agent's list, or {@link #NOT_RANKED}
+     */
+    public int getRank(int agent, int other) {
+        return ranks[agent][other];
+    }
+    
+    public boolean isAcceptable(int agent, int other) {
+        return ranks[agent][other] != NOT_RANKED && ranks[other][agent] != NOT_RANKED;
+    }
+    
+    public static Builder builder(Collection<Roommate> agents) {
+        return new Builder(agents.toArray(new Roommate[0]));
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("RoommatesMarket[agents=%d]", agents.length);
+    }
+    
+    /**
+     * Collects index-based preference rows. Rows handed to the builder are owned by the
+     * resulting market and must not be modified afterwards.
+     */
+    public static class Builder {
+        private static final int[] EMPTY_ROW = new int[0];
+        
+        private final Roommate[] agents;
+        private final Map<Roommate, Integer> index;
+        private final int[][] preferences;
+        private boolean built;
+        
+        private Builder(Roommate[] agents) {
+            this.agents = agents;
+            this.index = new HashMap<>(agents.length * 4 / 3 + 1);
+            for (int i = 0; i < agents.length; i++) {
+                if (index.put(agents[i], i) != null) {
+                    throw new IllegalArgumentException("Duplicate agent " + agents[i].getId());
+                }
+            }
+            this.preferences = new int[agents.length][];
+        }
+        
+        public int indexOf(Roommate agent) {
+            Integer i = index.get(agent);
+            return i != null ? i : -1;
+        }
+        
+        public Builder setPreferences(int agent, int[] row) {
+            if (built) {
+                throw new IllegalStateException("RoommatesMarket has already been built");
+            }
+            Objects.requireNonNull(row, "Preferences cannot be null");
+            BitSet seen = new BitSet(agents.length);
+            for (int other : row) {
+                if (other < 0 || other >= agents.length) {
+                    throw new IndexOutOfBoundsException("Agent index " + other + " is out of bounds");
+                }
+                if (other == agent) {
+                    throw new IllegalArgumentException("Agent " + agents[agent].getId() + " cannot rank itself");
+                }
+                if (seen.get(other)) {
+                    throw new IllegalArgumentException("Agent " + agents[agent].getId()
+                        + " ranks " + agents[other].getId() + " more than once");
+                }
+                seen.set(other);
+            }
+            preferences[agent] = row;
+            return this;
+        }
+        
+        public RoommatesMarket build() {
+            if (built) {
+                throw new IllegalStateException("RoommatesMarket has already been built");
+            }
+            built = true;
+            for (int i = 0; i < preferences.length; i++) {
+                if (preferences[i] == null) {
+                    preferences[i] = EMPTY_ROW;
+                }
+            }
+            return new RoommatesMarket(this);
+        }
+    }
+}
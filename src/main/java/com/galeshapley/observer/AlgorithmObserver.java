@@ -17,6 +17,11 @@ public interface AlgorithmObserver {
     
     void onBrokenEngagement(Proposer brokenUpWith, Proposee proposee, Proposer newProposer);
     
+    /**
+     * Called after every round. The engine keeps its state in index arrays and does not build a
+     * {@link Matching} per round, so {@code currentMatching} is always empty; use a
+     * {@link ConvergenceRecorder} for per-round matched, free, proposal and displacement counts.
+     */
     void onIterationEnd(int iteration, Matching currentMatching);
     
     void onAlgorithmComplete(Matching finalMatching, int totalIterations);
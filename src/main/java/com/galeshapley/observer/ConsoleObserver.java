@@ -6,6 +6,7 @@ import java.util.Set;
 public class ConsoleObserver implements AlgorithmObserver {
     
     private boolean verbose;
+    private boolean printFinalMatching = true;
     
     public ConsoleObserver() {
         this(false);
@@ -15,6 +16,13 @@ public class ConsoleObserver implements AlgorithmObserver {
         this.verbose = verbose;
     }
     
+    /**
+     * Turn off the agent-by-agent listing at the end, e.g. when the matching is exported to a file instead.
+     */
+    public void setPrintFinalMatching(boolean printFinalMatching) {
+        this.printFinalMatching = printFinalMatching;
+    }
+    
     @Override
     public void onAlgorithmStart(Set<Proposer> proposers, Set<Proposee> proposees) {
         System.out.println("=== Gale-Shapley Algorithm Started ===");
@@ -70,6 +78,19 @@ public class ConsoleObserver implements AlgorithmObserver {
     public void onAlgorithmComplete(Matching finalMatching, int totalIterations) {
         System.out.println("\n=== Algorithm Complete ===");
         System.out.println("Total iterations: " + totalIterations);
+        if (!printFinalMatching) {
+            System.out.println("Matched or single proposers: " + finalMatching.getMatchCount()
+                + ", unmatched proposers: " + finalMatching.getUnmatchedProposers().size()
+                + ", unmatched proposees: " + finalMatching.getUnmatchedProposees().size());
+            return;
+        }
+        printMatching(finalMatching);
+    }
+    
+    /**
+     * Print a matching agent by agent, followed by anyone left unmatched.
+     */
+    public static void printMatching(Matching finalMatching) {
         System.out.println("\nFinal Matching:");
         finalMatching.getAllMatches().forEach((proposer, proposee) -> {
             if (proposee instanceof EmptySet) {
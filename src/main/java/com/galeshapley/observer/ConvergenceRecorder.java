@@ -0,0 +1,236 @@
+package com.galeshapley.observer;
+
+import com.galeshapley.export.ResultFormat;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Convergence time series of a Gale-Shapley run, kept in primitive columns.
+ *
+ * A row closes at the end of the first round that brings it to {@code proposalsPerRow}
+ * proposals, so the early rounds, where nearly all proposals are made, get a row each while the
+ * long tail of nearly converged rounds is summed up; recording then costs the same small share
+ * of the run at any market size. Each row holds its last round, the proposees matched and the
+ * proposers still free at the end of that round, and the proposals and displacements (broken
+ * engagements) made since the previous row. Once {@code maxRows} rows are held, neighbouring
+ * rows are merged in pairs and the proposals per row double, so runs with millions of rounds
+ * stay within a fixed footprint while proposal and displacement totals stay exact. The last round
+ * is always kept.
+ *
+ * The algorithm passes running totals and only has to {@link #record} a round once the proposals
+ * reach {@link #getNextProposals()}; nothing is allocated per round.
+ *
+ * Traces are written as CSV ({@code round,matched,free,proposals,displacements}) or as
+ * big-endian binary: int magic {@link #BINARY_MAGIC}, int version, int row count, then per row
+ * int round, int matched, int free, long proposals, long displacements.
+ */
+public class ConvergenceRecorder {
+    
+    public static final int BINARY_MAGIC = 0x47534356; // "GSCV"
+    public static final int BINARY_VERSION = 1;
+    public static final int DEFAULT_MAX_ROWS = 1 << 16;
+    public static final int DEFAULT_PROPOSALS_PER_ROW = 256;
+    
+    static final String[] CSV_COLUMNS = {"round", "matched", "free", "proposals", "displacements"};
+    
+    private static final int INITIAL_CAPACITY = 64;
+    
+    // One row per ROW_WIDTH slots: round, matched << 32 | free, proposals, displacements
+    private static final int ROW_WIDTH = 4;
+    
+    private final int maxRows;
+    private long proposalsPerRow;
+    private long[] rows;
+    private int size;
+    
+    private int lastRowRound;
+    private long nextProposals;
+    private long rowStartProposals;
+    private long rowStartDisplacements;
+    
+    public ConvergenceRecorder() {
+        this(DEFAULT_MAX_ROWS, DEFAULT_PROPOSALS_PER_ROW);
+    }
+    
+    /**
+     * @param maxRows rows held before pairs are merged; must be even and at least 2
+     * @param proposalsPerRow proposals a row covers before it closes; 1 keeps a row per round
+     */
+    public ConvergenceRecorder(int maxRows, int proposalsPerRow) {
+        if (maxRows < 2 || maxRows % 2 != 0) {
+            throw new IllegalArgumentException("Max rows must be an even number of at least 2");
+        }
+        if (proposalsPerRow < 1) {
+            throw new IllegalArgumentException("Proposals per row must be at least 1");
+        }
+        this.maxRows = maxRows;
+        this.proposalsPerRow = proposalsPerRow;
+        nextProposals = proposalsPerRow;
+        rows = new long[Math.min(INITIAL_CAPACITY, maxRows) * ROW_WIDTH];
+    }
+    
+    /**
+     * The proposal total that closes the row in progress. Only a round reaching it has to be
+     * {@link #record recorded}; the caller can skip the ones before it.
+     */
+    public long getNextProposals() {
+        return nextProposals;
+    }
+    
+    /**
+     * Record the end of a round, with the proposals and displacements made since the start of
+     * the run. Rounds are reported in order; any short of {@link #getNextProposals()} are ignored.
+     */
+    public void record(int round, int matchedCount, int freeCount, long totalProposals, long totalDisplacements) {
+        if (totalProposals < nextProposals) {
+            return;
+        }
+        if (size == maxRows) {
+            mergePairs();
+            // The proposals since the last row now count towards the doubled row size
+            nextProposals = rowStartProposals + proposalsPerRow;
+            if (totalProposals < nextProposals) {
+                return;
+            }
+        }
+        append(round, matchedCount, freeCount, totalProposals, totalDisplacements);
+    }
+    
+    /**
+     * Close the row in progress, if any, so the series ends with the final round.
+     */
+    public void complete(int round, int matchedCount, int freeCount, long totalProposals, long totalDisplacements) {
+        if (round > lastRowRound) {
+            if (size == maxRows) {
+                mergePairs();
+            }
+            append(round, matchedCount, freeCount, totalProposals, totalDisplacements);
+        }
+    }
+    
+    private void append(int round, int matchedCount, int freeCount, long totalProposals, long totalDisplacements) {
+        int slot = size * ROW_WIDTH;
+        if (slot == rows.length) {
+            rows = Arrays.copyOf(rows, Math.min(maxRows, size * 2) * ROW_WIDTH);
+        }
+        rows[slot] = round;
+        rows[slot + 1] = (long) matchedCount << 32 | (freeCount & 0xFFFFFFFFL);
+        rows[slot + 2] = totalProposals - rowStartProposals;
+        rows[slot + 3] = totalDisplacements - rowStartDisplacements;
+        rowStartProposals = totalProposals;
+        rowStartDisplacements = totalDisplacements;
+        lastRowRound = round;
+        size++;
+        nextProposals = totalProposals + proposalsPerRow;
+    }
+    
+    /**
+     * Halve the rows: each pair becomes one row with the later row's round and state and both
+     * rows' counts.
+     */
+    private void mergePairs() {
+        for (int row = 0; row < size / 2; row++) {
+            int earlier = 2 * row * ROW_WIDTH;
+            int later = earlier + ROW_WIDTH;
+            int slot = row * ROW_WIDTH;
+            rows[slot] = rows[later];
+            rows[slot + 1] = rows[later + 1];
+            rows[slot + 2] = rows[earlier + 2] + rows[later + 2];
+            rows[slot + 3] = rows[earlier + 3] + rows[later + 3];
+        }
+        size /= 2;
+        proposalsPerRow *= 2;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Proposals each row but the last covers at least; doubles every time rows are merged.
+     */
+    public long getProposalsPerRow() {
+        return proposalsPerRow;
+    }
+    
+    public int getRound(int row) {
+        return (int) rows[slot(row)];
+    }
+    
+    public int getMatched(int row) {
+        return (int) (rows[slot(row) + 1] >>> 32);
+    }
+    
+    public int getFree(int row) {
+        return (int) rows[slot(row) + 1];
+    }
+    
+    public long getProposals(int row) {
+        return rows[slot(row) + 2];
+    }
+    
+    public long getDisplacements(int row) {
+        return rows[slot(row) + 3];
+    }
+    
+    private int slot(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for " + size + " rows");
+        }
+        return row * ROW_WIDTH;
+    }
+    
+    /**
+     * Write the trace in the format named by the file, {@code .csv} or {@code .bin} with an
+     * optional {@code .gz}, replacing any existing file.
+     */
+    public void export(Path target) throws IOException {
+        ResultFormat format = ResultFormat.fromFileName(target);
+        if (format == ResultFormat.JSONL) {
+            throw new IllegalArgumentException("Convergence traces are written as .csv or .bin, not " + target.getFileName());
+        }
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream file = Files.newOutputStream(target);
+             OutputStream out = ResultFormat.isGzipFileName(target) ? new GZIPOutputStream(file) : file) {
+            if (format == ResultFormat.CSV) {
+                writeCsv(out);
+            } else {
+                writeBinary(out);
+            }
+        }
+    }
+    
+    public void writeCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write('\n');
+        for (int row = 0; row < size; row++) {
+            writer.write(getRound(row) + "," + getMatched(row) + "," + getFree(row) + ","
+                + getProposals(row) + "," + getDisplacements(row) + "\n");
+        }
+        writer.flush();
+    }
+    
+    public void writeBinary(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(BINARY_MAGIC);
+        data.writeInt(BINARY_VERSION);
+        data.writeInt(size);
+        for (int row = 0; row < size; row++) {
+            data.writeInt(getRound(row));
+            data.writeInt(getMatched(row));
+            data.writeInt(getFree(row));
+            data.writeLong(getProposals(row));
+            data.writeLong(getDisplacements(row));
+        }
+        data.flush();
+    }
+}
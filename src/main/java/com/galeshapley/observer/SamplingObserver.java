@@ -0,0 +1,371 @@
+package com.galeshapley.observer;
+
+import com.galeshapley.model.*;
+import java.util.*;
+
+/**
+ * Forwards a sample of the proposal-level events to wrapped observers, for runs too large to
+ * observe in full.
+ *
+ * Either every N-th proposal attempt is kept, chosen by a plain counter, or a fixed number of
+ * proposers is chosen before the run (those with the smallest hash of their ID and a seed) and
+ * their whole history is kept: their proposals with the answers to them, and being displaced
+ * by anyone else. Start, iteration and completion events always reach the wrapped observers.
+ *
+ * {@link com.galeshapley.algorithm.GaleShapleyAlgorithm} calls {@link #sampleProposal(int)}
+ * before it looks up the agents of a proposal or notifies anyone, so a proposal left out costs
+ * a counter or array check. Because every attempt passes through that check, the sampled
+ * counts can be extrapolated to the whole run by {@link #getEstimates()}, with 95% margins.
+ */
+public class SamplingObserver implements AlgorithmObserver {
+    
+    private static final double Z_95 = 1.959964;
+    
+    // Event kinds counted for the estimates
+    private static final int ATTEMPTS = 0;
+    private static final int PROPOSALS = 1;
+    private static final int ACCEPTANCES = 2;
+    private static final int REJECTIONS = 3;
+    private static final int BROKEN_ENGAGEMENTS = 4;
+    private static final int KINDS = 5;
+    
+    private final List<AlgorithmObserver> delegates;
+    private final int sampleEvery;
+    private final int sampleAgents;
+    private final long seed;
+    
+    private final long[] sampled = new long[KINDS];
+    private long attempts;
+    private int countdown;
+    private boolean current;
+    
+    // Agent sampling only: the sample slot of each proposer index (-1 when not sampled)
+    private int proposerCount;
+    private int[] slots;
+    private long[][] agentCounts;
+    private int currentSlot = -1;
+    private int displacedSlot = -1;
+    
+    private SamplingObserver(int sampleEvery, int sampleAgents, long seed, AlgorithmObserver... delegates) {
+        if (delegates.length == 0) {
+            throw new IllegalArgumentException("At least one observer must be wrapped");
+        }
+        this.delegates = Arrays.asList(delegates.clone());
+        this.sampleEvery = sampleEvery;
+        this.sampleAgents = sampleAgents;
+        this.seed = seed;
+    }
+    
+    /**
+     * Forward every N-th proposal attempt of the run, starting with the N-th.
+     */
+    public static SamplingObserver everyNth(int n, AlgorithmObserver... delegates) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive");
+        }
+        return new SamplingObserver(n, 0, 0L, delegates);
+    }
+    
+    /**
+     * Forward the full history of a fixed sample of proposers, chosen by the seed.
+     */
+    public static SamplingObserver forAgents(int agents, long seed, AlgorithmObserver... delegates) {
+        if (agents < 2) {
+            throw new IllegalArgumentException("At least two agents must be sampled");
+        }
+        return new SamplingObserver(0, agents, seed, delegates);
+    }
+    
+    /**
+     * Reset the counts and, when sampling agents, choose them from the market's proposers.
+     * Called by the algorithm before {@link #onAlgorithmStart}.
+     */
+    public void prepare(CompiledMarket market) {
+        Arrays.fill(sampled, 0);
+        attempts = 0;
+        countdown = sampleEvery;
+        current = false;
+        proposerCount = market.getProposerCount();
+        if (sampleAgents == 0) {
+            return;
+        }
+        
+        // Bottom-k by hash: the same proposers for the same seed, whatever order they come in
+        long[] keys = new long[proposerCount];
+        for (int i = 0; i < proposerCount; i++) {
+            keys[i] = (mix(seed ^ market.getProposer(i).getId().hashCode()) & 0xFFFFFFFF00000000L) | i;
+        }
+        Arrays.sort(keys);
+        int size = Math.min(sampleAgents, proposerCount);
+        slots = new int[proposerCount];
+        Arrays.fill(slots, -1);
+        for (int slot = 0; slot < size; slot++) {
+            slots[(int) keys[slot]] = slot;
+        }
+        agentCounts = new long[size][KINDS];
+    }
+    
+    /**
+     * Decide whether the next proposal attempt, by the proposer with this market index, is
+     * forwarded.
+     */
+    public boolean sampleProposal(int proposer) {
+        attempts++;
+        displacedSlot = -1;
+        if (slots == null) {
+            current = --countdown == 0;
+            if (current) {
+                countdown = sampleEvery;
+            }
+        } else {
+            currentSlot = slots[proposer];
+            current = currentSlot >= 0;
+        }
+        if (current) {
+            count(ATTEMPTS, currentSlot);
+        }
+        return current;
+    }
+    
+    /**
+     * Decide whether the current proposal displacing the proposer with this market index is
+     * forwarded even if the proposal itself was not sampled.
+     */
+    public boolean sampleDisplacement(int proposer) {
+        displacedSlot = slots == null ? -1 : slots[proposer];
+        return displacedSlot >= 0;
+    }
+    
+    @Override
+    public void onAlgorithmStart(Set<Proposer> proposers, Set<Proposee> proposees) {
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onAlgorithmStart(proposers, proposees);
+        }
+    }
+    
+    @Override
+    public void onIterationStart(int iteration) {
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onIterationStart(iteration);
+        }
+    }
+    
+    public void onProposalAttempt(Proposer proposer, Proposee proposee) {
+        if (!current) {
+            return;
+        }
+        for (AlgorithmObserver delegate : delegates) {
+            if (delegate instanceof StatisticsObserver) {
+                ((StatisticsObserver) delegate).onProposalAttempt(proposer, proposee);
+            }
+        }
+    }
+    
+    @Override
+    public void onProposal(Proposer proposer, Proposee proposee) {
+        if (!current) {
+            return;
+        }
+        count(PROPOSALS, currentSlot);
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onProposal(proposer, proposee);
+        }
+    }
+    
+    @Override
+    public void onAcceptance(Proposer proposer, Proposee proposee) {
+        if (!current) {
+            return;
+        }
+        count(ACCEPTANCES, currentSlot);
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onAcceptance(proposer, proposee);
+        }
+    }
+    
+    @Override
+    public void onRejection(Proposer proposer, Proposee proposee) {
+        if (!current) {
+            return;
+        }
+        count(REJECTIONS, currentSlot);
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onRejection(proposer, proposee);
+        }
+    }
+    
+    @Override
+    public void onBrokenEngagement(Proposer brokenUpWith, Proposee proposee, Proposer newProposer) {
+        if (!current && displacedSlot < 0) {
+            return;
+        }
+        // A sampled agent's displacements belong to it, whoever displaced it
+        if (slots == null) {
+            count(BROKEN_ENGAGEMENTS, -1);
+        } else if (displacedSlot >= 0) {
+            count(BROKEN_ENGAGEMENTS, displacedSlot);
+        }
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onBrokenEngagement(brokenUpWith, proposee, newProposer);
+        }
+    }
+    
+    @Override
+    public void onIterationEnd(int iteration, Matching currentMatching) {
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onIterationEnd(iteration, currentMatching);
+        }
+    }
+    
+    @Override
+    public void onAlgorithmComplete(Matching finalMatching, int totalIterations) {
+        for (AlgorithmObserver delegate : delegates) {
+            delegate.onAlgorithmComplete(finalMatching, totalIterations);
+        }
+    }
+    
+    private void count(int kind, int slot) {
+        sampled[kind]++;
+        if (slot >= 0) {
+            agentCounts[slot][kind]++;
+        }
+    }
+    
+    public Estimates getEstimates() {
+        return new Estimates(this);
+    }
+    
+    private Estimate estimate(int kind) {
+        if (kind == ATTEMPTS) {
+            return new Estimate(attempts, 0);
+        }
+        if (slots == null) {
+            // Each sampled attempt yields at most one event of a kind: a proportion of all attempts
+            long attemptsSampled = sampled[ATTEMPTS];
+            if (attemptsSampled == 0) {
+                return new Estimate(0, 0);
+            }
+            double proportion = (double) sampled[kind] / attemptsSampled;
+            double unsampled = 1 - (double) attemptsSampled / attempts;
+            double error = attempts * Math.sqrt(proportion * (1 - proportion) / attemptsSampled * unsampled);
+            return new Estimate(attempts * proportion, Z_95 * error);
+        }
+        
+        // Mean per sampled agent, scaled to all proposers
+        int size = agentCounts.length;
+        double mean = 0;
+        for (long[] counts : agentCounts) {
+            mean += counts[kind];
+        }
+        mean /= size;
+        if (size == proposerCount) {
+            return new Estimate(mean * size, 0);
+        }
+        double variance = 0;
+        for (long[] counts : agentCounts) {
+            variance += (counts[kind] - mean) * (counts[kind] - mean);
+        }
+        variance /= size - 1;
+        double unsampled = 1 - (double) size / proposerCount;
+        double error = proposerCount * Math.sqrt(variance / size * unsampled);
+        return new Estimate(mean * proposerCount, Z_95 * error);
+    }
+    
+    /**
+     * An extrapolated total and the half-width of its 95% confidence interval.
+     */
+    public static final class Estimate {
+        private final double value;
+        private final double margin;
+        
+        Estimate(double value, double margin) {
+            this.value = value;
+            this.margin = margin;
+        }
+        
+        public double getValue() {
+            return value;
+        }
+        
+        public double getMargin() {
+            return margin;
+        }
+        
+        public double getLower() {
+            return value - margin;
+        }
+        
+        public double getUpper() {
+            return value + margin;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%.0f ± %.0f", value, margin);
+        }
+    }
+    
+    public static class Estimates {
+        private final String sample;
+        private final long sampledAttempts;
+        private final Estimate proposalAttempts;
+        private final Estimate proposals;
+        private final Estimate acceptances;
+        private final Estimate rejections;
+        private final Estimate brokenEngagements;
+        
+        private Estimates(SamplingObserver observer) {
+            this.sample = observer.slots == null ? "1 in " + observer.sampleEvery + " proposal attempts"
+                                                 : observer.agentCounts.length + " proposers";
+            this.sampledAttempts = observer.sampled[ATTEMPTS];
+            this.proposalAttempts = observer.estimate(ATTEMPTS);
+            this.proposals = observer.estimate(PROPOSALS);
+            this.acceptances = observer.estimate(ACCEPTANCES);
+            this.rejections = observer.estimate(REJECTIONS);
+            this.brokenEngagements = observer.estimate(BROKEN_ENGAGEMENTS);
+        }
+        
+        public long getSampledAttempts() {
+            return sampledAttempts;
+        }
+        
+        /** Exact: every attempt is counted, sampled or not. */
+        public Estimate getProposalAttempts() {
+            return proposalAttempts;
+        }
+        
+        public Estimate getProposals() {
+            return proposals;
+        }
+        
+        public Estimate getAcceptances() {
+            return acceptances;
+        }
+        
+        public Estimate getRejections() {
+            return rejections;
+        }
+        
+        public Estimate getBrokenEngagements() {
+            return brokenEngagements;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(
+                "Sampled Statistics (%s, %d attempts sampled, 95%% margins):\n" +
+                "  • Decision Points: %s\n" +
+                "  • Proposals Made: %s\n" +
+                "  • Proposals Accepted: %s\n" +
+                "  • Rejections: %s\n" +
+                "  • Broken Engagements: %s\n",
+                sample, sampledAttempts, proposalAttempts, proposals, acceptances, rejections, brokenEngagements);
+        }
+    }
+    
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,6 +2,7 @@ package com.galeshapley.observer;
 
 import com.galeshapley.model.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class StatisticsObserver implements AlgorithmObserver {
     
@@ -20,7 +21,7 @@ public class StatisticsObserver implements AlgorithmObserver {
     
     @Override
     public void onAlgorithmStart(Set<Proposer> proposers, Set<Proposee> proposees) {
-        startTime = System.currentTimeMillis();
+        startTime = System.nanoTime();
         proposers.forEach(p -> {
             proposalCountByProposer.put(p, 0);
             rejectionCountByProposer.put(p, 0);
@@ -72,7 +73,7 @@ public class StatisticsObserver implements AlgorithmObserver {
     
     @Override
     public void onAlgorithmComplete(Matching finalMatching, int totalIterations) {
-        endTime = System.currentTimeMillis();
+        endTime = System.nanoTime();
     }
     
     public Statistics getStatistics() {
@@ -89,7 +90,7 @@ public class StatisticsObserver implements AlgorithmObserver {
         private final Map<Proposer, Integer> rejectionCountByProposer;
         private final Map<Proposer, Integer> iterationAttemptsByProposer;
         private final Map<Proposee, Integer> proposalReceivedCount;
-        private final long executionTimeMs;
+        private final long executionTimeNanos;
         
         private Statistics(StatisticsObserver observer) {
             this.totalProposals = observer.totalProposals;
@@ -101,7 +102,7 @@ public class StatisticsObserver implements AlgorithmObserver {
             this.rejectionCountByProposer = new HashMap<>(observer.rejectionCountByProposer);
             this.iterationAttemptsByProposer = new HashMap<>(observer.iterationAttemptsByProposer);
             this.proposalReceivedCount = new HashMap<>(observer.proposalReceivedCount);
-            this.executionTimeMs = observer.endTime - observer.startTime;
+            this.executionTimeNanos = observer.endTime - observer.startTime;
         }
         
         public int getTotalProposals() {
@@ -157,7 +158,11 @@ public class StatisticsObserver implements AlgorithmObserver {
         }
         
         public long getExecutionTimeMs() {
-            return executionTimeMs;
+            return TimeUnit.NANOSECONDS.toMillis(executionTimeNanos);
+        }
+        
+        public long getExecutionTimeNanos() {
+            return executionTimeNanos;
         }
         
         @Override
@@ -182,13 +187,13 @@ public class StatisticsObserver implements AlgorithmObserver {
                 "  • Avg Proposals per Proposee: %.2f (how popular/in-demand)\n" +
                 "\n" +
                 "⏱️  PERFORMANCE:\n" +
-                "  • Execution Time: %d ms\n",
+                "  • Execution Time: %.3f ms\n",
                 totalProposals, totalAcceptances, totalRejections, totalBrokenEngagements, (totalRejections - totalBrokenEngagements),
                 totalIterationAttempts,
                 getAverageProposalsPerProposer(),
                 getAverageRejectionsPerProposer(),
                 getAverageProposalsReceivedPerProposee(),
-                executionTimeMs
+                executionTimeNanos / 1e6
             );
         }
     }
@@ -0,0 +1,33 @@
+package com.galeshapley.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event covering a run of consecutive Gale-Shapley iterations.
+ *
+ * The algorithm begins one per batch, so a recording shows how proposal work is spread over
+ * the run without paying for an event every iteration.
+ */
+@Name("com.galeshapley.IterationBatch")
+@Label("Iteration Batch")
+@Category("Gale-Shapley")
+@Description("Consecutive iterations of the Gale-Shapley algorithm")
+public final class IterationBatchEvent extends jdk.jfr.Event {
+    
+    @Label("First Iteration")
+    public int firstIteration;
+    
+    @Label("Iterations")
+    public int iterations;
+    
+    @Label("Proposals")
+    @Description("Proposals made, including choosing to stay single")
+    public long proposals;
+    
+    @Label("Unmatched Proposers")
+    @Description("Proposers without a partner at the end of the batch")
+    public int unmatchedProposers;
+}
@@ -0,0 +1,29 @@
+package com.galeshapley.profiling;
+
+/**
+ * The stages a simulation goes through, in pipeline order.
+ */
+public enum Phase {
+    /** Reading the YAML or JSON configuration. */
+    PARSE("Parse configuration"),
+    /** Creating agents and generating or resolving their preference lists. */
+    GENERATE("Generate preferences"),
+    /** Checking every list for unknown, duplicate and missing candidates. */
+    VALIDATE("Validate configuration"),
+    /** Building rank tables and empty-set cutoffs for the compiled market. */
+    PREPROCESS("Compile market"),
+    /** Running the algorithm and any optimal or weakly stable solver. */
+    SOLVE("Solve"),
+    /** Exporting the matching and printing statistics. */
+    REPORT("Report");
+    
+    private final String label;
+    
+    Phase(String label) {
+        this.label = label;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,25 @@
+package com.galeshapley.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event covering one {@link Phase} of a simulation. Its duration includes
+ * nested phases; {@code selfTime} leaves them out.
+ */
+@Name("com.galeshapley.Phase")
+@Label("Simulation Phase")
+@Category("Gale-Shapley")
+@Description("One stage of the simulation pipeline")
+final class PhaseEvent extends jdk.jfr.Event {
+    
+    @Label("Phase")
+    String phase;
+    
+    @Label("Self Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long selfTime;
+}
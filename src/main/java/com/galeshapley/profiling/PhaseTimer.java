@@ -0,0 +1,121 @@
+package com.galeshapley.profiling;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Nanosecond wall-clock time spent in each {@link Phase} of one simulation.
+ *
+ * Phases nest: while a nested phase runs, its parent's clock is paused, so every phase
+ * reports only its own time and the phases add up to the whole run. Each span is also
+ * committed as a {@link PhaseEvent} when Flight Recorder is recording. A timer belongs to a
+ * single run and is not thread-safe.
+ */
+public final class PhaseTimer {
+    
+    private final long[] nanos = new long[Phase.values().length];
+    private final Deque<Span> open = new ArrayDeque<>();
+    
+    /**
+     * Start timing a phase; close the span to stop it. For a body that does not use the span,
+     * {@link #time(Phase, Timed)} closes it for you.
+     */
+    public Span start(Phase phase) {
+        // The clock is read after the event exists, so loading the event class is not timed
+        Span span = new Span(phase);
+        long now = System.nanoTime();
+        Span parent = open.peek();
+        if (parent != null) {
+            parent.pause(now);
+        }
+        span.resumedAt = now;
+        open.push(span);
+        return span;
+    }
+    
+    /**
+     * Run {@code work} as one span of {@code phase} and return its result.
+     */
+    public <T, E extends Exception> T time(Phase phase, Timed<T, E> work) throws E {
+        Span span = start(phase);
+        try {
+            return work.run();
+        } finally {
+            span.close();
+        }
+    }
+    
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+    
+    public long getTotalNanos() {
+        long total = 0;
+        for (long phaseNanos : nanos) {
+            total += phaseNanos;
+        }
+        return total;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Phase Timings:\n");
+        for (Phase phase : Phase.values()) {
+            text.append(String.format("  • %-24s %12.3f ms%n", phase.getLabel() + ":", nanos[phase.ordinal()] / 1e6));
+        }
+        text.append(String.format("  • %-24s %12.3f ms%n", "Total:", getTotalNanos() / 1e6));
+        return text.toString();
+    }
+    
+    /**
+     * The body of a timed phase.
+     */
+    @FunctionalInterface
+    public interface Timed<T, E extends Exception> {
+        T run() throws E;
+    }
+    
+    /**
+     * A running phase.
+     */
+    public final class Span implements AutoCloseable {
+        private final Phase phase;
+        private final PhaseEvent event = new PhaseEvent();
+        private long resumedAt;
+        private long selfNanos;
+        private boolean closed;
+        
+        private Span(Phase phase) {
+            this.phase = phase;
+            event.begin();
+        }
+        
+        private void pause(long now) {
+            selfNanos += now - resumedAt;
+        }
+        
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            if (open.peek() != this) {
+                throw new IllegalStateException("Phase " + phase + " ended while a nested phase is still running");
+            }
+            long now = System.nanoTime();
+            closed = true;
+            selfNanos += now - resumedAt;
+            nanos[phase.ordinal()] += selfNanos;
+            open.pop();
+            Span parent = open.peek();
+            if (parent != null) {
+                parent.resumedAt = now;
+            }
+            if (event.shouldCommit()) {
+                event.phase = phase.getLabel();
+                event.selfTime = selfNanos;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.galeshapley.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.galeshapley.metrics.SimulationMetrics;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency windows reported by the server's status endpoint.
+ */
+class ServerMetrics {
+    
+    private final long startNanos = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyWindow queueWait = new LatencyWindow();
+    private final LatencyWindow latency = new LatencyWindow();
+    
+    void onSubmitted() {
+        submitted.increment();
+    }
+    
+    void onRejected() {
+        rejected.increment();
+    }
+    
+    void onStarted(long queuedNanos) {
+        queueWait.record(queuedNanos);
+    }
+    
+    void onFinished(long totalNanos, boolean success) {
+        latency.record(totalNanos);
+        if (success) {
+            completed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+    
+    void write(JsonGenerator json) throws IOException {
+        json.writeNumberField("uptimeMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        json.writeNumberField("submitted", submitted.sum());
+        json.writeNumberField("completed", completed.sum());
+        json.writeNumberField("failed", failed.sum());
+        json.writeNumberField("rejected", rejected.sum());
+        json.writeFieldName("queueWaitMillis");
+        queueWait.write(json);
+        json.writeFieldName("latencyMillis");
+        latency.write(json);
+        writeEngine(json, SimulationMetrics.getInstance());
+    }
+    
+    private static void writeEngine(JsonGenerator json, SimulationMetrics engine) throws IOException {
+        json.writeObjectFieldStart("engine");
+        json.writeNumberField("activeRuns", engine.getActiveRuns());
+        json.writeNumberField("proposals", engine.getProposals());
+        json.writeNumberField("proposalsPerSecond", engine.getProposalsPerSecond());
+        json.writeNumberField("currentIteration", engine.getCurrentIteration());
+        json.writeNumberField("freeProposers", engine.getFreeProposers());
+        json.writeNumberField("matchedProposers", engine.getMatchedProposers());
+        json.writeNumberField("generationProgress", engine.getGenerationProgress());
+        json.writeNumberField("heapUsedPerAgent", engine.getHeapUsedPerAgent());
+        json.writeEndObject();
+    }
+    
+    /**
+     * Running totals plus the most recent samples, from which percentiles are computed.
+     */
+    static class LatencyWindow {
+        private static final int WINDOW_SIZE = 1024;
+        
+        private final long[] samples = new long[WINDOW_SIZE];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        
+        synchronized void record(long nanos) {
+            samples[(int) (count % WINDOW_SIZE)] = nanos;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+        
+        void write(JsonGenerator json) throws IOException {
+            long[] recent;
+            long count;
+            long totalNanos;
+            long maxNanos;
+            synchronized (this) {
+                count = this.count;
+                totalNanos = this.totalNanos;
+                maxNanos = this.maxNanos;
+                recent = Arrays.copyOf(samples, (int) Math.min(count, WINDOW_SIZE));
+            }
+            Arrays.sort(recent);
+            
+            json.writeStartObject();
+            json.writeNumberField("count", count);
+            json.writeNumberField("mean", count == 0 ? 0.0 : millis(totalNanos) / count);
+            json.writeNumberField("p50", percentile(recent, 0.50));
+            json.writeNumberField("p95", percentile(recent, 0.95));
+            json.writeNumberField("p99", percentile(recent, 0.99));
+            json.writeNumberField("max", millis(maxNanos));
+            json.writeEndObject();
+        }
+        
+        private static double percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return millis(sorted[Math.max(0, index)]);
+        }
+        
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
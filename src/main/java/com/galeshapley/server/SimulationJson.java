@@ -0,0 +1,123 @@
+package com.galeshapley.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.analysis.WelfareAnalyzer;
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.model.Matching;
+import com.galeshapley.model.Proposee;
+import com.galeshapley.model.Proposer;
+import com.galeshapley.observer.StatisticsObserver;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Writes a finished simulation as JSON, agent by agent, straight to a generator so the
+ * response never has to be built as a tree first.
+ */
+final class SimulationJson {
+    
+    private SimulationJson() {
+    }
+    
+    /**
+     * @param statistics Gale-Shapley's proposal counts, or {@code null} when another solver ran
+     */
+    static void writeResult(JsonGenerator json, CompiledMarket market, GaleShapleyAlgorithm.AlgorithmResult result,
+                            StatisticsObserver.Statistics statistics) throws IOException {
+        Matching matching = result.getFinalMatching();
+        
+        json.writeNumberField("iterations", result.getIterations());
+        if (result.getCost().isPresent()) {
+            json.writeNumberField("cost", result.getCost().getAsLong());
+        }
+        json.writeNumberField("proposers", market.getProposerCount());
+        json.writeNumberField("proposees", market.getProposeeCount());
+        
+        json.writeArrayFieldStart("matches");
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            Proposer proposer = market.getProposer(i);
+            Optional<Proposee> match = matching.getMatch(proposer);
+            if (match.isPresent() && !match.get().isEmptySet()) {
+                json.writeStartObject();
+                json.writeStringField("proposer", proposer.getId());
+                json.writeStringField("proposee", match.get().getId());
+                json.writeEndObject();
+            }
+        }
+        json.writeEndArray();
+        
+        json.writeArrayFieldStart("single");
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            Proposer proposer = market.getProposer(i);
+            if (matching.getMatch(proposer).map(Proposee::isEmptySet).orElse(false)) {
+                json.writeString(proposer.getId());
+            }
+        }
+        json.writeEndArray();
+        
+        json.writeArrayFieldStart("unmatchedProposers");
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            Proposer proposer = market.getProposer(i);
+            if (!matching.isMatched(proposer)) {
+                json.writeString(proposer.getId());
+            }
+        }
+        json.writeEndArray();
+        
+        json.writeArrayFieldStart("unmatchedProposees");
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            Proposee proposee = market.getProposee(j);
+            if (!matching.isMatched(proposee)) {
+                json.writeString(proposee.getId());
+            }
+        }
+        json.writeEndArray();
+        
+        if (statistics != null) {
+            json.writeObjectFieldStart("statistics");
+            writeStatistics(json, statistics);
+            json.writeEndObject();
+        }
+        
+        json.writeObjectFieldStart("welfare");
+        writeWelfare(json, WelfareAnalyzer.analyze(market, matching));
+        json.writeEndObject();
+    }
+    
+    static void writeWelfare(JsonGenerator json, WelfareAnalyzer.Welfare welfare) throws IOException {
+        json.writeNumberField("matchedPairs", welfare.getMatchedPairs());
+        json.writeNumberField("egalitarianCost", welfare.getEgalitarianCost());
+        json.writeNumberField("sexEqualityCost", welfare.getSexEqualityCost());
+        json.writeNumberField("regret", welfare.getRegret());
+        json.writeObjectFieldStart("proposers");
+        writeRankDistribution(json, welfare.getProposers());
+        json.writeEndObject();
+        json.writeObjectFieldStart("proposees");
+        writeRankDistribution(json, welfare.getProposees());
+        json.writeEndObject();
+    }
+    
+    private static void writeRankDistribution(JsonGenerator json, WelfareAnalyzer.RankDistribution ranks) throws IOException {
+        json.writeNumberField("meanRank", ranks.getMeanRank());
+        json.writeNumberField("medianRank", ranks.getMedianRank());
+        json.writeNumberField("regret", ranks.getRegret());
+        int[] histogram = ranks.getHistogram();
+        json.writeFieldName("histogram");
+        json.writeArray(histogram, 0, histogram.length);
+    }
+    
+    static void writeStatistics(JsonGenerator json, StatisticsObserver.Statistics statistics) throws IOException {
+        json.writeNumberField("totalProposals", statistics.getTotalProposals());
+        json.writeNumberField("totalAcceptances", statistics.getTotalAcceptances());
+        json.writeNumberField("totalRejections", statistics.getTotalRejections());
+        json.writeNumberField("totalBrokenEngagements", statistics.getTotalBrokenEngagements());
+        json.writeNumberField("totalIterationAttempts", statistics.getTotalIterationAttempts());
+        json.writeNumberField("averageProposalsPerProposer", statistics.getAverageProposalsPerProposer());
+        json.writeNumberField("averageRejectionsPerProposer", statistics.getAverageRejectionsPerProposer());
+        json.writeNumberField("averageProposalsReceivedPerProposee", statistics.getAverageProposalsReceivedPerProposee());
+        json.writeNumberField("averageIterationAttemptsPerProposer", statistics.getAverageIterationAttemptsPerProposer());
+        json.writeNumberField("executionTimeMs", statistics.getExecutionTimeMs());
+    }
+}
@@ -0,0 +1,448 @@
+package com.galeshapley.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.algorithm.StableMatchingSolvers;
+import com.galeshapley.algorithm.SolverMode;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.RuntimeOptionsResolver;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import com.galeshapley.config.YamlConfig;
+import com.galeshapley.config.distribution.DistributionConfig;
+import com.galeshapley.config.distribution.LatentDistributionConfig;
+import com.galeshapley.metrics.SimulationMetrics;
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.observer.StatisticsObserver;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Long-running local simulation server.
+ *
+ * Keeps one JVM (and its JIT-compiled solver) alive across many small simulations. Jobs are
+ * posted as JSON to {@code /simulate} and run on a bounded worker pool; when the queue is full
+ * the request is refused with 503 instead of piling up. {@code /status} reports queue depth,
+ * counters and latency percentiles. A started server also publishes {@link SimulationMetrics}
+ * over JMX, with its queue included, and repeats them under {@code engine} in {@code /status}.
+ *
+ * A {@code /simulate} body names exactly one configuration source plus optional options:
+ * <pre>
+ * {"configFile": "markets/config.yaml", "options": {"maxIterations": 100, "globalSeed": 42}}
+ * {"configYaml": "simulation: ...", "options": {}}
+ * {"config": {"simulation": {...}}}
+ * </pre>
+ * {@code configFile} is only accepted when the server has a {@link Builder#configDirectory config
+ * directory}, and must name a file inside it; so must the {@code featureFile} of a latent
+ * distribution, whichever way the configuration was sent. Options are limited to the run parameters in
+ * {@link #RUN_OPTIONS}; anything touching the server's own files or output is refused.
+ */
+public class SimulationServer {
+    
+    public static final int DEFAULT_PORT = 8642;
+    
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final String WARMUP_CONFIG = "/example-config.yaml";
+    
+    /** Option names a request may set, in the resolver's case- and separator-insensitive form. */
+    static final Set<String> RUN_OPTIONS = Collections.unmodifiableSet(new HashSet<>(
+        Arrays.asList("maxiterations", "globalseed", "solver", "tiebreaktrials")));
+    
+    private final HttpServer httpServer;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService httpThreads;
+    private final int queueCapacity;
+    private final Path configDirectory;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private SimulationMetrics.QueueRegistration queueRegistration;
+    
+    private SimulationServer(Builder builder) throws IOException {
+        this.queueCapacity = builder.queueCapacity;
+        this.configDirectory = builder.configDirectory;
+        this.workers = new ThreadPoolExecutor(builder.workers, builder.workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(builder.queueCapacity), daemonThreads("simulation-worker"),
+            new ThreadPoolExecutor.AbortPolicy());
+        // Every job the pool can hold gets a connection thread, plus a few for status and refusals
+        this.httpThreads = Executors.newFixedThreadPool(builder.workers + builder.queueCapacity + 2,
+            daemonThreads("simulation-http"));
+        
+        this.httpServer = HttpServer.create(new InetSocketAddress(builder.host, builder.port), 0);
+        this.httpServer.setExecutor(httpThreads);
+        this.httpServer.createContext("/simulate", this::handleSimulate);
+        this.httpServer.createContext("/status", this::handleStatus);
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public void start() {
+        SimulationMetrics.getInstance().registerMBean();
+        queueRegistration = SimulationMetrics.getInstance()
+            .registerQueue("server", () -> workers.getQueue().size());
+        httpServer.start();
+    }
+    
+    public void stop() {
+        if (queueRegistration != null) {
+            queueRegistration.close();
+        }
+        httpServer.stop(0);
+        workers.shutdownNow();
+        httpThreads.shutdownNow();
+    }
+    
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+    
+    /**
+     * Run the bundled example configuration a number of times so the solver is compiled
+     * before the first real request arrives.
+     */
+    public void warmUp(int runs) throws IOException {
+        for (int i = 0; i < runs; i++) {
+            try (InputStream stream = SimulationServer.class.getResourceAsStream(WARMUP_CONFIG)) {
+                if (stream == null) {
+                    return;
+                }
+                SimulationConfig config = new SimulationConfigLoader().loadFromStream(stream);
+                GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket());
+                algorithm.addObserver(new StatisticsObserver());
+                algorithm.execute();
+            }
+        }
+    }
+    
+    private void handleSimulate(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use POST for /simulate");
+                return;
+            }
+            
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = JSON.readTree(body);
+            } catch (JsonProcessingException e) {
+                sendError(exchange, 400, "Request body is not valid JSON: " + e.getOriginalMessage());
+                return;
+            }
+            
+            long submittedAt = System.nanoTime();
+            Future<JobResult> future;
+            try {
+                future = workers.submit(() -> runJob(request, submittedAt));
+                metrics.onSubmitted();
+            } catch (RejectedExecutionException e) {
+                metrics.onRejected();
+                sendError(exchange, 503, "Simulation queue is full (" + queueCapacity + " waiting)");
+                return;
+            }
+            
+            JobResult result;
+            try {
+                result = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                sendError(exchange, 503, "Server is shutting down");
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                boolean badRequest = cause instanceof IllegalArgumentException
+                    || cause instanceof IllegalStateException || cause instanceof IOException;
+                sendError(exchange, badRequest ? 400 : 500, String.valueOf(cause.getMessage()));
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody();
+                 JsonGenerator json = JSON.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                SimulationJson.writeResult(json, result.market, result.result, result.statistics);
+                json.writeObjectFieldStart("timing");
+                json.writeNumberField("queuedMillis", result.queuedNanos / 1_000_000.0);
+                json.writeNumberField("runMillis", result.runNanos / 1_000_000.0);
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private JobResult runJob(JsonNode request, long submittedAt) throws IOException {
+        long startedAt = System.nanoTime();
+        metrics.onStarted(startedAt - submittedAt);
+        boolean success = false;
+        try {
+            RuntimeOptions options = parseOptions(request.get("options"));
+            SimulationConfig config = new SimulationConfigLoader().load(parseConfig(request), options);
+            
+            GaleShapleyAlgorithm.AlgorithmResult result;
+            StatisticsObserver.Statistics statistics = null;
+            if (options.getSolver() == SolverMode.GALE_SHAPLEY) {
+                GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket(), options);
+                StatisticsObserver statisticsObserver = new StatisticsObserver();
+                algorithm.addObserver(statisticsObserver);
+                result = algorithm.execute(options);
+                statistics = statisticsObserver.getStatistics();
+            } else {
+                result = StableMatchingSolvers.solve(config.getMarket(), options);
+            }
+            
+            success = true;
+            return new JobResult(config.getMarket(), result, statistics,
+                                 startedAt - submittedAt, System.nanoTime() - startedAt);
+        } finally {
+            metrics.onFinished(System.nanoTime() - submittedAt, success);
+        }
+    }
+    
+    private YamlConfig parseConfig(JsonNode request) throws IOException {
+        if (request == null || !request.isObject()) {
+            throw new IllegalArgumentException("Request must be a JSON object");
+        }
+        JsonNode file = request.get("configFile");
+        JsonNode yaml = request.get("configYaml");
+        JsonNode inline = request.get("config");
+        
+        int sources = (file != null ? 1 : 0) + (yaml != null ? 1 : 0) + (inline != null ? 1 : 0);
+        if (sources != 1) {
+            throw new IllegalArgumentException("Request must contain exactly one of configFile, configYaml or config");
+        }
+        
+        YamlConfig config;
+        if (file != null) {
+            if (configDirectory == null) {
+                throw new IllegalArgumentException("configFile is disabled on this server; send configYaml or config");
+            }
+            config = YamlConfig.loadFromFile(resolveInConfigDirectory("configFile", file.asText()).toFile());
+        } else if (yaml != null) {
+            config = YamlConfig.loadFromString(yaml.asText());
+        } else {
+            config = JSON.treeToValue(inline, YamlConfig.class);
+        }
+        confineFeatureFiles(config);
+        return config;
+    }
+    
+    /**
+     * Point every feature file at its path inside the config directory, so a request cannot
+     * make the server read any other file.
+     */
+    private void confineFeatureFiles(YamlConfig config) throws IOException {
+        if (config == null || config.getSimulation() == null) {
+            return;
+        }
+        for (DistributionConfig distribution : config.getSimulation().getDistributions()) {
+            if (distribution instanceof LatentDistributionConfig
+                    && ((LatentDistributionConfig) distribution).getFeatureFile() != null) {
+                LatentDistributionConfig latent = (LatentDistributionConfig) distribution;
+                if (configDirectory == null) {
+                    throw new IllegalArgumentException("featureFile is disabled on this server");
+                }
+                latent.setFeatureFile(resolveInConfigDirectory("featureFile", latent.getFeatureFile()).toString());
+            }
+        }
+    }
+    
+    private Path resolveInConfigDirectory(String field, String name) throws IOException {
+        Path resolved = configDirectory.resolve(name).normalize();
+        if (!resolved.startsWith(configDirectory)) {
+            throw new IllegalArgumentException(field + " must be inside the server's config directory");
+        }
+        // Symbolic links could still point outside
+        if (resolved.toFile().exists() && !resolved.toRealPath().startsWith(configDirectory.toRealPath())) {
+            throw new IllegalArgumentException(field + " must be inside the server's config directory");
+        }
+        return resolved;
+    }
+    
+    private static RuntimeOptions parseOptions(JsonNode options) {
+        if (options == null || options.isNull()) {
+            return RuntimeOptions.defaultOptions();
+        }
+        if (!options.isObject()) {
+            throw new IllegalArgumentException("options must be a JSON object");
+        }
+        Map<String, String> properties = new HashMap<>();
+        options.fields().forEachRemaining(field -> {
+            String name = field.getKey().replace("-", "").replace("_", "").toLowerCase(Locale.ROOT);
+            if (!RUN_OPTIONS.contains(name)) {
+                throw new IllegalArgumentException("Option not allowed in a request: " + field.getKey());
+            }
+            properties.put(field.getKey(), field.getValue().isNull() ? "" : field.getValue().asText());
+        });
+        return RuntimeOptionsResolver.fromProperties(properties);
+    }
+    
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Use GET for /status");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody();
+                 JsonGenerator json = JSON.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeNumberField("workers", workers.getMaximumPoolSize());
+                json.writeNumberField("activeJobs", workers.getActiveCount());
+                json.writeNumberField("queueDepth", workers.getQueue().size());
+                json.writeNumberField("queueCapacity", queueCapacity);
+                metrics.write(json);
+                json.writeEndObject();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = JSON.writeValueAsBytes(Collections.singletonMap("error", message));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        ThreadFactory defaults = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread thread = defaults.newThread(runnable);
+            thread.setName(prefix + "-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private static final class JobResult {
+        private final CompiledMarket market;
+        private final GaleShapleyAlgorithm.AlgorithmResult result;
+        private final StatisticsObserver.Statistics statistics;
+        private final long queuedNanos;
+        private final long runNanos;
+        
+        private JobResult(CompiledMarket market, GaleShapleyAlgorithm.AlgorithmResult result,
+                          StatisticsObserver.Statistics statistics, long queuedNanos, long runNanos) {
+            this.market = market;
+            this.result = result;
+            this.statistics = statistics;
+            this.queuedNanos = queuedNanos;
+            this.runNanos = runNanos;
+        }
+    }
+    
+    public static class Builder {
+        private String host = "127.0.0.1";
+        private int port = DEFAULT_PORT;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int queueCapacity = 64;
+        private Path configDirectory;
+        
+        public Builder host(String host) {
+            this.host = Objects.requireNonNull(host, "Host cannot be null");
+            return this;
+        }
+        
+        public Builder port(int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("Port must be between 0 and 65535");
+            }
+            this.port = port;
+            return this;
+        }
+        
+        public Builder workers(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("Workers must be positive");
+            }
+            this.workers = workers;
+            return this;
+        }
+        
+        public Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be positive");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        /**
+         * Directory that {@code configFile} and {@code featureFile} paths are resolved against.
+         * Without one, requests must carry the configuration itself and cannot use feature files.
+         */
+        public Builder configDirectory(Path configDirectory) {
+            this.configDirectory = Objects.requireNonNull(configDirectory, "Config directory cannot be null")
+                .toAbsolutePath().normalize();
+            return this;
+        }
+        
+        public SimulationServer build() throws IOException {
+            return new SimulationServer(this);
+        }
+    }
+    
+    /**
+     * Usage: SimulationServer [--port=8642] [--host=127.0.0.1] [--workers=N] [--queue=64] [--warmup=20]
+     *                         [--config-dir=DIR]
+     */
+    public static void main(String[] args) throws IOException {
+        Builder builder = builder();
+        int warmupRuns = 20;
+        
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg : arg.substring(0, separator);
+            String value = separator < 0 ? "" : arg.substring(separator + 1);
+            switch (name) {
+                case "--port":
+                    builder.port(Integer.parseInt(value));
+                    break;
+                case "--host":
+                    builder.host(value);
+                    break;
+                case "--workers":
+                    builder.workers(Integer.parseInt(value));
+                    break;
+                case "--queue":
+                    builder.queueCapacity(Integer.parseInt(value));
+                    break;
+                case "--warmup":
+                    warmupRuns = Integer.parseInt(value);
+                    break;
+                case "--config-dir":
+                    builder.configDirectory(Paths.get(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown server option: " + arg);
+            }
+        }
+        
+        SimulationServer server = builder.build();
+        server.warmUp(warmupRuns);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        
+        System.out.println("Simulation server listening on http://" + server.httpServer.getAddress().getHostString()
+            + ":" + server.getPort() + " (POST /simulate, GET /status)");
+    }
+}
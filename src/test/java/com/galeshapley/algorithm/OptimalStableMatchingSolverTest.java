@@ -0,0 +1,49 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.analysis.WelfareAnalyzer;
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OptimalStableMatchingSolverTest {
+    
+    @Test
+    void shouldMatchTheBestStableMatchingFoundByEnumeration() {
+        Random random = new Random(23);
+        for (int trial = 0; trial < 300; trial++) {
+            CompiledMarket market = RandomMarkets.truncated(2 + random.nextInt(7), 2 + random.nextInt(7), random);
+            StableMatchingLattice lattice = StableMatchingLattice.build(market);
+            
+            long bestCost = Long.MAX_VALUE;
+            long bestRegret = Long.MAX_VALUE;
+            for (Matching matching : (Iterable<Matching>) lattice.stableMatchings()::iterator) {
+                WelfareAnalyzer.Welfare welfare = WelfareAnalyzer.analyze(market, matching);
+                bestCost = Math.min(bestCost, welfare.getEgalitarianCost());
+                bestRegret = Math.min(bestRegret, welfare.getRegret());
+            }
+            
+            GaleShapleyAlgorithm.AlgorithmResult egalitarian =
+                new OptimalStableMatchingSolver(market, SolverMode.EGALITARIAN).execute(lattice);
+            GaleShapleyAlgorithm.AlgorithmResult minimumRegret =
+                new OptimalStableMatchingSolver(market, SolverMode.MINIMUM_REGRET).execute(lattice);
+            
+            assertThat(egalitarian.getCost()).as("trial %d", trial).hasValue(bestCost);
+            assertThat(WelfareAnalyzer.analyze(market, egalitarian.getFinalMatching()).getEgalitarianCost())
+                .isEqualTo(bestCost);
+            assertThat(minimumRegret.getCost()).as("trial %d", trial).hasValue(bestRegret);
+            assertThat(WelfareAnalyzer.analyze(market, minimumRegret.getFinalMatching()).getRegret())
+                .isEqualTo(bestRegret);
+        }
+    }
+    
+    @Test
+    void shouldLeaveTheProposerOptimalMatchingToGaleShapley() {
+        CompiledMarket market = RandomMarkets.truncated(3, 3, new Random(1));
+        
+        assertThatThrownBy(() -> new OptimalStableMatchingSolver(market, SolverMode.GALE_SHAPLEY))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
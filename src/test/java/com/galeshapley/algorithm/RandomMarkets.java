@@ -0,0 +1,91 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.*;
+
+import java.util.*;
+
+/**
+ * Small random markets for checking the solvers against brute-force enumeration.
+ */
+final class RandomMarkets {
+    
+    private RandomMarkets() {
+    }
+    
+    /**
+     * Strict lists; a third of them are cut short (possibly to nothing) and a quarter of the
+     * agents rank being single somewhere in their list.
+     */
+    static CompiledMarket truncated(int proposerCount, int proposeeCount, Random random) {
+        CompiledMarket.Builder builder = builder(proposerCount, proposeeCount);
+        for (int i = 0; i < proposerCount; i++) {
+            int[] row = randomList(proposeeCount, random.nextInt(3) == 0 ? -1 : proposeeCount, random);
+            builder.setProposerPreferences(i, row);
+            if (random.nextInt(4) == 0) {
+                builder.setProposerEmptySetPosition(i, random.nextInt(row.length + 1));
+            }
+        }
+        for (int j = 0; j < proposeeCount; j++) {
+            int[] row = randomList(proposerCount, random.nextInt(3) == 0 ? -1 : proposerCount, random);
+            builder.setProposeePreferences(j, row);
+            if (random.nextInt(4) == 0) {
+                builder.setProposeeEmptySetPosition(j, random.nextInt(row.length + 1));
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Lists of random length with ties: always on the proposee side, and on the proposer side
+     * when {@code proposerTies} is set.
+     */
+    static CompiledMarket withTies(int proposerCount, int proposeeCount, boolean proposerTies, Random random) {
+        CompiledMarket.Builder builder = builder(proposerCount, proposeeCount);
+        for (int i = 0; i < proposerCount; i++) {
+            int[] row = randomList(proposeeCount, -1, random);
+            builder.setProposerPreferences(i, row);
+            if (proposerTies) {
+                builder.setProposerTieLevels(i, randomTieLevels(row.length, random));
+            }
+        }
+        for (int j = 0; j < proposeeCount; j++) {
+            int[] row = randomList(proposerCount, -1, random);
+            builder.setProposeePreferences(j, row);
+            builder.setProposeeTieLevels(j, randomTieLevels(row.length, random));
+        }
+        return builder.build();
+    }
+    
+    private static CompiledMarket.Builder builder(int proposerCount, int proposeeCount) {
+        List<Proposer> proposers = new ArrayList<>();
+        List<Proposee> proposees = new ArrayList<>();
+        for (int i = 0; i < proposerCount; i++) {
+            proposers.add(new Proposer("m" + i, "Proposer " + i));
+        }
+        for (int j = 0; j < proposeeCount; j++) {
+            proposees.add(new Proposee("w" + j, "Proposee " + j));
+        }
+        return CompiledMarket.builder(proposers, proposees);
+    }
+    
+    /**
+     * A shuffled list of {@code length} candidates, or of a random length when it is negative.
+     */
+    private static int[] randomList(int candidates, int length, Random random) {
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < candidates; c++) {
+            order.add(c);
+        }
+        Collections.shuffle(order, random);
+        int size = length < 0 ? random.nextInt(candidates + 1) : length;
+        return order.subList(0, size).stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    private static int[] randomTieLevels(int length, Random random) {
+        int[] levels = new int[length];
+        for (int position = 1; position < length; position++) {
+            levels[position] = levels[position - 1] + (random.nextBoolean() ? 1 : 0);
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,170 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+class StableMatchingLatticeTest {
+    
+    @Test
+    void shouldEnumerateAllThreeStableMatchingsOfCyclicPreferences() {
+        // Every proposer gets their first, second or third choice in the three stable matchings
+        CompiledMarket market = market(3, 3,
+            new int[][] {{0, 1, 2}, {1, 2, 0}, {2, 0, 1}},
+            new int[][] {{1, 2, 0}, {2, 0, 1}, {0, 1, 2}});
+        
+        StableMatchingLattice lattice = StableMatchingLattice.build(market);
+        List<int[]> matchings = lattice.stableMatchings().map(m -> partners(market, m)).collect(Collectors.toList());
+        
+        assertThat(lattice.getRotations()).hasSize(2);
+        assertThat(lattice.getRotations().get(1).getPredecessors()).containsExactly(0);
+        assertThat(matchings).containsExactlyInAnyOrder(
+            new int[] {0, 1, 2}, new int[] {1, 2, 0}, new int[] {2, 0, 1});
+        assertThat(matchings.get(0)).containsExactly(0, 1, 2);
+        assertThat(partners(market, lattice.getProposeeOptimalMatching())).containsExactly(2, 0, 1);
+    }
+    
+    @Test
+    void shouldFindExactlyTheStableMatchingsOfRandomTruncatedMarkets() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 300; trial++) {
+            int proposers = 2 + random.nextInt(5);
+            int proposees = 2 + random.nextInt(5);
+            CompiledMarket market = RandomMarkets.truncated(proposers, proposees, random);
+            
+            StableMatchingLattice lattice = StableMatchingLattice.build(market);
+            Set<List<Integer>> enumerated = new HashSet<>();
+            lattice.stableMatchings().forEach(m -> {
+                boolean added = enumerated.add(asList(partners(market, m)));
+                assertThat(added).as("duplicate stable matching").isTrue();
+            });
+            
+            assertThat(enumerated).as("trial %d", trial).isEqualTo(bruteForceStableMatchings(market));
+        }
+    }
+    
+    @Test
+    void shouldReportUnmatchedProposersWithAnEmptySetAsSingle() {
+        CompiledMarket.Builder builder = CompiledMarket.builder(
+            Arrays.asList(new Proposer("m1", "Adam"), new Proposer("m2", "Bob")),
+            Collections.singletonList(new Proposee("w1", "Beth")));
+        builder.setProposerPreferences(0, new int[] {0})
+               .setProposerPreferences(1, new int[] {0})
+               .setProposerEmptySetPosition(1, 1)
+               .setProposeePreferences(0, new int[] {0, 1});
+        CompiledMarket market = builder.build();
+        
+        List<Matching> matchings = StableMatchingLattice.build(market).stableMatchings().collect(Collectors.toList());
+        
+        assertThat(matchings).hasSize(1);
+        assertThat(matchings.get(0).getMatch(market.getProposer(1))).contains(EmptySet.getInstance());
+        assertThat(matchings.get(0).getMatch(market.getProposee(0))).contains(market.getProposer(0));
+    }
+    
+    @Test
+    void shouldRejectRotationSetsThatAreNotClosed() {
+        CompiledMarket market = market(3, 3,
+            new int[][] {{0, 1, 2}, {1, 2, 0}, {2, 0, 1}},
+            new int[][] {{1, 2, 0}, {2, 0, 1}, {0, 1, 2}});
+        StableMatchingLattice lattice = StableMatchingLattice.build(market);
+        BitSet onlySecond = new BitSet();
+        onlySecond.set(1);
+        
+        assertThatThrownBy(() -> lattice.matchingFor(onlySecond))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("requires rotation 0");
+    }
+    
+    private static CompiledMarket market(int proposerCount, int proposeeCount, int[][] proposerRows, int[][] proposeeRows) {
+        List<Proposer> proposers = new ArrayList<>();
+        List<Proposee> proposees = new ArrayList<>();
+        for (int i = 0; i < proposerCount; i++) {
+            proposers.add(new Proposer("m" + i, "Proposer " + i));
+        }
+        for (int j = 0; j < proposeeCount; j++) {
+            proposees.add(new Proposee("w" + j, "Proposee " + j));
+        }
+        CompiledMarket.Builder builder = CompiledMarket.builder(proposers, proposees);
+        for (int i = 0; i < proposerCount; i++) {
+            builder.setProposerPreferences(i, proposerRows[i]);
+        }
+        for (int j = 0; j < proposeeCount; j++) {
+            builder.setProposeePreferences(j, proposeeRows[j]);
+        }
+        return builder.build();
+    }
+    
+    private static Set<List<Integer>> bruteForceStableMatchings(CompiledMarket market) {
+        Set<List<Integer>> stable = new HashSet<>();
+        int[] partners = new int[market.getProposerCount()];
+        boolean[] taken = new boolean[market.getProposeeCount()];
+        search(market, 0, partners, taken, stable);
+        return stable;
+    }
+    
+    private static void search(CompiledMarket market, int proposer, int[] partners, boolean[] taken,
+                               Set<List<Integer>> stable) {
+        if (proposer == partners.length) {
+            if (isStable(market, partners)) {
+                stable.add(asList(partners));
+            }
+            return;
+        }
+        partners[proposer] = -1;
+        search(market, proposer + 1, partners, taken, stable);
+        for (int proposee = 0; proposee < taken.length; proposee++) {
+            if (!taken[proposee] && acceptable(market, proposer, proposee)) {
+                taken[proposee] = true;
+                partners[proposer] = proposee;
+                search(market, proposer + 1, partners, taken, stable);
+                taken[proposee] = false;
+            }
+        }
+    }
+    
+    private static boolean isStable(CompiledMarket market, int[] partners) {
+        int[] proposeePartners = new int[market.getProposeeCount()];
+        Arrays.fill(proposeePartners, -1);
+        for (int i = 0; i < partners.length; i++) {
+            if (partners[i] >= 0) {
+                proposeePartners[partners[i]] = i;
+            }
+        }
+        for (int i = 0; i < partners.length; i++) {
+            for (int j = 0; j < proposeePartners.length; j++) {
+                if (partners[i] == j || !acceptable(market, i, j)) {
+                    continue;
+                }
+                boolean proposerPrefers = partners[i] < 0
+                    || market.getProposerRank(i, j) < market.getProposerRank(i, partners[i]);
+                boolean proposeePrefers = proposeePartners[j] < 0
+                    || market.getProposeeRank(j, i) < market.getProposeeRank(j, proposeePartners[j]);
+                if (proposerPrefers && proposeePrefers) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static boolean acceptable(CompiledMarket market, int proposer, int proposee) {
+        return market.isAcceptableToProposer(proposer, proposee) && market.isAcceptableToProposee(proposee, proposer);
+    }
+    
+    private static int[] partners(CompiledMarket market, Matching matching) {
+        int[] partners = new int[market.getProposerCount()];
+        for (int i = 0; i < partners.length; i++) {
+            Optional<Proposee> match = matching.getMatch(market.getProposer(i));
+            partners[i] = match.isPresent() && !match.get().isEmptySet() ? market.indexOf(match.get()) : -1;
+        }
+        return partners;
+    }
+    
+    private static List<Integer> asList(int[] partners) {
+        return Arrays.stream(partners).boxed().collect(Collectors.toList());
+    }
+}
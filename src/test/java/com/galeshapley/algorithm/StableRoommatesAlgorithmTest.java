@@ -0,0 +1,153 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.Roommate;
+import com.galeshapley.model.RoommatesMarket;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class StableRoommatesAlgorithmTest {
+    
+    @Test
+    void shouldFindAStableMatchingExactlyWhenOneExists() {
+        Random random = new Random(41);
+        int solvable = 0;
+        for (int trial = 0; trial < 2000; trial++) {
+            RoommatesMarket market = randomMarket(2 + random.nextInt(7), random);
+            
+            StableRoommatesAlgorithm.Result result = new StableRoommatesAlgorithm(market).execute();
+            
+            boolean exists = anyStable(market, 0, new int[market.getAgentCount()], initialPartners(market));
+            assertThat(result.hasStableMatching()).as("trial %d", trial).isEqualTo(exists);
+            if (exists) {
+                solvable++;
+                int[] partners = new int[market.getAgentCount()];
+                for (int agent = 0; agent < partners.length; agent++) {
+                    partners[agent] = result.getPartner(agent);
+                }
+                assertThat(isStable(market, partners)).as("trial %d", trial).isTrue();
+            } else {
+                assertThat(result.getFailureReason()).isPresent();
+            }
+        }
+        assertThat(solvable).isBetween(1, 1999);
+    }
+    
+    @Test
+    void shouldReportTheClassicInstanceWithoutAStableMatching() {
+        // a, b and c each rank the next one first and d last, so whoever is paired with d has a
+        // willing partner they prefer
+        List<Roommate> agents = roommates(4);
+        RoommatesMarket market = RoommatesMarket.builder(agents)
+            .setPreferences(0, new int[] {1, 2, 3})
+            .setPreferences(1, new int[] {2, 0, 3})
+            .setPreferences(2, new int[] {0, 1, 3})
+            .setPreferences(3, new int[] {0, 1, 2})
+            .build();
+        
+        StableRoommatesAlgorithm.Result result = new StableRoommatesAlgorithm(market).execute();
+        
+        assertThat(result.hasStableMatching()).isFalse();
+        assertThatThrownBy(result::getPairs).isInstanceOf(IllegalStateException.class);
+    }
+    
+    @Test
+    void shouldPairMutualFirstChoicesAndLeaveUnwantedAgentsAlone() {
+        List<Roommate> agents = roommates(3);
+        RoommatesMarket market = RoommatesMarket.builder(agents)
+            .setPreferences(0, new int[] {1, 2})
+            .setPreferences(1, new int[] {0})
+            .setPreferences(2, new int[] {0})
+            .build();
+        
+        StableRoommatesAlgorithm.Result result = new StableRoommatesAlgorithm(market).execute();
+        
+        assertThat(result.hasStableMatching()).isTrue();
+        assertThat(result.getPartner(agents.get(0))).contains(agents.get(1));
+        assertThat(result.getPartner(agents.get(2))).isEmpty();
+        assertThat(result.getPairs()).hasSize(1);
+    }
+    
+    @Test
+    void shouldRejectAgentsRankingThemselves() {
+        RoommatesMarket.Builder builder = RoommatesMarket.builder(roommates(2));
+        
+        assertThatThrownBy(() -> builder.setPreferences(0, new int[] {0, 1}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    private static List<Roommate> roommates(int count) {
+        List<Roommate> agents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            agents.add(new Roommate("r" + i, "Roommate " + i));
+        }
+        return agents;
+    }
+    
+    private static RoommatesMarket randomMarket(int count, Random random) {
+        RoommatesMarket.Builder builder = RoommatesMarket.builder(roommates(count));
+        for (int agent = 0; agent < count; agent++) {
+            List<Integer> order = new ArrayList<>();
+            for (int other = 0; other < count; other++) {
+                if (other != agent) {
+                    order.add(other);
+                }
+            }
+            Collections.shuffle(order, random);
+            int length = random.nextInt(3) == 0 ? random.nextInt(order.size() + 1) : order.size();
+            builder.setPreferences(agent, order.subList(0, length).stream().mapToInt(Integer::intValue).toArray());
+        }
+        return builder.build();
+    }
+    
+    private static int[] initialPartners(RoommatesMarket market) {
+        int[] partners = new int[market.getAgentCount()];
+        Arrays.fill(partners, -2);
+        return partners;
+    }
+    
+    private static boolean anyStable(RoommatesMarket market, int agent, int[] unused, int[] partners) {
+        if (agent == partners.length) {
+            return isStable(market, partners);
+        }
+        if (partners[agent] != -2) {
+            return anyStable(market, agent + 1, unused, partners);
+        }
+        partners[agent] = -1;
+        if (anyStable(market, agent + 1, unused, partners)) {
+            return true;
+        }
+        for (int other = agent + 1; other < partners.length; other++) {
+            if (partners[other] == -2 && market.isAcceptable(agent, other)) {
+                partners[agent] = other;
+                partners[other] = agent;
+                if (anyStable(market, agent + 1, unused, partners)) {
+                    return true;
+                }
+                partners[other] = -2;
+            }
+        }
+        partners[agent] = -2;
+        return false;
+    }
+    
+    private static boolean isStable(RoommatesMarket market, int[] partners) {
+        for (int a = 0; a < partners.length; a++) {
+            for (int b = a + 1; b < partners.length; b++) {
+                if (partners[a] == b || !market.isAcceptable(a, b)) {
+                    continue;
+                }
+                if (prefers(market, a, b, partners[a]) && prefers(market, b, a, partners[b])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static boolean prefers(RoommatesMarket market, int agent, int candidate, int partner) {
+        return partner < 0 || market.getRank(agent, candidate) < market.getRank(agent, partner);
+    }
+}
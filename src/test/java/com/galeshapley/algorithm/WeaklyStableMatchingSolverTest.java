@@ -0,0 +1,140 @@
+package com.galeshapley.algorithm;
+
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WeaklyStableMatchingSolverTest {
+    
+    @Test
+    void shouldFindTwoThirdsOfTheLargestWeaklyStableMatchingWithProposeeTies() {
+        Random random = new Random(31);
+        for (int trial = 0; trial < 400; trial++) {
+            CompiledMarket market = RandomMarkets.withTies(2 + random.nextInt(5), 2 + random.nextInt(5), false, random);
+            
+            GaleShapleyAlgorithm.AlgorithmResult result =
+                new WeaklyStableMatchingSolver(market, SolverMode.MAX_CARDINALITY).execute();
+            int[] partners = partners(market, result.getFinalMatching());
+            
+            assertThat(isWeaklyStable(market, partners)).as("trial %d", trial).isTrue();
+            assertThat(result.getCost()).hasValue(pairs(partners));
+            assertThat(3 * pairs(partners)).as("trial %d", trial).isGreaterThanOrEqualTo(2 * largestWeaklyStable(market));
+        }
+    }
+    
+    @Test
+    void shouldKeepTheLargestRandomTieBreakAndRepeatItForTheSameSeed() {
+        Random random = new Random(37);
+        for (int trial = 0; trial < 200; trial++) {
+            CompiledMarket market = RandomMarkets.withTies(2 + random.nextInt(5), 2 + random.nextInt(5), true, random);
+            WeaklyStableMatchingSolver solver = new WeaklyStableMatchingSolver(market, SolverMode.TIE_BREAKING)
+                .setTieBreakTrials(8)
+                .setSeed(trial);
+            
+            int[] partners = partners(market, solver.execute().getFinalMatching());
+            int[] again = partners(market, solver.execute().getFinalMatching());
+            
+            assertThat(isWeaklyStable(market, partners)).as("trial %d", trial).isTrue();
+            assertThat(again).isEqualTo(partners);
+            assertThat(isWeaklyStable(market, partners(market,
+                new WeaklyStableMatchingSolver(market, SolverMode.MAX_CARDINALITY).execute().getFinalMatching())))
+                .isTrue();
+        }
+    }
+    
+    @Test
+    void shouldPreferThePromotedProposerWithinATie() {
+        // w0 is indifferent between both proposers; m1 only finds a partner by being promoted
+        List<Proposer> proposers = Arrays.asList(new Proposer("m0", "Adam"), new Proposer("m1", "Bob"));
+        List<Proposee> proposees = Arrays.asList(new Proposee("w0", "Beth"), new Proposee("w1", "Cara"));
+        CompiledMarket market = CompiledMarket.builder(proposers, proposees)
+            .setProposerPreferences(0, new int[] {0, 1})
+            .setProposerPreferences(1, new int[] {0})
+            .setProposeePreferences(0, new int[] {0, 1})
+            .setProposeeTieLevels(0, new int[] {0, 0})
+            .setProposeePreferences(1, new int[] {0})
+            .build();
+        
+        GaleShapleyAlgorithm.AlgorithmResult result =
+            new WeaklyStableMatchingSolver(market, SolverMode.MAX_CARDINALITY).execute();
+        
+        assertThat(market.hasTies()).isTrue();
+        assertThat(partners(market, result.getFinalMatching())).containsExactly(1, 0);
+        assertThat(result.getCost()).hasValue(2);
+    }
+    
+    private static int largestWeaklyStable(CompiledMarket market) {
+        int[] best = {0};
+        search(market, 0, new int[market.getProposerCount()], new boolean[market.getProposeeCount()], best);
+        return best[0];
+    }
+    
+    private static void search(CompiledMarket market, int proposer, int[] partners, boolean[] taken, int[] best) {
+        if (proposer == partners.length) {
+            if (pairs(partners) > best[0] && isWeaklyStable(market, partners)) {
+                best[0] = pairs(partners);
+            }
+            return;
+        }
+        partners[proposer] = -1;
+        search(market, proposer + 1, partners, taken, best);
+        for (int proposee = 0; proposee < taken.length; proposee++) {
+            if (!taken[proposee] && market.isAcceptableToProposer(proposer, proposee)
+                    && market.isAcceptableToProposee(proposee, proposer)) {
+                taken[proposee] = true;
+                partners[proposer] = proposee;
+                search(market, proposer + 1, partners, taken, best);
+                taken[proposee] = false;
+            }
+        }
+    }
+    
+    private static boolean isWeaklyStable(CompiledMarket market, int[] partners) {
+        int[] proposeePartners = new int[market.getProposeeCount()];
+        Arrays.fill(proposeePartners, -1);
+        for (int i = 0; i < partners.length; i++) {
+            if (partners[i] >= 0) {
+                proposeePartners[partners[i]] = i;
+            }
+        }
+        for (int i = 0; i < partners.length; i++) {
+            for (int j = 0; j < proposeePartners.length; j++) {
+                if (partners[i] == j || !market.isAcceptableToProposer(i, j) || !market.isAcceptableToProposee(j, i)) {
+                    continue;
+                }
+                boolean proposerPrefers = partners[i] < 0
+                    || proposerLevel(market, i, j) < proposerLevel(market, i, partners[i]);
+                boolean proposeePrefers = proposeePartners[j] < 0
+                    || proposeeLevel(market, j, i) < proposeeLevel(market, j, proposeePartners[j]);
+                if (proposerPrefers && proposeePrefers) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static int proposerLevel(CompiledMarket market, int proposer, int proposee) {
+        return market.getProposerTieLevel(proposer, market.getProposerRank(proposer, proposee));
+    }
+    
+    private static int proposeeLevel(CompiledMarket market, int proposee, int proposer) {
+        return market.getProposeeTieLevel(proposee, market.getProposeeRank(proposee, proposer));
+    }
+    
+    private static int pairs(int[] partners) {
+        return (int) Arrays.stream(partners).filter(p -> p >= 0).count();
+    }
+    
+    private static int[] partners(CompiledMarket market, Matching matching) {
+        int[] partners = new int[market.getProposerCount()];
+        for (int i = 0; i < partners.length; i++) {
+            Optional<Proposee> match = matching.getMatch(market.getProposer(i));
+            partners[i] = match.isPresent() && !match.get().isEmptySet() ? market.indexOf(match.get()) : -1;
+        }
+        return partners;
+    }
+}
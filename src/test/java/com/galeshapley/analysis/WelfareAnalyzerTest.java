@@ -0,0 +1,107 @@
+package com.galeshapley.analysis;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WelfareAnalyzerTest {
+    
+    @Test
+    void shouldComputeRanksAndCostsForBothSides() {
+        Proposer m1 = new Proposer("m1", "Adam");
+        Proposer m2 = new Proposer("m2", "Bob");
+        Proposer m3 = new Proposer("m3", "Carl");
+        Proposer m4 = new Proposer("m4", "Dan");
+        Proposee w1 = new Proposee("w1", "Beth");
+        Proposee w2 = new Proposee("w2", "Cara");
+        Proposee w3 = new Proposee("w3", "Dora");
+        
+        CompiledMarket market = CompiledMarket.builder(Arrays.asList(m1, m2, m3, m4), Arrays.asList(w1, w2, w3))
+            .setProposerPreferences(0, new int[] {0, 1})
+            .setProposerPreferences(1, new int[] {0})
+            .setProposerPreferences(2, new int[] {2})
+            .setProposerEmptySetPosition(2, 0)
+            .setProposeePreferences(0, new int[] {1, 0})
+            .setProposeePreferences(1, new int[] {3, 0})
+            .setProposeePreferences(2, new int[] {2})
+            .build();
+        
+        Matching matching = new Matching();
+        Arrays.asList(m1, m2, m3, m4).forEach(matching::addProposer);
+        Arrays.asList(w1, w2, w3).forEach(matching::addProposee);
+        matching.match(m1, w2);
+        matching.match(m2, w1);
+        matching.match(m3, EmptySet.getInstance());
+        
+        WelfareAnalyzer.Welfare welfare = WelfareAnalyzer.analyze(market, matching);
+        
+        assertThat(welfare.getMatchedPairs()).isEqualTo(2);
+        assertThat(welfare.getSingleProposers()).isEqualTo(1);
+        assertThat(welfare.getUnmatchedProposers()).isEqualTo(1);
+        assertThat(welfare.getUnmatchedProposees()).isEqualTo(1);
+        assertThat(welfare.getProposers().getHistogram()).containsExactly(1, 1);
+        assertThat(welfare.getProposers().getMeanRank()).isEqualTo(0.5);
+        assertThat(welfare.getProposees().getHistogram()).containsExactly(1, 1);
+        assertThat(welfare.getEgalitarianCost()).isEqualTo(2);
+        assertThat(welfare.getSexEqualityCost()).isZero();
+        assertThat(welfare.getRegret()).isEqualTo(1);
+        assertThat(welfare.getProposees().getMedianRank()).isZero();
+    }
+    
+    @Test
+    void shouldMatchNaiveRanksOnLargeMarketsAnalyzedInParallel() {
+        int n = WelfareAnalyzer.PARALLEL_THRESHOLD + 500;
+        Random random = new Random(7);
+        List<Proposer> proposers = new ArrayList<>();
+        List<Proposee> proposees = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            proposers.add(new Proposer("m" + i, "Proposer " + i));
+            proposees.add(new Proposee("w" + i, "Proposee " + i));
+        }
+        CompiledMarket.Builder builder = CompiledMarket.builder(proposers, proposees);
+        for (int i = 0; i < n; i++) {
+            builder.setProposerPreferences(i, shuffledPrefix(n, 20, random));
+            builder.setProposeePreferences(i, shuffledPrefix(n, n, random));
+        }
+        CompiledMarket market = builder.build();
+        Matching matching = new GaleShapleyAlgorithm(market).execute().getFinalMatching();
+        
+        long proposerSum = 0;
+        long proposeeSum = 0;
+        int pairs = 0;
+        for (Map.Entry<Proposer, Proposee> entry : matching.getAllMatches().entrySet()) {
+            int i = market.indexOf(entry.getKey());
+            int j = market.indexOf(entry.getValue());
+            proposerSum += market.getProposerRank(i, j);
+            proposeeSum += market.getProposeeRank(j, i);
+            pairs++;
+        }
+        
+        WelfareAnalyzer.Welfare welfare = WelfareAnalyzer.analyze(market, matching);
+        
+        assertThat(welfare.getMatchedPairs()).isEqualTo(pairs);
+        assertThat(welfare.getProposers().getRankSum()).isEqualTo(proposerSum);
+        assertThat(welfare.getProposees().getRankSum()).isEqualTo(proposeeSum);
+        assertThat(Arrays.stream(welfare.getProposers().getHistogram()).sum()).isEqualTo(pairs);
+        assertThat(welfare.getUnmatchedProposers() + pairs).isEqualTo(n);
+        assertThat(welfare.getProposers().getRegret()).isLessThan(20);
+    }
+    
+    private static int[] shuffledPrefix(int n, int length, Random random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[k];
+            order[k] = swap;
+        }
+        return Arrays.copyOf(order, length);
+    }
+}
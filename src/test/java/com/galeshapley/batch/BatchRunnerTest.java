@@ -0,0 +1,102 @@
+package com.galeshapley.batch;
+
+import com.galeshapley.algorithm.SolverMode;
+import com.galeshapley.config.RuntimeOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BatchRunnerTest {
+    
+    private static final String VALID_CONFIG =
+        "simulation:\n" +
+        "  proposers: [{id: m1, name: Adam}, {id: m2, name: Bob}]\n" +
+        "  proposees: [{id: w1, name: Beth}, {id: w2, name: Cara}]\n" +
+        "  proposerPreferences: {m1: [w1, w2], m2: [w1, w2]}\n" +
+        "  proposeePreferences: {w1: [m2, m1], w2: [m1, m2]}\n";
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void shouldRunEveryConfigAndIsolateFailures() throws IOException {
+        write("a-config.yaml", VALID_CONFIG);
+        write("b-broken.yaml", "simulation:\n  proposers: [{id: m1, name: Adam}]\n  proposerPreferences: {m9: [w1]}\n");
+        write("nested/c-config.yml", VALID_CONFIG);
+        write("notes.txt", "not a config");
+        
+        List<Path> configs = BatchRunner.findConfigs(directory.toString());
+        Path results = directory.resolve("out/results.csv");
+        
+        List<BatchRunner.BatchResult> summaries = BatchRunner.builder().threads(2).build().run(configs, results);
+        
+        assertThat(summaries).extracting(BatchRunner.BatchResult::isSuccess).containsExactly(true, false, true);
+        assertThat(summaries.get(0).getMatched()).isEqualTo(2);
+        assertThat(summaries.get(1).getError()).contains("m9");
+        
+        List<String> lines = Files.readAllLines(results, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0)).startsWith("config,status,proposers");
+        assertThat(lines.get(1)).contains("a-config.yaml,ok,2,2,2,0");
+        assertThat(lines.get(2)).contains("b-broken.yaml,error");
+    }
+    
+    @Test
+    void shouldRunOnlyTheSelectedSolver() throws IOException {
+        write("a-config.yaml", VALID_CONFIG);
+        Path results = directory.resolve("results.csv");
+        BatchRunner runner = BatchRunner.builder()
+            .runtimeOptions(RuntimeOptions.builder().solver(SolverMode.EGALITARIAN).build())
+            .build();
+        
+        List<BatchRunner.BatchResult> summaries = runner.run(BatchRunner.findConfigs(directory.toString()), results);
+        
+        assertThat(summaries.get(0).getMatched()).isEqualTo(2);
+        // No Gale-Shapley run, so no proposal counts
+        assertThat(Files.readAllLines(results, StandardCharsets.UTF_8).get(1))
+            .contains("a-config.yaml,ok,2,2,2,0,0,0,")
+            .containsPattern(",ok(,\\d+){7},,,");
+    }
+    
+    @Test
+    void shouldTurnAnErrorInAJobIntoAnErrorRow() throws IOException {
+        Path config = directory.resolve("huge-config.yaml");
+        CompletableFuture<BatchRunner.BatchResult> future = new CompletableFuture<>();
+        future.completeExceptionally(new OutOfMemoryError("Java heap space"));
+        
+        BatchRunner.BatchResult summary = BatchRunner.await(future, config);
+        
+        assertThat(summary.isSuccess()).isFalse();
+        assertThat(summary.getConfig()).isEqualTo(config);
+        assertThat(summary.getError()).isEqualTo("OutOfMemoryError: Java heap space");
+        assertThat(summary.toCsvRow()).startsWith(config + ",error");
+    }
+    
+    @Test
+    void shouldExpandGlobPatterns() throws IOException {
+        write("a-config.yaml", VALID_CONFIG);
+        write("b-other.yaml", VALID_CONFIG);
+        write("nested/c-config.yaml", VALID_CONFIG);
+        
+        assertThat(BatchRunner.findConfigs(directory + "/*-config.yaml"))
+            .extracting(path -> path.getFileName().toString())
+            .containsExactly("a-config.yaml");
+        assertThat(BatchRunner.findConfigs(directory + "/**-config.yaml"))
+            .extracting(path -> path.getFileName().toString())
+            .containsExactly("a-config.yaml", "c-config.yaml");
+    }
+    
+    private void write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
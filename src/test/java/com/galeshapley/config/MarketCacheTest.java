@@ -0,0 +1,113 @@
+package com.galeshapley.config;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.model.CompiledMarket;
+import com.galeshapley.model.Proposee;
+import com.galeshapley.model.Proposer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MarketCacheTest {
+    
+    private static final String CONFIG = 
+        "simulation:\n" +
+        "  proposerConfig:\n" +
+        "    count: 80\n" +
+        "    generator:\n" +
+        "      distribution:\n" +
+        "        type: uniform\n" +
+        "        emptySetProbability: 0.3\n" +
+        "  proposeeConfig:\n" +
+        "    count: 70\n" +
+        "    generator:\n" +
+        "      distribution:\n" +
+        "        type: mallows\n" +
+        "        phi: 0.6\n";
+    
+    @Test
+    void shouldMapACachedMarketInsteadOfGeneratingItAgain(@TempDir Path cacheDir) throws IOException {
+        RuntimeOptions options = RuntimeOptions.builder().globalSeed(21L).marketCacheDir(cacheDir.toString()).build();
+        SimulationConfigLoader loader = new SimulationConfigLoader();
+        
+        CompiledMarket generated = loader.loadFromString(CONFIG, options).getMarket();
+        CompiledMarket cached = loader.loadFromString(CONFIG, options).getMarket();
+        CompiledMarket uncached = loader.loadFromString(CONFIG, RuntimeOptions.builder().globalSeed(21L).build()).getMarket();
+        
+        assertThat(generated.isOffHeap()).isFalse();
+        assertThat(cached.isOffHeap()).isTrue();
+        assertThat(entries(cacheDir)).isEqualTo(1);
+        assertThat(new GaleShapleyAlgorithm(cached).execute().getFinalMatching().getAllMatches())
+            .isEqualTo(new GaleShapleyAlgorithm(uncached).execute().getFinalMatching().getAllMatches());
+        for (int i = 0; i < uncached.getProposerCount(); i++) {
+            assertThat(cached.getProposerCutoff(i)).isEqualTo(uncached.getProposerCutoff(i));
+        }
+    }
+    
+    @Test
+    void shouldKeyMarketsBySettingsAndSeed() throws IOException {
+        YamlConfig.SimulationData simData = YamlConfig.loadFromString(CONFIG).getSimulation();
+        YamlConfig.SimulationData reordered = YamlConfig.loadFromString(CONFIG.replace(
+            "        type: mallows\n        phi: 0.6\n", "        phi: 0.6\n        type: mallows\n")).getSimulation();
+        YamlConfig.SimulationData changed = YamlConfig.loadFromString(CONFIG.replace("0.6", "0.7")).getSimulation();
+        
+        assertThat(MarketCache.keyOf(simData, 1L)).isEqualTo(MarketCache.keyOf(reordered, 1L));
+        assertThat(MarketCache.keyOf(simData, 1L)).isNotEqualTo(MarketCache.keyOf(simData, 2L));
+        assertThat(MarketCache.keyOf(simData, 1L)).isNotEqualTo(MarketCache.keyOf(changed, 1L));
+        assertThat(MarketCache.keyOf(simData, null)).isEmpty();
+    }
+    
+    @Test
+    void shouldEvictTheLeastRecentlyUsedMarkets(@TempDir Path cacheDir) throws IOException {
+        SimulationConfigLoader loader = new SimulationConfigLoader();
+        YamlConfig.SimulationData simData = YamlConfig.loadFromString(CONFIG).getSimulation();
+        long now = System.currentTimeMillis();
+        for (long seed = 1; seed <= 3; seed++) {
+            loader.loadFromString(CONFIG, RuntimeOptions.builder().globalSeed(seed).marketCacheDir(cacheDir.toString()).build());
+            Path entry = cacheDir.resolve(MarketCache.keyOf(simData, seed).get() + ".market");
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(now - 10000 + seed * 1000));
+        }
+        Path oldest = cacheDir.resolve(MarketCache.keyOf(simData, 1L).get() + ".market");
+        MarketCache cache = new MarketCache(cacheDir, 2 * Files.size(oldest));
+        
+        // Reading the oldest entry makes it the most recently used one
+        CompiledMarket market = loader.loadFromString(CONFIG, RuntimeOptions.builder().globalSeed(4L).build()).getMarket();
+        assertThat(cache.load(MarketCache.keyOf(simData, 1L).get(), proposers(market), proposees(market))).isPresent();
+        cache.store("fresh", market);
+        
+        assertThat(entries(cacheDir)).isEqualTo(2);
+        assertThat(oldest).exists();
+        assertThat(cacheDir.resolve("fresh.market")).exists();
+    }
+    
+    private static List<Proposer> proposers(CompiledMarket market) {
+        List<Proposer> proposers = new ArrayList<>();
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            proposers.add(market.getProposer(i));
+        }
+        return proposers;
+    }
+    
+    private static List<Proposee> proposees(CompiledMarket market) {
+        List<Proposee> proposees = new ArrayList<>();
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            proposees.add(market.getProposee(j));
+        }
+        return proposees;
+    }
+    
+    private static long entries(Path cacheDir) throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.filter(file -> file.toString().endsWith(".market")).count();
+        }
+    }
+}
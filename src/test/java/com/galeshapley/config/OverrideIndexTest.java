@@ -0,0 +1,79 @@
+package com.galeshapley.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OverrideIndexTest {
+    
+    private final YamlConfig.GeneratorConfig defaultGen = new YamlConfig.GeneratorConfig();
+    private final YamlConfig.GeneratorConfig first = new YamlConfig.GeneratorConfig();
+    private final YamlConfig.GeneratorConfig second = new YamlConfig.GeneratorConfig();
+    
+    @Test
+    void shouldResolveFirstMatchingOverride() {
+        List<YamlConfig.AgentOverride> overrides = Arrays.asList(
+            index(15, first),
+            range(10, 20, second),
+            range(18, 30, first));
+        
+        OverrideIndex index = OverrideIndex.compile(overrides, defaultGen, 100);
+        
+        assertThat(index.generatorFor(9)).isSameAs(defaultGen);
+        assertThat(index.generatorFor(10)).isSameAs(second);
+        assertThat(index.generatorFor(15)).isSameAs(first);
+        assertThat(index.generatorFor(20)).isSameAs(second);
+        assertThat(index.generatorFor(21)).isSameAs(first);
+        assertThat(index.generatorFor(30)).isSameAs(first);
+        assertThat(index.generatorFor(31)).isSameAs(defaultGen);
+    }
+    
+    @Test
+    void shouldCoverEveryAgentWithOrderedSegments() {
+        List<YamlConfig.AgentOverride> overrides = Arrays.asList(
+            range(5, 9, first),
+            range(10, 14, first),
+            range(90, 150, second));
+        
+        OverrideIndex index = OverrideIndex.compile(overrides, defaultGen, 100);
+        
+        assertThat(index.getSegmentCount()).isEqualTo(2);
+        assertThat(index.segments())
+            .extracting(OverrideIndex.Segment::getStart, OverrideIndex.Segment::getEnd, OverrideIndex.Segment::getGenerator)
+            .containsExactly(
+                tuple(0, 4, defaultGen),
+                tuple(5, 14, first),
+                tuple(15, 89, defaultGen),
+                tuple(90, 99, second));
+    }
+    
+    @Test
+    void shouldFallBackToDefaultWithoutOverrides() {
+        OverrideIndex index = OverrideIndex.compile(null, defaultGen, 3);
+        
+        assertThat(index.generatorFor(1)).isSameAs(defaultGen);
+        assertThat(index.segments()).hasSize(1);
+        assertThat(OverrideIndex.compile(Collections.emptyList(), defaultGen, 0).segments()).isEmpty();
+    }
+    
+    private static YamlConfig.AgentOverride index(int agentIndex, YamlConfig.GeneratorConfig generator) {
+        YamlConfig.AgentOverride override = new YamlConfig.AgentOverride();
+        override.setIndex(agentIndex);
+        override.setGenerator(generator);
+        return override;
+    }
+    
+    private static YamlConfig.AgentOverride range(int start, int end, YamlConfig.GeneratorConfig generator) {
+        YamlConfig.RangeConfig range = new YamlConfig.RangeConfig();
+        range.setStart(start);
+        range.setEnd(end);
+        YamlConfig.AgentOverride override = new YamlConfig.AgentOverride();
+        override.setRange(range);
+        override.setGenerator(generator);
+        return override;
+    }
+}
@@ -3,7 +3,15 @@ package com.galeshapley.config;
 import com.galeshapley.config.distribution.UniformDistributionConfig;
 import com.galeshapley.config.distribution.CorrelatedDistributionConfig;
 import com.galeshapley.config.distribution.CorrelatedDistributionConfig.PopularityBias;
+import com.galeshapley.config.distribution.LatentDistributionConfig;
+import com.galeshapley.config.distribution.MallowsDistributionConfig;
+import com.galeshapley.config.distribution.PlackettLuceDistributionConfig;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
@@ -175,4 +183,219 @@ class PreferenceGeneratorTest {
         assertThat(topPositionCounts.get("A")).isGreaterThan(topPositionCounts.get("C"));
         assertThat(topPositionCounts.get("B")).isGreaterThan(topPositionCounts.get("D"));
     }
+    
+    @Test
+    void shouldReturnTheMallowsReferenceWhenPhiIsZero() {
+        // Given: A Mallows generator with no dispersion and a partial reference ranking
+        MallowsDistributionConfig config = new MallowsDistributionConfig();
+        config.setPhi(0.0);
+        config.setReference(Arrays.asList("C", "A"));
+        PreferenceGenerator generator = new PreferenceGenerator(config, 3L);
+        
+        // When: Generating preferences
+        List<String> preferences = generator.generatePreferencesFromIds(Arrays.asList("A", "B", "C", "D"), false);
+        
+        // Then: The reference comes first, followed by the remaining candidates in order
+        assertThat(preferences).containsExactly("C", "A", "B", "D");
+    }
+    
+    @Test
+    void shouldSampleTheMallowsTopKAsThePrefixOfTheFullList() {
+        // Given: Full and top-k Mallows configurations sharing a seed
+        MallowsDistributionConfig full = new MallowsDistributionConfig();
+        full.setPhi(0.7);
+        MallowsDistributionConfig topK = new MallowsDistributionConfig();
+        topK.setPhi(0.7);
+        topK.setTopK(4);
+        List<String> candidates = new ArrayList<>();
+        for (int c = 0; c < 50; c++) {
+            candidates.add("c" + c);
+        }
+        
+        for (long seed = 0; seed < 100; seed++) {
+            // When: Generating one list of each
+            List<String> fullList = new PreferenceGenerator(full, seed).generatePreferencesFromIds(candidates, false);
+            List<String> prefix = new PreferenceGenerator(topK, seed).generatePreferencesFromIds(candidates, false);
+            
+            // Then: The top-k list is the full list cut off by the empty set
+            assertThat(fullList).containsExactlyInAnyOrderElementsOf(candidates);
+            assertThat(prefix.subList(0, 4)).isEqualTo(fullList.subList(0, 4));
+            assertThat(prefix).hasSize(5).endsWith("∅");
+        }
+    }
+    
+    @Test
+    void shouldWeightMallowsRankingsByDistanceFromTheReference() {
+        // Given: A Mallows generator over three candidates
+        MallowsDistributionConfig config = new MallowsDistributionConfig();
+        config.setPhi(0.5);
+        PreferenceGenerator generator = new PreferenceGenerator(config, 99L);
+        List<String> candidates = Arrays.asList("A", "B", "C");
+        
+        // When: Sampling many rankings
+        Map<String, Integer> counts = new HashMap<>();
+        int samples = 60000;
+        for (int i = 0; i < samples; i++) {
+            counts.merge(String.join("", generator.generatePreferencesFromIds(candidates, false)), 1, Integer::sum);
+        }
+        
+        // Then: Each ranking appears in proportion to phi to the power of its inversions
+        Map<String, Integer> inversions = new HashMap<>();
+        inversions.put("ABC", 0);
+        inversions.put("BAC", 1);
+        inversions.put("ACB", 1);
+        inversions.put("BCA", 2);
+        inversions.put("CAB", 2);
+        inversions.put("CBA", 3);
+        double normalizer = 1 + 0.5 + 0.5 + 0.25 + 0.25 + 0.125;
+        for (Map.Entry<String, Integer> ranking : inversions.entrySet()) {
+            double expected = Math.pow(0.5, ranking.getValue()) / normalizer;
+            assertThat(counts.getOrDefault(ranking.getKey(), 0) / (double) samples)
+                .as(ranking.getKey())
+                .isCloseTo(expected, within(0.01));
+        }
+    }
+    
+    @Test
+    void shouldRankLatentCandidatesByQualityAndDistanceFromTheOwner(@TempDir Path dir) throws IOException {
+        // Given: Features from a file and no noise
+        Path file = dir.resolve("features.csv");
+        Files.write(file, Arrays.asList(
+            "# id,x,y",
+            "m1, 0.0, 0.0",
+            "A, 4.0, 3.0",
+            "B, 1.0, 0.0",
+            "C, 0.0, 1.5"));
+        LatentDistributionConfig config = new LatentDistributionConfig();
+        config.setWeights(Arrays.asList(1.0, 0.5));
+        config.setDistanceWeight(1.0);
+        config.setNoise(0.0);
+        config.setFeatureFile(file.toString());
+        config.setEmptySetProbability(0.0);
+        PreferenceGenerator generator = new PreferenceGenerator(config);
+        List<String> candidates = Arrays.asList("A", "B", "C");
+        
+        // When: Ranking with and without knowing the owner
+        List<String> fromM1 = generator.generatePreferencesFromIds("m1", candidates, new Random(1));
+        List<String> anonymous = generator.generatePreferencesFromIds(candidates, new Random(1));
+        
+        // Then: m1 scores A 5.5 - 5, B 1 - 1 and C 0.75 - 1.5, against 5.5, 1 and 0.75 by quality alone
+        assertThat(fromM1).containsExactly("A", "B", "C");
+        assertThat(anonymous).containsExactly("A", "B", "C");
+        config.setWeights(Arrays.asList(0.1, 0.1));
+        assertThat(new PreferenceGenerator(config).generatePreferencesFromIds("m1", candidates, new Random(1)))
+            .containsExactly("B", "C", "A");
+    }
+    
+    @Test
+    void shouldKeepTheLatentTopKInABoundedHeap() {
+        // Given: Full and top-k latent configurations with noise and generated features
+        LatentDistributionConfig full = new LatentDistributionConfig();
+        full.setDimensions(3);
+        full.setNoise(0.5);
+        full.setFeatureSeed(5L);
+        LatentDistributionConfig topK = new LatentDistributionConfig();
+        topK.setDimensions(3);
+        topK.setNoise(0.5);
+        topK.setFeatureSeed(5L);
+        topK.setTopK(6);
+        List<String> candidates = new ArrayList<>();
+        for (int c = 0; c < 200; c++) {
+            candidates.add("w" + c);
+        }
+        
+        for (long seed = 0; seed < 50; seed++) {
+            // When: Generating one list of each for the same agent
+            List<String> fullList = new PreferenceGenerator(full, seed).generatePreferencesFromIds(candidates, false);
+            List<String> prefix = new PreferenceGenerator(topK, seed).generatePreferencesFromIds(candidates, false);
+            
+            // Then: The heap keeps exactly the best six, in order, before the empty set
+            assertThat(fullList).containsExactlyInAnyOrderElementsOf(candidates);
+            assertThat(prefix).hasSize(7).endsWith("∅");
+            assertThat(prefix.subList(0, 6)).isEqualTo(fullList.subList(0, 6));
+        }
+    }
+    
+    @Test
+    void shouldGiveLatentIdsWithEqualHashCodesTheirOwnFeatures() {
+        // Given: Two IDs with the same String hash code, ranked by quality alone
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        List<String> candidates = Arrays.asList("Aa", "BB");
+        
+        // When: Ranking them under many feature seeds
+        Set<String> leaders = new HashSet<>();
+        for (long featureSeed = 0; featureSeed < 20; featureSeed++) {
+            LatentDistributionConfig config = new LatentDistributionConfig();
+            config.setNoise(0.0);
+            config.setFeatureSeed(featureSeed);
+            config.setEmptySetProbability(0.0);
+            leaders.add(new PreferenceGenerator(config).generatePreferencesFromIds(candidates, new Random(1)).get(0));
+        }
+        
+        // Then: Their features differ, so each comes first under some seed
+        assertThat(leaders).containsExactlyInAnyOrder("Aa", "BB");
+    }
+    
+    @Test
+    void shouldDrawPlackettLuceRankingsInProportionToWeights() {
+        // Given: A Plackett-Luce generator with weights 4, 2 and 1
+        PlackettLuceDistributionConfig config = new PlackettLuceDistributionConfig();
+        config.setPopularityBias(Arrays.asList(createBias("A", 4.0), createBias("B", 2.0)));
+        PreferenceGenerator generator = new PreferenceGenerator(config, 17L);
+        List<String> candidates = Arrays.asList("C", "B", "A");
+        
+        // When: Sampling many rankings
+        Map<String, Integer> counts = new HashMap<>();
+        int samples = 60000;
+        for (int i = 0; i < samples; i++) {
+            counts.merge(String.join("", generator.generatePreferencesFromIds(candidates, false)), 1, Integer::sum);
+        }
+        
+        // Then: Each position goes to a remaining candidate in proportion to its weight
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("A", 4.0);
+        weights.put("B", 2.0);
+        weights.put("C", 1.0);
+        for (String ranking : Arrays.asList("ABC", "ACB", "BAC", "BCA", "CAB", "CBA")) {
+            double first = weights.get(ranking.substring(0, 1));
+            double second = weights.get(ranking.substring(1, 2));
+            double expected = first / 7.0 * second / (7.0 - first);
+            assertThat(counts.getOrDefault(ranking, 0) / (double) samples)
+                .as(ranking)
+                .isCloseTo(expected, within(0.01));
+        }
+    }
+    
+    @Test
+    void shouldSamplePlackettLuceTopKAsThePrefixOfTheFullList() {
+        // Given: Full and top-k Plackett-Luce configurations sharing bias rules and a seed
+        PopularityBias bias = createBias("c7", 20.0);
+        PlackettLuceDistributionConfig full = new PlackettLuceDistributionConfig();
+        full.setPopularityBias(Collections.singletonList(bias));
+        PlackettLuceDistributionConfig topK = new PlackettLuceDistributionConfig();
+        topK.setPopularityBias(Collections.singletonList(bias));
+        topK.setTopK(3);
+        List<String> candidates = new ArrayList<>();
+        for (int c = 0; c < 40; c++) {
+            candidates.add("c" + c);
+        }
+        
+        for (long seed = 0; seed < 100; seed++) {
+            // When: Generating one list of each
+            List<String> fullList = new PreferenceGenerator(full, seed).generatePreferencesFromIds(candidates, false);
+            List<String> prefix = new PreferenceGenerator(topK, seed).generatePreferencesFromIds(candidates, false);
+            
+            // Then: The top-k list is the full list cut off by the empty set
+            assertThat(fullList).containsExactlyInAnyOrderElementsOf(candidates);
+            assertThat(prefix).hasSize(4).endsWith("∅");
+            assertThat(prefix.subList(0, 3)).isEqualTo(fullList.subList(0, 3));
+        }
+    }
+    
+    private static PopularityBias createBias(String agent, double weight) {
+        PopularityBias bias = new PopularityBias();
+        bias.setAgent(agent);
+        bias.setWeight(weight);
+        return bias;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package com.galeshapley.config;
+
+import com.galeshapley.algorithm.SolverMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RuntimeOptionsResolverTest {
+    
+    @Test
+    void shouldUseApplicationDefaultsWhenNothingIsSet() {
+        RuntimeOptions options = RuntimeOptionsResolver.resolve(new String[0], Collections.emptyMap());
+        
+        assertThat(options.getMaxIterations()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(options.isDetailedLoggingEnabled()).isFalse();
+        assertThat(options.isTrackIterationMetrics()).isTrue();
+        assertThat(options.getGlobalSeed()).isNull();
+        assertThat(options.getSolver()).isEqualTo(SolverMode.GALE_SHAPLEY);
+    }
+    
+    @Test
+    void shouldParseSolverModesRelaxed() {
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.solver=minimum-regret"},
+            Collections.emptyMap()).getSolver()).isEqualTo(SolverMode.MINIMUM_REGRET);
+        assertThat(RuntimeOptionsResolver.resolve(new String[0],
+            Collections.singletonMap("GALESHAPLEY_SOLVER", "Egalitarian")).getSolver()).isEqualTo(SolverMode.EGALITARIAN);
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.tie-break-trials=4"},
+            Collections.emptyMap()).getTieBreakTrials()).isEqualTo(4);
+        
+        assertThatThrownBy(() -> RuntimeOptionsResolver.resolve(
+                new String[] {"--galeshapley.solver=fairest"}, Collections.emptyMap()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid value 'fairest' for galeshapley.solver");
+    }
+    
+    @Test
+    void shouldLetArgumentsOverrideEnvironment() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put("GALESHAPLEY_MAXITERATIONS", "500");
+        environment.put("GALESHAPLEY_GLOBALSEED", "7");
+        environment.put("GALESHAPLEY_TRACKITERATIONMETRICS", "false");
+        environment.put("PATH", "/usr/bin");
+        
+        String[] args = {
+            "config.yaml",
+            "--galeshapley.maxIterations=1000",
+            "--galeshapley.enable-detailed-logging=true",
+            "--spring.main.banner-mode=off"
+        };
+        
+        RuntimeOptions options = RuntimeOptionsResolver.resolve(args, environment);
+        
+        assertThat(options.getMaxIterations()).isEqualTo(1000);
+        assertThat(options.isDetailedLoggingEnabled()).isTrue();
+        assertThat(options.isTrackIterationMetrics()).isFalse();
+        assertThat(options.getGlobalSeed()).isEqualTo(7L);
+        assertThat(RuntimeOptionsResolver.positionalArgument(args, "default.yaml")).isEqualTo("config.yaml");
+    }
+    
+    @Test
+    void shouldClearSeedWithEmptyValueAndRejectInvalidValues() {
+        Map<String, String> environment = Collections.singletonMap("GALESHAPLEY_GLOBALSEED", "42");
+        
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.globalSeed="}, environment)
+            .getGlobalSeed()).isNull();
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.scratch-dir=/tmp/tables"},
+            Collections.emptyMap()).getScratchDir()).isEqualTo("/tmp/tables");
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.scratchDir="},
+            Collections.singletonMap("GALESHAPLEY_SCRATCHDIR", "/tmp/tables")).getScratchDir()).isNull();
+        RuntimeOptions cached = RuntimeOptions.builder().build();
+        assertThat(cached.getMarketCacheDir()).isNull();
+        assertThat(cached.getMarketCacheSizeMb()).isEqualTo(4096);
+        cached = RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.market-cache-size-mb=512"},
+            Collections.singletonMap("GALESHAPLEY_MARKETCACHEDIR", "/tmp/markets"));
+        assertThat(cached.getMarketCacheDir()).isEqualTo("/tmp/markets");
+        assertThat(cached.getMarketCacheSizeMb()).isEqualTo(512);
+        assertThat(cached.getIterationEventInterval()).isEqualTo(100);
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.iterationEventInterval=25"},
+            Collections.emptyMap()).getIterationEventInterval()).isEqualTo(25);
+        assertThat(cached.isPublishMetrics()).isFalse();
+        assertThat(RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.publish-metrics"},
+            Collections.emptyMap()).isPublishMetrics()).isTrue();
+        assertThat(cached.getSampleEvery()).isEqualTo(1);
+        assertThat(cached.getSampleAgents()).isZero();
+        RuntimeOptions sampled = RuntimeOptionsResolver.resolve(new String[] {"--galeshapley.sample-every=50"},
+            Collections.singletonMap("GALESHAPLEY_SAMPLEAGENTS", "200"));
+        assertThat(sampled.getSampleEvery()).isEqualTo(50);
+        assertThat(sampled.getSampleAgents()).isEqualTo(200);
+        
+        assertThatThrownBy(() -> RuntimeOptionsResolver.resolve(
+                new String[] {"--galeshapley.maxIterations=many"}, Collections.emptyMap()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Invalid value 'many' for galeshapley.maxIterations");
+        
+        assertThatThrownBy(() -> RuntimeOptionsResolver.resolve(
+                new String[] {"--galeshapley.maxIterations=0"}, Collections.emptyMap()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Max iterations must be positive");
+    }
+}
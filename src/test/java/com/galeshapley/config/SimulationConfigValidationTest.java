@@ -0,0 +1,131 @@
+package com.galeshapley.config;
+
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SimulationConfigValidationTest {
+
+    private Proposer m1, m2, m3;
+    private Proposee w1, w2, w3;
+
+    @BeforeEach
+    void setUp() {
+        m1 = new Proposer("m1", "Man 1");
+        m2 = new Proposer("m2", "Man 2");
+        m3 = new Proposer("m3", "Man 3");
+        w1 = new Proposee("w1", "Woman 1");
+        w2 = new Proposee("w2", "Woman 2");
+        w3 = new Proposee("w3", "Woman 3");
+    }
+
+    @Test
+    void shouldReportEveryOffendingAgentAtOnce() {
+        Proposee stranger = new Proposee("w9", "Stranger");
+
+        SimulationConfig.Builder builder = SimulationConfig.builder()
+            .addProposers(m1, m2, m3)
+            .addProposees(w1, w2, w3)
+            .setProposerPreferences(m1, Arrays.asList(w1, w2))            // incomplete
+            .setProposerPreferences(m2, Arrays.asList(w1, w1, w2, w3))    // duplicate
+            .setProposerPreferences(m3, Arrays.asList(w1, w2, w3, stranger)) // unknown
+            .setProposeePreferences(w1, Arrays.asList(m1, m2, m3))
+            .setProposeePreferences(w2, Arrays.asList(m1, m2, m3));
+        // w3 has no preferences at all
+
+        assertThatThrownBy(builder::build)
+            .isInstanceOf(SimulationConfigValidationException.class)
+            .isInstanceOf(IllegalStateException.class)
+            .satisfies(e -> {
+                List<SimulationConfigValidationException.Problem> problems =
+                    ((SimulationConfigValidationException) e).getProblems();
+
+                assertThat(problems)
+                    .extracting(SimulationConfigValidationException.Problem::getAgentId,
+                                SimulationConfigValidationException.Problem::getKind)
+                    .containsExactlyInAnyOrder(
+                        tuple("m1", SimulationConfigValidationException.Kind.INCOMPLETE_PREFERENCES),
+                        tuple("m2", SimulationConfigValidationException.Kind.DUPLICATE_ENTRY),
+                        tuple("m3", SimulationConfigValidationException.Kind.UNKNOWN_AGENT),
+                        tuple("w3", SimulationConfigValidationException.Kind.MISSING_PREFERENCES));
+            })
+            .hasMessageContaining("4 problems")
+            .hasMessageContaining("Proposer Man 1 does not have preferences for all proposees");
+    }
+
+    @Test
+    void shouldAllowTruncatedListsForEmptySetPreferences() {
+        SimulationConfig config = SimulationConfig.builder()
+            .addProposers(m1, m2)
+            .addProposees(w1, w2)
+            .setProposerPreferences(m1, Collections.singletonList(w1))
+            .setEmptySetPreference(m1, 1)
+            .setProposerPreferences(m2, Arrays.asList(w2, w1))
+            .setProposeePreferences(w1, Arrays.asList(m1, m2))
+            .setProposeePreferences(w2, Collections.singletonList(m2))
+            .setProposeeEmptySetPreference(w2, 1)
+            .build();
+
+        assertThat(config.getProposerPreferences()).hasSize(2);
+    }
+
+    @Test
+    void shouldBuildAgainAfterAListIsFixed() {
+        List<Proposee> m1Preferences = new ArrayList<>(Arrays.asList(w1, w1));
+        SimulationConfig.Builder builder = SimulationConfig.builder()
+            .addProposers(m1, m2)
+            .addProposees(w1, w2)
+            .setProposerPreferences(m1, m1Preferences)
+            .setProposerPreferences(m2, Arrays.asList(w2, w1))
+            .setProposeePreferences(w1, Arrays.asList(m1, m2))
+            .setProposeePreferences(w2, Arrays.asList(m2, m1));
+
+        // The builder keeps its own copy, so changing the caller's list has no effect
+        m1Preferences.set(1, w2);
+        assertThatThrownBy(builder::build)
+            .isInstanceOf(SimulationConfigValidationException.class)
+            .hasMessageContaining("more than once");
+
+        SimulationConfig first = builder.setProposerPreferences(m1, Arrays.asList(w1, w2)).build();
+        SimulationConfig second = builder.addProposee(w3)
+            .setProposerPreferences(m1, Arrays.asList(w1, w2, w3))
+            .setProposerPreferences(m2, Arrays.asList(w2, w1, w3))
+            .setProposeePreferences(w3, Arrays.asList(m1, m2))
+            .build();
+
+        assertThat(first.getProposees()).containsExactly(w1, w2);
+        assertThat(first.getProposerPreferences().get(m1).getPreferences()).containsExactly(w1, w2);
+        assertThat(second.getProposees()).containsExactly(w1, w2, w3);
+        assertThat(second.getProposerPreferences().get(m1).getPreferences()).containsExactly(w1, w2, w3);
+    }
+
+    @Test
+    void shouldValidateLargeMarketsInParallel() {
+        int n = 3000;
+        List<Proposer> proposers = new ArrayList<>();
+        List<Proposee> proposees = new ArrayList<>();
+        SimulationConfig.Builder builder = SimulationConfig.builder();
+        for (int i = 0; i < n; i++) {
+            Proposer proposer = new Proposer("p" + i, "Proposer" + i);
+            Proposee proposee = new Proposee("e" + i, "Proposee" + i);
+            proposers.add(proposer);
+            proposees.add(proposee);
+            builder.addProposer(proposer).addProposee(proposee);
+        }
+        for (int i = 0; i < n; i++) {
+            builder.setProposerPreferences(proposers.get(i), i == 42 ? proposees.subList(1, n) : proposees);
+            builder.setProposeePreferences(proposees.get(i), proposers);
+        }
+
+        assertThatThrownBy(builder::build)
+            .isInstanceOf(SimulationConfigValidationException.class)
+            .hasMessage("Proposer Proposer42 does not have preferences for all proposees (missing 1)");
+    }
+}
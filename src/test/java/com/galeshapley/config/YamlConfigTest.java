@@ -1,10 +1,15 @@
 package com.galeshapley.config;
 
 import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.algorithm.StableRoommatesAlgorithm;
+import com.galeshapley.config.distribution.MallowsDistributionConfig;
 import com.galeshapley.model.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -86,6 +91,123 @@ class YamlConfigTest {
         assertThat(result.getFinalMatching().getMatchCount()).isEqualTo(3);
     }
     
+    @Test
+    void shouldStreamMixedPreferenceFormatsAndShareAgentIds() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposers:\n" +
+            "    - id: m1\n" +
+            "      name: Man 1\n" +
+            "    - id: m2\n" +
+            "      name: Man 2\n" +
+            "  proposees:\n" +
+            "    - id: w1\n" +
+            "      name: Woman 1\n" +
+            "    - id: w2\n" +
+            "      name: Woman 2\n" +
+            "  proposerPreferences:\n" +
+            "    m1: [w1, w2]\n" +
+            "    m2:\n" +
+            "      explicit: [w2, w1]\n" +
+            "  proposeePreferences:\n" +
+            "    w1: [m2, \"∅\", m1]\n" +
+            "    w2:\n" +
+            "      generator:\n" +
+            "        distribution:\n" +
+            "          type: uniform\n" +
+            "          seed: 7\n";
+        
+        YamlConfig yamlConfig = YamlConfig.loadFromString(yamlContent);
+        var proposerPreferences = yamlConfig.getSimulation().getProposerPreferences();
+        var proposeePreferences = yamlConfig.getSimulation().getProposeePreferences();
+        
+        assertThat(proposerPreferences.get("m1").getExplicit()).containsExactly("w1", "w2");
+        assertThat(proposerPreferences.get("m2").getExplicit()).containsExactly("w2", "w1");
+        assertThat(proposeePreferences.get("w1").getExplicit()).containsExactly("m2", "∅", "m1");
+        assertThat(proposeePreferences.get("w2").isExplicit()).isFalse();
+        assertThat(proposeePreferences.get("w2").getGenerator().getDistribution().getSeed()).isEqualTo(7L);
+        
+        // Repeated IDs are interned while parsing rather than duplicated per list
+        assertThat(proposerPreferences.get("m1").getExplicit().get(0))
+            .isSameAs(proposerPreferences.get("m2").getExplicit().get(1));
+        
+        SimulationConfig config = new SimulationConfigLoader().loadFromString(yamlContent);
+        Proposee w1 = config.getProposees().stream()
+            .filter(p -> p.getId().equals("w1")).findFirst().orElseThrow();
+        assertThat(config.getProposeeEmptySetPreferences()).containsEntry(w1, 1);
+        assertThat(config.getProposeePreferences().get(w1).size()).isEqualTo(2);
+    }
+    
+    @Test
+    void shouldReadNestedListsAsTies() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposers:\n" +
+            "    - id: m1\n" +
+            "      name: Man 1\n" +
+            "    - id: m2\n" +
+            "      name: Man 2\n" +
+            "    - id: m3\n" +
+            "      name: Man 3\n" +
+            "  proposees:\n" +
+            "    - id: w1\n" +
+            "      name: Woman 1\n" +
+            "    - id: w2\n" +
+            "      name: Woman 2\n" +
+            "  proposerPreferences:\n" +
+            "    m1: [[w1, w2]]\n" +
+            "    m2: [w2, w1]\n" +
+            "    m3: [w1, \"∅\", w2]\n" +
+            "  proposeePreferences:\n" +
+            "    w1:\n" +
+            "      explicit: [m3, [m1, m2]]\n" +
+            "    w2: [[m1], \"∅\", [m2, m3]]\n";
+        
+        YamlConfig yamlConfig = YamlConfig.loadFromString(yamlContent);
+        PreferenceConfig w1Config = yamlConfig.getSimulation().getProposeePreferences().get("w1");
+        assertThat(w1Config.getExplicit()).containsExactly("m3", "m1", "m2");
+        assertThat(w1Config.getTieLevels()).containsExactly(0, 1, 1);
+        assertThat(yamlConfig.getSimulation().getProposerPreferences().get("m2").getTieLevels()).isNull();
+        
+        SimulationConfig config = new SimulationConfigLoader().loadFromString(yamlContent);
+        CompiledMarket market = config.getMarket();
+        int w2 = market.indexOf(new Proposee("w2", "Woman 2"));
+        assertThat(market.hasTies()).isTrue();
+        assertThat(market.getProposeeEmptySetPosition(w2)).isEqualTo(1);
+        assertThat(market.getProposeeTieLevel(w2, 1)).isEqualTo(1);
+        assertThat(market.getProposeeTieLevel(w2, 2)).isEqualTo(1);
+        
+        Proposer m1 = config.getProposers().iterator().next();
+        Proposee first = config.getProposerPreferences().get(m1).getPreferredAt(0);
+        Proposee second = config.getProposerPreferences().get(m1).getPreferredAt(1);
+        assertThat(config.getProposerPreferences().get(m1).isTied(first, second)).isTrue();
+        
+        // Ties are broken by list order unless a tie-aware solver is selected: m1 tries w1 first,
+        // loses her to m3 and is then held by w2, who ranks him alone at the top
+        GaleShapleyAlgorithm.AlgorithmResult result = new GaleShapleyAlgorithm(market).execute();
+        assertThat(result.getFinalMatching().getMatch(m1).map(Agent::getId)).contains("w2");
+    }
+    
+    @Test
+    void shouldRejectTheEmptySetInsideATie() {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposers:\n" +
+            "    - id: m1\n" +
+            "      name: Man 1\n" +
+            "  proposees:\n" +
+            "    - id: w1\n" +
+            "      name: Woman 1\n" +
+            "  proposerPreferences:\n" +
+            "    m1: [[w1, \"∅\"]]\n" +
+            "  proposeePreferences:\n" +
+            "    w1: [m1]\n";
+        
+        assertThatThrownBy(() -> YamlConfig.loadFromString(yamlContent))
+            .hasRootCauseInstanceOf(IllegalArgumentException.class)
+            .hasStackTraceContaining("cannot be tied");
+    }
+    
     @Test
     void shouldThrowExceptionForInvalidProposerInPreferences() throws IOException {
         String yamlContent = 
@@ -107,4 +229,200 @@ class YamlConfigTest {
             .isInstanceOf(IllegalArgumentException.class)
             .hasMessageContaining("Unknown proposer ID");
     }
-}
\ No newline at end of file
+    
+    @Test
+    void shouldLoadRoommatesAndCutListsAtTheEmptySet() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  roommates:\n" +
+            "    - id: a\n" +
+            "      name: Ann\n" +
+            "    - id: b\n" +
+            "      name: Ben\n" +
+            "    - id: c\n" +
+            "      name: Cal\n" +
+            "  roommatePreferences:\n" +
+            "    a: [c, b]\n" +
+            "    b: [a, c]\n" +
+            "    c: [b, \"∅\", a]\n";
+        
+        SimulationConfigLoader loader = new SimulationConfigLoader();
+        RoommatesMarket market = loader.loadRoommatesFromString(yamlContent, null);
+        StableRoommatesAlgorithm.Result result = new StableRoommatesAlgorithm(market).execute();
+        
+        // c will not share with a, so a and b, who both list each other, end up together
+        assertThat(market.getPreferenceCount(2)).isEqualTo(1);
+        assertThat(result.hasStableMatching()).isTrue();
+        assertThat(result.getPartner(market.getAgent(0))).contains(market.getAgent(1));
+        assertThat(result.getPartner(market.getAgent(2))).isEmpty();
+        assertThatThrownBy(() -> loader.loadFromString(yamlContent))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("loadRoommates");
+    }
+    
+    @Test
+    void shouldGenerateRoommatePreferencesWithoutTheRoommateItself() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  roommateConfig:\n" +
+            "    count: 40\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: uniform\n";
+        
+        RuntimeOptions options = RuntimeOptions.builder().globalSeed(7L).build();
+        SimulationConfigLoader loader = new SimulationConfigLoader();
+        RoommatesMarket market = loader.loadRoommatesFromString(yamlContent, options);
+        
+        assertThat(market.getAgentCount()).isEqualTo(40);
+        for (int agent = 0; agent < market.getAgentCount(); agent++) {
+            assertThat(market.getPreferenceCount(agent)).isEqualTo(39);
+            assertThat(market.getRank(agent, agent)).isEqualTo(RoommatesMarket.NOT_RANKED);
+        }
+        RoommatesMarket again = loader.loadRoommatesFromString(yamlContent, options);
+        assertThat(again.getPreference(5, 0)).isEqualTo(market.getPreference(5, 0));
+    }
+    
+    @Test
+    void shouldGenerateTheSameMarketIntoOffHeapTables(@TempDir Path scratch) throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposerConfig:\n" +
+            "    count: 60\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: uniform\n" +
+            "        emptySetProbability: 0.2\n" +
+            "  proposeeConfig:\n" +
+            "    count: 50\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: uniform\n";
+        
+        SimulationConfigLoader loader = new SimulationConfigLoader();
+        SimulationConfig heap = loader.loadFromString(yamlContent, RuntimeOptions.builder().globalSeed(11L).build());
+        SimulationConfig offHeap = loader.loadFromString(yamlContent,
+            RuntimeOptions.builder().globalSeed(11L).scratchDir(scratch.toString()).build());
+        
+        assertThat(offHeap.getMarket().isOffHeap()).isTrue();
+        assertThat(offHeap.getEmptySetPreferences()).isEqualTo(heap.getEmptySetPreferences());
+        assertThat(new GaleShapleyAlgorithm(offHeap.getMarket()).execute().getFinalMatching().getAllMatches())
+            .isEqualTo(new GaleShapleyAlgorithm(heap.getMarket()).execute().getFinalMatching().getAllMatches());
+    }
+    
+    @Test
+    void shouldGenerateMallowsTopKListsInParallelAsIfOneAtATime() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposerConfig:\n" +
+            "    count: 600\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: mallows\n" +
+            "        phi: 0.3\n" +
+            "        topK: 5\n" +
+            "        emptySetProbability: 0.5\n" +
+            "  proposeeConfig:\n" +
+            "    count: 30\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: uniform\n";
+        
+        SimulationConfig config = new SimulationConfigLoader()
+            .loadFromString(yamlContent, RuntimeOptions.builder().globalSeed(9L).build());
+        CompiledMarket market = config.getMarket();
+        
+        MallowsDistributionConfig mallows = new MallowsDistributionConfig();
+        mallows.setPhi(0.3);
+        mallows.setTopK(5);
+        mallows.setEmptySetProbability(0.5);
+        PreferenceGenerator generator = new PreferenceGenerator(mallows);
+        List<String> candidateIds = new ArrayList<>();
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            candidateIds.add(market.getProposee(j).getId());
+        }
+        Random seeds = new Random(9L);
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            List<String> expected = new ArrayList<>(
+                generator.generatePreferencesFromIds(candidateIds, new Random(seeds.nextLong())));
+            int cutoff = expected.indexOf("∅");
+            expected.remove("∅");
+            
+            List<String> actual = new ArrayList<>();
+            for (int position = 0; position < market.getProposerPreferenceCount(i); position++) {
+                actual.add(market.getProposee(market.getProposerPreference(i, position)).getId());
+            }
+            assertThat(actual).as("proposer %d", i).isEqualTo(expected);
+            assertThat(market.getProposerCutoff(i)).isEqualTo(cutoff);
+        }
+    }
+    
+    @Test
+    void shouldGenerateLatentPreferencesForBulkAgents() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposerConfig:\n" +
+            "    count: 300\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: latent\n" +
+            "        dimensions: 3\n" +
+            "        distanceWeight: 0.0\n" +
+            "        noise: 0.0\n" +
+            "        topK: 4\n" +
+            "  proposeeConfig:\n" +
+            "    count: 20\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: latent\n" +
+            "        featureSeed: 3\n";
+        
+        CompiledMarket market = new SimulationConfigLoader()
+            .loadFromString(yamlContent, RuntimeOptions.builder().globalSeed(4L).build()).getMarket();
+        
+        // Without noise or distance every proposer ranks the proposees by the same quality
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            assertThat(market.getProposerCutoff(i)).isEqualTo(4);
+            for (int position = 0; position < 4; position++) {
+                assertThat(market.getProposerPreference(i, position)).isEqualTo(market.getProposerPreference(0, position));
+            }
+        }
+        assertThat(market.getProposeePreferenceCount(0)).isEqualTo(300);
+    }
+    
+    @Test
+    void shouldReadPlackettLuceWeightsFromPopularityBiasRules() throws IOException {
+        String yamlContent = 
+            "simulation:\n" +
+            "  proposerConfig:\n" +
+            "    count: 400\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: plackett-luce\n" +
+            "        topK: 1\n" +
+            "        popularityBias:\n" +
+            "          - agentRange:\n" +
+            "              start: e0\n" +
+            "              end: e1\n" +
+            "            weight: 1000.0\n" +
+            "  proposeeConfig:\n" +
+            "    count: 10\n" +
+            "    generator:\n" +
+            "      distribution:\n" +
+            "        type: uniform\n";
+        
+        CompiledMarket market = new SimulationConfigLoader()
+            .loadFromString(yamlContent, RuntimeOptions.builder().globalSeed(2L).build()).getMarket();
+        
+        // e0 and e1 each carry 1000 of the 2008 total weight
+        int favourites = 0;
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            String first = market.getProposee(market.getProposerPreference(i, 0)).getId();
+            if (first.equals("e0") || first.equals("e1")) {
+                favourites++;
+            }
+        }
+        assertThat(market.getProposerCutoff(0)).isEqualTo(1);
+        assertThat(favourites).isGreaterThan(380);
+    }
+}
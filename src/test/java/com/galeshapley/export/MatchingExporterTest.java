@@ -0,0 +1,126 @@
+package com.galeshapley.export;
+
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MatchingExporterTest {
+    
+    private Proposer m1, m2, m3, m4;
+    private Proposee w1, w2, w3;
+    private CompiledMarket market;
+    private Matching matching;
+    
+    @TempDir
+    Path directory;
+    
+    @BeforeEach
+    void setUp() {
+        m1 = new Proposer("m1", "Adam");
+        m2 = new Proposer("m2", "Bob");
+        m3 = new Proposer("m3", "Carl");
+        m4 = new Proposer("m,4", "Dan");
+        w1 = new Proposee("w1", "Beth");
+        w2 = new Proposee("w2", "Cara");
+        w3 = new Proposee("w3", "Dora");
+        
+        CompiledMarket.Builder builder = CompiledMarket.builder(Arrays.asList(m1, m2, m3, m4), Arrays.asList(w1, w2, w3));
+        builder.setProposerPreferences(0, new int[] {0, 1})
+               .setProposerPreferences(1, new int[] {0})
+               .setProposerPreferences(2, new int[] {2})
+               .setProposerEmptySetPosition(2, 0)
+               .setProposeePreferences(0, new int[] {1, 0})
+               .setProposeePreferences(1, new int[] {0})
+               .setProposeePreferences(2, new int[] {2});
+        market = builder.build();
+        
+        matching = new Matching();
+        Arrays.asList(m1, m2, m3, m4).forEach(matching::addProposer);
+        Arrays.asList(w1, w2, w3).forEach(matching::addProposee);
+        matching.match(m1, w2);
+        matching.match(m2, w1);
+        matching.match(m3, EmptySet.getInstance());
+    }
+    
+    @Test
+    void shouldWriteOneCsvRowPerAgentWithRanks() throws IOException {
+        Path file = directory.resolve("out/matches.csv");
+        
+        long records = MatchingExporter.forFile(file).export(market, matching, file);
+        
+        assertThat(records).isEqualTo(7);
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).containsExactly(
+            "side,agent,status,partner,rank",
+            "proposer,m1,matched,w2,1",
+            "proposer,m2,matched,w1,0",
+            "proposer,m3,single,,0",
+            "proposer,\"m,4\",unmatched,,",
+            "proposee,w1,matched,m2,0",
+            "proposee,w2,matched,m1,0",
+            "proposee,w3,unmatched,,");
+    }
+    
+    @Test
+    void shouldWriteGzippedJsonLines() throws IOException {
+        Path file = directory.resolve("matches.jsonl.gz");
+        
+        MatchingExporter exporter = MatchingExporter.forFile(file);
+        exporter.export(market, matching, file);
+        
+        assertThat(exporter.getFormat()).isEqualTo(ResultFormat.JSONL);
+        assertThat(exporter.isGzip()).isTrue();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            assertThat(lines).hasSize(7);
+            assertThat(lines.get(0)).isEqualTo("{\"side\":\"proposer\",\"agent\":\"m1\",\"status\":\"matched\",\"partner\":\"w2\",\"rank\":1}");
+            assertThat(lines.get(2)).isEqualTo("{\"side\":\"proposer\",\"agent\":\"m3\",\"status\":\"single\",\"partner\":null,\"rank\":0}");
+            assertThat(lines.get(6)).isEqualTo("{\"side\":\"proposee\",\"agent\":\"w3\",\"status\":\"unmatched\",\"partner\":null,\"rank\":null}");
+        }
+    }
+    
+    @Test
+    void shouldWriteCompactBinaryRecords() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        MatchingExporter.builder().format(ResultFormat.BINARY).build().export(market, matching, bytes);
+        
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(in.readInt()).isEqualTo(MatchingExporter.BINARY_MAGIC);
+        assertThat(in.readInt()).isEqualTo(MatchingExporter.BINARY_VERSION);
+        assertThat(in.readInt()).isEqualTo(4);
+        assertThat(in.readInt()).isEqualTo(3);
+        
+        assertThat(in.readUTF()).isEqualTo("m1");
+        assertThat(in.readByte()).isEqualTo((byte) MatchingExporter.Status.MATCHED.getCode());
+        assertThat(in.readInt()).isEqualTo(1);
+        assertThat(in.readInt()).isEqualTo(1);
+        
+        for (int record = 1; record < 7; record++) {
+            in.readUTF();
+            in.readByte();
+            in.readInt();
+            in.readInt();
+        }
+        assertThat(in.read()).isEqualTo(-1);
+    }
+    
+    @Test
+    void shouldRejectUnknownFileExtensions() {
+        assertThatThrownBy(() -> MatchingExporter.forFile(directory.resolve("matches.txt")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("matches.txt");
+    }
+}
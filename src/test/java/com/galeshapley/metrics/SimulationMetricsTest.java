@@ -0,0 +1,106 @@
+package com.galeshapley.metrics;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SimulationMetricsTest {
+    
+    @Test
+    void shouldSumGaugesOverRunsInProgressAndReleaseThemWhenRunsEnd() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        SimulationMetrics.Run first = metrics.startRun(10, 8);
+        SimulationMetrics.Run second = metrics.startRun(4, 4);
+        
+        first.onIteration(1, 10, 3, 7);
+        second.onIteration(1, 4, 0, 4);
+        second.onIteration(2, 0, 0, 4);
+        second.onIteration(3, 0, 0, 4);
+        assertThat(metrics.getCurrentIteration()).isEqualTo(3);
+        second.close();
+        first.onIteration(2, 3, 1, 8);
+        
+        assertThat(metrics.getProposals()).isEqualTo(17);
+        assertThat(metrics.getIterations()).isEqualTo(5);
+        assertThat(metrics.getCurrentIteration()).isEqualTo(2);
+        assertThat(metrics.getFreeProposers()).isEqualTo(1);
+        assertThat(metrics.getMatchedProposers()).isEqualTo(8);
+        assertThat(metrics.getActiveRuns()).isEqualTo(1);
+        assertThat(metrics.getCompletedRuns()).isEqualTo(1);
+        assertThat(metrics.getHeapUsedPerAgent()).isPositive();
+        
+        first.close();
+        first.close();
+        assertThat(metrics.getFreeProposers()).isZero();
+        assertThat(metrics.getMatchedProposers()).isZero();
+        assertThat(metrics.getActiveRuns()).isZero();
+        assertThat(metrics.getCurrentIteration()).isZero();
+        assertThat(metrics.getCompletedRuns()).isEqualTo(2);
+        assertThat(metrics.getHeapUsedPerAgent()).isZero();
+    }
+    
+    @Test
+    void shouldReportGenerationProgressAndQueueDepths() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        assertThat(metrics.getGenerationProgress()).isEqualTo(1.0);
+        
+        try (SimulationMetrics.Generation generation = metrics.startGeneration(400)) {
+            generation.onGenerated(100);
+            assertThat(metrics.getGenerationProgress()).isEqualTo(0.25);
+        }
+        assertThat(metrics.getAgentsToGenerate()).isZero();
+        assertThat(metrics.getGenerationProgress()).isEqualTo(1.0);
+        
+        SimulationMetrics.QueueRegistration batch = metrics.registerQueue("batch", () -> 3);
+        SimulationMetrics.QueueRegistration other = metrics.registerQueue("batch", () -> 2);
+        SimulationMetrics.QueueRegistration server = metrics.registerQueue("server", () -> 1);
+        assertThat(metrics.getQueueDepth()).isEqualTo(6);
+        assertThat(metrics.getQueueDepths()).containsEntry("batch", 5).containsEntry("server", 1);
+        server.close();
+        other.close();
+        batch.close();
+        assertThat(metrics.getQueueDepths()).isEmpty();
+    }
+    
+    @Test
+    void shouldOnlyCountAsPublishedOnceSomethingReadsTheMetrics() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        assertThat(metrics.isPublished()).isFalse();
+        
+        new SimulationMeterBinder(metrics).bindTo(new SimpleMeterRegistry());
+        assertThat(metrics.isPublished()).isTrue();
+    }
+    
+    @Test
+    void shouldPublishEngineProgressOverJmxAndMicrometer() throws Exception {
+        SimulationMetrics metrics = SimulationMetrics.getInstance();
+        metrics.registerMBean();
+        metrics.registerMBean();
+        long completedBefore = metrics.getCompletedRuns();
+        long proposalsBefore = metrics.getProposals();
+        
+        SimulationConfig config = new SimulationConfigLoader().loadFromFile("src/test/resources/stable-matching-config.yaml");
+        new GaleShapleyAlgorithm(config.getMarket()).execute();
+        
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(SimulationMetrics.OBJECT_NAME);
+        assertThat((Long) server.getAttribute(name, "CompletedRuns")).isGreaterThan(completedBefore);
+        assertThat((Long) server.getAttribute(name, "Proposals")).isGreaterThan(proposalsBefore);
+        assertThat(server.getAttribute(name, "QueueDepth")).isInstanceOf(Integer.class);
+        
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new SimulationMeterBinder(metrics).bindTo(registry);
+        assertThat(registry.get("galeshapley.proposals").functionCounter().count())
+            .isEqualTo(metrics.getProposals());
+        assertThat(registry.get("galeshapley.generation.progress").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.getMeters()).hasSize(11);
+    }
+}
@@ -0,0 +1,63 @@
+package com.galeshapley.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AgentRegistryTest {
+    
+    @Test
+    void shouldInternAgentsWithDenseOrdinalsPerSide() {
+        AgentRegistry registry = new AgentRegistry();
+        
+        Proposer adam = registry.proposer("m1", "Adam");
+        Proposer bob = registry.proposer("m2", "Bob");
+        Proposee cara = registry.proposee("m1", "Cara");
+        
+        assertThat(registry.proposer("m1", "Someone else")).isSameAs(adam).extracting(Agent::getName).isEqualTo("Adam");
+        assertThat(adam.getOrdinal()).isZero();
+        assertThat(bob.getOrdinal()).isEqualTo(1);
+        assertThat(cara.getOrdinal()).isZero();
+        assertThat(registry.getProposer(1)).isSameAs(bob);
+        assertThat(registry.findProposee("m1")).containsSame(cara);
+        assertThat(registry.findProposee("m2")).isEmpty();
+        assertThat(registry.getProposers()).containsExactly(adam, bob);
+        assertThat(registry.getProposeeCount()).isEqualTo(1);
+    }
+    
+    @Test
+    void shouldStayEqualToAgentsCreatedElsewhere() {
+        AgentRegistry registry = new AgentRegistry();
+        Proposer interned = registry.proposer("m1", "Adam");
+        Proposer copy = new Proposer("m1", "Adam");
+        
+        assertThat(copy.getOrdinal()).isEqualTo(Agent.NO_ORDINAL);
+        assertThat(interned).isEqualTo(copy).hasSameHashCodeAs(copy);
+        assertThat(interned.hashCode()).isEqualTo(Objects.hash("m1"));
+        assertThat(interned).isNotEqualTo(new Proposee("m1", "Adam"));
+        
+        Map<Proposer, String> map = new HashMap<>();
+        map.put(interned, "matched");
+        assertThat(map).containsEntry(copy, "matched");
+    }
+    
+    @Test
+    void shouldFindRegisteredAgentsAndCopiesInACompiledMarket() {
+        AgentRegistry registry = new AgentRegistry();
+        registry.proposer("m1", "Adam");
+        registry.proposer("m2", "Bob");
+        registry.proposee("w1", "Cara");
+        // Cara has ordinal 0 but index 1 here, so finding it has to fall back to the index map
+        Proposee dana = new AgentRegistry().proposee("w2", "Dana");
+        CompiledMarket market = CompiledMarket.builder(registry.getProposers(),
+            Arrays.asList(dana, registry.getProposee(0))).build();
+        
+        assertThat(market.indexOf(registry.getProposer(1))).isEqualTo(1);
+        assertThat(market.indexOf(new Proposer("m2", "Bob"))).isEqualTo(1);
+        assertThat(market.indexOf(registry.getProposee(0))).isEqualTo(1);
+        assertThat(market.indexOf(dana)).isZero();
+        assertThat(market.indexOf(new Proposer("m3", "Carl"))).isEqualTo(-1);
+    }
+}
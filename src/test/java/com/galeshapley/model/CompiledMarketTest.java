@@ -0,0 +1,137 @@
+package com.galeshapley.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CompiledMarketTest {
+    
+    private Proposer m1, m2;
+    private Proposee w1, w2;
+    
+    @BeforeEach
+    void setUp() {
+        m1 = new Proposer("m1", "Man 1");
+        m2 = new Proposer("m2", "Man 2");
+        w1 = new Proposee("w1", "Woman 1");
+        w2 = new Proposee("w2", "Woman 2");
+    }
+    
+    @Test
+    void shouldCompilePreferenceListsToIndexRows() {
+        Map<Proposer, PreferenceList<Proposee>> proposerPrefs = new LinkedHashMap<>();
+        proposerPrefs.put(m1, new PreferenceList<>(m1, Arrays.asList(w2, EmptySet.getInstance(), w1)));
+        proposerPrefs.put(m2, new PreferenceList<>(m2, Arrays.asList(w1, w2)));
+        
+        Map<Proposee, PreferenceList<Proposer>> proposeePrefs = new LinkedHashMap<>();
+        proposeePrefs.put(w1, new PreferenceList<>(w1, Arrays.asList(m2, m1)));
+        proposeePrefs.put(w2, new PreferenceList<>(w2, Collections.singletonList(m1)));
+        
+        Map<Proposee, Integer> proposeeEmptySet = new HashMap<>();
+        proposeeEmptySet.put(w1, 1);
+        
+        CompiledMarket market = CompiledMarket.fromPreferenceLists(
+            proposerPrefs, proposeePrefs, new HashMap<>(), proposeeEmptySet);
+        
+        int i1 = market.indexOf(m1), i2 = market.indexOf(m2);
+        int j1 = market.indexOf(w1), j2 = market.indexOf(w2);
+        
+        assertThat(market.getProposerCount()).isEqualTo(2);
+        assertThat(market.getProposerPreferenceCount(i1)).isEqualTo(2);
+        assertThat(market.getProposerPreference(i1, 0)).isEqualTo(j2);
+        assertThat(market.getProposerEmptySetPosition(i1)).isEqualTo(1);
+        assertThat(market.getProposerCutoff(i1)).isEqualTo(1);
+        assertThat(market.getProposerCutoff(i2)).isEqualTo(2);
+        assertThat(market.getProposerRank(i2, j2)).isEqualTo(1);
+        
+        assertThat(market.getProposeeRank(j1, i1)).isEqualTo(1);
+        assertThat(market.getProposeeRank(j2, i2)).isEqualTo(CompiledMarket.NOT_RANKED);
+        assertThat(market.isAcceptableToProposee(j1, i2)).isTrue();
+        assertThat(market.isAcceptableToProposee(j1, i1)).isFalse();
+        assertThat(market.isAcceptableToProposee(j2, i2)).isFalse();
+    }
+    
+    @Test
+    void shouldRejectPreferencesForUnknownAgents() {
+        Proposee stranger = new Proposee("w9", "Stranger");
+        
+        Map<Proposer, PreferenceList<Proposee>> proposerPrefs = new HashMap<>();
+        proposerPrefs.put(m1, new PreferenceList<>(m1, Arrays.asList(w1, stranger)));
+        
+        Map<Proposee, PreferenceList<Proposer>> proposeePrefs = new HashMap<>();
+        proposeePrefs.put(w1, new PreferenceList<>(w1, Collections.singletonList(m1)));
+        
+        assertThatThrownBy(() -> CompiledMarket.fromPreferenceLists(
+                proposerPrefs, proposeePrefs, new HashMap<>(), new HashMap<>()))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Proposer Man 1 ranks unknown proposee Stranger");
+    }
+    
+    @Test
+    void shouldNotAllowBuilderReuse() {
+        CompiledMarket.Builder builder = CompiledMarket.builder(Arrays.asList(m1, m2), Arrays.asList(w1, w2));
+        builder.setProposerPreferences(0, new int[] {1, 0});
+        builder.build();
+        
+        assertThatThrownBy(builder::build).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> builder.setProposeePreferences(0, new int[] {0}))
+            .isInstanceOf(IllegalStateException.class);
+    }
+    
+    @Test
+    void shouldAnswerTheSameQueriesFromOffHeapTables(@TempDir Path scratch) {
+        Random random = new Random(5);
+        List<Proposer> proposers = new ArrayList<>();
+        List<Proposee> proposees = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            proposers.add(new Proposer("m" + i, "Proposer " + i));
+        }
+        for (int j = 0; j < 25; j++) {
+            proposees.add(new Proposee("w" + j, "Proposee " + j));
+        }
+        CompiledMarket.Builder heapBuilder = CompiledMarket.builder(proposers, proposees);
+        CompiledMarket.Builder offHeapBuilder = CompiledMarket.builder(proposers, proposees).storeOffHeap(scratch);
+        for (int i = 0; i < proposers.size(); i++) {
+            int[] row = randomRow(proposees.size(), random);
+            heapBuilder.setProposerPreferences(i, row.clone());
+            offHeapBuilder.setProposerPreferences(i, row);
+        }
+        for (int j = 0; j < proposees.size() - 1; j++) {
+            int[] row = randomRow(proposers.size(), random);
+            heapBuilder.setProposeePreferences(j, row.clone()).setProposeeEmptySetPosition(j, row.length / 2);
+            offHeapBuilder.setProposeePreferences(j, row).setProposeeEmptySetPosition(j, row.length / 2);
+        }
+        CompiledMarket heap = heapBuilder.build();
+        CompiledMarket offHeap = offHeapBuilder.build();
+        
+        assertThat(offHeap.isOffHeap()).isTrue();
+        assertThat(heap.isOffHeap()).isFalse();
+        for (int i = 0; i < proposers.size(); i++) {
+            assertThat(offHeap.getProposerPreferenceCount(i)).isEqualTo(heap.getProposerPreferenceCount(i));
+            for (int j = 0; j < proposees.size(); j++) {
+                assertThat(offHeap.getProposerRank(i, j)).isEqualTo(heap.getProposerRank(i, j));
+                assertThat(offHeap.getProposeeRank(j, i)).isEqualTo(heap.getProposeeRank(j, i));
+                assertThat(offHeap.isAcceptableToProposee(j, i)).isEqualTo(heap.isAcceptableToProposee(j, i));
+            }
+        }
+        assertThat(offHeap.getProposeePreferenceCount(proposees.size() - 1)).isZero();
+        assertThatThrownBy(() -> CompiledMarket.builder(proposers, proposees)
+                .setProposerPreferences(0, new int[] {0})
+                .storeOffHeap(scratch))
+            .isInstanceOf(IllegalStateException.class);
+    }
+    
+    private static int[] randomRow(int candidates, Random random) {
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < candidates; c++) {
+            order.add(c);
+        }
+        Collections.shuffle(order, random);
+        return order.subList(0, 1 + random.nextInt(candidates)).stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,85 @@
+package com.galeshapley.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MarketFileTest {
+    
+    @Test
+    void shouldMapBackTheSameTables(@TempDir Path dir) throws IOException {
+        Random random = new Random(8);
+        List<Proposer> proposers = new ArrayList<>();
+        List<Proposee> proposees = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            proposers.add(new Proposer("m" + i, "Proposer " + i));
+        }
+        for (int j = 0; j < 35; j++) {
+            proposees.add(new Proposee("w" + j, "Proposee " + j));
+        }
+        CompiledMarket.Builder builder = CompiledMarket.builder(proposers, proposees);
+        for (int i = 0; i < proposers.size(); i++) {
+            int[] row = randomRow(proposees.size(), random);
+            builder.setProposerPreferences(i, row);
+            if (i % 3 == 0) {
+                builder.setProposerEmptySetPosition(i, row.length / 2);
+            }
+        }
+        for (int j = 0; j < proposees.size() - 1; j++) {
+            builder.setProposeePreferences(j, randomRow(proposers.size(), random));
+        }
+        CompiledMarket market = builder.build();
+        Path file = dir.resolve("market.bin");
+        
+        MarketFile.write(market, file);
+        CompiledMarket mapped = MarketFile.map(file, proposers, proposees);
+        
+        assertThat(mapped.isOffHeap()).isTrue();
+        assertThat(mapped.getProposeePreferenceCount(proposees.size() - 1)).isZero();
+        for (int i = 0; i < proposers.size(); i++) {
+            assertThat(mapped.getProposerCutoff(i)).isEqualTo(market.getProposerCutoff(i));
+            assertThat(mapped.getProposerEmptySetPosition(i)).isEqualTo(market.getProposerEmptySetPosition(i));
+            for (int position = 0; position < market.getProposerPreferenceCount(i); position++) {
+                assertThat(mapped.getProposerPreference(i, position)).isEqualTo(market.getProposerPreference(i, position));
+            }
+            for (int j = 0; j < proposees.size(); j++) {
+                assertThat(mapped.getProposerRank(i, j)).isEqualTo(market.getProposerRank(i, j));
+                assertThat(mapped.getProposeeRank(j, i)).isEqualTo(market.getProposeeRank(j, i));
+                assertThat(mapped.isAcceptableToProposee(j, i)).isEqualTo(market.isAcceptableToProposee(j, i));
+            }
+        }
+    }
+    
+    @Test
+    void shouldRejectFilesForAnotherMarket(@TempDir Path dir) throws IOException {
+        List<Proposer> proposers = Arrays.asList(new Proposer("m0", "Adam"), new Proposer("m1", "Bob"));
+        List<Proposee> proposees = Collections.singletonList(new Proposee("w0", "Cara"));
+        CompiledMarket market = CompiledMarket.builder(proposers, proposees)
+            .setProposerPreferences(0, new int[] {0})
+            .setProposeePreferences(0, new int[] {1, 0})
+            .build();
+        Path file = dir.resolve("market.bin");
+        MarketFile.write(market, file);
+        
+        assertThatThrownBy(() -> MarketFile.map(file, proposers.subList(0, 1), proposees))
+            .isInstanceOf(IOException.class);
+        Files.write(file, Arrays.copyOf(Files.readAllBytes(file), (int) Files.size(file) - 4));
+        assertThatThrownBy(() -> MarketFile.map(file, proposers, proposees))
+            .isInstanceOf(IOException.class);
+    }
+    
+    private static int[] randomRow(int candidates, Random random) {
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < candidates; c++) {
+            order.add(c);
+        }
+        Collections.shuffle(order, random);
+        return order.subList(0, 1 + random.nextInt(candidates)).stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -108,4 +108,20 @@ class MatchingTest {
         assertThat(matching.isMatched(prop1, prosee1)).isTrue();
         assertThat(matching.getMatchCount()).isEqualTo(1);
     }
-}
\ No newline at end of file
+    
+    @Test
+    void shouldLetSeveralProposersChooseToBeSingle() {
+        matching.match(prop1, EmptySet.getInstance());
+        matching.match(prop2, EmptySet.getInstance());
+        
+        assertThat(matching.isMatched(prop1, EmptySet.getInstance())).isTrue();
+        assertThat(matching.isMatched(prop2, EmptySet.getInstance())).isTrue();
+        assertThat(matching.getUnmatchedProposers()).isEmpty();
+        assertThat(matching.getUnmatchedProposees()).containsExactlyInAnyOrder(prosee1, prosee2);
+        
+        matching.unmatch(prop1, EmptySet.getInstance());
+        
+        assertThat(matching.getUnmatchedProposers()).containsExactly(prop1);
+        assertThat(matching.isMatched(prop2, EmptySet.getInstance())).isTrue();
+    }
+}
@@ -3,7 +3,10 @@ package com.galeshapley.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -82,6 +85,22 @@ class PreferenceListTest {
         assertThat(prefList.contains(notInList)).isFalse();
     }
     
+    @Test
+    void shouldRankTiedAgentsByTieLevel() {
+        PreferenceList<Proposee> prefList = new PreferenceList<>(owner, preferences, new int[] {0, 0, 1});
+        
+        assertThat(prefList.hasTies()).isTrue();
+        assertThat(prefList.getRank(p2)).isEqualTo(0);
+        assertThat(prefList.getRank(p3)).isEqualTo(1);
+        assertThat(prefList.isTied(p1, p2)).isTrue();
+        assertThat(prefList.prefers(p1, p2)).isFalse();
+        assertThat(prefList.prefers(p2, p3)).isTrue();
+        assertThat(prefList.getPreferredAt(1)).isEqualTo(p2);
+        
+        assertThatThrownBy(() -> new PreferenceList<>(owner, preferences, new int[] {0, 2, 2}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
     @Test
     void shouldThrowExceptionForUnknownAgentRank() {
         PreferenceList<Proposee> prefList = new PreferenceList<>(owner, preferences);
@@ -91,4 +110,44 @@ class PreferenceListTest {
             .isInstanceOf(IllegalArgumentException.class)
             .hasMessageContaining("is not in preference list");
     }
-}
\ No newline at end of file
+    
+    @Test
+    void shouldAnswerTheSameQueriesFromIndexedStorage() {
+        Proposee[] candidates = {p3, p1, p2, new Proposee("p4", "Proposee 4")};
+        PreferenceList<Proposee> prefList =
+            PreferenceList.indexed(owner, candidates, indexLookup(candidates), new int[] {1, 2, 0}, new int[] {0, 0, 1});
+        
+        assertThat(prefList.getPreferences()).containsExactly(p1, p2, p3);
+        assertThat(prefList.getPreferences()).isSameAs(prefList.getPreferences());
+        assertThat(prefList.getRank(p3)).isEqualTo(1);
+        assertThat(prefList.isTied(p1, p2)).isTrue();
+        assertThat(prefList.prefers(p2, p3)).isTrue();
+        assertThat(prefList.getPreferredAt(2)).isEqualTo(p3);
+        assertThat(prefList.contains(candidates[3])).isFalse();
+        assertThat(prefList.contains(new Proposee("unknown", "Unknown"))).isFalse();
+        assertThatThrownBy(() -> PreferenceList.indexed(owner, candidates, indexLookup(candidates), new int[] {1, 1}, null))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void shouldUseWideIndicesForLargeCandidateSets() {
+        Proposee[] candidates = new Proposee[70_000];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = new Proposee("c" + i, "Candidate " + i);
+        }
+        PreferenceList<Proposee> prefList =
+            PreferenceList.indexed(owner, candidates, indexLookup(candidates), new int[] {69_999, 65_536, 3}, null);
+        
+        assertThat(prefList.getPreferredAt(0)).isEqualTo(candidates[69_999]);
+        assertThat(prefList.getRank(candidates[65_536])).isEqualTo(1);
+        assertThat(prefList.contains(candidates[65_535])).isFalse();
+    }
+    
+    private static ToIntFunction<Proposee> indexLookup(Proposee[] candidates) {
+        Map<Proposee, Integer> index = new HashMap<>();
+        for (int i = 0; i < candidates.length; i++) {
+            index.put(candidates[i], i);
+        }
+        return agent -> index.getOrDefault(agent, -1);
+    }
+}
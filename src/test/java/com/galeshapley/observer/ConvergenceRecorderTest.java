@@ -0,0 +1,142 @@
+package com.galeshapley.observer;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ConvergenceRecorderTest {
+    
+    @Test
+    void shouldFollowTheAlgorithmWithExactTotals() throws IOException {
+        SimulationConfig config = new SimulationConfigLoader().loadFromFile("src/test/resources/large-scale-random-config.yaml");
+        GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket());
+        StatisticsObserver statistics = new StatisticsObserver();
+        ConvergenceRecorder recorder = new ConvergenceRecorder();
+        algorithm.addObserver(statistics);
+        algorithm.setConvergenceRecorder(recorder);
+        
+        GaleShapleyAlgorithm.AlgorithmResult result = algorithm.execute();
+        
+        assertThat(recorder.size()).isBetween(2, result.getIterations());
+        long proposals = 0;
+        long displacements = 0;
+        for (int row = 0; row < recorder.size(); row++) {
+            if (row > 0) {
+                assertThat(recorder.getRound(row)).isGreaterThan(recorder.getRound(row - 1));
+                assertThat(recorder.getMatched(row)).isGreaterThanOrEqualTo(recorder.getMatched(row - 1));
+            }
+            if (row < recorder.size() - 1) {
+                assertThat(recorder.getProposals(row)).isGreaterThanOrEqualTo(ConvergenceRecorder.DEFAULT_PROPOSALS_PER_ROW);
+            }
+            proposals += recorder.getProposals(row);
+            displacements += recorder.getDisplacements(row);
+        }
+        assertThat(proposals).isEqualTo(statistics.getStatistics().getTotalIterationAttempts());
+        assertThat(displacements).isEqualTo(statistics.getStatistics().getTotalBrokenEngagements());
+        long matchedPairs = config.getProposers().stream()
+            .filter(p -> result.getFinalMatching().getMatch(p).filter(e -> !e.isEmptySet()).isPresent())
+            .count();
+        assertThat(recorder.getRound(recorder.size() - 1)).isEqualTo(result.getIterations());
+        assertThat(recorder.getMatched(recorder.size() - 1)).isEqualTo((int) matchedPairs);
+        assertThat(recorder.getFree(recorder.size() - 1)).isZero();
+        
+        GaleShapleyAlgorithm everyRound = new GaleShapleyAlgorithm(config.getMarket());
+        ConvergenceRecorder perRound = new ConvergenceRecorder(ConvergenceRecorder.DEFAULT_MAX_ROWS, 1);
+        everyRound.setConvergenceRecorder(perRound);
+        everyRound.execute();
+        assertThat(perRound.size()).isEqualTo(result.getIterations());
+        for (int row = 0; row < perRound.size(); row++) {
+            assertThat(perRound.getRound(row)).isEqualTo(row + 1);
+        }
+    }
+    
+    @Test
+    void shouldMergeRowsInPairsOnceFullAndKeepTotalsExact() {
+        ConvergenceRecorder recorder = new ConvergenceRecorder(8, 1);
+        long totalProposals = 0;
+        for (int round = 1; round <= 1001; round++) {
+            totalProposals += round;
+            recorder.record(round, round / 2, 1001 - round, totalProposals, round / 3);
+        }
+        recorder.complete(1001, 500, 0, totalProposals, 333);
+        
+        assertThat(recorder.size()).isLessThanOrEqualTo(8);
+        assertThat(recorder.getProposalsPerRow()).isGreaterThan(1);
+        long proposals = 0;
+        long displacements = 0;
+        for (int row = 0; row < recorder.size(); row++) {
+            if (row < recorder.size() - 1) {
+                assertThat(recorder.getProposals(row)).isGreaterThanOrEqualTo(recorder.getProposalsPerRow());
+            }
+            assertThat(recorder.getMatched(row)).isEqualTo(recorder.getRound(row) / 2);
+            proposals += recorder.getProposals(row);
+            displacements += recorder.getDisplacements(row);
+        }
+        assertThat(proposals).isEqualTo(1001L * 1002 / 2);
+        assertThat(displacements).isEqualTo(333);
+        assertThat(recorder.getRound(recorder.size() - 1)).isEqualTo(1001);
+        assertThat(recorder.getFree(recorder.size() - 1)).isZero();
+        assertThatThrownBy(() -> new ConvergenceRecorder(7, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ConvergenceRecorder(8, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    @Test
+    void shouldCloseARowOnceItCoversEnoughProposals() {
+        ConvergenceRecorder recorder = new ConvergenceRecorder(8, 10);
+        assertThat(recorder.getNextProposals()).isEqualTo(10);
+        recorder.record(1, 6, 4, 12, 0);
+        assertThat(recorder.getNextProposals()).isEqualTo(22);
+        recorder.record(2, 7, 3, 16, 1);
+        recorder.record(3, 8, 2, 20, 1);
+        recorder.record(4, 9, 1, 23, 2);
+        recorder.complete(5, 10, 0, 24, 2);
+        
+        assertThat(recorder.size()).isEqualTo(3);
+        assertThat(new long[] {recorder.getRound(1), recorder.getMatched(1), recorder.getFree(1),
+                               recorder.getProposals(1), recorder.getDisplacements(1)})
+            .containsExactly(4, 9, 1, 11, 2);
+        assertThat(recorder.getRound(2)).isEqualTo(5);
+        assertThat(recorder.getProposals(2)).isEqualTo(1);
+    }
+    
+    @Test
+    void shouldExportAsCsvOrBinary(@TempDir Path directory) throws IOException {
+        ConvergenceRecorder recorder = new ConvergenceRecorder(ConvergenceRecorder.DEFAULT_MAX_ROWS, 1);
+        recorder.record(1, 3, 2, 5, 0);
+        recorder.record(2, 4, 0, 7, 1);
+        recorder.complete(2, 4, 0, 7, 1);
+        
+        Path csv = directory.resolve("rounds.csv");
+        recorder.export(csv);
+        List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+        assertThat(lines).containsExactly("round,matched,free,proposals,displacements", "1,3,2,5,0", "2,4,0,2,1");
+        
+        Path binary = directory.resolve("rounds.bin.gz");
+        recorder.export(binary);
+        try (DataInputStream data = new DataInputStream(new GZIPInputStream(Files.newInputStream(binary)))) {
+            assertThat(data.readInt()).isEqualTo(ConvergenceRecorder.BINARY_MAGIC);
+            assertThat(data.readInt()).isEqualTo(ConvergenceRecorder.BINARY_VERSION);
+            assertThat(data.readInt()).isEqualTo(2);
+            assertThat(new long[] {data.readInt(), data.readInt(), data.readInt(), data.readLong(), data.readLong()})
+                .containsExactly(1, 3, 2, 5, 0);
+            assertThat(new long[] {data.readInt(), data.readInt(), data.readInt(), data.readLong(), data.readLong()})
+                .containsExactly(2, 4, 0, 2, 1);
+            assertThat(data.read()).isEqualTo(-1);
+        }
+        
+        assertThatThrownBy(() -> recorder.export(directory.resolve("rounds.jsonl")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,149 @@
+package com.galeshapley.observer;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import com.galeshapley.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SamplingObserverTest {
+    
+    private static final String MARKET =
+        "simulation:\n" +
+        "  proposerConfig:\n" +
+        "    count: 2000\n" +
+        "    generator:\n" +
+        "      distribution:\n" +
+        "        type: uniform\n" +
+        "        emptySetProbability: 0.05\n" +
+        "  proposeeConfig:\n" +
+        "    count: 2000\n" +
+        "    generator:\n" +
+        "      distribution:\n" +
+        "        type: uniform\n" +
+        "        emptySetProbability: 0.2\n";
+    
+    @Test
+    void shouldForwardEveryNthAttemptAndExtrapolateTheTotals() throws IOException {
+        SimulationConfig config = load();
+        StatisticsObserver.Statistics full = run(config, new StatisticsObserver()).getStatistics();
+        
+        StatisticsObserver sampledStatistics = new StatisticsObserver();
+        SamplingObserver sampler = SamplingObserver.everyNth(20, sampledStatistics);
+        run(config, sampler);
+        StatisticsObserver.Statistics sampled = sampledStatistics.getStatistics();
+        SamplingObserver.Estimates estimates = sampler.getEstimates();
+        
+        assertThat(estimates.getProposalAttempts().getValue()).isEqualTo(full.getTotalIterationAttempts());
+        assertThat(estimates.getProposalAttempts().getMargin()).isZero();
+        assertThat(estimates.getSampledAttempts()).isEqualTo(full.getTotalIterationAttempts() / 20);
+        assertThat(sampled.getTotalIterationAttempts()).isEqualTo(full.getTotalIterationAttempts() / 20);
+        assertThat(sampled.getTotalProposals()).isLessThan(full.getTotalProposals() / 10);
+        assertWithin(estimates.getProposals(), full.getTotalProposals());
+        assertWithin(estimates.getAcceptances(), full.getTotalAcceptances());
+        assertWithin(estimates.getRejections(), full.getTotalRejections());
+        assertWithin(estimates.getBrokenEngagements(), full.getTotalBrokenEngagements());
+    }
+    
+    @Test
+    void shouldForwardTheWholeHistoryOfTheSampledAgents() throws IOException {
+        SimulationConfig config = load();
+        HistoryObserver full = run(config, new HistoryObserver());
+        
+        HistoryObserver history = new HistoryObserver();
+        SamplingObserver sampler = SamplingObserver.forAgents(100, 11L, history);
+        run(config, sampler);
+        HistoryObserver again = new HistoryObserver();
+        run(config, SamplingObserver.forAgents(100, 11L, again));
+        
+        // Displaced proposers also show up when a followed proposer displaces them
+        Set<Proposer> followed = history.proposals.keySet();
+        assertThat(followed).hasSizeLessThanOrEqualTo(100).hasSizeGreaterThan(90);
+        for (Proposer proposer : followed) {
+            assertThat(history.proposals.get(proposer)).isEqualTo(full.proposals.get(proposer));
+            assertThat(history.displaced.get(proposer)).isEqualTo(full.displaced.get(proposer));
+        }
+        assertThat(again.proposals).isEqualTo(history.proposals);
+        
+        SamplingObserver.Estimates estimates = sampler.getEstimates();
+        assertWithin(estimates.getProposals(), full.proposals.values().stream().mapToInt(Integer::intValue).sum());
+        assertWithin(estimates.getBrokenEngagements(), full.displaced.values().stream().mapToInt(Integer::intValue).sum());
+    }
+    
+    @Test
+    void shouldMatchTheFullRunWhenEveryAttemptIsSampled() throws IOException {
+        SimulationConfig config = load();
+        StatisticsObserver.Statistics full = run(config, new StatisticsObserver()).getStatistics();
+        StatisticsObserver statistics = new StatisticsObserver();
+        SamplingObserver sampler = SamplingObserver.everyNth(1, statistics);
+        
+        run(config, sampler);
+        
+        assertThat(statistics.getStatistics().getTotalProposals()).isEqualTo(full.getTotalProposals());
+        assertThat(statistics.getStatistics().getTotalBrokenEngagements()).isEqualTo(full.getTotalBrokenEngagements());
+        assertThat(sampler.getEstimates().getAcceptances().getValue()).isEqualTo(full.getTotalAcceptances());
+        assertThat(sampler.getEstimates().getAcceptances().getMargin()).isZero();
+        assertThatThrownBy(() -> SamplingObserver.forAgents(1, 0L, statistics))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    private static SimulationConfig load() throws IOException {
+        return new SimulationConfigLoader().loadFromString(MARKET, RuntimeOptions.builder().globalSeed(29L).build());
+    }
+    
+    private static <T extends AlgorithmObserver> T run(SimulationConfig config, T observer) {
+        GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket());
+        algorithm.addObserver(observer);
+        algorithm.execute();
+        return observer;
+    }
+    
+    private static void assertWithin(SamplingObserver.Estimate estimate, long actual) {
+        assertThat((double) actual).as("%s", estimate).isBetween(estimate.getLower(), estimate.getUpper());
+    }
+    
+    private static class HistoryObserver implements AlgorithmObserver {
+        private final Map<Proposer, Integer> proposals = new HashMap<>();
+        private final Map<Proposer, Integer> displaced = new HashMap<>();
+        
+        @Override
+        public void onAlgorithmStart(Set<Proposer> proposers, Set<Proposee> proposees) {
+        }
+        
+        @Override
+        public void onIterationStart(int iteration) {
+        }
+        
+        @Override
+        public void onProposal(Proposer proposer, Proposee proposee) {
+            proposals.merge(proposer, 1, Integer::sum);
+        }
+        
+        @Override
+        public void onAcceptance(Proposer proposer, Proposee proposee) {
+        }
+        
+        @Override
+        public void onRejection(Proposer proposer, Proposee proposee) {
+        }
+        
+        @Override
+        public void onBrokenEngagement(Proposer brokenUpWith, Proposee proposee, Proposer newProposer) {
+            displaced.merge(brokenUpWith, 1, Integer::sum);
+        }
+        
+        @Override
+        public void onIterationEnd(int iteration, Matching currentMatching) {
+        }
+        
+        @Override
+        public void onAlgorithmComplete(Matching finalMatching, int totalIterations) {
+        }
+    }
+}
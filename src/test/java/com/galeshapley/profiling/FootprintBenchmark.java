@@ -0,0 +1,360 @@
+package com.galeshapley.profiling;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import com.galeshapley.config.YamlConfig;
+import com.galeshapley.model.*;
+import com.galeshapley.observer.AlgorithmObserver;
+import com.galeshapley.observer.StatisticsObserver;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Heap retained by each stage of a simulation, in bytes per agent, for markets of increasing size.
+ *
+ * Every market has complete uniform lists on both sides and is built through
+ * {@link SimulationConfigLoader} with a fixed seed. Each stage's objects stay reachable while
+ * the next stage is measured, and a stage's footprint is the live heap after it minus the live
+ * heap before it. The engine's working state is the exception: it only lives during the run, so
+ * it is reported as the peak above the preference maps and left out of the retained total. Live
+ * heap is the total of a HotSpot class histogram, which collects garbage first; on other JVMs it
+ * falls back to the used heap after a requested collection.
+ *
+ * With {@code --maxBytesPerEntry=N} the run fails when any size retains more than N bytes per
+ * preference list entry. Complete lists grow with the square of the size, so bytes per entry
+ * stay roughly level across sizes and one budget gates all of them. This harness lives with the
+ * tests and runs from the {@code footprint} Maven profile, not from the application jar.
+ */
+public final class FootprintBenchmark {
+    
+    private static final int[] DEFAULT_SIZES = {250, 500, 1000, 2000};
+    private static final long SEED = 42L;
+    private static final int WARM_UP_SIZE = 32;
+    private static final int MAX_COLLECTIONS = 5;
+    
+    public enum Stage {
+        CONFIG_TREE("Config tree", true),
+        MARKET("Market", true),
+        PREFERENCE_MAPS("Preference maps", true),
+        ENGINE_STATE("Engine peak", false),
+        MATCHING("Matching", true),
+        STATISTICS("Statistics", true);
+        
+        private final String label;
+        private final boolean retained;
+        
+        Stage(String label, boolean retained) {
+            this.label = label;
+            this.retained = retained;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+        
+        /**
+         * @return false for a stage whose memory is freed when it ends, which the total leaves out
+         */
+        public boolean isRetained() {
+            return retained;
+        }
+    }
+    
+    private FootprintBenchmark() {
+    }
+    
+    /**
+     * Measure one market with {@code size} proposers and {@code size} proposees.
+     */
+    public static Footprint measure(int size) throws IOException {
+        long[] bytes = new long[Stage.values().length];
+        long before = liveHeapBytes();
+        
+        YamlConfig yamlConfig = YamlConfig.loadFromString(marketYaml(size));
+        long afterConfig = liveHeapBytes();
+        bytes[Stage.CONFIG_TREE.ordinal()] = afterConfig - before;
+        
+        SimulationConfig config = new SimulationConfigLoader()
+            .load(yamlConfig, RuntimeOptions.builder().globalSeed(SEED).build());
+        long afterMarket = liveHeapBytes();
+        bytes[Stage.MARKET.ordinal()] = afterMarket - afterConfig;
+        
+        // The object view of the lists is built on first use
+        Map<Proposer, PreferenceList<Proposee>> proposerPreferences = config.getProposerPreferences();
+        Map<Proposee, PreferenceList<Proposer>> proposeePreferences = config.getProposeePreferences();
+        long afterMaps = liveHeapBytes();
+        bytes[Stage.PREFERENCE_MAPS.ordinal()] = afterMaps - afterMarket;
+        
+        // The engine's working state only lives during a run, so its peak is measured from inside
+        // one; the matching is what is still reachable above the maps once the run has finished
+        GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket());
+        FirstIterationProbe probe = new FirstIterationProbe();
+        algorithm.addObserver(probe);
+        GaleShapleyAlgorithm.AlgorithmResult result = algorithm.execute();
+        bytes[Stage.ENGINE_STATE.ordinal()] = probe.liveHeapBytes - afterMaps;
+        long afterMatching = liveHeapBytes();
+        bytes[Stage.MATCHING.ordinal()] = afterMatching - afterMaps;
+        
+        StatisticsObserver statistics = collectStatistics(config);
+        bytes[Stage.STATISTICS.ordinal()] = liveHeapBytes() - afterMatching;
+        
+        // Keep every stage reachable until the last measurement
+        Reference.reachabilityFence(yamlConfig);
+        Reference.reachabilityFence(proposerPreferences);
+        Reference.reachabilityFence(proposeePreferences);
+        Reference.reachabilityFence(result);
+        Reference.reachabilityFence(statistics);
+        return new Footprint(size, preferenceEntries(config.getMarket()), bytes);
+    }
+    
+    private static long preferenceEntries(CompiledMarket market) {
+        long entries = 0;
+        for (int i = 0; i < market.getProposerCount(); i++) {
+            entries += market.getProposerPreferenceCount(i);
+        }
+        for (int j = 0; j < market.getProposeeCount(); j++) {
+            entries += market.getProposeePreferenceCount(j);
+        }
+        return entries;
+    }
+    
+    /**
+     * Measure each size in turn. A small market runs before each one: the first time it loads
+     * the classes, and later it replaces what the previous market left reachable from idle
+     * generator threads, which would otherwise be freed in the middle of the next measurement.
+     */
+    public static List<Footprint> measure(int[] sizes) throws IOException {
+        List<Footprint> footprints = new ArrayList<>();
+        for (int size : sizes) {
+            measure(WARM_UP_SIZE);
+            footprints.add(measure(size));
+        }
+        return footprints;
+    }
+    
+    /**
+     * @return the sizes whose retained total exceeds the budget per preference entry, in the
+     *         order measured
+     */
+    public static List<Footprint> overBudget(List<Footprint> footprints, double maxBytesPerEntry) {
+        List<Footprint> over = new ArrayList<>();
+        for (Footprint footprint : footprints) {
+            if (footprint.getTotalBytesPerEntry() > maxBytesPerEntry) {
+                over.add(footprint);
+            }
+        }
+        return over;
+    }
+    
+    public static String format(List<Footprint> footprints) {
+        StringBuilder table = new StringBuilder("Bytes per agent (proposers and proposees):\n");
+        table.append(String.format("  %8s", "n"));
+        for (Stage stage : Stage.values()) {
+            table.append(String.format("  %15s", stage.getLabel()));
+        }
+        table.append(String.format("  %15s  %12s  %15s%n", "Retained", "Retained MiB", "Bytes per entry"));
+        for (Footprint footprint : footprints) {
+            table.append(String.format("  %8d", footprint.getSize()));
+            for (Stage stage : Stage.values()) {
+                table.append(String.format("  %15.0f", footprint.getBytesPerAgent(stage)));
+            }
+            table.append(String.format("  %15.0f  %12.1f  %15.2f%n", footprint.getTotalBytesPerAgent(),
+                footprint.getTotalBytes() / (1024.0 * 1024.0), footprint.getTotalBytesPerEntry()));
+        }
+        table.append("Engine peak is freed after the run and not part of the retained total.\n");
+        return table.toString();
+    }
+    
+    /**
+     * Arguments: {@code --sizes=250,500,1000} and {@code --maxBytesPerEntry=N}; exits with 1
+     * when a size is over budget.
+     */
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_SIZES;
+        double maxBytesPerEntry = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring("--sizes=".length()).split(","))
+                    .map(String::trim)
+                    .mapToInt(Integer::parseInt)
+                    .toArray();
+            } else if (arg.startsWith("--maxBytesPerEntry=")) {
+                maxBytesPerEntry = Double.parseDouble(arg.substring("--maxBytesPerEntry=".length()).trim());
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        
+        List<Footprint> footprints = measure(sizes);
+        System.out.print(format(footprints));
+        if (maxBytesPerEntry > 0) {
+            List<Footprint> over = overBudget(footprints, maxBytesPerEntry);
+            for (Footprint footprint : over) {
+                System.err.printf("Footprint budget exceeded at n=%d: %.2f bytes per preference entry (budget %s)%n",
+                    footprint.getSize(), footprint.getTotalBytesPerEntry(), maxBytesPerEntry);
+            }
+            if (!over.isEmpty()) {
+                System.exit(1);
+            }
+            System.out.println("Within budget of " + maxBytesPerEntry + " bytes per preference entry");
+        }
+    }
+    
+    private static StatisticsObserver collectStatistics(SimulationConfig config) {
+        GaleShapleyAlgorithm algorithm = new GaleShapleyAlgorithm(config.getMarket());
+        StatisticsObserver statistics = new StatisticsObserver();
+        algorithm.addObserver(statistics);
+        algorithm.execute();
+        return statistics;
+    }
+    
+    private static String marketYaml(int size) {
+        return "simulation:\n"
+            + "  proposerConfig:\n"
+            + "    count: " + size + "\n"
+            + "    generator:\n"
+            + "      distribution:\n"
+            + "        type: uniform\n"
+            + "  proposeeConfig:\n"
+            + "    count: " + size + "\n"
+            + "    generator:\n"
+            + "      distribution:\n"
+            + "        type: uniform\n";
+    }
+    
+    /**
+     * Bytes of reachable objects. Some garbage (cleared references, stale weak map entries) only
+     * goes on a later collection, so collections repeat until the live total stops shrinking.
+     */
+    static long liveHeapBytes() {
+        long live = collectAndMeasure();
+        for (int attempt = 0; attempt < MAX_COLLECTIONS; attempt++) {
+            long next = collectAndMeasure();
+            if (next >= live) {
+                return next;
+            }
+            live = next;
+        }
+        return live;
+    }
+    
+    private static long collectAndMeasure() {
+        try {
+            String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[] {new String[0]}, new String[] {String[].class.getName()});
+            for (String line : histogram.split("\n")) {
+                if (line.startsWith("Total")) {
+                    String[] columns = line.trim().split("\\s+");
+                    return Long.parseLong(columns[2]);
+                }
+            }
+        } catch (JMException | RuntimeException e) {
+            // Not a HotSpot JVM; fall through to the heap usage
+        }
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * Bytes of each stage for one market size.
+     */
+    public static final class Footprint {
+        private final int size;
+        private final long preferenceEntries;
+        private final long[] bytes;
+        
+        Footprint(int size, long preferenceEntries, long[] bytes) {
+            this.size = size;
+            this.preferenceEntries = preferenceEntries;
+            this.bytes = bytes;
+        }
+        
+        public int getSize() {
+            return size;
+        }
+        
+        /**
+         * @return entries in every proposer's and proposee's list together
+         */
+        public long getPreferenceEntries() {
+            return preferenceEntries;
+        }
+        
+        public long getBytes(Stage stage) {
+            return bytes[stage.ordinal()];
+        }
+        
+        /**
+         * @return bytes of the retained stages, without the engine's peak
+         */
+        public long getTotalBytes() {
+            long total = 0;
+            for (Stage stage : Stage.values()) {
+                if (stage.isRetained()) {
+                    total += bytes[stage.ordinal()];
+                }
+            }
+            return total;
+        }
+        
+        public double getBytesPerAgent(Stage stage) {
+            return getBytes(stage) / (2.0 * size);
+        }
+        
+        public double getTotalBytesPerAgent() {
+            return getTotalBytes() / (2.0 * size);
+        }
+        
+        public double getTotalBytesPerEntry() {
+            return preferenceEntries == 0 ? 0 : (double) getTotalBytes() / preferenceEntries;
+        }
+    }
+    
+    private static final class FirstIterationProbe implements AlgorithmObserver {
+        private long liveHeapBytes;
+        
+        @Override
+        public void onAlgorithmStart(Set<Proposer> proposers, Set<Proposee> proposees) {
+        }
+        
+        @Override
+        public void onIterationStart(int iteration) {
+        }
+        
+        @Override
+        public void onProposal(Proposer proposer, Proposee proposee) {
+        }
+        
+        @Override
+        public void onAcceptance(Proposer proposer, Proposee proposee) {
+        }
+        
+        @Override
+        public void onRejection(Proposer proposer, Proposee proposee) {
+        }
+        
+        @Override
+        public void onBrokenEngagement(Proposer brokenUpWith, Proposee proposee, Proposer newProposer) {
+        }
+        
+        @Override
+        public void onIterationEnd(int iteration, Matching currentMatching) {
+            if (iteration == 1) {
+                liveHeapBytes = FootprintBenchmark.liveHeapBytes();
+            }
+        }
+        
+        @Override
+        public void onAlgorithmComplete(Matching finalMatching, int totalIterations) {
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.galeshapley.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class FootprintBenchmarkTest {
+    
+    // Complete lists: 2n^2 entries for n agents per side
+    private static final FootprintBenchmark.Footprint SMALL = new FootprintBenchmark.Footprint(
+        100, 20_000, new long[] {40_000, 60_000, 100_000, 500_000, 1_000, 2_000});
+    private static final FootprintBenchmark.Footprint LARGE = new FootprintBenchmark.Footprint(
+        200, 80_000, new long[] {160_000, 240_000, 400_000, 2_000_000, 2_000, 4_000});
+    
+    @Test
+    void shouldLeaveTheEnginePeakOutOfTheRetainedTotal() {
+        assertThat(LARGE.getBytes(FootprintBenchmark.Stage.ENGINE_STATE)).isEqualTo(2_000_000);
+        assertThat(LARGE.getTotalBytes()).isEqualTo(806_000);
+        assertThat(LARGE.getTotalBytesPerAgent()).isEqualTo(806_000 / 400.0);
+        assertThat(LARGE.getBytesPerAgent(FootprintBenchmark.Stage.MARKET)).isEqualTo(600.0);
+        assertThat(LARGE.getTotalBytesPerEntry()).isEqualTo(806_000 / 80_000.0);
+        assertThat(FootprintBenchmark.Stage.ENGINE_STATE.isRetained()).isFalse();
+    }
+    
+    @Test
+    void shouldFlagEverySizeOverTheBudgetPerEntry() {
+        List<FootprintBenchmark.Footprint> footprints = Arrays.asList(SMALL, LARGE);
+        
+        // 10.15 bytes per entry at n=100 and 10.075 at n=200
+        assertThat(FootprintBenchmark.overBudget(footprints, 10.2)).isEmpty();
+        assertThat(FootprintBenchmark.overBudget(footprints, 10.1))
+            .extracting(FootprintBenchmark.Footprint::getSize)
+            .containsExactly(100);
+        assertThat(FootprintBenchmark.overBudget(footprints, 10.0))
+            .extracting(FootprintBenchmark.Footprint::getSize)
+            .containsExactly(100, 200);
+    }
+    
+    @Test
+    void shouldFormatOneRowPerSize() {
+        String table = FootprintBenchmark.format(Arrays.asList(SMALL, LARGE));
+        
+        assertThat(table)
+            .contains("Preference maps", "Engine peak", "Statistics", "Retained", "Bytes per entry")
+            .containsPattern("\\n\\s+100\\s+200\\s+300\\s+500\\s+2500\\s+5\\s+10\\s+1015\\s+0\\.2\\s+10\\.15\\n")
+            .containsPattern("\\n\\s+200\\s");
+    }
+}
@@ -0,0 +1,100 @@
+package com.galeshapley.profiling;
+
+import com.galeshapley.algorithm.GaleShapleyAlgorithm;
+import com.galeshapley.config.RuntimeOptions;
+import com.galeshapley.config.SimulationConfig;
+import com.galeshapley.config.SimulationConfigLoader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PhaseTimerTest {
+    
+    private static final String BULK_CONFIG =
+        "simulation:\n" +
+        "  proposerConfig:\n" +
+        "    count: 40\n" +
+        "    generator:\n" +
+        "      distribution:\n" +
+        "        type: uniform\n" +
+        "  proposeeConfig:\n" +
+        "    count: 40\n" +
+        "    generator:\n" +
+        "      distribution:\n" +
+        "        type: uniform\n";
+    
+    @Test
+    void shouldPauseAPhaseWhileANestedPhaseRuns() throws InterruptedException {
+        PhaseTimer timer = new PhaseTimer();
+        
+        String result = timer.time(Phase.GENERATE, () -> timer.time(Phase.VALIDATE, () -> {
+            Thread.sleep(50);
+            return "done";
+        }));
+        
+        assertThat(result).isEqualTo("done");
+        
+        assertThat(timer.getNanos(Phase.VALIDATE)).isGreaterThanOrEqualTo(50_000_000L);
+        assertThat(timer.getNanos(Phase.GENERATE)).isLessThan(timer.getNanos(Phase.VALIDATE));
+        assertThat(timer.getTotalNanos()).isEqualTo(timer.getNanos(Phase.GENERATE) + timer.getNanos(Phase.VALIDATE));
+        assertThat(timer.getNanos(Phase.SOLVE)).isZero();
+        assertThat(timer.toString()).contains("Validate configuration:").contains("Total:");
+    }
+    
+    @Test
+    void shouldRejectEndingAPhaseBeforeItsNestedPhase() {
+        PhaseTimer timer = new PhaseTimer();
+        PhaseTimer.Span generate = timer.start(Phase.GENERATE);
+        PhaseTimer.Span validate = timer.start(Phase.VALIDATE);
+        
+        assertThatThrownBy(generate::close).isInstanceOf(IllegalStateException.class);
+        validate.close();
+        generate.close();
+        assertThat(timer.getNanos(Phase.GENERATE)).isPositive();
+    }
+    
+    @Test
+    void shouldRecordPhasesAndIterationBatchesWithFlightRecorder(@TempDir Path directory) throws Exception {
+        Path dump = directory.resolve("simulation.jfr");
+        PhaseTimer timer = new PhaseTimer();
+        GaleShapleyAlgorithm.AlgorithmResult result;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.galeshapley.Phase").withoutThreshold();
+            recording.enable("com.galeshapley.IterationBatch").withoutThreshold();
+            recording.start();
+            
+            SimulationConfig config = new SimulationConfigLoader(timer).loadFromString(BULK_CONFIG);
+            RuntimeOptions options = RuntimeOptions.builder().iterationEventInterval(2).build();
+            result = new GaleShapleyAlgorithm(config.getMarket(), options).execute();
+            
+            recording.stop();
+            recording.dump(dump);
+        }
+        
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        List<String> phases = events.stream()
+            .filter(event -> event.getEventType().getName().equals("com.galeshapley.Phase"))
+            .map(event -> event.getString("phase"))
+            .collect(Collectors.toList());
+        List<RecordedEvent> batches = events.stream()
+            .filter(event -> event.getEventType().getName().equals("com.galeshapley.IterationBatch"))
+            .collect(Collectors.toList());
+        
+        assertThat(phases).containsExactlyInAnyOrder(Phase.PARSE.getLabel(), Phase.GENERATE.getLabel(),
+            Phase.VALIDATE.getLabel(), Phase.PREPROCESS.getLabel());
+        assertThat(timer.getNanos(Phase.PARSE)).isPositive();
+        assertThat(timer.getNanos(Phase.PREPROCESS)).isPositive();
+        assertThat(batches).hasSize((result.getIterations() + 1) / 2);
+        assertThat(batches.stream().mapToInt(event -> event.getInt("iterations")).sum())
+            .isEqualTo(result.getIterations());
+        assertThat(batches.stream().mapToLong(event -> event.getLong("proposals")).sum()).isPositive();
+    }
+}
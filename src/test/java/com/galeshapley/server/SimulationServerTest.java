@@ -0,0 +1,164 @@
+package com.galeshapley.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SimulationServerTest {
+    
+    private static final ObjectMapper JSON = new ObjectMapper();
+    
+    private SimulationServer server;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        server = SimulationServer.builder().port(0).workers(2).queueCapacity(4)
+            .configDirectory(Paths.get("src/test/resources"))
+            .build();
+        server.start();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+    
+    @Test
+    void shouldRunPostedConfigFileAndReportStatus() throws IOException {
+        HttpURLConnection connection = post("{\"configFile\": \"stable-matching-config.yaml\","
+            + " \"options\": {\"maxIterations\": 100}}");
+        
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        JsonNode result = read(connection.getInputStream());
+        
+        assertThat(result.get("proposers").asInt()).isEqualTo(3);
+        assertThat(result.get("matches")).hasSize(3);
+        assertThat(result.get("matches").get(0).get("proposer").asText()).isEqualTo("m1");
+        assertThat(result.get("matches").get(0).get("proposee").asText()).isEqualTo("w1");
+        assertThat(result.get("statistics").get("totalProposals").asInt()).isEqualTo(3);
+        
+        HttpURLConnection status = (HttpURLConnection) url("/status").openConnection();
+        JsonNode statusJson = read(status.getInputStream());
+        
+        assertThat(statusJson.get("workers").asInt()).isEqualTo(2);
+        assertThat(statusJson.get("completed").asLong()).isEqualTo(1);
+        assertThat(statusJson.get("latencyMillis").get("count").asLong()).isEqualTo(1);
+    }
+    
+    @Test
+    void shouldRunInlineYamlAndRejectBadRequests() throws IOException {
+        String yaml = "simulation:\\n  proposers: [{id: a, name: A}]\\n  proposees: [{id: b, name: B}]\\n"
+            + "  proposerPreferences: {a: [b]}\\n  proposeePreferences: {b: [a]}\\n";
+        HttpURLConnection connection = post("{\"configYaml\": \"" + yaml + "\"}");
+        
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(read(connection.getInputStream()).get("matches")).hasSize(1);
+        
+        HttpURLConnection missing = post("{\"options\": {}}");
+        assertThat(missing.getResponseCode()).isEqualTo(400);
+        assertThat(read(missing.getErrorStream()).get("error").asText())
+            .contains("exactly one of configFile, configYaml or config");
+    }
+    
+    @Test
+    void shouldRefuseFilesOutsideTheConfigDirectoryAndNonRunOptions() throws IOException {
+        HttpURLConnection outside = post("{\"configFile\": \"../../../pom.xml\"}");
+        assertThat(outside.getResponseCode()).isEqualTo(400);
+        assertThat(read(outside.getErrorStream()).get("error").asText()).contains("config directory");
+        
+        HttpURLConnection absolute = post("{\"configFile\": \"/etc/hostname\"}");
+        assertThat(absolute.getResponseCode()).isEqualTo(400);
+        
+        HttpURLConnection scratch = post("{\"configFile\": \"stable-matching-config.yaml\","
+            + " \"options\": {\"scratchDir\": \"/tmp\"}}");
+        assertThat(scratch.getResponseCode()).isEqualTo(400);
+        assertThat(read(scratch.getErrorStream()).get("error").asText()).contains("scratchDir");
+        
+        HttpURLConnection seeded = post("{\"configFile\": \"stable-matching-config.yaml\","
+            + " \"options\": {\"global-seed\": 7, \"solver\": \"gale_shapley\"}}");
+        assertThat(seeded.getResponseCode()).isEqualTo(200);
+    }
+    
+    @Test
+    void shouldConfineFeatureFilesToTheConfigDirectoryWithoutEchoingThem() throws IOException {
+        HttpURLConnection outside = post(latentConfig("../../../pom.xml"));
+        assertThat(outside.getResponseCode()).isEqualTo(400);
+        assertThat(read(outside.getErrorStream()).get("error").asText())
+            .isEqualTo("featureFile must be inside the server's config directory");
+        
+        // Not a feature file: the error says where it failed but not what the file holds
+        HttpURLConnection malformed = post(latentConfig("stable-matching-config.yaml"));
+        assertThat(malformed.getResponseCode()).isEqualTo(400);
+        assertThat(read(malformed.getErrorStream()).get("error").asText())
+            .startsWith("Feature file stable-matching-config.yaml line 1 has 1 columns")
+            .doesNotContain("simulation");
+    }
+    
+    @Test
+    void shouldLeaveGaleShapleyStatisticsOutOfOtherSolversResults() throws IOException {
+        HttpURLConnection connection = post("{\"configFile\": \"stable-matching-config.yaml\","
+            + " \"options\": {\"solver\": \"egalitarian\"}}");
+        
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        JsonNode result = read(connection.getInputStream());
+        assertThat(result.has("cost")).isTrue();
+        assertThat(result.has("statistics")).isFalse();
+        assertThat(result.get("matches")).hasSize(3);
+    }
+    
+    @Test
+    void shouldRefuseConfigFilesWithoutAConfigDirectory() throws IOException {
+        server.stop();
+        server = SimulationServer.builder().port(0).workers(1).queueCapacity(1).build();
+        server.start();
+        
+        HttpURLConnection connection = post("{\"configFile\": \"src/test/resources/stable-matching-config.yaml\"}");
+        
+        assertThat(connection.getResponseCode()).isEqualTo(400);
+        assertThat(read(connection.getErrorStream()).get("error").asText()).contains("configFile is disabled");
+        
+        HttpURLConnection features = post(latentConfig("src/test/resources/stable-matching-config.yaml"));
+        assertThat(features.getResponseCode()).isEqualTo(400);
+        assertThat(read(features.getErrorStream()).get("error").asText()).contains("featureFile is disabled");
+    }
+    
+    private static String latentConfig(String featureFile) {
+        return "{\"config\": {\"simulation\": {"
+            + "\"proposerConfig\": {\"count\": 2, \"generator\": {\"distribution\": {\"type\": \"uniform\"}}},"
+            + "\"proposeeConfig\": {\"count\": 2, \"generator\": {\"distribution\": "
+            + "{\"type\": \"latent\", \"featureFile\": \"" + featureFile + "\"}}}}}}";
+    }
+    
+    private HttpURLConnection post(String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url("/simulate").openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+    
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getPort() + path);
+    }
+    
+    private static JsonNode read(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            return JSON.readTree(in);
+        }
+    }
+}